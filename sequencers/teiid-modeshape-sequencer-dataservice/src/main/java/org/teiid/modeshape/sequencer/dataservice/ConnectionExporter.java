@@ -27,15 +27,17 @@ import java.util.Properties;
 import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.PropertyIterator;
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.StringUtil;
+import org.teiid.modeshape.metrics.ExportMetrics;
+import org.teiid.modeshape.metrics.MetricsRecorder;
 import org.teiid.modeshape.sequencer.Options;
 import org.teiid.modeshape.sequencer.dataservice.Connection.Type;
 import org.teiid.modeshape.sequencer.dataservice.lexicon.DataVirtLexicon;
 import org.teiid.modeshape.sequencer.internal.AbstractExporter;
+import org.teiid.modeshape.util.XmlUtil;
 
 /**
  * An exporter for {@link Connection connections}.
@@ -125,11 +127,15 @@ public class ConnectionExporter extends AbstractExporter {
         XMLStreamWriter xmlWriter = null;
 
         try {
+            final MetricsRecorder.Timer traversal = result.startPhase( ExportMetrics.NODE_TRAVERSAL );
             final Connection connection = constructConnection( connectionNode, options );
+            result.addNodesExported( 1 );
+            traversal.stop();
+
+            final MetricsRecorder.Timer xmlWrite = result.startPhase( ExportMetrics.XML_WRITE );
             final StringWriter stringWriter = new StringWriter();
 
-            final XMLOutputFactory xof = XMLOutputFactory.newInstance();
-            xmlWriter = xof.createXMLStreamWriter( stringWriter );
+            xmlWriter = XmlUtil.outputFactory().createXMLStreamWriter( stringWriter );
             xmlWriter.writeStartDocument( "UTF-8", "1.0" );
 
             // root element
@@ -182,10 +188,19 @@ public class ConnectionExporter extends AbstractExporter {
             xmlWriter.writeEndDocument();
 
             final String xml = stringWriter.toString().trim();
-            LOGGER.debug( "Connection {0} xml: \n{1}", connection.getName(), prettyPrint( xml, options ) );
+            xmlWrite.stop();
+
+            if ( LOGGER.isDebugEnabled() ) {
+                LOGGER.debug( "Connection {0} xml: \n{1}", connection.getName(), prettyPrint( xml, options ) );
+            }
 
-            final String pretty = ( isPrettyPrint( options ) ? prettyPrint( xml, options ) : xml );
-            result.setOutcome( pretty, String.class );
+            if ( isPrettyPrint( options ) ) {
+                try ( final MetricsRecorder.Timer timer = result.startPhase( ExportMetrics.PRETTY_PRINT ) ) {
+                    result.setOutcome( prettyPrint( xml, options ), String.class );
+                }
+            } else {
+                result.setOutcome( xml, String.class );
+            }
         } catch ( final Exception e ) {
             result.setError( TeiidI18n.errorExportingConnection.text(), e );
         } finally {
@@ -36,6 +36,8 @@ import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.api.nodetype.NodeTypeManager;
 import org.modeshape.jcr.api.sequencer.Sequencer;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.dataservice.lexicon.DataVirtLexicon;
 
 /**
@@ -45,6 +47,7 @@ import org.teiid.modeshape.sequencer.dataservice.lexicon.DataVirtLexicon;
 public class ConnectionSequencer extends Sequencer {
 
     private static final Logger LOGGER = Logger.getLogger( ConnectionSequencer.class );
+    private static final MetricsRecorder METRICS = new MetricsRecorder( ConnectionSequencer.class );
 
     /**
      * @see org.modeshape.jcr.api.sequencer.Sequencer#execute(javax.jcr.Property, javax.jcr.Node,
@@ -57,6 +60,7 @@ public class ConnectionSequencer extends Sequencer {
         LOGGER.debug( "Connection sequencer execute called with output node of " + outputNode.getPath() );
         final Binary binaryValue = inputProperty.getBinary();
         CheckArg.isNotNull( binaryValue, "binary" );
+        METRICS.increment( SequencingMetrics.BYTES_READ, binaryValue.getSize() );
 
         try ( final InputStream connectionStream = binaryValue.getStream() ) {
             sequenceConnection( connectionStream, outputNode );
@@ -89,7 +93,13 @@ public class ConnectionSequencer extends Sequencer {
         LOGGER.debug( "----before reading connection" );
 
         final ConnectionReader reader = new ConnectionReader();
-        final Connection connection = reader.read( inputStream );
+        final Connection connection;
+
+        try ( final MetricsRecorder.Timer timer = METRICS.start( SequencingMetrics.MANIFEST_READ ) ) {
+            connection = reader.read( inputStream );
+        }
+
+        final MetricsRecorder.Timer writeTimer = METRICS.start( SequencingMetrics.NODE_WRITE );
 
         // Create the output node for each connection
         outputNode.getSession().move( outputNode.getPath(), ( outputNode.getParent().getPath() + '/' + connection.getName() ) );
@@ -120,6 +130,7 @@ public class ConnectionSequencer extends Sequencer {
             }
         }
 
+        writeTimer.stop();
         LOGGER.debug( ">>>>done reading connection xml\n\n" );
         return connection;
     }
@@ -132,14 +143,24 @@ public class ConnectionSequencer extends Sequencer {
      */
     public Connection sequenceConnection( final InputStream connectionStream,
                                           final Node connectionOutputNode ) throws Exception {
-        final Connection ds = readConnection( Objects.requireNonNull( connectionStream, "connectionStream" ),
-                                              Objects.requireNonNull( connectionOutputNode, "connectionOutputNode" ),
-                                              null );
+        final MetricsRecorder.Timer sequenceTimer = METRICS.startExclusive( SequencingMetrics.SEQUENCE );
+        final Connection ds;
+
+        try {
+            ds = readConnection( Objects.requireNonNull( connectionStream, "connectionStream" ),
+                                 Objects.requireNonNull( connectionOutputNode, "connectionOutputNode" ),
+                                 null );
+
+            if ( ds == null ) {
+                throw new Exception( TeiidI18n.errorReadingDatasourceFile.text( connectionOutputNode.getPath() ) );
+            }
 
-        if ( ds == null ) {
-            throw new Exception( TeiidI18n.errorReadingDatasourceFile.text( connectionOutputNode.getPath() ) );
+            sequenceTimer.stop();
+        } finally {
+            sequenceTimer.discard();
         }
 
+        SequencingMetrics.recordOutput( METRICS, connectionOutputNode );
         return ds;
     }
 
@@ -25,18 +25,23 @@ import static org.teiid.modeshape.sequencer.dataservice.DataServiceManifest.MANI
 import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import javax.jcr.Binary;
@@ -48,12 +53,13 @@ import javax.jcr.Session;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
 import javax.jcr.query.QueryResult;
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.jcr.api.JcrConstants;
+import org.teiid.modeshape.metrics.ExportMetrics;
+import org.teiid.modeshape.metrics.MetricsRecorder;
 import org.teiid.modeshape.sequencer.Options;
 import org.teiid.modeshape.sequencer.Result;
 import org.teiid.modeshape.sequencer.dataservice.DataServiceEntry.PublishPolicy;
@@ -62,6 +68,7 @@ import org.teiid.modeshape.sequencer.internal.AbstractExporter;
 import org.teiid.modeshape.sequencer.vdb.VdbExporter;
 import org.teiid.modeshape.sequencer.vdb.VdbManifest;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.XmlUtil;
 
 /**
  * An exporter for data services.
@@ -77,11 +84,18 @@ public class DataServiceExporter extends AbstractExporter {
      */
     public static final String RESULT_ENTRY_PATHS = "data-service-exporter.result-entry-paths";
 
+    /**
+     * The file extensions of archive entries whose content is already compressed.
+     */
+    private static final String[] COMPRESSED_EXTENSIONS = { ".jar", ".vdb", ".zip" };
+
     private static final String DEFAULT_CONNECTIONS_FOLDER = "connections/";
-    private static final SimpleDateFormat DEFAULT_DATE_FORMATTER = new SimpleDateFormat( DataServiceManifest.DATE_PATTERN );
+    private static final DateTimeFormatter DEFAULT_DATE_FORMATTER = DataServiceManifest.DATE_FORMATTER;
     private static final String DEFAULT_DRIVERS_EXPORT_FOLDER = "drivers/";
+    private static final int DEFAULT_EXPORT_THREADS = 1;
     private static final String DEFAULT_METADATA_FOLDER = "metadata/";
     private static final String DEFAULT_RESOURCES_FOLDER = "resources/";
+    private static final boolean DEFAULT_STORE_COMPRESSED_ENTRIES = false;
     private static final String DEFAULT_UDFS_FOLDER = "udfs/";
     private static final String DEFAULT_VDBS_FOLDER = "vdbs/";
 
@@ -94,6 +108,30 @@ public class DataServiceExporter extends AbstractExporter {
 
     private static final Logger LOGGER = Logger.getLogger( DataServiceExporter.class );
 
+    private static final ThreadFactory EXPORT_THREAD_FACTORY = new ThreadFactory() {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread( final Runnable runnable ) {
+            final Thread thread = new Thread( runnable, "data-service-export-" + this.count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    };
+
+    private DataServiceManifest constructManifest( final Node dataService,
+                                                   final Options options,
+                                                   final Map< DataServiceEntry, Node > entryNodeMap,
+                                                   final ResultImpl result ) throws Exception {
+        try ( final MetricsRecorder.Timer timer = result.startPhase( ExportMetrics.NODE_TRAVERSAL ) ) {
+            final DataServiceManifest manifest = constructManifest( dataService, options, entryNodeMap );
+            result.addNodesExported( 1 + entryNodeMap.size() );
+            return manifest;
+        }
+    }
+
     private DataServiceManifest constructManifest( final Node dataService,
                                                    final Options options,
                                                    final Map< DataServiceEntry, Node > entryNodeMap ) throws Exception {
@@ -349,7 +387,7 @@ public class DataServiceExporter extends AbstractExporter {
             }
 
             // export the data service manifest
-            final DataServiceManifest manifest = constructManifest( dataService, options, entryNodeMap );
+            final DataServiceManifest manifest = constructManifest( dataService, options, entryNodeMap, result );
             exportManifest( dataService, options, manifest, result );
 
             final byte[] manifestBytes = ( ( String )result.getOutcome() ).getBytes();
@@ -361,63 +399,28 @@ public class DataServiceExporter extends AbstractExporter {
                 return;
             }
 
-            { // export VDBs
-                final List< VdbEntry > entries = new ArrayList<>();
-
-                if ( manifest.getServiceVdb() != null ) {
-                    entries.add( manifest.getServiceVdb() );
-
-                    if ( manifest.getServiceVdb().getVdbs().length != 0 ) {
-                        entries.addAll( Arrays.asList( manifest.getServiceVdb().getVdbs() ) );
-                    }
-                }
-
-                entries.addAll( Arrays.asList( manifest.getVdbs() ) );
+            { // export VDBs and connections
+                final List< DataServiceEntry > entries = getNestedEntries( manifest );
 
                 if ( !entries.isEmpty() ) {
-                    for ( final VdbEntry entry : entries ) {
-                        final VdbExporter exporter = new VdbExporter();
-                        final Node vdb = entryNodeMap.get( entry );
-                        final Result vdbResult = exporter.execute( vdb, options );
+                    final List< Result > nestedResults = exportNestedEntries( entries, entryNodeMap, options );
 
-                        if ( vdbResult.wasSuccessful() ) {
-                            final String xml = ( String )vdbResult.getOutcome();
-                            final byte[] data = xml.getBytes();
-                            entryPaths.add( entry.getPath() );
-                            contents.add( data );
-                            LOGGER.debug( "Added {0} VDB to exported data service files", entry.getPath() );
-                        } else {
-                            result.setError( vdbResult.getErrorMessage(), vdbResult.getError() );
-                            return;
-                        }
-                    }
-                } else {
-                    LOGGER.debug( "No VDBs found to export" );
-                }
-            }
-
-            { // export connections
-                final ConnectionEntry[] connections = manifest.getConnections();
+                    for ( int i = 0, size = nestedResults.size(); i < size; ++i ) {
+                        final DataServiceEntry entry = entries.get( i );
+                        final Result nestedResult = nestedResults.get( i );
 
-                if ( connections.length != 0 ) {
-                    for ( final ConnectionEntry entry : connections ) {
-                        final ConnectionExporter exporter = new ConnectionExporter();
-                        final Node connection = entryNodeMap.get( entry );
-                        final Result connectionResult = exporter.execute( connection, options );
-
-                        if ( connectionResult.wasSuccessful() ) {
-                            final String xml = ( String )connectionResult.getOutcome();
-                            final byte[] data = xml.getBytes();
+                        if ( nestedResult.wasSuccessful() ) {
+                            final String xml = ( String )nestedResult.getOutcome();
                             entryPaths.add( entry.getPath() );
-                            contents.add( data );
-                            LOGGER.debug( "Added {0} connection to exported data service files", entry.getPath() );
+                            contents.add( xml.getBytes() );
+                            LOGGER.debug( "Added {0} to exported data service files", entry.getPath() );
                         } else {
-                            result.setError( connectionResult.getErrorMessage(), connectionResult.getError() );
+                            result.setError( nestedResult.getErrorMessage(), nestedResult.getError() );
                             return;
                         }
                     }
                 } else {
-                    LOGGER.debug( "No connections found to export" );
+                    LOGGER.debug( "No VDBs or connections found to export" );
                 }
             }
 
@@ -437,10 +440,8 @@ public class DataServiceExporter extends AbstractExporter {
 
                             if ( content.hasProperty( JcrConstants.JCR_DATA ) ) {
                                 final Binary value = content.getProperty( JcrConstants.JCR_DATA ).getBinary();
-                                final byte[] data = new byte[ ( int )value.getSize() ];
-                                value.read( data, 0 );
                                 entryPaths.add( entry.getPath() );
-                                contents.add( data );
+                                contents.add( readBinary( value, result ) );
                                 LOGGER.debug( "Added {0} resource to exported data service files", entry.getPath() );
                             } else {
                                 LOGGER.info( TeiidI18n.missingDataServiceReferenceDataProperty,
@@ -476,6 +477,8 @@ public class DataServiceExporter extends AbstractExporter {
                               final ResultImpl result ) {
         try ( final ByteArrayOutputStream bos = new ByteArrayOutputStream();
               final ZipOutputStream zipStream = new ZipOutputStream( bos ); ) {
+            zipStream.setLevel( getCompressionLevel( options ) );
+            final boolean storeCompressed = isStoreCompressedEntries( options );
             final NodeIterator itr = dataService.getNodes();
 
             if ( !itr.hasNext() ) {
@@ -484,88 +487,41 @@ public class DataServiceExporter extends AbstractExporter {
             }
 
             // export the data service manifest
-            exportManifest( dataService, options, entryNodeMap, result );
+            final DataServiceManifest manifest = constructManifest( dataService, options, entryNodeMap, result );
+            LOGGER.debug( "Manifest constructed" );
+            exportManifest( dataService, options, manifest, result );
 
             if ( !result.wasSuccessful() ) {
                 return;
             }
 
             final String manifestXml = ( String )result.getOutcome();
-            final ZipEntry manZipEntry = new ZipEntry( MANIFEST_ZIP_PATH );
-            zipStream.putNextEntry( manZipEntry );
-            zipStream.write( manifestXml.getBytes() );
-            zipStream.closeEntry();
-            LOGGER.debug( "Added manifest zip entry {0}", manZipEntry.getName() );
+            addZipEntry( zipStream, MANIFEST_ZIP_PATH, manifestXml.getBytes(), false, result );
+            LOGGER.debug( "Added manifest zip entry {0}", MANIFEST_ZIP_PATH );
 
             // export the data service entries
-            final DataServiceManifest manifest = constructManifest( dataService, options, entryNodeMap );
-            LOGGER.debug( "Manifest constructed" );
-
-            { // export VDBs
-                final List< VdbEntry > entries = new ArrayList<>();
 
-                if ( manifest.getServiceVdb() != null ) {
-                    entries.add( manifest.getServiceVdb() );
-
-                    if ( manifest.getServiceVdb().getVdbs().length != 0 ) {
-                        entries.addAll( Arrays.asList( manifest.getServiceVdb().getVdbs() ) );
-                    }
-                }
-
-                entries.addAll( Arrays.asList( manifest.getVdbs() ) );
+            { // export VDBs and connections
+                final List< DataServiceEntry > entries = getNestedEntries( manifest );
 
                 if ( !entries.isEmpty() ) {
-                    for ( final VdbEntry entry : entries ) {
-                        final VdbExporter exporter = new VdbExporter();
-                        final Node vdb = entryNodeMap.get( entry );
-                        final Result vdbResult = exporter.execute( vdb, options );
-
-                        if ( vdbResult.wasSuccessful() ) {
-                            final String xml = ( String )vdbResult.getOutcome();
-                            final byte[] data = xml.getBytes();
-
-                            final ZipEntry zipEntry = new ZipEntry( entry.getPath() );
-                            zipStream.putNextEntry( zipEntry );
-                            zipStream.write( data );
-                            zipStream.flush();
-                            zipStream.closeEntry();
-                            LOGGER.debug( "Added VDB zip entry: {0}", entry.getPath() );
-                        } else {
-                            result.setError( vdbResult.getErrorMessage(), vdbResult.getError() );
-                            return;
-                        }
-                    }
-                } else {
-                    LOGGER.debug( "No VDBs found to export" );
-                }
-            }
+                    final List< Result > nestedResults = exportNestedEntries( entries, entryNodeMap, options );
 
-            { // export connections
-                final ConnectionEntry[] connections = manifest.getConnections();
-
-                if ( connections.length != 0 ) {
-                    for ( final ConnectionEntry entry : connections ) {
-                        final ConnectionExporter exporter = new ConnectionExporter();
-                        final Node connection = entryNodeMap.get( entry );
-                        final Result connectionResult = exporter.execute( connection, options );
-
-                        if ( connectionResult.wasSuccessful() ) {
-                            final String xml = ( String )connectionResult.getOutcome();
-                            final byte[] data = xml.getBytes();
-
-                            final ZipEntry zipEntry = new ZipEntry( entry.getPath() );
-                            zipStream.putNextEntry( zipEntry );
-                            zipStream.write( data );
-                            zipStream.flush();
-                            zipStream.closeEntry();
-                            LOGGER.debug( "Added connection zip entry: {0}", entry.getPath() );
+                    for ( int i = 0, size = nestedResults.size(); i < size; ++i ) {
+                        final DataServiceEntry entry = entries.get( i );
+                        final Result nestedResult = nestedResults.get( i );
+
+                        if ( nestedResult.wasSuccessful() ) {
+                            final String xml = ( String )nestedResult.getOutcome();
+                            addZipEntry( zipStream, entry.getPath(), xml.getBytes(), false, result );
+                            LOGGER.debug( "Added zip entry: {0}", entry.getPath() );
                         } else {
-                            result.setError( connectionResult.getErrorMessage(), connectionResult.getError() );
+                            result.setError( nestedResult.getErrorMessage(), nestedResult.getError() );
                             return;
                         }
                     }
                 } else {
-                    LOGGER.debug( "No connections found to export" );
+                    LOGGER.debug( "No VDBs or connections found to export" );
                 }
             }
 
@@ -585,14 +541,11 @@ public class DataServiceExporter extends AbstractExporter {
 
                             if ( content.hasProperty( JcrConstants.JCR_DATA ) ) {
                                 final Binary value = content.getProperty( JcrConstants.JCR_DATA ).getBinary();
-                                final byte[] data = new byte[ ( int )value.getSize() ];
-                                value.read( data, 0 );
-
-                                final ZipEntry zipEntry = new ZipEntry( entry.getPath() );
-                                zipStream.putNextEntry( zipEntry );
-                                zipStream.write( data );
-                                zipStream.flush();
-                                zipStream.closeEntry();
+                                addZipEntry( zipStream,
+                                             entry.getPath(),
+                                             readBinary( value, result ),
+                                             ( storeCompressed && isCompressedContent( entry.getPath() ) ),
+                                             result );
                                 LOGGER.debug( "Added zip entry: {0}", entry.getPath() );
                             } else {
                                 LOGGER.info( TeiidI18n.missingDataServiceReferenceDataProperty,
@@ -612,6 +565,7 @@ public class DataServiceExporter extends AbstractExporter {
                 }
             }
 
+            zipStream.finish(); // writes the central directory
             result.setOutcome( bos.toByteArray(), byte[].class );
         } catch ( final Exception e ) {
             result.setError( TeiidI18n.errorExportingDataServiceZip.text(), e );
@@ -623,7 +577,7 @@ public class DataServiceExporter extends AbstractExporter {
                                  final Map< DataServiceEntry, Node > entryNodeMap,
                                  final ResultImpl result ) {
         try {
-            final DataServiceManifest manifest = constructManifest( dataService, options, entryNodeMap );
+            final DataServiceManifest manifest = constructManifest( dataService, options, entryNodeMap, result );
             exportManifest( dataService, options, manifest, result );
         } catch ( final Exception e ) {
             result.setError( TeiidI18n.errorConstructingDataServiceManifest.text(), e );
@@ -637,9 +591,9 @@ public class DataServiceExporter extends AbstractExporter {
         XMLStreamWriter xmlWriter = null;
 
         try {
+            final MetricsRecorder.Timer xmlWrite = result.startPhase( ExportMetrics.XML_WRITE );
             final StringWriter stringWriter = new StringWriter();
-            final XMLOutputFactory xof = XMLOutputFactory.newInstance();
-            xmlWriter = xof.createXMLStreamWriter( stringWriter );
+            xmlWriter = XmlUtil.outputFactory().createXMLStreamWriter( stringWriter );
             xmlWriter.writeStartDocument( "UTF-8", "1.0" );
 
             // root element
@@ -657,9 +611,7 @@ public class DataServiceExporter extends AbstractExporter {
             if ( manifest.getLastModified() != null ) {
                 xmlWriter.writeStartElement( DataVirtLexicon.DataServiceManifestId.LAST_MODIFIED );
 
-                final LocalDateTime modifiedDate = manifest.getLastModified();
-                final Calendar calendar = GregorianCalendar.from( modifiedDate.atZone( ZoneId.systemDefault() ) );
-                xmlWriter.writeCharacters( getDateFormatter( options ).format( calendar.getTime() ) );
+                xmlWriter.writeCharacters( formatDate( manifest.getLastModified(), options ) );
                 xmlWriter.writeEndElement();
             }
 
@@ -843,10 +795,19 @@ public class DataServiceExporter extends AbstractExporter {
             xmlWriter.writeEndDocument();
 
             final String xml = stringWriter.toString().trim();
-            LOGGER.debug( "Data service {0} manifest: \n{1}", dataService.getPath(), prettyPrint( xml, options ) );
+            xmlWrite.stop();
 
-            final String pretty = ( isPrettyPrint( options ) ? prettyPrint( xml, options ) : xml );
-            result.setOutcome( pretty, String.class );
+            if ( LOGGER.isDebugEnabled() ) {
+                LOGGER.debug( "Data service {0} manifest: \n{1}", dataService.getPath(), prettyPrint( xml, options ) );
+            }
+
+            if ( isPrettyPrint( options ) ) {
+                try ( final MetricsRecorder.Timer timer = result.startPhase( ExportMetrics.PRETTY_PRINT ) ) {
+                    result.setOutcome( prettyPrint( xml, options ), String.class );
+                }
+            } else {
+                result.setOutcome( xml, String.class );
+            }
         } catch ( final Exception e ) {
             result.setError( TeiidI18n.errorExportingDataServiceManifest.text(), e );
         } finally {
@@ -890,6 +851,97 @@ public class DataServiceExporter extends AbstractExporter {
         }
     }
 
+    private void addZipEntry( final ZipOutputStream zipStream,
+                              final String path,
+                              final byte[] data,
+                              final boolean store,
+                              final ResultImpl result ) throws Exception {
+        try ( final MetricsRecorder.Timer timer = result.startPhase( ExportMetrics.ZIP_ASSEMBLY ) ) {
+            final ZipEntry zipEntry = new ZipEntry( path );
+
+            // stored entries must have their size and CRC set before they are written
+            if ( store ) {
+                final CRC32 crc = new CRC32();
+                crc.update( data, 0, data.length );
+                zipEntry.setMethod( ZipEntry.STORED );
+                zipEntry.setSize( data.length );
+                zipEntry.setCompressedSize( data.length );
+                zipEntry.setCrc( crc.getValue() );
+            }
+
+            zipStream.putNextEntry( zipEntry );
+            zipStream.write( data );
+            zipStream.flush();
+            zipStream.closeEntry();
+        }
+    }
+
+    /**
+     * Exports the VDB and connection entries. When more than one export thread is requested, the entries are still read one
+     * after another on the calling thread, since the session must not be used concurrently, but their documents are rendered
+     * concurrently. The results are always returned in the order of the entries. Stops at the first unsuccessful export.
+     *
+     * @param entries
+     *        the VDB and connection entries in manifest order (cannot be <code>null</code>)
+     * @param entryNodeMap
+     *        the nodes being referenced by the entries (cannot be <code>null</code>)
+     * @param options
+     *        the export options (cannot be <code>null</code>)
+     * @return the export results with the same order as the entries (never <code>null</code>)
+     * @throws Exception
+     *         if an error occurs waiting for an export to complete
+     */
+    private List< Result > exportNestedEntries( final List< DataServiceEntry > entries,
+                                                final Map< DataServiceEntry, Node > entryNodeMap,
+                                                final Options options ) throws Exception {
+        final VdbExporter vdbExporter = new VdbExporter();
+        final ConnectionExporter connectionExporter = new ConnectionExporter();
+        final int numThreads = Math.min( getExportThreads( options ), entries.size() );
+        final List< Result > results = new ArrayList<>( entries.size() );
+
+        if ( numThreads <= 1 ) {
+            for ( final DataServiceEntry entry : entries ) {
+                final AbstractExporter exporter = ( ( entry instanceof ConnectionEntry ) ? connectionExporter : vdbExporter );
+                final Result nestedResult = exporter.execute( entryNodeMap.get( entry ), options );
+                results.add( nestedResult );
+
+                if ( !nestedResult.wasSuccessful() ) {
+                    break;
+                }
+            }
+
+            return results;
+        }
+
+        LOGGER.debug( "Exporting {0} VDBs and connections using {1} threads", entries.size(), numThreads );
+        final ExecutorService executor = Executors.newFixedThreadPool( numThreads, EXPORT_THREAD_FACTORY );
+
+        try {
+            final List< Future< Result > > futures = new ArrayList<>( entries.size() );
+
+            for ( final DataServiceEntry entry : entries ) {
+                final AbstractExporter exporter = ( ( entry instanceof ConnectionEntry ) ? connectionExporter : vdbExporter );
+
+                // read the nodes here and only render on the pool
+                final AbstractExporter.PreparedExport export = exporter.prepare( entryNodeMap.get( entry ), options );
+                futures.add( executor.submit( export::render ) );
+            }
+
+            for ( final Future< Result > future : futures ) {
+                final Result nestedResult = future.get();
+                results.add( nestedResult );
+
+                if ( !nestedResult.wasSuccessful() ) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
     private Node findReference( final Node node ) throws Exception {
         Node reference = null;
 
@@ -905,15 +957,22 @@ public class DataServiceExporter extends AbstractExporter {
         return reference;
     }
 
-    private DateFormat getDateFormatter( final Options options ) {
+    private String formatDate( final LocalDateTime date,
+                               final Options options ) {
         assert ( options != null );
         final Object temp = options.get( OptionName.DATE_FORMATTER, DEFAULT_DATE_FORMATTER );
 
-        if ( !( temp instanceof DateFormat ) ) {
-            return DEFAULT_DATE_FORMATTER;
+        if ( temp instanceof DateTimeFormatter ) {
+            return ( ( DateTimeFormatter )temp ).format( date );
+        }
+
+        // legacy formatters are not thread-safe so never use the caller's instance directly
+        if ( temp instanceof DateFormat ) {
+            final DateFormat formatter = ( DateFormat )( ( DateFormat )temp ).clone();
+            return formatter.format( Date.from( date.atZone( ZoneId.systemDefault() ).toInstant() ) );
         }
 
-        return ( DateFormat )temp;
+        return DEFAULT_DATE_FORMATTER.format( date );
     }
 
     private ExportArtifact getExportArtifact( final Options options ) {
@@ -927,6 +986,85 @@ public class DataServiceExporter extends AbstractExporter {
         return ( ExportArtifact )temp;
     }
 
+    private byte[] readBinary( final Binary value,
+                               final ResultImpl result ) throws Exception {
+        try ( final MetricsRecorder.Timer timer = result.startPhase( ExportMetrics.ZIP_ASSEMBLY ) ) {
+            final byte[] data = new byte[ ( int )value.getSize() ];
+            value.read( data, 0 );
+            return data;
+        }
+    }
+
+    private int getCompressionLevel( final Options options ) {
+        assert ( options != null );
+        final Object temp = options.get( OptionName.COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION );
+
+        if ( !( temp instanceof Integer ) ) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+
+        final int level = ( Integer )temp;
+
+        if ( ( level < Deflater.NO_COMPRESSION ) || ( level > Deflater.BEST_COMPRESSION ) ) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+
+        return level;
+    }
+
+    private int getExportThreads( final Options options ) {
+        assert ( options != null );
+        final Object temp = options.get( OptionName.EXPORT_THREADS, DEFAULT_EXPORT_THREADS );
+
+        if ( !( temp instanceof Integer ) ) {
+            return DEFAULT_EXPORT_THREADS;
+        }
+
+        return ( Integer )temp;
+    }
+
+    /**
+     * @param manifest
+     *        the manifest whose VDB and connection entries are being requested (cannot be <code>null</code>)
+     * @return the service VDB, its dependencies, the other VDBs, and the connections in that order (never <code>null</code>)
+     */
+    private List< DataServiceEntry > getNestedEntries( final DataServiceManifest manifest ) {
+        final List< DataServiceEntry > entries = new ArrayList<>();
+
+        if ( manifest.getServiceVdb() != null ) {
+            entries.add( manifest.getServiceVdb() );
+
+            if ( manifest.getServiceVdb().getVdbs().length != 0 ) {
+                entries.addAll( Arrays.asList( manifest.getServiceVdb().getVdbs() ) );
+            }
+        }
+
+        entries.addAll( Arrays.asList( manifest.getVdbs() ) );
+        entries.addAll( Arrays.asList( manifest.getConnections() ) );
+        return entries;
+    }
+
+    private boolean isCompressedContent( final String path ) {
+        for ( final String extension : COMPRESSED_EXTENSIONS ) {
+            if ( path.regionMatches( true, path.length() - extension.length(), extension, 0, extension.length() ) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isStoreCompressedEntries( final Options options ) {
+        assert ( options != null );
+        final Object temp = options.get( OptionName.STORE_COMPRESSED_ENTRIES, DEFAULT_STORE_COMPRESSED_ENTRIES );
+
+        if ( !( temp instanceof Boolean ) ) {
+            return DEFAULT_STORE_COMPRESSED_ENTRIES;
+        }
+
+        return ( Boolean )temp;
+    }
+
     private void setEntryProperties( final Node node,
                                      final DataServiceEntry entry,
                                      final String entryFolder ) throws Exception {
@@ -1046,6 +1184,13 @@ public class DataServiceExporter extends AbstractExporter {
      */
     public interface OptionName {
 
+        /**
+         * Property whose value is the <code>Integer</code> deflate level, from <code>0</code> to <code>9</code>, of the zip
+         * entries of a {@link ExportArtifact#DATA_SERVICE_AS_ZIP data service archive}. Default value is
+         * {@link Deflater#DEFAULT_COMPRESSION}.
+         */
+        public String COMPRESSION_LEVEL = "export.compression_level";
+
         /**
          * Property whose value is the zip entry folder path for connection files (like *-connection.xml). Default value is
          * <code>connections/</code>.
@@ -1053,9 +1198,8 @@ public class DataServiceExporter extends AbstractExporter {
         public String CONNECTIONS_FOLDER = "export.connections_folder";
 
         /**
-         * The {@link DateFormat formatter} to use for dates.
-         *
-         * @see DataServiceExporter#DEFAULT_DATE_FORMATTER
+         * The {@link DateTimeFormatter formatter} to use for dates. Default value is {@link DataServiceManifest#DATE_FORMATTER}.
+         * A {@link DateFormat} is also accepted, in which case a copy of it is used for each export.
          */
         public String DATE_FORMATTER = "export.date_formatter";
 
@@ -1071,6 +1215,14 @@ public class DataServiceExporter extends AbstractExporter {
          */
         public String EXPORT_ARTIFACT = "export.artifact";
 
+        /**
+         * Property whose value is the <code>Integer</code> maximum number of threads used to render the VDB and connection
+         * documents of a data service. The nodes being exported are always read in the calling thread, so the session is never
+         * used concurrently, and the exported documents are always added in manifest order. Default value is <code>1</code>,
+         * which exports them one after another in the calling thread.
+         */
+        public String EXPORT_THREADS = "export.threads";
+
         /**
          * Property whose value is the zip entry folder path for metadata files (*.ddl). Default value is <code>metadata/</code>.
          */
@@ -1081,6 +1233,14 @@ public class DataServiceExporter extends AbstractExporter {
          */
         public String RESOURCES_FOLDER = "export.resources_folder";
 
+        /**
+         * Property whose value is a <code>Boolean</code> indicating if the driver, UDF, and resource entries whose content is
+         * already compressed (<code>.jar</code>, <code>.vdb</code>, and <code>.zip</code> files) are added to a
+         * {@link ExportArtifact#DATA_SERVICE_AS_ZIP data service archive} without being deflated again. Default value is
+         * <code>false</code>.
+         */
+        public String STORE_COMPRESSED_ENTRIES = "export.store_compressed_entries";
+
         /**
          * Property whose value is the zip entry folder path for UDF files. Default value is <code>udfs/</code>.
          */
@@ -22,16 +22,18 @@
 package org.teiid.modeshape.sequencer.dataservice;
 
 import static org.teiid.modeshape.sequencer.dataservice.DataServiceManifest.MANIFEST_ZIP_PATH;
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.zip.ZipEntry;
@@ -42,18 +44,26 @@ import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
 import javax.jcr.Value;
 import javax.jcr.ValueFactory;
+import javax.jcr.query.Query;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.SecureHash;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.jcr.api.JcrConstants;
 import org.modeshape.jcr.api.nodetype.NodeTypeManager;
 import org.modeshape.jcr.api.sequencer.Sequencer;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.dataservice.DataServiceEntry.PublishPolicy;
 import org.teiid.modeshape.sequencer.dataservice.lexicon.DataVirtLexicon;
 import org.teiid.modeshape.sequencer.vdb.VdbDynamicSequencer;
+import org.teiid.modeshape.sequencer.vdb.VdbManifest;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.BinaryUtil;
+import org.teiid.modeshape.util.SequencingBudget;
 
 /**
  * A sequencer of Teiid data service archives.
@@ -67,13 +77,53 @@ public class DataServiceSequencer extends Sequencer {
      */
     public static final String CONNECTION_PATH_PROPERTY = "dv.connection.path";
 
+    /**
+     * A system property indicating if a driver, UDF, metadata, or resource file whose content matches an existing file of the
+     * same type should reference that existing file instead of being published again. Only applies to entries having an
+     * {@link PublishPolicy#IF_MISSING} publish policy. Default is <code>false</code>.
+     * <p>
+     * Each such entry is looked up with a query on the {@link DataVirtLexicon.ResourceFile#SHA256 digest} of the files. ModeShape
+     * defines no index by default, so without a value index on that property every lookup scans all the files in the
+     * repository. For example, with a <code>local</code> index provider the repository configuration should contain:
+     *
+     * <pre>
+     * "indexes" : {
+     *     "dvResourceFileDigests" : {
+     *         "kind" : "value",
+     *         "provider" : "local",
+     *         "nodeType" : "dv:resourceFile",
+     *         "columns" : "dv:sha256(STRING)"
+     *     }
+     * }
+     * </pre>
+     *
+     * or, in a WildFly server, the index can be added with:
+     *
+     * <pre>
+     * /subsystem=modeshape/repository=dv/index=dvResourceFileDigests:add(provider-name=local, index-kind=VALUE,
+     *     node-type-name="dv:resourceFile", columns="dv:sha256(STRING)")
+     * </pre>
+     */
+    public static final String DEDUPLICATE_CONTENT_PROPERTY = "dv.content.deduplicate";
+
     /**
      * A system property for storing the absolute root path where driver archives should be sequenced. If no value is set, it
      * defaults to the same parent path as the data service node.
      */
     public static final String DRIVER_PATH_PROPERTY = "dv.driver.path";
 
+    private static final int DEFAULT_VDB_PARALLELISM = 1;
+
+    /**
+     * Finds the files having a digest. The query is on the base file type so that it can be served by one index on the digest.
+     *
+     * @see #DEDUPLICATE_CONTENT_PROPERTY
+     */
+    static final String DIGEST_QUERY = "SELECT [jcr:path] FROM [" + DataVirtLexicon.ResourceFile.NODE_TYPE + "] WHERE ["
+                                       + DataVirtLexicon.ResourceFile.SHA256 + "] = $digest";
+
     private static final Logger LOGGER = Logger.getLogger( DataServiceSequencer.class );
+    private static final MetricsRecorder METRICS = new MetricsRecorder( DataServiceSequencer.class );
 
     /**
      * A system property for storing the absolute root path where metadata files, like DDL, should be sequenced. If no value is
@@ -99,10 +149,20 @@ public class DataServiceSequencer extends Sequencer {
      */
     public static final String VDB_PATH_PROPERTY = "dv.vdb.path";
 
+    /**
+     * A system property for the maximum number of VDB manifests of a data service that are parsed concurrently. The VDB nodes
+     * are always written one at a time, in the order given by the VDB imports. A value less than two parses the manifests one
+     * at a time on the sequencing thread. Each manifest being parsed is held in memory, and the parser threads, at most one per
+     * available processor, are shared by all the data services being sequenced. Default is <code>1</code>.
+     */
+    public static final String VDB_PARALLELISM_PROPERTY = "dv.vdb.parallelism";
+
     private String connectionPath;
 
     private ConnectionSequencer connectionSequencer; // constructed during initialize method
 
+    private Boolean deduplicateContent;
+
     private String driverPath;
 
     private String metadataPath;
@@ -127,17 +187,25 @@ public class DataServiceSequencer extends Sequencer {
                       outputNode.getName(),
                       outputNode.getPath() );
 
-        final Binary binaryValue = inputProperty.getBinary();
+        final Binary binaryValue = Objects.requireNonNull( inputProperty.getBinary(), "binaryValue" );
+        final MetricsRecorder.Timer sequenceTimer = METRICS.startExclusive( SequencingMetrics.SEQUENCE );
         DataServiceManifest manifest = null;
         Node serviceVdbEntryNode = null;
+        final SequencingBudget.Ticket ticket;
+
+        try ( final MetricsRecorder.Timer timer = METRICS.start( SequencingMetrics.BUDGET_WAIT ) ) {
+            ticket = SequencingBudget.shared().admit( SequencingBudget.estimateArchiveCost( binaryValue.getSize() ) );
+        } catch ( final Exception e ) {
+            sequenceTimer.discard();
+            throw e;
+        }
 
         try {
             // read manifest
-            try ( final ZipInputStream zis = new ZipInputStream( Objects.requireNonNull( binaryValue,
-                                                                                         "binaryValue" ).getStream() ) ) {
+            try ( final ZipInputStream zis = SequencingBudget.openArchive( binaryValue.getStream() ) ) {
                 ZipEntry entry = null;
 
-                while ( ( entry = zis.getNextEntry() ) != null ) {
+                while ( ( entry = nextEntry( zis ) ) != null ) {
                     final String entryName = entry.getName();
 
                     if ( entry.isDirectory() ) {
@@ -152,6 +220,8 @@ public class DataServiceSequencer extends Sequencer {
                 }
             }
 
+            METRICS.increment( SequencingMetrics.BYTES_READ, binaryValue.getSize() );
+
             // make sure we have a manifest
             if ( manifest == null ) {
                 throw new Exception( TeiidI18n.missingDataServiceManifestFile.text( inputProperty.getPath() ) );
@@ -164,10 +234,10 @@ public class DataServiceSequencer extends Sequencer {
             if ( serviceVdb != null ) {
                 final String serviceVdbPath = serviceVdb.getPath();
 
-                try ( final ZipInputStream zis = new ZipInputStream( binaryValue.getStream() ) ) {
+                try ( final ZipInputStream zis = SequencingBudget.openArchive( binaryValue.getStream() ) ) {
                     ZipEntry entry = null;
 
-                    while ( ( entry = zis.getNextEntry() ) != null ) {
+                    while ( ( entry = nextEntry( zis ) ) != null ) {
                         final String entryName = entry.getName();
 
                         if ( entry.isDirectory() ) {
@@ -189,7 +259,7 @@ public class DataServiceSequencer extends Sequencer {
             // sequence everything else
             sequenceFiles( manifest, binaryValue, outputNode );
             sequenceConnections( manifest, binaryValue, outputNode, inputProperty, context );
-            sequenceVdbs( manifest, binaryValue, outputNode, serviceVdbEntryNode, inputProperty, context );
+            sequenceVdbs( manifest, binaryValue, outputNode, serviceVdbEntryNode, ticket );
 
             if ( LOGGER.isDebugEnabled() ) {
                 final NodeIterator itr = outputNode.getNodes();
@@ -212,9 +282,14 @@ public class DataServiceSequencer extends Sequencer {
                 }
             }
 
+            sequenceTimer.stop();
+            SequencingMetrics.recordOutput( METRICS, outputNode );
             return true;
         } catch ( final Exception e ) {
             throw new Exception( TeiidI18n.errorReadingDataserviceFile.text( inputProperty.getPath(), e.getMessage() ), e );
+        } finally {
+            sequenceTimer.discard();
+            ticket.close();
         }
     }
 
@@ -243,20 +318,15 @@ public class DataServiceSequencer extends Sequencer {
     private Node findExistingNode( final Node parentNode,
                                    final DataServiceEntry entry,
                                    final String primaryNodeType ) throws Exception {
-        final String path = ( parentNode.getPath() + '/' + entry.getEntryName() );
+        final String name = entry.getEntryName();
 
-        // see if a node exists with that name
-        if ( parentNode.getSession().nodeExists( path ) ) {
-            final NodeIterator itr = parentNode.getNodes();
+        // see if a node exists with that name and type
+        if ( parentNode.hasNode( name ) ) {
+            final Node node = parentNode.getNode( name );
 
-            // see if type matches
-            while ( itr.hasNext() ) {
-                final Node node = itr.nextNode();
-
-                if ( node.getPrimaryNodeType().getName().equals( primaryNodeType ) ) {
-                    LOGGER.debug( "found existing node at path {0} with type of {1}", node.getPath(), primaryNodeType );
-                    return node;
-                }
+            if ( node.getPrimaryNodeType().getName().equals( primaryNodeType ) ) {
+                LOGGER.debug( "found existing node at path {0} with type of {1}", node.getPath(), primaryNodeType );
+                return node;
             }
         }
 
@@ -267,6 +337,34 @@ public class DataServiceSequencer extends Sequencer {
         return null;
     }
 
+    private Node findFileWithDigest( final Session session,
+                                     final Map< String, Node > digestIndex,
+                                     final String fileNodeType,
+                                     final String digest ) throws Exception {
+        // files published earlier during this sequencing are not yet visible to queries
+        final Node published = digestIndex.get( fileNodeType + '/' + digest );
+
+        if ( published != null ) {
+            return published;
+        }
+
+        final Query query = session.getWorkspace().getQueryManager().createQuery( DIGEST_QUERY, Query.JCR_SQL2 );
+        query.bindValue( "digest", session.getValueFactory().createValue( digest ) );
+        final NodeIterator itr = query.execute().getNodes();
+
+        // query includes every file type so make sure type matches
+        while ( itr.hasNext() ) {
+            final Node node = itr.nextNode();
+
+            if ( node.getPrimaryNodeType().getName().equals( fileNodeType ) ) {
+                LOGGER.debug( "found existing file at path {0} with digest of {1}", node.getPath(), digest );
+                return node;
+            }
+        }
+
+        return null;
+    }
+
     private DataServiceEntry findMetadataEntry( final String path,
                                                 final DataServiceManifest manifest ) {
         for ( final DataServiceEntry entry : manifest.getMetadata() ) {
@@ -404,6 +502,41 @@ public class DataServiceSequencer extends Sequencer {
         return dataServiceNode.getParent();
     }
 
+    /**
+     * @param entryNode the data service entry node (cannot be <code>null</code>)
+     * @return the node sequenced for, or matched by, the entry (can be <code>null</code> if there is none)
+     * @throws Exception if an error occurs
+     */
+    private Node getReferencedNode( final Node entryNode ) throws Exception {
+        if ( entryNode.hasProperty( DataVirtLexicon.ConnectionEntry.CONNECTION_REF ) ) {
+            return entryNode.getProperty( DataVirtLexicon.ConnectionEntry.CONNECTION_REF ).getNode();
+        }
+
+        if ( entryNode.hasProperty( DataVirtLexicon.DataServiceEntry.SOURCE_RESOURCE ) ) {
+            return entryNode.getProperty( DataVirtLexicon.DataServiceEntry.SOURCE_RESOURCE ).getNode();
+        }
+
+        return null;
+    }
+
+    private int getVdbParallelism() {
+        return Integer.getInteger( VDB_PARALLELISM_PROPERTY, DEFAULT_VDB_PARALLELISM );
+    }
+
+    private boolean shouldDeduplicateContent() {
+        if ( this.deduplicateContent == null ) {
+            return Boolean.getBoolean( DEDUPLICATE_CONTENT_PROPERTY );
+        }
+
+        return this.deduplicateContent;
+    }
+
+    private ZipEntry nextEntry( final ZipInputStream zis ) throws IOException {
+        try ( final MetricsRecorder.Timer timer = METRICS.start( SequencingMetrics.ZIP_INFLATION ) ) {
+            return zis.getNextEntry();
+        }
+    }
+
     /**
      * @throws IOException
      * @see org.modeshape.jcr.api.sequencer.Sequencer#initialize(javax.jcr.NamespaceRegistry,
@@ -429,7 +562,12 @@ public class DataServiceSequencer extends Sequencer {
                                               final Context context ) throws Exception {
         LOGGER.debug( "before reading manifest xml" );
 
-        final DataServiceManifest manifest = DataServiceManifest.read( inputStream );
+        final DataServiceManifest manifest;
+
+        try ( final MetricsRecorder.Timer timer = METRICS.start( SequencingMetrics.MANIFEST_READ ) ) {
+            manifest = DataServiceManifest.read( inputStream );
+        }
+
         outputNode.setPrimaryType( DataVirtLexicon.DataService.NODE_TYPE );
         outputNode.setProperty( DataVirtLexicon.DataService.NAME, manifest.getName() );
 
@@ -527,10 +665,10 @@ public class DataServiceSequencer extends Sequencer {
                                       final Property inputProperty,
                                       final Context context ) throws Exception {
         LOGGER.debug( "sequenceDataSources called: all connections sequenced at once" );
-        try ( final ZipInputStream zis = new ZipInputStream( binaryValue.getStream() ) ) {
+        try ( final ZipInputStream zis = SequencingBudget.openArchive( binaryValue.getStream() ) ) {
             ZipEntry entry = null;
 
-            while ( ( entry = zis.getNextEntry() ) != null ) {
+            while ( ( entry = nextEntry( zis ) ) != null ) {
                 final String entryName = entry.getName();
 
                 if ( entry.isDirectory() ) {
@@ -548,19 +686,25 @@ public class DataServiceSequencer extends Sequencer {
     }
 
     private void sequenceDriver( final ZipInputStream zis,
+                                 final ZipEntry zipEntry,
                                  final DataServiceEntry driverEntry,
-                                 final Node dataServiceNode ) throws Exception {
+                                 final Node dataServiceNode,
+                                 final Map< String, Node > digestIndex ) throws Exception {
         sequenceFile( zis,
+                      zipEntry,
                       driverEntry,
                       dataServiceNode,
+                      digestIndex,
                       getDriverRoot( dataServiceNode ),
                       DataVirtLexicon.ResourceEntry.DRIVER_ENTRY_NODE_TYPE,
                       DataVirtLexicon.ResourceFile.DRIVER_FILE_NODE_TYPE );
     }
 
     private void sequenceFile( final ZipInputStream zis,
+                               final ZipEntry zipEntry,
                                final DataServiceEntry entry,
                                final Node dataServiceNode,
+                               final Map< String, Node > digestIndex,
                                final Node resourceParentNode,
                                final String entryNodeType,
                                final String fileNodeType ) throws Exception {
@@ -597,39 +741,41 @@ public class DataServiceSequencer extends Sequencer {
         }
 
         if ( save ) {
+            final Session session = dataServiceNode.getSession();
+            final ValueFactory valueFactory = session.getValueFactory();
+
+            // stream the entry straight from the archive computing its digest along the way
+            final MessageDigest messageDigest = MessageDigest.getInstance( SecureHash.Algorithm.SHA_256.digestName() );
+            final Binary binary = BinaryUtil.createBinary( valueFactory,
+                                                           new DigestInputStream( zis, messageDigest ),
+                                                           zipEntry.getName() );
+            final String digest = SecureHash.asHexString( messageDigest.digest() );
+
+            // reference an existing file having the same content if allowed
+            if ( ( publishPolicy == PublishPolicy.IF_MISSING ) && shouldDeduplicateContent() ) {
+                final Node match = findFileWithDigest( session, digestIndex, fileNodeType, digest );
+
+                if ( match != null ) {
+                    binary.dispose();
+                    entryNode.setProperty( DataVirtLexicon.DataServiceEntry.SOURCE_RESOURCE, valueFactory.createValue( match ) );
+                    return;
+                }
+            }
+
             final Node fileNode = resourceParentNode.addNode( entry.getEntryName(), fileNodeType );
+            fileNode.setProperty( DataVirtLexicon.ResourceFile.SHA256, digest );
+            digestIndex.put( fileNodeType + '/' + digest, fileNode );
 
             // add reference to file node to its entry node
-            final ValueFactory valueFactory = dataServiceNode.getSession().getValueFactory();
             final Value ref = valueFactory.createValue( fileNode );
             entryNode.setProperty( DataVirtLexicon.DataServiceEntry.SOURCE_RESOURCE, ref );
 
-            // upload file
-            final byte[] buf = new byte[ 1024 ];
-            final File file = File.createTempFile( entry.getEntryName(), null );
-
-            try {
-                try ( final FileOutputStream fos = new FileOutputStream( file ) ) {
-                    int numRead = 0;
-
-                    while ( ( numRead = zis.read( buf ) ) > 0 ) {
-                        fos.write( buf, 0, numRead );
-                    }
-                }
+            // set content and data properties
+            final Node contentNode = fileNode.addNode( JcrConstants.JCR_CONTENT, JcrConstants.NT_RESOURCE );
+            contentNode.setProperty( JcrConstants.JCR_DATA, binary );
 
-                // set content and data properties
-                final InputStream fileContent = new BufferedInputStream( new FileInputStream( file ) );
-                final Binary binary = valueFactory.createBinary( fileContent );
-                final Node contentNode = fileNode.addNode( JcrConstants.JCR_CONTENT, JcrConstants.NT_RESOURCE );
-                contentNode.setProperty( JcrConstants.JCR_DATA, binary );
-
-                // set last modified property
-                final Calendar lastModified = Calendar.getInstance();
-                lastModified.setTimeInMillis( file.lastModified() );
-                contentNode.setProperty( "jcr:lastModified", lastModified );
-            } finally {
-                file.delete();
-            }
+            // set last modified property
+            contentNode.setProperty( "jcr:lastModified", BinaryUtil.lastModified( zipEntry ) );
         }
     }
 
@@ -637,10 +783,12 @@ public class DataServiceSequencer extends Sequencer {
                                 final Binary binaryValue,
                                 final Node dataServiceNode ) throws Exception {
         LOGGER.debug( "sequenceFiles called: all files sequenced at once" );
-        try ( final ZipInputStream zis = new ZipInputStream( binaryValue.getStream() ) ) {
+        final Map< String, Node > digestIndex = new HashMap<>();
+
+        try ( final ZipInputStream zis = SequencingBudget.openArchive( binaryValue.getStream() ) ) {
             ZipEntry entry = null;
 
-            while ( ( entry = zis.getNextEntry() ) != null ) {
+            while ( ( entry = nextEntry( zis ) ) != null ) {
                 final String entryName = entry.getName();
 
                 if ( entry.isDirectory() ) {
@@ -648,13 +796,13 @@ public class DataServiceSequencer extends Sequencer {
                 }
 
                 if ( findDriverEntry( entryName, manifest ) != null ) {
-                    sequenceDriver( zis, findDriverEntry( entryName, manifest ), dataServiceNode );
+                    sequenceDriver( zis, entry, findDriverEntry( entryName, manifest ), dataServiceNode, digestIndex );
                 } else if ( findMetadataEntry( entryName, manifest ) != null ) {
-                    sequenceMetadata( zis, findMetadataEntry( entryName, manifest ), dataServiceNode );
+                    sequenceMetadata( zis, entry, findMetadataEntry( entryName, manifest ), dataServiceNode, digestIndex );
                 } else if ( findResourceEntry( entryName, manifest ) != null ) {
-                    sequenceResource( zis, findResourceEntry( entryName, manifest ), dataServiceNode );
+                    sequenceResource( zis, entry, findResourceEntry( entryName, manifest ), dataServiceNode, digestIndex );
                 } else if ( findUdfEntry( entryName, manifest ) != null ) {
-                    sequenceUdf( zis, findUdfEntry( entryName, manifest ), dataServiceNode );
+                    sequenceUdf( zis, entry, findUdfEntry( entryName, manifest ), dataServiceNode, digestIndex );
                 }
             }
         } catch ( final Exception e ) {
@@ -663,22 +811,30 @@ public class DataServiceSequencer extends Sequencer {
     }
 
     private void sequenceMetadata( final ZipInputStream zis,
+                                   final ZipEntry zipEntry,
                                    final DataServiceEntry metadataEntry,
-                                   final Node dataServiceNode ) throws Exception {
+                                   final Node dataServiceNode,
+                                   final Map< String, Node > digestIndex ) throws Exception {
         sequenceFile( zis,
+                      zipEntry,
                       metadataEntry,
                       dataServiceNode,
+                      digestIndex,
                       getMetadataRoot( dataServiceNode ),
                       DataVirtLexicon.ResourceEntry.DDL_ENTRY_NODE_TYPE,
                       DataVirtLexicon.ResourceFile.DDL_FILE_NODE_TYPE );
     }
 
     private void sequenceResource( final ZipInputStream zis,
+                                   final ZipEntry zipEntry,
                                    final DataServiceEntry resourceEntry,
-                                   final Node dataServiceNode ) throws Exception {
+                                   final Node dataServiceNode,
+                                   final Map< String, Node > digestIndex ) throws Exception {
         sequenceFile( zis,
+                      zipEntry,
                       resourceEntry,
                       dataServiceNode,
+                      digestIndex,
                       getResourceRoot( dataServiceNode ),
                       DataVirtLexicon.ResourceEntry.NODE_TYPE,
                       DataVirtLexicon.ResourceFile.NODE_TYPE );
@@ -689,79 +845,53 @@ public class DataServiceSequencer extends Sequencer {
                                      final Node dataServiceNode ) throws Exception {
         LOGGER.debug( "sequenceServiceVdb" );
         final Node vdbEntryNode = dataServiceNode.addNode( vdbEntry.getEntryName(), DataVirtLexicon.ServiceVdbEntry.NODE_TYPE );
-        vdbEntryNode.setProperty( DataVirtLexicon.ServiceVdbEntry.PATH, vdbEntry.getPath() );
-        vdbEntryNode.setProperty( DataVirtLexicon.ServiceVdbEntry.VDB_NAME, vdbEntry.getVdbName() );
-        vdbEntryNode.setProperty( DataVirtLexicon.ServiceVdbEntry.VDB_VERSION, vdbEntry.getVdbVersion() );
-
-        // publish policy
-        final PublishPolicy publishPolicy = vdbEntry.getPublishPolicy();
-        vdbEntryNode.setProperty( DataVirtLexicon.ServiceVdbEntry.PUBLISH_POLICY, publishPolicy.name() );
-
-        // sequence data source if necessary
-        boolean shouldSequence = false;
-
-        switch ( publishPolicy ) {
-            case ALWAYS:
-                shouldSequence = true;
-                break;
-            case IF_MISSING:
-                final Node match = findExistingNode( getVdbRoot( dataServiceNode ), vdbEntry, VdbLexicon.Vdb.VIRTUAL_DATABASE );
-
-                if ( match == null ) {
-                    shouldSequence = true;
-                } else {
-                    // add reference to existing node
-                    final Value ref = dataServiceNode.getSession().getValueFactory().createValue( match );
-                    vdbEntryNode.setProperty( DataVirtLexicon.DataServiceEntry.SOURCE_RESOURCE, ref );
-                }
-
-                break;
-            case NEVER:
-                break;
-            default:
-                throw new Exception( TeiidI18n.unexpectedDeployPolicy.text( vdbEntry.getPublishPolicy(), vdbEntry.getPath() ) );
-        }
-
-        if ( shouldSequence ) {
-            final Node parent = getVdbRoot( dataServiceNode );
-            final Node vdbNode = parent.addNode( vdbEntry.getVdbName(), VdbLexicon.Vdb.VIRTUAL_DATABASE );
-            final boolean success = this.vdbSequencer.sequenceVdb( stream, vdbNode );
-
-            if ( success ) {
-                // reference sequenced node from the connection entry
-                final Value ref = dataServiceNode.getSession().getValueFactory().createValue( vdbNode );
-                vdbEntryNode.setProperty( DataVirtLexicon.ConnectionEntry.CONNECTION_REF, ref );
-            } else {
-                vdbNode.remove();
-                vdbEntryNode.remove();
-                throw new Exception( TeiidI18n.dataSourceNotSequenced.text( vdbEntry.getPath() ) );
-            }
-        }
-
+        sequenceVdbEntry( vdbEntry, vdbEntryNode, dataServiceNode, vdbNode -> this.vdbSequencer.sequenceVdb( stream, vdbNode ) );
         return vdbEntryNode;
     }
 
     private void sequenceUdf( final ZipInputStream zis,
+                              final ZipEntry zipEntry,
                               final DataServiceEntry udfEntry,
-                              final Node dataServiceNode ) throws Exception {
+                              final Node dataServiceNode,
+                              final Map< String, Node > digestIndex ) throws Exception {
         sequenceFile( zis,
+                      zipEntry,
                       udfEntry,
                       dataServiceNode,
+                      digestIndex,
                       getUdfRoot( dataServiceNode ),
                       DataVirtLexicon.ResourceEntry.UDF_ENTRY_NODE_TYPE,
                       DataVirtLexicon.ResourceFile.UDF_FILE_NODE_TYPE );
     }
 
-    private void sequenceVdb( final InputStream stream,
+    private Node sequenceVdb( final VdbManifest manifest,
                               final Node dataServiceNode,
                               final Node serviceVdbNode,
-                              final VdbEntry vdbEntry,
-                              final Property inputProperty,
-                              final Context context ) throws Exception {
-        final Node vdbEntryNode = ( ( vdbEntry.getContainer() instanceof DataServiceManifest ) ? dataServiceNode.addNode( vdbEntry.getEntryName(),
-                                                                                                                          DataVirtLexicon.VdbEntry.NODE_TYPE )
-                                                                                               : serviceVdbNode.addNode( vdbEntry.getEntryName(),
-                                                                                                                         DataVirtLexicon.VdbEntry.NODE_TYPE ) );
+                              final VdbEntry vdbEntry ) throws Exception {
+        final Node parent = ( ( vdbEntry.getContainer() instanceof DataServiceManifest ) ? dataServiceNode : serviceVdbNode );
+        final Node vdbEntryNode = parent.addNode( vdbEntry.getEntryName(), DataVirtLexicon.VdbEntry.NODE_TYPE );
+        return sequenceVdbEntry( vdbEntry,
+                                 vdbEntryNode,
+                                 dataServiceNode,
+                                 vdbNode -> this.vdbSequencer.sequenceVdb( manifest, vdbNode ) );
+    }
+
+    /**
+     * Sets the properties of a VDB entry node and, if the publish policy requires it, sequences the VDB. The VDB entry node
+     * references either the VDB node just sequenced or the existing VDB node matching the entry.
+     *
+     * @param vdbEntry the VDB entry (cannot be <code>null</code>)
+     * @param vdbEntryNode the node of the VDB entry, which is removed if the VDB is not sequenced (cannot be <code>null</code>)
+     * @param dataServiceNode the data service node (cannot be <code>null</code>)
+     * @param vdbSequencing sequences the VDB into a new VDB node (cannot be <code>null</code>)
+     * @return the VDB node just sequenced, the existing VDB node matching the entry, or <code>null</code> if the VDB was not
+     *         published
+     * @throws Exception if the VDB was not sequenced or an error occurs
+     */
+    private Node sequenceVdbEntry( final VdbEntry vdbEntry,
+                                   final Node vdbEntryNode,
+                                   final Node dataServiceNode,
+                                   final VdbSequencing vdbSequencing ) throws Exception {
         vdbEntryNode.setProperty( DataVirtLexicon.VdbEntry.PATH, vdbEntry.getPath() );
         vdbEntryNode.setProperty( DataVirtLexicon.VdbEntry.VDB_NAME, vdbEntry.getVdbName() );
         vdbEntryNode.setProperty( DataVirtLexicon.VdbEntry.VDB_VERSION, vdbEntry.getVdbVersion() );
@@ -772,13 +902,14 @@ public class DataServiceSequencer extends Sequencer {
 
         // sequence VDB if necessary
         boolean shouldSequence = false;
+        Node match = null;
 
         switch ( publishPolicy ) {
             case ALWAYS:
                 shouldSequence = true;
                 break;
             case IF_MISSING:
-                final Node match = findExistingNode( getVdbRoot( dataServiceNode ), vdbEntry, VdbLexicon.Vdb.VIRTUAL_DATABASE );
+                match = findExistingNode( getVdbRoot( dataServiceNode ), vdbEntry, VdbLexicon.Vdb.VIRTUAL_DATABASE );
 
                 if ( match == null ) {
                     shouldSequence = true;
@@ -798,42 +929,66 @@ public class DataServiceSequencer extends Sequencer {
         if ( shouldSequence ) {
             final Node parent = getVdbRoot( dataServiceNode );
             final Node vdbNode = parent.addNode( vdbEntry.getVdbName(), VdbLexicon.Vdb.VIRTUAL_DATABASE );
-            final boolean success = this.vdbSequencer.sequenceVdb( stream, vdbNode );
 
-            if ( success ) {
+            if ( vdbSequencing.sequence( vdbNode ) ) {
                 // reference sequenced node from the VDB entry
                 final Value ref = dataServiceNode.getSession().getValueFactory().createValue( vdbNode );
                 vdbEntryNode.setProperty( DataVirtLexicon.ConnectionEntry.CONNECTION_REF, ref );
-            } else {
-                vdbNode.remove();
-                vdbEntryNode.remove();
-                throw new Exception( TeiidI18n.dataSourceNotSequenced.text( vdbEntry.getPath() ) );
+                return vdbNode;
             }
+
+            vdbNode.remove();
+            vdbEntryNode.remove();
+            throw new Exception( TeiidI18n.dataSourceNotSequenced.text( vdbEntry.getPath() ) );
         }
+
+        return match;
     }
 
+    /**
+     * Reads every VDB of the data service and lets the {@link VdbImportScheduler scheduler} parse them concurrently and write
+     * them in the order given by their imports.
+     */
     private void sequenceVdbs( final DataServiceManifest manifest,
                                final Binary binaryValue,
                                final Node dataServiceNode,
                                final Node serviceVdbEntryNode,
-                               final Property inputProperty,
-                               final Context context ) throws Exception {
+                               final SequencingBudget.Ticket ticket ) throws Exception {
         LOGGER.debug( "sequenceVdbs called: all VDBs sequenced at once" );
-        try ( final ZipInputStream zis = new ZipInputStream( binaryValue.getStream() ) ) {
-            ZipEntry entry = null;
+        final VdbImportScheduler scheduler = new VdbImportScheduler( dataServiceNode.getPath(), getVdbParallelism(), ticket );
 
-            while ( ( entry = zis.getNextEntry() ) != null ) {
-                final String entryName = entry.getName();
+        try {
+            // only the imports are read in this pass and the manifests are parsed when the scheduler reads the archive again
+            try ( final ZipInputStream zis = SequencingBudget.openArchive( binaryValue.getStream() ) ) {
+                ZipEntry entry = null;
 
-                if ( entry.isDirectory() ) {
-                    continue;
+                while ( ( entry = nextEntry( zis ) ) != null ) {
+                    if ( entry.isDirectory() ) {
+                        continue;
+                    }
+
+                    final VdbEntry vdbEntry = findVdbEntry( entry.getName(), manifest );
+
+                    if ( vdbEntry != null ) {
+                        scheduler.plan( vdbEntry, BinaryUtil.nonClosing( zis ) );
+                    }
                 }
+            }
+
+            final Collection< Node > importingNodes = new ArrayList<>( 1 );
 
-                if ( findVdbEntry( entryName, manifest ) != null ) {
-                    final VdbEntry vdbEntry = findVdbEntry( entryName, manifest );
-                    sequenceVdb( zis, dataServiceNode, serviceVdbEntryNode, vdbEntry, inputProperty, context );
+            if ( serviceVdbEntryNode != null ) {
+                final Node serviceVdbNode = getReferencedNode( serviceVdbEntryNode );
+
+                if ( serviceVdbNode != null ) {
+                    importingNodes.add( serviceVdbNode );
                 }
             }
+
+            scheduler.run( binaryValue,
+                           ( vdbEntry, vdbManifest ) -> sequenceVdb( vdbManifest, dataServiceNode, serviceVdbEntryNode, vdbEntry ),
+                           importingNodes,
+                           dataServiceNode.getSession().getValueFactory() );
         } catch ( final Exception e ) {
             throw new Exception( TeiidI18n.vdbSequencingError.text( dataServiceNode.getPath() ), e );
         }
@@ -847,6 +1002,14 @@ public class DataServiceSequencer extends Sequencer {
         this.connectionPath = ( StringUtil.isBlank( connectionPath ) ? null : connectionPath );
     }
 
+    /**
+     * @param deduplicateContent <code>true</code> if files whose content matches an existing file should reference that file
+     *        (can be <code>null</code> if {@link #DEDUPLICATE_CONTENT_PROPERTY} should be used)
+     */
+    public void setDeduplicateContent( final Boolean deduplicateContent ) {
+        this.deduplicateContent = deduplicateContent;
+    }
+
     /**
      * @param driverPath the absolute path of the root node where driver files are sequenced (can be <code>null</code> or empty if
      *        {@link #DRIVER_PATH_PROPERTY} or the default path should be used)
@@ -887,4 +1050,18 @@ public class DataServiceSequencer extends Sequencer {
         this.vdbPath = ( StringUtil.isBlank( vdbPath ) ? null : vdbPath );
     }
 
+    /**
+     * Sequences a VDB of the data service into a new VDB node.
+     */
+    private interface VdbSequencing {
+
+        /**
+         * @param vdbNode the new VDB node (never <code>null</code>)
+         * @return <code>true</code> if the VDB was sequenced
+         * @throws Exception if an error occurs sequencing the VDB
+         */
+        boolean sequence( final Node vdbNode ) throws Exception;
+
+    }
+
 }
@@ -37,11 +37,13 @@ public final class TeiidI18n {
     public static I18n noServiceVdbToExport;
     public static I18n unhandledErrorDuringDataServiceExport;
 
+    public static I18n duplicateVdb;
     public static I18n errorReadingDataserviceFile;
     public static I18n errorReadingDatasourceFile;
     public static I18n fileSequencingError;
     public static I18n missingDataServiceManifestFile;
     public static I18n unexpectedDeployPolicy;
+    public static I18n vdbImportCycle;
     public static I18n vdbSequencingError;
     
     public static I18n dataServiceUnknownChildType;
@@ -0,0 +1,451 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.dataservice;
+
+import java.io.InputStream;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.ValueFactory;
+import org.modeshape.common.annotation.NotThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.IoUtil;
+import org.modeshape.jcr.api.JcrConstants;
+import org.teiid.modeshape.sequencer.vdb.ImportVdb;
+import org.teiid.modeshape.sequencer.vdb.VdbManifest;
+import org.teiid.modeshape.sequencer.vdb.VdbManifestCache;
+import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.BinaryUtil;
+import org.teiid.modeshape.util.SequencingBudget;
+
+/**
+ * Sequences the VDBs of a data service archive using the dependency graph formed by their <code>import-vdb</code> elements.
+ * Each VDB is first {@link #plan(VdbEntry, InputStream) planned} by reading only its name, version, and imports. The archive is
+ * then read again and the manifests are parsed, up to the parallelism at a time, on a shared pool since parsing does not need
+ * the repository. The VDB nodes are written on the calling thread, because sessions are not thread-safe, with every VDB written
+ * after the VDBs it imports. Only the manifests being parsed, and the parsed manifests waiting for a VDB they import that comes
+ * later in the archive, are held in memory. Once every VDB has been written, each imported VDB node of a VDB sequenced by the
+ * scheduler, or of the service VDB, references the VDB it imports if that VDB is part of the data service.
+ */
+@NotThreadSafe
+final class VdbImportScheduler {
+
+    /**
+     * Writes the nodes of one VDB of the data service.
+     */
+    interface VdbWriter {
+
+        /**
+         * @param vdbEntry the data service entry of the VDB (never <code>null</code>)
+         * @param manifest the parsed VDB manifest (never <code>null</code>)
+         * @return the VDB node, which is either the node just sequenced or an existing node matching the VDB, or
+         *         <code>null</code> if the entry did not result in a VDB node
+         * @throws Exception if an error occurs writing the VDB
+         */
+        Node write( final VdbEntry vdbEntry,
+                    final VdbManifest manifest ) throws Exception;
+
+    }
+
+    private static final Logger LOGGER = Logger.getLogger( VdbImportScheduler.class );
+
+    private static final ThreadFactory PARSER_THREAD_FACTORY = new ThreadFactory() {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread( final Runnable runnable ) {
+            final Thread thread = new Thread( runnable, "teiid-modeshape-vdb-import-" + this.count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    };
+
+    private static boolean isInCycle( final Plan plan,
+                                      final Map< Plan, Collection< Plan > > imports ) {
+        final Set< Plan > visited = new HashSet<>();
+        final ArrayDeque< Plan > toVisit = new ArrayDeque<>( imports.getOrDefault( plan, Collections.emptyList() ) );
+
+        while ( !toVisit.isEmpty() ) {
+            final Plan next = toVisit.pop();
+
+            if ( next == plan ) {
+                return true;
+            }
+
+            if ( visited.add( next ) ) {
+                toVisit.addAll( imports.getOrDefault( next, Collections.emptyList() ) );
+            }
+        }
+
+        return false;
+    }
+
+    private static String key( final String vdbName,
+                               final long vdbVersion ) {
+        return vdbName + ':' + vdbVersion;
+    }
+
+    /**
+     * Moves the ready VDBs to the ordered VDBs, making ready the VDBs whose imports have now all been ordered.
+     */
+    private static void sort( final ArrayDeque< Plan > ready,
+                              final List< Plan > ordered,
+                              final Map< Plan, List< Plan > > importers,
+                              final Map< Plan, Integer > numImports ) {
+        while ( !ready.isEmpty() ) {
+            final Plan plan = ready.poll();
+            ordered.add( plan );
+
+            for ( final Plan importer : importers.getOrDefault( plan, Collections.emptyList() ) ) {
+                if ( numImports.containsKey( importer ) && ( numImports.merge( importer, -1, Integer::sum ) == 0 ) ) {
+                    ready.add( importer );
+                }
+            }
+        }
+    }
+
+    private final Map< String, Plan > plans = new LinkedHashMap<>(); // keyed by archive entry path, in archive order
+    private final Map< String, Plan > byKey = new HashMap<>();
+    private final Map< Plan, VdbManifest > parsed = new HashMap<>();
+    private final Map< Plan, Node > vdbNodes = new LinkedHashMap<>();
+    private final String dataServicePath;
+    private final int parallelism;
+    private final SequencingBudget.Ticket ticket;
+    private List< Plan > ordered;
+    private int numWritten;
+
+    /**
+     * @param dataServicePath the path of the data service node (cannot be empty)
+     * @param parallelism the maximum number of manifests parsed concurrently (a value less than two parses on the calling thread)
+     * @param ticket the admission of the data service, which also covers the manifests parsed on other threads (cannot be
+     *        <code>null</code>)
+     */
+    VdbImportScheduler( final String dataServicePath,
+                        final int parallelism,
+                        final SequencingBudget.Ticket ticket ) {
+        this.dataServicePath = dataServicePath;
+        this.parallelism = parallelism;
+        this.ticket = ticket;
+    }
+
+    private void complete( final Map.Entry< Plan, Future< VdbManifest > > parse,
+                           final VdbWriter writer ) throws Exception {
+        final VdbManifest manifest;
+
+        try {
+            manifest = parse.getValue().get();
+        } catch ( final ExecutionException e ) {
+            final Throwable cause = e.getCause();
+            throw ( ( cause instanceof Exception ) ? ( Exception )cause : e );
+        }
+
+        parsed( parse.getKey(), manifest, writer );
+    }
+
+    /**
+     * @return the plans ordered so that imported VDBs come before the VDBs importing them (never <code>null</code>)
+     */
+    private List< Plan > order() {
+        for ( final Plan plan : this.plans.values() ) {
+            final Plan first = this.byKey.putIfAbsent( plan.key, plan );
+
+            if ( first != null ) {
+                LOGGER.warn( TeiidI18n.duplicateVdb,
+                             first.vdbEntry.getPath(),
+                             plan.vdbEntry.getPath(),
+                             this.dataServicePath,
+                             plan.key );
+            }
+        }
+
+        // find the imports of each VDB that are part of the data service and remember who imports each VDB
+        final Map< Plan, Collection< Plan > > imports = new HashMap<>();
+        final Map< Plan, List< Plan > > importers = new HashMap<>();
+
+        for ( final Plan plan : this.plans.values() ) {
+            for ( final String importKey : plan.importKeys ) {
+                final Plan imported = this.byKey.get( importKey );
+
+                if ( ( imported != null ) && ( imported != plan ) ) {
+                    imports.computeIfAbsent( plan, k -> new ArrayList<>() ).add( imported );
+                    importers.computeIfAbsent( imported, k -> new ArrayList<>() ).add( plan );
+                }
+            }
+        }
+
+        final List< Plan > ordered = new ArrayList<>( this.plans.size() );
+        final Map< Plan, Integer > numImports = new HashMap<>();
+        final ArrayDeque< Plan > ready = new ArrayDeque<>();
+
+        for ( final Plan plan : this.plans.values() ) {
+            final int count = imports.getOrDefault( plan, Collections.emptyList() ).size();
+            numImports.put( plan, count );
+
+            if ( count == 0 ) {
+                ready.add( plan );
+            }
+        }
+
+        sort( ready, ordered, importers, numImports );
+
+        // VDBs importing each other are sequenced in archive order, followed by the VDBs only importing them
+        if ( ordered.size() < this.plans.size() ) {
+            final Set< Plan > done = new HashSet<>( ordered );
+            final List< Plan > cycle = new ArrayList<>();
+
+            for ( final Plan plan : this.plans.values() ) {
+                if ( !done.contains( plan ) && isInCycle( plan, imports ) ) {
+                    cycle.add( plan );
+                    numImports.remove( plan );
+                }
+            }
+
+            final List< String > cyclePaths = new ArrayList<>( cycle.size() );
+
+            for ( final Plan plan : cycle ) {
+                cyclePaths.add( plan.vdbEntry.getPath() );
+                ordered.add( plan );
+
+                for ( final Plan importer : importers.getOrDefault( plan, Collections.emptyList() ) ) {
+                    if ( numImports.containsKey( importer ) && ( numImports.merge( importer, -1, Integer::sum ) == 0 ) ) {
+                        ready.add( importer );
+                    }
+                }
+            }
+
+            sort( ready, ordered, importers, numImports );
+            LOGGER.warn( TeiidI18n.vdbImportCycle, cyclePaths, this.dataServicePath );
+        }
+
+        assert ( ordered.size() == this.plans.size() ) : "not every VDB was ordered";
+        return ordered;
+    }
+
+    private VdbManifest parse( final Plan plan,
+                               final byte[] content ) throws Exception {
+        final VdbManifest manifest = VdbManifestCache.shared().read( content, null );
+
+        if ( manifest == null ) {
+            throw new Exception( TeiidI18n.importVdbNotSequenced.text( plan.vdbEntry.getPath() ) );
+        }
+
+        return manifest;
+    }
+
+    private void parsed( final Plan plan,
+                         final VdbManifest manifest,
+                         final VdbWriter writer ) throws Exception {
+        this.parsed.put( plan, manifest );
+
+        // write every VDB whose turn has come
+        while ( ( this.numWritten < this.ordered.size() ) && this.parsed.containsKey( this.ordered.get( this.numWritten ) ) ) {
+            final Plan next = this.ordered.get( this.numWritten++ );
+            final Node vdbNode = writer.write( next.vdbEntry, this.parsed.remove( next ) );
+
+            if ( vdbNode != null ) {
+                this.vdbNodes.put( next, vdbNode );
+            }
+        }
+    }
+
+    /**
+     * Reads the name, version, and imports of a VDB of the data service. Nothing else in the manifest is parsed.
+     *
+     * @param vdbEntry the data service entry of the VDB, whose path is the path of the VDB in the archive (cannot be
+     *        <code>null</code>)
+     * @param stream the VDB manifest content (cannot be <code>null</code>)
+     * @throws Exception if the manifest cannot be read
+     */
+    void plan( final VdbEntry vdbEntry,
+               final InputStream stream ) throws Exception {
+        final VdbManifest manifest = VdbManifest.read( stream, null, EnumSet.of( VdbManifest.Section.IMPORT_VDBS ) );
+
+        if ( manifest == null ) {
+            throw new Exception( TeiidI18n.importVdbNotSequenced.text( vdbEntry.getPath() ) );
+        }
+
+        final Plan plan = new Plan( vdbEntry, key( manifest.getName(), manifest.getVersion() ) );
+
+        for ( final ImportVdb importVdb : manifest.getImportVdbs() ) {
+            plan.importKeys.add( key( importVdb.getName(), importVdb.getVersion() ) );
+        }
+
+        this.plans.put( vdbEntry.getPath(), plan );
+    }
+
+    private void resolveImports( final Node vdbNode,
+                                 final ValueFactory valueFactory ) throws RepositoryException {
+        // only VDBs sequenced along with the data service are changed
+        if ( !vdbNode.isNew() || !vdbNode.hasNode( VdbLexicon.Vdb.IMPORT_VDBS ) ) {
+            return;
+        }
+
+        for ( final NodeIterator itr = vdbNode.getNode( VdbLexicon.Vdb.IMPORT_VDBS ).getNodes(); itr.hasNext(); ) {
+            final Node importVdbNode = itr.nextNode();
+            final Plan plan = this.byKey.get( key( importVdbNode.getName(),
+                                                   importVdbNode.getProperty( VdbLexicon.ImportVdb.VERSION ).getLong() ) );
+            final Node imported = ( ( plan == null ) ? null : this.vdbNodes.get( plan ) );
+
+            if ( ( imported != null ) && imported.isNodeType( JcrConstants.MIX_REFERENCEABLE ) ) {
+                importVdbNode.setProperty( VdbLexicon.ImportVdb.IMPORTED_VDB, valueFactory.createValue( imported, true ) );
+            }
+        }
+    }
+
+    /**
+     * Reads the archive again, parses the manifests of the planned VDBs, writes the VDBs in dependency order, and then resolves
+     * the imports.
+     *
+     * @param archive the data service archive whose VDBs were planned (cannot be <code>null</code>)
+     * @param writer the writer of the VDB nodes (cannot be <code>null</code>)
+     * @param importingNodes additional VDB nodes, like the service VDB, whose imports should be resolved (cannot be
+     *        <code>null</code> but can be empty)
+     * @param valueFactory the factory used to create references (cannot be <code>null</code>)
+     * @throws Exception if an error occurs
+     */
+    void run( final Binary archive,
+              final VdbWriter writer,
+              final Collection< Node > importingNodes,
+              final ValueFactory valueFactory ) throws Exception {
+        if ( this.plans.isEmpty() ) {
+            return;
+        }
+
+        this.ordered = order();
+        final boolean concurrent = ( ( this.parallelism > 1 ) && ( this.plans.size() > 1 ) );
+        final Map< String, Plan > unread = new HashMap<>( this.plans );
+        final ArrayDeque< Map.Entry< Plan, Future< VdbManifest > > > parsing = new ArrayDeque<>();
+
+        try {
+            try ( final ZipInputStream zis = SequencingBudget.openArchive( archive.getStream() ) ) {
+                ZipEntry entry = null;
+
+                while ( ( entry = zis.getNextEntry() ) != null ) {
+                    final Plan plan = ( entry.isDirectory() ? null : unread.remove( entry.getName() ) );
+
+                    if ( plan == null ) {
+                        continue;
+                    }
+
+                    final byte[] content = IoUtil.readBytes( BinaryUtil.nonClosing( zis ) );
+
+                    if ( concurrent ) {
+                        final Future< VdbManifest > future = Parsers.EXECUTOR.submit( this.ticket.wrap( () -> parse( plan,
+                                                                                                                     content ) ) );
+                        parsing.add( new SimpleImmutableEntry<>( plan, future ) );
+
+                        if ( parsing.size() >= this.parallelism ) {
+                            complete( parsing.poll(), writer );
+                        }
+                    } else {
+                        parsed( plan, parse( plan, content ), writer );
+                    }
+                }
+            }
+
+            while ( !parsing.isEmpty() ) {
+                complete( parsing.poll(), writer );
+            }
+        } finally {
+            for ( final Map.Entry< Plan, Future< VdbManifest > > parse : parsing ) {
+                parse.getValue().cancel( true );
+            }
+        }
+
+        assert ( this.numWritten == this.ordered.size() ) : "not every planned VDB was found in the archive";
+
+        // every VDB now exists so imports are resolved once
+        for ( final Node vdbNode : this.vdbNodes.values() ) {
+            resolveImports( vdbNode, valueFactory );
+        }
+
+        for ( final Node vdbNode : importingNodes ) {
+            resolveImports( vdbNode, valueFactory );
+        }
+    }
+
+    /**
+     * The parser pool shared by all schedulers. It is only created when a data service is first sequenced with a parallelism
+     * greater than one. Since data services can be sequenced concurrently, it has at most one thread per available processor
+     * whatever the parallelism of each scheduler, and its idle threads eventually end.
+     */
+    private static final class Parsers {
+
+        static final ExecutorService EXECUTOR;
+
+        static {
+            final int numThreads = Runtime.getRuntime().availableProcessors();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor( numThreads,
+                                                                        numThreads,
+                                                                        60,
+                                                                        TimeUnit.SECONDS,
+                                                                        new LinkedBlockingQueue<>(),
+                                                                        PARSER_THREAD_FACTORY );
+            executor.allowCoreThreadTimeOut( true );
+            EXECUTOR = executor;
+        }
+
+    }
+
+    /**
+     * The name, version, and imports of a VDB of the data service.
+     */
+    private static final class Plan {
+
+        private final VdbEntry vdbEntry;
+        private final String key;
+        private final Collection< String > importKeys = new ArrayList<>();
+
+        Plan( final VdbEntry vdbEntry,
+              final String key ) {
+            this.vdbEntry = vdbEntry;
+            this.key = key;
+        }
+
+    }
+
+}
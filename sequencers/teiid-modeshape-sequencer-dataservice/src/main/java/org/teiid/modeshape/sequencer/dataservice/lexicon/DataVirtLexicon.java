@@ -488,6 +488,11 @@ public interface DataVirtLexicon {
          */
         String NODE_TYPE = PREFIX + ":resourceFile";
 
+        /**
+         * The name of the property whose value is the hex-encoded SHA-256 digest of the file content. Value is {@value}.
+         */
+        String SHA256 = PREFIX + ":sha256";
+
         /**
          * The name of the DDL metadata file node type. Value is {@value}.
          */
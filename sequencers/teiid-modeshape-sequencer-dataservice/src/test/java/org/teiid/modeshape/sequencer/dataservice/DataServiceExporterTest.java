@@ -35,13 +35,23 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
+import javax.jcr.Session;
 import javax.jcr.Value;
 import org.junit.Test;
 import org.teiid.modeshape.sequencer.AbstractSequencerTest;
@@ -74,6 +84,82 @@ public final class DataServiceExporterTest extends AbstractSequencerTest {
         return resourceStream( "config/repo-config.json" );
     }
 
+    @Test
+    public void shouldBeReentrantUnderConcurrentExports() throws Exception {
+        final int numDataServices = 8;
+        final int numExportsPerThread = 10;
+
+        createNodeWithContentFromFile( "patients-vdb.xml", "vdbs/patients-vdb.xml" );
+        final String vdbId = getOutputNode( this.rootNode, "vdbs/patients-vdb.xml" ).getIdentifier();
+        final LocalDateTime[] lastModified = new LocalDateTime[ numDataServices ];
+
+        for ( int i = 0; i < numDataServices; ++i ) {
+            lastModified[ i ] = LocalDateTime.of( 2000 + i, 1 + i, 1 + i, i, 2 * i, 3 * i );
+
+            final Node dsNode = this.rootNode.addNode( "ConcurrentDataService" + i, DataVirtLexicon.DataService.NODE_TYPE );
+            dsNode.setProperty( DataVirtLexicon.DataService.LAST_MODIFIED,
+                                GregorianCalendar.from( lastModified[ i ].atZone( ZoneId.systemDefault() ) ) );
+
+            final Node entryNode = dsNode.addNode( "ServiceVdb", DataVirtLexicon.ServiceVdbEntry.NODE_TYPE );
+            entryNode.setProperty( DataVirtLexicon.ServiceVdbEntry.VDB_REF, vdbId );
+            entryNode.setProperty( DataVirtLexicon.ServiceVdbEntry.VDB_NAME, "patients" );
+            entryNode.setProperty( DataVirtLexicon.ServiceVdbEntry.VDB_VERSION, "1" );
+        }
+
+        this.session.save();
+
+        // one exporter shared by all threads and each thread uses its own session
+        final DataServiceExporter exporter = new DataServiceExporter();
+        final ExecutorService executor = Executors.newFixedThreadPool( numDataServices );
+
+        try {
+            final List< Future< Void > > futures = new ArrayList<>();
+
+            for ( int i = 0; i < numDataServices; ++i ) {
+                final int index = i;
+                futures.add( executor.submit( new Callable< Void >() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        final Session threadSession = DataServiceExporterTest.this.repository.login();
+
+                        try {
+                            final Node dsNode = threadSession.getNode( "/ConcurrentDataService" + index );
+
+                            for ( int j = 0; j < numExportsPerThread; ++j ) {
+                                final Options options = new Options();
+                                options.set( OptionName.EXPORT_ARTIFACT,
+                                             ( ( j % 2 ) == 0 ) ? ExportArtifact.MANIFEST_AS_XML
+                                                                : ExportArtifact.DATA_SERVICE_AS_FILES );
+                                final Result result = exporter.execute( dsNode, options );
+                                assertThat( result.getErrorMessage(), result.wasSuccessful(), is( true ) );
+
+                                final byte[] xml = ( result.getOutcome() instanceof String )
+                                                   ? ( ( String )result.getOutcome() ).getBytes()
+                                                   : ( ( byte[][] )result.getOutcome() )[ 0 ];
+                                final DataServiceManifestReader reader = new DataServiceManifestReader();
+                                final DataServiceManifest manifest = reader.read( new ByteArrayInputStream( xml ) );
+                                assertThat( manifest.getName(), is( "ConcurrentDataService" + index ) );
+                                assertThat( manifest.getLastModified(), is( lastModified[ index ] ) );
+                            }
+                        } finally {
+                            threadSession.logout();
+                        }
+
+                        return null;
+                    }
+
+                } ) );
+            }
+
+            for ( final Future< Void > future : futures ) {
+                future.get(); // rethrows any assertion failure
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void shouldCorrectVdbAndConnectionEntryNames() throws Exception {
         final Node dsNode = this.rootNode.addNode( "MyDataService", DataVirtLexicon.DataService.NODE_TYPE );
@@ -253,6 +339,52 @@ public final class DataServiceExporterTest extends AbstractSequencerTest {
         }
     }
 
+    @Test
+    public void shouldExportDataServiceAsZipWithStoredCompressedEntries() throws Exception {
+        createNodeWithContentFromFile( "MyDataService.zip", "dataservice/sample-ds.zip" );
+        final Node dataServiceNode = getOutputNode( this.rootNode, "dataservices/MyDataService.zip" );
+        assertThat( dataServiceNode, is( notNullValue() ) );
+
+        final DataServiceExporter exporter = new DataServiceExporter();
+        final Options options = new Options();
+        options.set( OptionName.COMPRESSION_LEVEL, Deflater.BEST_SPEED );
+        options.set( OptionName.STORE_COMPRESSED_ENTRIES, true );
+
+        final Result result = exporter.execute( dataServiceNode, options );
+        assertThat( result.getErrorMessage(), result.wasSuccessful(), is( true ) );
+
+        final byte[] zipBytes = ( byte[] )result.getOutcome();
+        int numJars = 0;
+
+        try ( final ZipInputStream zis = new ZipInputStream( new ByteArrayInputStream( zipBytes ) ) ) {
+            ZipEntry entry = null;
+
+            while ( ( entry = zis.getNextEntry() ) != null ) {
+                if ( entry.getName().endsWith( ".jar" ) ) {
+                    ++numJars;
+                    assertThat( entry.getName(), entry.getMethod(), is( ZipEntry.STORED ) );
+                } else {
+                    assertThat( entry.getName(), entry.getMethod(), is( ZipEntry.DEFLATED ) );
+                }
+            }
+        }
+
+        assertThat( numJars, is( 4 ) );
+
+        // make sure the archive has a valid central directory
+        final Path zipFile = Files.createTempFile( "ds-", ".zip" );
+
+        try {
+            Files.write( zipFile, zipBytes );
+
+            try ( final ZipFile zip = new ZipFile( zipFile.toFile() ) ) {
+                assertThat( zip.size(), is( 15 ) );
+            }
+        } finally {
+            Files.delete( zipFile );
+        }
+    }
+
     @Test
     public void shouldExportDataServiceInSpecifiedFolders() throws Exception {
         createNodeWithContentFromFile( "MyDataService.zip", "dataservice/sample-ds.zip" );
@@ -426,4 +558,33 @@ public final class DataServiceExporterTest extends AbstractSequencerTest {
         assertModel( manifest.getModels(), "ProductSummary" );
     }
 
+    @Test
+    public void shouldExportNestedEntriesConcurrentlyInManifestOrder() throws Exception {
+        createNodeWithContentFromFile( "MyDataService.zip", "dataservice/sample-ds.zip" );
+        final Node dataServiceNode = getOutputNode( this.rootNode, "dataservices/MyDataService.zip" );
+        assertThat( dataServiceNode, is( notNullValue() ) );
+
+        final DataServiceExporter exporter = new DataServiceExporter();
+        final Options options = new Options();
+        options.set( OptionName.EXPORT_ARTIFACT, ExportArtifact.DATA_SERVICE_AS_FILES );
+
+        final Result sequential = exporter.execute( dataServiceNode, options );
+        assertThat( sequential.wasSuccessful(), is( true ) );
+
+        options.set( OptionName.EXPORT_THREADS, 4 );
+        final Result concurrent = exporter.execute( dataServiceNode, options );
+        assertThat( concurrent.getErrorMessage(), concurrent.wasSuccessful(), is( true ) );
+
+        final String[] expectedPaths = ( String[] )sequential.getData( DataServiceExporter.RESULT_ENTRY_PATHS );
+        final String[] actualPaths = ( String[] )concurrent.getData( DataServiceExporter.RESULT_ENTRY_PATHS );
+        assertThat( actualPaths, is( expectedPaths ) );
+
+        final byte[][] expectedContents = ( byte[][] )sequential.getOutcome();
+        final byte[][] actualContents = ( byte[][] )concurrent.getOutcome();
+
+        for ( int i = 0; i < expectedContents.length; ++i ) {
+            assertThat( actualPaths[ i ], Arrays.equals( actualContents[ i ], expectedContents[ i ] ), is( true ) );
+        }
+    }
+
 }
@@ -22,21 +22,32 @@
 package org.teiid.modeshape.sequencer.dataservice;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
 import javax.jcr.Session;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
 import org.junit.Test;
 import org.modeshape.jcr.api.JcrConstants;
 import org.teiid.modeshape.sequencer.AbstractSequencerTest;
 import org.teiid.modeshape.sequencer.dataservice.DataServiceEntry.PublishPolicy;
 import org.teiid.modeshape.sequencer.dataservice.lexicon.DataVirtLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.BinaryUtil;
 
 public final class DataServiceSequencerTest extends AbstractSequencerTest {
 
@@ -106,6 +117,56 @@ public final class DataServiceSequencerTest extends AbstractSequencerTest {
                                   true );
     }
 
+    private void assertFileContentsMatchArchive( final Node dataServiceNode,
+                                                 final String archivePath ) throws Exception {
+        final Map< String, byte[] > contents = new HashMap<>();
+        final Map< String, Long > times = new HashMap<>();
+
+        try ( final ZipInputStream zis = new ZipInputStream( resourceStream( archivePath ) ) ) {
+            ZipEntry entry = null;
+
+            while ( ( entry = zis.getNextEntry() ) != null ) {
+                final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                final byte[] buf = new byte[ 8192 ];
+                int numRead = 0;
+
+                while ( ( numRead = zis.read( buf ) ) != -1 ) {
+                    content.write( buf, 0, numRead );
+                }
+
+                contents.put( entry.getName(), content.toByteArray() );
+                times.put( entry.getName(), entry.getTime() );
+            }
+        }
+
+        int numFiles = 0;
+        final NodeIterator itr = dataServiceNode.getNodes();
+
+        while ( itr.hasNext() ) {
+            final Node entryNode = itr.nextNode();
+
+            if ( !entryNode.hasProperty( DataVirtLexicon.ResourceEntry.RESOURCE_REF )
+                 || !DataVirtLexicon.ResourceEntry.DRIVER_ENTRY_NODE_TYPE.equals( entryNode.getPrimaryNodeType().getName() ) ) {
+                continue;
+            }
+
+            final String path = entryNode.getProperty( DataVirtLexicon.ResourceEntry.PATH ).getString();
+            final String refId = entryNode.getProperty( DataVirtLexicon.ResourceEntry.RESOURCE_REF ).getString();
+            final Node contentNode = entryNode.getSession().getNodeByIdentifier( refId ).getNode( JcrConstants.JCR_CONTENT );
+
+            final Binary binary = contentNode.getProperty( JcrConstants.JCR_DATA ).getBinary();
+            final byte[] data = new byte[ ( int )binary.getSize() ];
+            binary.read( data, 0 );
+            assertThat( path, Arrays.equals( data, contents.get( path ) ), is( true ) );
+            assertThat( path,
+                        contentNode.getProperty( "jcr:lastModified" ).getDate().getTimeInMillis(),
+                        is( times.get( path ) ) );
+            ++numFiles;
+        }
+
+        assertThat( numFiles, is( 3 ) );
+    }
+
     private Node assertReferencedResource( final Node node,
                                            final String nameOfPropertyWithRefValue,
                                            final String typeOfResource,
@@ -333,6 +394,85 @@ public final class DataServiceSequencerTest extends AbstractSequencerTest {
         assertVdb( outputNode, "Portfolio-vdb.xml", PublishPolicy.DEFAULT );
     }
 
+    @Test
+    public void shouldSequenceFilesByStreamingArchiveEntries() throws Exception {
+        createNodeWithContentFromFile( "MyDataService.zip", "dataservice/sample-ds.zip" );
+        final Node outputNode = getOutputNode( this.rootNode, "dataservices/MyDataService.zip", 200 );
+        assertNotNull( outputNode );
+        assertFileContentsMatchArchive( outputNode, "dataservice/sample-ds.zip" );
+    }
+
+    @Test
+    public void shouldSequenceFilesBySpillingArchiveEntriesToDisk() throws Exception {
+        System.setProperty( BinaryUtil.SPILL_TO_DISK_PROPERTY, Boolean.TRUE.toString() );
+
+        try {
+            createNodeWithContentFromFile( "MyDataService.zip", "dataservice/sample-ds.zip" );
+            final Node outputNode = getOutputNode( this.rootNode, "dataservices/MyDataService.zip", 200 );
+            assertNotNull( outputNode );
+            assertFileContentsMatchArchive( outputNode, "dataservice/sample-ds.zip" );
+        } finally {
+            System.clearProperty( BinaryUtil.SPILL_TO_DISK_PROPERTY );
+        }
+    }
+
+    @Test
+    public void shouldReferenceExistingFilesWithSameContent() throws Exception {
+        final Node driversNode = this.rootNode.addNode( "drivers" );
+        System.setProperty( DataServiceSequencer.DRIVER_PATH_PROPERTY, driversNode.getPath() );
+        System.setProperty( DataServiceSequencer.DEDUPLICATE_CONTENT_PROPERTY, Boolean.TRUE.toString() );
+
+        try {
+            createNodeWithContentFromFile( "MyDataService.zip", "dataservice/sample-ds.zip" );
+            final Node outputNode = getOutputNode( this.rootNode, "dataservices/MyDataService.zip" );
+            assertNotNull( outputNode );
+
+            // all drivers have the same content so only the first one is published
+            assertThat( driversNode.getNodes().getSize(), is( 1L ) );
+            final Node driverNode = driversNode.getNode( "books-driver-1.jar" );
+            assertThat( driverNode.getProperty( DataVirtLexicon.ResourceFile.SHA256 ).getString().length(), is( 64 ) );
+
+            for ( final String driver : new String[] { "books-driver-1.jar", "books-driver-2.jar", "portfolio-driver.jar" } ) {
+                final Node ref = assertReferencedResource( outputNode.getNode( driver ),
+                                                           DataVirtLexicon.ResourceEntry.RESOURCE_REF,
+                                                           DataVirtLexicon.ResourceFile.DRIVER_FILE_NODE_TYPE,
+                                                           PublishPolicy.IF_MISSING,
+                                                           true );
+                assertThat( driver, ref.getIdentifier(), is( driverNode.getIdentifier() ) );
+            }
+
+            // UDF with the same content is a different type so it is still published
+            assertUdf( outputNode, "secondUdf.jar", PublishPolicy.IF_MISSING );
+
+            // a second data service references the already published driver
+            createNodeWithContentFromFile( "OtherDataService.zip", "dataservice/sample-ds.zip" );
+            final Node otherNode = getOutputNode( this.rootNode, "dataservices/OtherDataService.zip" );
+            assertNotNull( otherNode );
+            assertThat( driversNode.getNodes().getSize(), is( 1L ) );
+
+            final Node ref = assertReferencedResource( otherNode.getNode( "portfolio-driver.jar" ),
+                                                       DataVirtLexicon.ResourceEntry.RESOURCE_REF,
+                                                       DataVirtLexicon.ResourceFile.DRIVER_FILE_NODE_TYPE,
+                                                       PublishPolicy.IF_MISSING,
+                                                       true );
+            assertThat( ref.getIdentifier(), is( driverNode.getIdentifier() ) );
+        } finally {
+            System.clearProperty( DataServiceSequencer.DRIVER_PATH_PROPERTY );
+            System.clearProperty( DataServiceSequencer.DEDUPLICATE_CONTENT_PROPERTY );
+        }
+    }
+
+    @Test
+    public void shouldUseIndexToFindFilesWithSameContent() throws Exception {
+        final QueryManager queryManager = ( ( Session )this.session ).getWorkspace().getQueryManager();
+        final Query query = queryManager.createQuery( DataServiceSequencer.DIGEST_QUERY, Query.JCR_SQL2 );
+        query.bindValue( "digest", this.session.getValueFactory().createValue( "0123" ) );
+
+        // the index defined in the test repository configuration must be used instead of scanning every node
+        final String plan = ( ( org.modeshape.jcr.api.query.Query )query ).explain().getPlan();
+        assertThat( plan, containsString( "dvResourceFileDigests" ) );
+    }
+
     @Test
     public void shouldSequenceDataServiceAtCustomPaths() throws Exception {
         final Node connectionsNode = this.rootNode.addNode( "connections" );
@@ -0,0 +1,193 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.dataservice;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.api.nodetype.NodeTypeManager;
+import org.teiid.modeshape.sequencer.AbstractSequencerTest;
+import org.teiid.modeshape.sequencer.vdb.VdbDynamicSequencer;
+import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.SequencingBudget;
+
+public final class VdbImportSchedulerTest extends AbstractSequencerTest {
+
+    private static byte[] manifest( final String name,
+                                    final String... imports ) {
+        final StringBuilder xml = new StringBuilder( "<vdb name=\"" + name + "\" version=\"1\">" );
+
+        for ( final String imported : imports ) {
+            xml.append( "<import-vdb name=\"" ).append( imported ).append( "\" version=\"1\"/>" );
+        }
+
+        return xml.append( "</vdb>" ).toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    private static String[] vdb( final String name,
+                                 final String... imports ) {
+        final String[] vdb = new String[ imports.length + 1 ];
+        vdb[ 0 ] = name;
+        System.arraycopy( imports, 0, vdb, 1, imports.length );
+        return vdb;
+    }
+
+    private static VdbEntry vdbEntry( final String entryName,
+                                      final String name ) {
+        final VdbEntry vdbEntry = new VdbEntry();
+        vdbEntry.setPath( "vdbs/" + entryName + "-vdb.xml" );
+        vdbEntry.setVdbName( name );
+        vdbEntry.setVdbVersion( "1" );
+        return vdbEntry;
+    }
+
+    private SequencingBudget.Ticket ticket;
+    private List< String > written;
+    private Node vdbsNode;
+    private VdbDynamicSequencer vdbSequencer;
+
+    private VdbImportScheduler.VdbWriter writer() {
+        return ( vdbEntry, manifest ) -> {
+            this.written.add( manifest.getName() );
+            final Node vdbNode = this.vdbsNode.addNode( manifest.getName(), VdbLexicon.Vdb.VIRTUAL_DATABASE );
+            this.vdbSequencer.sequenceVdb( manifest, vdbNode );
+            return vdbNode;
+        };
+    }
+
+    /**
+     * Plans each VDB, the first value being its name and the others the names of the VDBs it imports, and archives them in the
+     * same order.
+     */
+    private Binary schedule( final VdbImportScheduler scheduler,
+                             final String[]... vdbs ) throws Exception {
+        final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+
+        try ( final ZipOutputStream zip = new ZipOutputStream( archive ) ) {
+            for ( int i = 0; i < vdbs.length; ++i ) {
+                final String name = vdbs[ i ][ 0 ];
+                final byte[] content = manifest( name, Arrays.copyOfRange( vdbs[ i ], 1, vdbs[ i ].length ) );
+                final VdbEntry vdbEntry = vdbEntry( name + i, name );
+                scheduler.plan( vdbEntry, new ByteArrayInputStream( content ) );
+                zip.putNextEntry( new ZipEntry( vdbEntry.getPath() ) );
+                zip.write( content );
+                zip.closeEntry();
+            }
+        }
+
+        return this.session.getValueFactory().createBinary( new ByteArrayInputStream( archive.toByteArray() ) );
+    }
+
+    @After
+    public void closeTicket() {
+        this.ticket.close();
+    }
+
+    @Before
+    public void createSequencer() throws Exception {
+        this.ticket = new SequencingBudget( 0 ).admit( -1 );
+        this.written = Collections.synchronizedList( new ArrayList<>() );
+        this.vdbsNode = this.rootNode.addNode( "importedVdbs" );
+        this.vdbSequencer = new VdbDynamicSequencer();
+        final Workspace workspace = ( ( Session )this.session ).getWorkspace();
+        this.vdbSequencer.initialize( workspace.getNamespaceRegistry(), ( NodeTypeManager )workspace.getNodeTypeManager() );
+    }
+
+    @Test
+    public void shouldWriteImportedVdbsFirstAndResolveImports() throws Exception {
+        final VdbImportScheduler scheduler = new VdbImportScheduler( "/dataservice", 4, this.ticket );
+        final Binary archive = schedule( scheduler,
+                                         vdb( "a", "b", "c" ),
+                                         vdb( "b", "c" ),
+                                         vdb( "c" ),
+                                         vdb( "d", "external" ) );
+        scheduler.run( archive, writer(), Collections.emptyList(), this.session.getValueFactory() );
+
+        assertThat( this.written, is( Arrays.asList( "c", "d", "b", "a" ) ) );
+
+        final Node imports = this.vdbsNode.getNode( "a" ).getNode( VdbLexicon.Vdb.IMPORT_VDBS );
+        assertThat( imports.getNode( "b" ).getProperty( VdbLexicon.ImportVdb.IMPORTED_VDB ).getNode().getPath(),
+                    is( this.vdbsNode.getNode( "b" ).getPath() ) );
+        assertThat( imports.getNode( "c" ).getProperty( VdbLexicon.ImportVdb.IMPORTED_VDB ).getNode().getPath(),
+                    is( this.vdbsNode.getNode( "c" ).getPath() ) );
+
+        // imports of VDBs not in the data service stay unresolved
+        final Node external = this.vdbsNode.getNode( "d" ).getNode( VdbLexicon.Vdb.IMPORT_VDBS ).getNode( "external" );
+        assertThat( external.hasProperty( VdbLexicon.ImportVdb.IMPORTED_VDB ), is( false ) );
+    }
+
+    @Test
+    public void shouldWriteVdbsImportingEachOtherInArchiveOrderBeforeTheirImporters() throws Exception {
+        final VdbImportScheduler scheduler = new VdbImportScheduler( "/dataservice", 1, this.ticket );
+        final Binary archive = schedule( scheduler,
+                                         vdb( "third", "first" ),
+                                         vdb( "first", "second" ),
+                                         vdb( "second", "first" ) );
+        scheduler.run( archive, writer(), Collections.emptyList(), this.session.getValueFactory() );
+
+        // the VDB only importing the cycle is written after it
+        assertThat( this.written, is( Arrays.asList( "first", "second", "third" ) ) );
+        assertThat( this.vdbsNode.getNode( "second" )
+                                 .getNode( VdbLexicon.Vdb.IMPORT_VDBS )
+                                 .getNode( "first" )
+                                 .hasProperty( VdbLexicon.ImportVdb.IMPORTED_VDB ),
+                    is( true ) );
+    }
+
+    @Test
+    public void shouldResolveImportsOfDuplicateVdbToFirstInArchive() throws Exception {
+        final VdbImportScheduler scheduler = new VdbImportScheduler( "/dataservice", 2, this.ticket );
+        final List< Node > written = new ArrayList<>();
+        final Binary archive = schedule( scheduler, vdb( "importer", "shared" ), vdb( "shared" ), vdb( "shared" ) );
+        scheduler.run( archive, ( vdbEntry, manifest ) -> {
+            final Node vdbNode = this.vdbsNode.addNode( vdbEntry.getEntryName(), VdbLexicon.Vdb.VIRTUAL_DATABASE );
+            this.vdbSequencer.sequenceVdb( manifest, vdbNode );
+            written.add( vdbNode );
+            return vdbNode;
+        }, Collections.emptyList(), this.session.getValueFactory() );
+
+        assertThat( written.size(), is( 3 ) );
+        assertThat( written.get( 2 )
+                           .getNode( VdbLexicon.Vdb.IMPORT_VDBS )
+                           .getNode( "shared" )
+                           .getProperty( VdbLexicon.ImportVdb.IMPORTED_VDB )
+                           .getNode()
+                           .getPath(),
+                    is( written.get( 0 ).getPath() ) );
+    }
+
+}
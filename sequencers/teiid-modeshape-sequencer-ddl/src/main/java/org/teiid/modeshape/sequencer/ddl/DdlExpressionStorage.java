@@ -0,0 +1,177 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.ddl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+/**
+ * How the {@link StandardDdlLexicon#DDL_EXPRESSION source text} of each DDL statement is written by the DDL sequencers. The
+ * statement's {@link StandardDdlLexicon#DDL_START_CHAR_INDEX start index} and {@link StandardDdlLexicon#DDL_LENGTH length} are
+ * always written.
+ */
+public enum DdlExpressionStorage {
+
+    /**
+     * The complete statement source text is stored (the default).
+     */
+    FULL,
+
+    /**
+     * The statement source text is stored, truncated to the sequencer's maximum expression length. The stored text is shorter
+     * than the statement {@link StandardDdlLexicon#DDL_LENGTH length} when it has been truncated.
+     */
+    TRUNCATE,
+
+    /**
+     * No statement source text is stored. Instead the original DDL binary is stored once on the statements container node so
+     * that the text can be {@link DdlExpressionStorage#getExpression(Node) retrieved} on demand.
+     */
+    OFFSETS,
+
+    /**
+     * No statement source text is stored.
+     */
+    OMIT;
+
+    /**
+     * The name of the system property that sets the default storage of the DDL sequencers. Value is {@value} .
+     */
+    public static final String PROPERTY = "teiid.modeshape.ddl.expression-storage";
+
+    /**
+     * The name of the system property that sets the default maximum length of a {@link #TRUNCATE truncated} expression. Value is
+     * {@value} .
+     */
+    public static final String MAX_LENGTH_PROPERTY = "teiid.modeshape.ddl.expression-max-length";
+
+    /**
+     * The maximum length of a truncated expression when not set by {@link #MAX_LENGTH_PROPERTY}. Value is {@value} .
+     */
+    public static final int DEFAULT_MAX_LENGTH = 1024;
+
+    /**
+     * @return the storage set by the {@link #PROPERTY system property} or {@link #FULL} if not set
+     */
+    static DdlExpressionStorage getDefault() {
+        return parse(System.getProperty(PROPERTY));
+    }
+
+    /**
+     * @param value the case-insensitive storage name (can be <code>null</code> or empty)
+     * @return the storage (never <code>null</code>)
+     * @throws IllegalArgumentException if the name is not a known storage
+     */
+    static DdlExpressionStorage parse( final String value ) {
+        if ((value == null) || value.trim().isEmpty()) {
+            return FULL;
+        }
+
+        for (final DdlExpressionStorage storage : values()) {
+            if (storage.name().equalsIgnoreCase(value.trim())) {
+                return storage;
+            }
+        }
+
+        throw new IllegalArgumentException(DdlSequencerI18n.unknownExpressionStorage.text(value));
+    }
+
+    /**
+     * Obtains the source text of a sequenced DDL statement regardless of how it was stored. If the statement was sequenced using
+     * {@link #OFFSETS} the text is read from the original DDL stored on the enclosing statements container node.
+     *
+     * @param statementNode the sequenced statement node (cannot be <code>null</code>)
+     * @return the statement source text or <code>null</code> if it was {@link #OMIT omitted} (a {@link #TRUNCATE truncated}
+     *         expression is returned as stored)
+     * @throws RepositoryException if an error occurs reading the node or the DDL
+     */
+    public static String getExpression( final Node statementNode ) throws RepositoryException {
+        String expression = null;
+
+        if (statementNode.hasProperty(StandardDdlLexicon.DDL_EXPRESSION)) {
+            expression = statementNode.getProperty(StandardDdlLexicon.DDL_EXPRESSION).getString();
+
+            if (!statementNode.hasProperty(StandardDdlLexicon.DDL_LENGTH)
+                || (expression.length() == statementNode.getProperty(StandardDdlLexicon.DDL_LENGTH).getLong())) {
+                return expression;
+            }
+        }
+
+        if (!statementNode.hasProperty(StandardDdlLexicon.DDL_START_CHAR_INDEX)
+            || !statementNode.hasProperty(StandardDdlLexicon.DDL_LENGTH)) {
+            return expression;
+        }
+
+        // find the statements container holding the original DDL
+        Node container = statementNode;
+
+        while (!container.hasProperty(StandardDdlLexicon.DDL_SOURCE)) {
+            if (container.getDepth() == 0) {
+                return expression;
+            }
+
+            container = container.getParent();
+        }
+
+        final long start = statementNode.getProperty(StandardDdlLexicon.DDL_START_CHAR_INDEX).getLong();
+        final int length = (int)statementNode.getProperty(StandardDdlLexicon.DDL_LENGTH).getLong();
+        final Binary ddl = container.getProperty(StandardDdlLexicon.DDL_SOURCE).getBinary();
+
+        // the sequencer decodes the DDL using the platform charset so the character offsets are relative to that
+        try (final InputStream stream = ddl.getStream(); final Reader reader = new InputStreamReader(stream)) {
+            for (long skipped = 0; skipped < start;) {
+                final long count = reader.skip(start - skipped);
+
+                if (count <= 0) {
+                    return expression;
+                }
+
+                skipped += count;
+            }
+
+            final char[] text = new char[length];
+            int read = 0;
+
+            while (read < length) {
+                final int count = reader.read(text, read, (length - read));
+
+                if (count == -1) {
+                    break;
+                }
+
+                read += count;
+            }
+
+            return new String(text, 0, read);
+        } catch (final IOException e) {
+            throw new RepositoryException(e);
+        } finally {
+            ddl.dispose();
+        }
+    }
+
+}
@@ -24,11 +24,8 @@ package org.teiid.modeshape.sequencer.ddl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.text.ParsingException;
@@ -55,23 +52,23 @@ public class DdlParsers {
     /**
      * Sorts the parser scores.
      */
-    private static final Comparator<Entry<DdlParser, Integer>> SORTER = new Comparator<Entry<DdlParser, Integer>>() {
+    private static final Comparator<ScoredParser> SORTER = new Comparator<ScoredParser>() {
 
         @Override
-        public int compare( final Entry<DdlParser, Integer> thisEntry,
-                            final Entry<DdlParser, Integer> thatEntry ) {
+        public int compare( final ScoredParser thisEntry,
+                            final ScoredParser thatEntry ) {
             // reverse order as we want biggest value to sort first
-            int result = (thisEntry.getValue().compareTo(thatEntry.getValue()) * -1);
+            int result = (Integer.compare(thisEntry.score, thatEntry.score) * -1);
 
             // default to standard SQL parser if score is a tie
             if (result == 0) {
-                if (StandardDdlParser.ID.equals(thisEntry.getKey().getId())
-                    && !StandardDdlParser.ID.equals(thatEntry.getKey().getId())) {
+                if (StandardDdlParser.ID.equals(thisEntry.parser.getId())
+                    && !StandardDdlParser.ID.equals(thatEntry.parser.getId())) {
                     return -1;
                 }
 
-                if (StandardDdlParser.ID.equals(thatEntry.getKey().getId())
-                    && !StandardDdlParser.ID.equals(thisEntry.getKey().getId())) {
+                if (StandardDdlParser.ID.equals(thatEntry.parser.getId())
+                    && !StandardDdlParser.ID.equals(thisEntry.parser.getId())) {
                     return 1;
                 }
             }
@@ -157,11 +154,14 @@ public class DdlParsers {
             throw new ParsingException(Position.EMPTY_CONTENT_POSITION, DdlSequencerI18n.unknownParser.text(parserId));
         }
 
+        // score first so the parser can reuse the token stream it built while scoring
+        final Object scorerOutput = parser.score(ddl, null, new DdlParserScorer());
+
         // create DDL root node
         AstNode astRoot = createDdlStatementsContainer(parserId);
 
         // parse
-        parser.parse(ddl, astRoot, null);
+        parser.parse(ddl, astRoot, scorerOutput);
 
         return astRoot;
     }
@@ -234,10 +234,10 @@ public class DdlParsers {
                                             final List<DdlParser> parsers ) {
         CheckArg.isNotEmpty(ddl, "ddl");
 
-        final List<ParsingResult> results = new ArrayList<DdlParsers.ParsingResult>(this.parsers.size());
+        final List<ParsingResult> results = new ArrayList<DdlParsers.ParsingResult>(parsers.size());
         final DdlParserScorer scorer = new DdlParserScorer();
 
-        for (final DdlParser parser : this.parsers) {
+        for (final DdlParser parser : parsers) {
             final String parserId = parser.getId();
             int score = ParsingResult.NO_SCORE;
             AstNode rootNode = null;
@@ -293,13 +293,13 @@ public class DdlParsers {
         RuntimeException firstException = null;
 
         // Go through each parser and score the DDL content
-        final Map<DdlParser, Integer> scoreMap = new HashMap<DdlParser, Integer>(this.parsers.size());
+        final List<ScoredParser> scoredParsers = new ArrayList<ScoredParser>(this.parsers.size());
         final DdlParserScorer scorer = new DdlParserScorer();
 
         for (final DdlParser parser : this.parsers) {
             try {
-                parser.score(ddl, fileName, scorer);
-                scoreMap.put(parser, scorer.getScore());
+                final Object scorerOutput = parser.score(ddl, fileName, scorer);
+                scoredParsers.add(new ScoredParser(parser, scorer.getScore(), scorerOutput));
             } catch (RuntimeException e) {
                 if (firstException == null) {
                     firstException = e;
@@ -309,7 +309,7 @@ public class DdlParsers {
             }
         }
 
-        if (scoreMap.isEmpty()) {
+        if (scoredParsers.isEmpty()) {
             if (firstException == null) {
                 throw new ParsingException(Position.EMPTY_CONTENT_POSITION,
                                            DdlSequencerI18n.errorParsingDdlContent.text(this.parsers.size()));
@@ -319,21 +319,20 @@ public class DdlParsers {
         }
 
         // sort the scores
-        final List<Entry<DdlParser, Integer>> scoredParsers = new ArrayList<Entry<DdlParser, Integer>>(scoreMap.entrySet());
         Collections.sort(scoredParsers, SORTER);
 
         firstException = null;
         AstNode astRoot = null;
 
-        for (final Entry<DdlParser, Integer> scoredParser : scoredParsers) {
+        for (final ScoredParser scoredParser : scoredParsers) {
             try {
-                final DdlParser parser = scoredParser.getKey();
+                final DdlParser parser = scoredParser.parser;
 
                 // create DDL root node
                 astRoot = createDdlStatementsContainer(parser.getId());
 
-                // parse
-                parser.parse(ddl, astRoot, null);
+                // parse, reusing whatever the parser produced while scoring (e.g., its token stream)
+                parser.parse(ddl, astRoot, scoredParser.scorerOutput);
                 return astRoot; // successfully parsed
             } catch (final RuntimeException e) {
                 if (astRoot != null) {
@@ -343,6 +342,9 @@ public class DdlParsers {
                 if (firstException == null) {
                     firstException = e;
                 }
+            } finally {
+                // release the scorer output so token streams of parsers that are not used can be collected
+                scoredParser.scorerOutput = null;
             }
         }
 
@@ -353,6 +355,26 @@ public class DdlParsers {
         throw firstException;
     }
 
+    /**
+     * A parser along with its score and the object returned by its {@link DdlParser#score(String, String, DdlParserScorer) score}
+     * method, which is handed back to the parser when parsing.
+     */
+    private static class ScoredParser {
+
+        private final DdlParser parser;
+        private final int score;
+        private Object scorerOutput;
+
+        ScoredParser( final DdlParser parser,
+                      final int score,
+                      final Object scorerOutput ) {
+            this.parser = parser;
+            this.score = score;
+            this.scorerOutput = scorerOutput;
+        }
+
+    }
+
     /**
      * Represents a parsing result of one parser parsing one DDL input.
      */
@@ -26,9 +26,11 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -37,18 +39,25 @@ import java.util.Queue;
 import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.Property;
+import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
-import javax.jcr.Value;
-import javax.jcr.ValueFactory;
 import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.common.text.Jsr283Encoder;
 import org.modeshape.common.text.ParsingException;
+import org.modeshape.common.text.TextEncoder;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.common.util.IoUtil;
 import org.modeshape.jcr.api.JcrConstants;
-import org.modeshape.jcr.api.Session;
 import org.modeshape.jcr.api.sequencer.Sequencer;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.ddl.node.AstNode;
+import org.teiid.modeshape.sequencer.output.JcrOutputWriter;
+import org.teiid.modeshape.sequencer.output.OutputCache;
+import org.teiid.modeshape.sequencer.output.OutputNode;
+import org.teiid.modeshape.sequencer.output.OutputReference;
+import org.teiid.modeshape.util.SequencingBudget;
 
 /**
  * A sequencer of DDL files.
@@ -57,6 +66,7 @@ import org.teiid.modeshape.sequencer.ddl.node.AstNode;
 abstract class DdlSequencer extends Sequencer {
 
     private static final Logger LOGGER = Logger.getLogger(DdlSequencer.class);
+    private static final TextEncoder NAME_ENCODER = new Jsr283Encoder();
 
     protected static final URL[] DEFAULT_CLASSPATH = new URL[] {};
     protected static final List<String> DEFAULT_GRAMMARS;
@@ -76,7 +86,10 @@ abstract class DdlSequencer extends Sequencer {
 
     private String[] parserGrammars = DEFAULT_GRAMMARS.toArray(new String[DEFAULT_GRAMMARS.size()]);
     private URL[] classpath = DEFAULT_CLASSPATH;
-    private final Map<AstNode, Node> nodeMap = new HashMap<AstNode, Node>();
+    private final MetricsRecorder metrics = new MetricsRecorder(getClass());
+    private DdlExpressionStorage expressionStorage = DdlExpressionStorage.getDefault();
+    private int maxExpressionLength = Integer.getInteger(DdlExpressionStorage.MAX_LENGTH_PROPERTY,
+                                                         DdlExpressionStorage.DEFAULT_MAX_LENGTH);
 
     /**
      * Get the names of the grammars that should be considered during processing. The grammar names may be the case-insensitive
@@ -121,6 +134,46 @@ abstract class DdlSequencer extends Sequencer {
         this.classpath = classpath != null ? classpath : DEFAULT_CLASSPATH;
     }
 
+    /**
+     * Get how the source text of each statement is stored. Defaults to the value of the
+     * {@link DdlExpressionStorage#PROPERTY system property} or {@link DdlExpressionStorage#FULL} if not set.
+     * 
+     * @return the name of the {@link DdlExpressionStorage expression storage}; never null
+     */
+    public String getExpressionStorage() {
+        return this.expressionStorage.name();
+    }
+
+    /**
+     * Set how the source text of each statement is stored.
+     * 
+     * @param expressionStorage the case-insensitive name of the {@link DdlExpressionStorage expression storage}; may be null or
+     *        empty if the complete expression should be stored
+     * @throws IllegalArgumentException if the name is not a known expression storage
+     */
+    public void setExpressionStorage( String expressionStorage ) {
+        this.expressionStorage = DdlExpressionStorage.parse(expressionStorage);
+    }
+
+    /**
+     * Get the maximum length of a stored expression when using {@link DdlExpressionStorage#TRUNCATE}.
+     * 
+     * @return the maximum number of characters stored for each expression
+     */
+    public int getMaxExpressionLength() {
+        return this.maxExpressionLength;
+    }
+
+    /**
+     * Set the maximum length of a stored expression when using {@link DdlExpressionStorage#TRUNCATE}.
+     * 
+     * @param maxExpressionLength the maximum number of characters stored for each expression; must not be negative
+     */
+    public void setMaxExpressionLength( int maxExpressionLength ) {
+        CheckArg.isNonNegative(maxExpressionLength, "maxExpressionLength");
+        this.maxExpressionLength = maxExpressionLength;
+    }
+
     /**
      * Method that creates the DdlParsers instance. This may be overridden in subclasses to creates specific implementations.
      * 
@@ -176,30 +229,133 @@ abstract class DdlSequencer extends Sequencer {
         Binary ddlContent = inputProperty.getBinary();
         CheckArg.isNotNull(ddlContent, "ddl content binary value");
 
-        // make sure node map is empty
-        this.nodeMap.clear();
+        final MetricsRecorder.Timer sequenceTimer = this.metrics.startExclusive(SequencingMetrics.SEQUENCE);
+
+        try {
+            this.metrics.increment(SequencingMetrics.BYTES_READ, ddlContent.getSize());
+            final SequencingBudget.Ticket ticket;
+
+            try (final MetricsRecorder.Timer timer = this.metrics.start(SequencingMetrics.BUDGET_WAIT)) {
+                ticket = SequencingBudget.shared().admit(SequencingBudget.estimateTextCost(ddlContent.getSize()));
+            }
+
+            try {
+                if (!sequence(inputProperty, ddlContent, outputNode)) {
+                    return false;
+                }
+            } finally {
+                ticket.close();
+            }
+
+            sequenceTimer.stop();
+        } finally {
+            sequenceTimer.discard();
+        }
 
+        SequencingMetrics.recordOutput(this.metrics, outputNode);
+        return true;
+    }
+
+    /**
+     * Parses the DDL and writes the statement nodes. The caller has already been admitted by the sequencing budget.
+     *
+     * @param inputProperty the property being sequenced (cannot be <code>null</code>)
+     * @param ddlContent the DDL (cannot be <code>null</code>)
+     * @param outputNode the output node (cannot be <code>null</code>)
+     * @return <code>true</code> if the DDL was parsed and written
+     * @throws Exception if an error occurs
+     */
+    private boolean sequence( final Property inputProperty,
+                              final Binary ddlContent,
+                              final Node outputNode ) throws Exception {
         // Look at the input path to get the name of the input node (or it's parent if it's "jcr:content") ...
         String fileName = getNameOfDdlContent(inputProperty);
 
-        // Perform the parsing
-        final AstNode rootNode;
-        DdlParsers parsers = createParsers(getParserList());
-        try (InputStream stream = ddlContent.getStream()) {
-            rootNode = parsers.parse(IoUtil.read(stream), fileName);
-        } catch (ParsingException e) {
-            LOGGER.error(e, DdlSequencerI18n.errorParsingDdlContent, e.getLocalizedMessage());
-            return false;
-        } catch (IOException e) {
-            LOGGER.error(e, DdlSequencerI18n.errorSequencingDdlContent, e.getLocalizedMessage());
-            return false;
+        // output of the same DDL sequenced with the same configuration can be written without parsing
+        final OutputCache cache = OutputCache.shared();
+        final String cacheKey = cache.isEnabled() ? cache.key(ddlContent, getClass(), getCacheConfiguration(fileName)) : null;
+        OutputNode output = (cacheKey == null) ? null : cache.get(cacheKey, outputNode.getSession());
+
+        if (output == null) {
+            // Perform the parsing
+            final AstNode rootNode;
+            DdlParsers parsers = createParsers(getParserList());
+            try (InputStream stream = ddlContent.getStream()) {
+                final String ddl = IoUtil.read(stream);
+
+                try (final MetricsRecorder.Timer timer = this.metrics.start(SequencingMetrics.DDL_PARSING)) {
+                    rootNode = parsers.parse(ddl, fileName);
+                }
+            } catch (ParsingException e) {
+                LOGGER.error(e, DdlSequencerI18n.errorParsingDdlContent, e.getLocalizedMessage());
+                return false;
+            } catch (IOException e) {
+                LOGGER.error(e, DdlSequencerI18n.errorSequencingDdlContent, e.getLocalizedMessage());
+                return false;
+            }
+
+            // namespaces used by node names must be registered before the output is written
+            Queue<AstNode> queue = new LinkedList<AstNode>(rootNode.getChildren());
+            while (queue.peek() != null) {
+                AstNode astNode = queue.poll();
+                preProcess(astNode, outputNode);
+                queue.addAll(astNode.getChildren());
+            }
+
+            output = createOutput(rootNode);
+
+            if (cacheKey != null) {
+                cache.put(cacheKey, output, outputNode.getSession());
+            }
+        }
+
+        final MetricsRecorder.Timer writeTimer = this.metrics.start(SequencingMetrics.NODE_WRITE);
+        final JcrOutputWriter writer = new JcrOutputWriter();
+        writer.write(output, outputNode);
+
+        // statement offsets are resolved against the original DDL, which is stored once with the statements
+        if (this.expressionStorage == DdlExpressionStorage.OFFSETS) {
+            writer.getNode(output.getChildren().get(0)).setProperty(StandardDdlLexicon.DDL_SOURCE, ddlContent);
         }
 
+        writeTimer.stop();
+        return true;
+    }
+
+    /**
+     * The parsers only use the name of the DDL to choose between grammars, so it is only part of the configuration when there is
+     * more than one grammar.
+     * 
+     * @param fileName the name of the DDL being sequenced (may be null)
+     * @return the configuration that affects the output of this sequencer (never <code>null</code>)
+     */
+    private String getCacheConfiguration( final String fileName ) {
+        final String[] grammars = getGrammars();
+        final StringBuilder config = new StringBuilder(Arrays.toString(grammars));
+        config.append(';').append(this.expressionStorage.name()).append(';').append(this.maxExpressionLength);
+
+        if (grammars.length > 1) {
+            config.append(';').append(fileName);
+        }
+
+        return config.toString();
+    }
+
+    /**
+     * Converts the statements parsed from the DDL into sequencer output. No repository is needed, so the output can be built
+     * without a session and written later.
+     * 
+     * @param rootNode the root of the parsed statements (cannot be <code>null</code>)
+     * @return the output tree, whose only child is the statements container (never <code>null</code>)
+     */
+    OutputNode createOutput( final AstNode rootNode ) {
+        final Map<AstNode, OutputNode> outputs = new IdentityHashMap<AstNode, OutputNode>();
+        final OutputNode output = new OutputNode(rootNode.getName(), null);
         Queue<AstNode> queue = new LinkedList<AstNode>();
         queue.add(rootNode);
         while (queue.peek() != null) {
             AstNode astNode = queue.poll();
-            createFromAstNode(outputNode, astNode);
+            createFromAstNode(output, astNode, outputs);
 
             // Add the children to the queue ...
             for (AstNode child : astNode.getChildren()) {
@@ -208,71 +364,127 @@ abstract class DdlSequencer extends Sequencer {
         }
 
         // second pass to lookup references (this allows for DDL to have forward references)
-        for (final Entry<AstNode, Node> entry : this.nodeMap.entrySet()) {
-            appendNodeProperties(entry.getKey(), entry.getValue());
+        for (final Entry<AstNode, OutputNode> entry : outputs.entrySet()) {
+            appendNodeProperties(entry.getKey(), entry.getValue(), outputs);
         }
 
-        return true;
+        return output;
     }
 
     private void appendNodeProperties( AstNode astNode,
-                                       Node sequenceNode ) throws RepositoryException {
-        ValueFactory valueFactory = sequenceNode.getSession().getValueFactory();
-
+                                       OutputNode outputNode,
+                                       Map<AstNode, OutputNode> outputs ) {
         for (String propertyName : astNode.getPropertyNames()) {
             Object astNodePropertyValue = astNode.getProperty(propertyName);
-            List<Value> valuesList = convertToPropertyValues(astNodePropertyValue, valueFactory);
-            if (valuesList.size() == 1) {
-                sequenceNode.setProperty(propertyName, valuesList.get(0));
-            } else {
-                sequenceNode.setProperty(propertyName, valuesList.toArray(new Value[0]));
+
+            if (StandardDdlLexicon.DDL_EXPRESSION.equals(propertyName)) {
+                astNodePropertyValue = storedExpression(astNodePropertyValue.toString());
+
+                if (astNodePropertyValue == null) {
+                    continue;
+                }
+            }
+
+            List<Object> valuesList = new ArrayList<Object>();
+            convertToPropertyValues(astNodePropertyValue, valuesList, outputs);
+            int type = PropertyType.UNDEFINED;
+
+            for (Object value : valuesList) {
+                final int valueType = propertyType(value);
+
+                if (type == PropertyType.UNDEFINED) {
+                    type = valueType;
+                } else if (type != valueType) {
+                    type = PropertyType.STRING;
+                }
             }
+
+            if (type == PropertyType.STRING) {
+                for (int i = 0; i < valuesList.size(); ++i) {
+                    valuesList.set(i, valuesList.get(i).toString());
+                }
+            }
+
+            outputNode.setProperty(propertyName, type, (valuesList.size() != 1), valuesList.toArray());
+        }
+    }
+
+    private static int propertyType( final Object value ) {
+        if (value instanceof Boolean) {
+            return PropertyType.BOOLEAN;
         }
+        if (value instanceof Long) {
+            return PropertyType.LONG;
+        }
+        if (value instanceof Double) {
+            return PropertyType.DOUBLE;
+        }
+        if (value instanceof OutputReference) {
+            return PropertyType.REFERENCE;
+        }
+        return PropertyType.STRING;
     }
 
-    private Node createFromAstNode( Node parent,
-                                    AstNode astNode ) throws RepositoryException {
-        String relativePath = astNode.getAbsolutePath().substring(1);
-        Node sequenceNode = null;
+    private String storedExpression( final String expression ) {
+        switch (this.expressionStorage) {
+            case OFFSETS:
+            case OMIT:
+                return null;
+            case TRUNCATE:
+                if (expression.length() > this.maxExpressionLength) {
+                    return expression.substring(0, this.maxExpressionLength);
+                }
+
+                return expression;
+            default:
+                return expression;
+        }
+    }
+
+    private void createFromAstNode( OutputNode parent,
+                                    AstNode astNode,
+                                    Map<AstNode, OutputNode> outputs ) {
+        OutputNode outputNode = null;
 
         // for SNS the absolute path will use first node it finds as the parent so find real parent if possible
-        Node parentNode = getNode(astNode.getParent());
+        OutputNode parentNode = outputs.get(astNode.getParent());
 
         if (parentNode == null) {
-            sequenceNode = parent.addNode(relativePath, astNode.getPrimaryType());
+            String relativePath = astNode.getAbsolutePath().substring(1);
+            outputNode = parent.addChild(relativePath, astNode.getPrimaryType());
         } else {
-            final Session session = (Session)parentNode.getSession();
-            preProcess(astNode, parentNode);
             String jcrName = astNode.getName();
 
             // if first character is a '{' then the name is prefixed by the namespace URL
             if ((jcrName.charAt(0) == '{') && (jcrName.indexOf('}') != -1)) {
                 final int index = jcrName.indexOf('}');
                 String localName = jcrName.substring(index + 1);
-                localName = session.encode(localName);
+                localName = NAME_ENCODER.encode(localName);
 
                 jcrName = jcrName.substring(0, (index + 1)) + localName;
             } else {
-                jcrName = session.encode(jcrName);
+                jcrName = NAME_ENCODER.encode(jcrName);
             }
 
-            sequenceNode = parentNode.addNode(jcrName, astNode.getPrimaryType());
+            outputNode = parentNode.addChild(jcrName, astNode.getPrimaryType());
         }
 
-        this.nodeMap.put(astNode, sequenceNode);
+        outputs.put(astNode, outputNode);
         for (String mixin : astNode.getMixins()) {
-            sequenceNode.addMixin(mixin);
+            outputNode.addMixin(mixin);
         }
         astNode.removeProperty(JcrConstants.JCR_MIXIN_TYPES);
         astNode.removeProperty(JcrConstants.JCR_PRIMARY_TYPE);
-        return sequenceNode;
     }
 
     /**
      * Default behavior is to do nothing.
      * 
-     * @param astNode the {@link AstNode} whose JCR node will be created next (cannot be <code>null</code>)
-     * @param parentNode the JCR parent node where the node will be created (cannot be <code>null</code>)
+     * Called for each statement node, before any output is written, so that anything the output depends on (for instance, a
+     * namespace) can be registered first.
+     * 
+     * @param astNode the {@link AstNode} whose output will be written (cannot be <code>null</code>)
+     * @param parentNode the JCR output node of the sequencer (cannot be <code>null</code>)
      * @throws RepositoryException if an error occurs
      */
     protected void preProcess( final AstNode astNode,
@@ -280,35 +492,25 @@ abstract class DdlSequencer extends Sequencer {
         // do nothing
     }
 
-    private List<Value> convertToPropertyValues( Object objectValue,
-                                                 ValueFactory valueFactory ) throws RepositoryException {
-        List<Value> result = new ArrayList<Value>();
+    private void convertToPropertyValues( Object objectValue,
+                                          List<Object> result,
+                                          Map<AstNode, OutputNode> outputs ) {
         if (objectValue instanceof Collection) {
             Collection<?> objects = (Collection<?>)objectValue;
             for (Object childObjectValue : objects) {
-                List<Value> childValues = convertToPropertyValues(childObjectValue, valueFactory);
-                result.addAll(childValues);
+                convertToPropertyValues(childObjectValue, result, outputs);
             }
         } else if (objectValue instanceof Boolean) {
-            result.add(valueFactory.createValue((Boolean)objectValue));
-        } else if (objectValue instanceof Integer) {
-            result.add(valueFactory.createValue((Integer)objectValue));
-        } else if (objectValue instanceof Long) {
-            result.add(valueFactory.createValue((Long)objectValue));
-        } else if (objectValue instanceof Double) {
-            result.add(valueFactory.createValue((Double)objectValue));
-        } else if (objectValue instanceof Float) {
-            result.add(valueFactory.createValue((Float)objectValue));
+            result.add(objectValue);
+        } else if ((objectValue instanceof Integer) || (objectValue instanceof Long)) {
+            result.add(((Number)objectValue).longValue());
+        } else if ((objectValue instanceof Double) || (objectValue instanceof Float)) {
+            result.add(((Number)objectValue).doubleValue());
         } else if (objectValue instanceof AstNode) {
-            result.add(valueFactory.createValue(getNode((AstNode)objectValue)));
+            result.add(OutputReference.toNode(outputs.get(objectValue)));
         } else {
-            result.add(valueFactory.createValue(objectValue.toString()));
+            result.add(objectValue.toString());
         }
-        return result;
-    }
-
-    private Node getNode( final AstNode node ) {
-        return this.nodeMap.get(node);
     }
 
     private String getNameOfDdlContent( Property inputProperty ) throws RepositoryException {
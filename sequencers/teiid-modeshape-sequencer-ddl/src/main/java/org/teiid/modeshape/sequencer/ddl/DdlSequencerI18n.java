@@ -43,6 +43,8 @@ public final class DdlSequencerI18n {
     public static I18n errorInstantiatingParserForGrammarClasspath;
     public static I18n ddlNotScoredByParsers;
     public static I18n unknownParser;
+    public static I18n unknownExpressionStorage;
+    public static I18n ddlNotSequenced;
 
     private DdlSequencerI18n() {
     }
@@ -0,0 +1,423 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.ddl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.RandomAccess;
+import java.util.Set;
+import org.modeshape.common.text.Position;
+import org.modeshape.common.text.TokenStream;
+import org.modeshape.common.text.TokenStream.Token;
+import org.modeshape.common.text.TokenStream.Tokens;
+
+/**
+ * A compact buffer of the tokens of a {@link DdlTokenStream}. Rather than one {@link Token} and one {@link Position} object per
+ * token, the offsets, type and position of each token are kept in parallel <code>int</code> arrays over the DDL content. A
+ * lightweight {@link Token} is only created when the token stream iterates over a token, and a token value is only created when
+ * a parser asks for it.
+ * <p>
+ * The tokens behave exactly like the tokens of a {@link TokenStream}, including matching a type against the current token of
+ * the stream rather than the token itself.
+ */
+final class DdlTokenBuffer extends AbstractList<Token> implements Tokens, RandomAccess {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Set in the type of a token that is a registered key word. Tokenizer types use the lower bits so this bit is never part of
+     * the type reported by a token.
+     */
+    private static final int KEY_WORD_FLAG = 1 << 30;
+
+    /**
+     * @return <code>true</code> if the default locale upper-cases the ASCII letters like the root locale does, which is not the
+     *         case for Turkish and Azeri where 'i' becomes a dotted capital I
+     */
+    private static boolean isAsciiUpperCasePlain() {
+        return "abcdefghijklmnopqrstuvwxyz".toUpperCase().equals("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+    }
+
+    private final String content;
+    private final boolean caseSensitive;
+    private final boolean asciiUpperCasePlain = isAsciiUpperCasePlain();
+    private Set<String> keyWords = Collections.emptySet();
+    private DdlTokenStream stream;
+    private int size;
+    private int[] starts = EMPTY;
+    private int[] ends = EMPTY;
+    private int[] types = EMPTY;
+    private int[] positionIndexes = EMPTY;
+    private int[] lines = EMPTY;
+    private int[] columns = EMPTY;
+
+    /**
+     * @param content the content being tokenized (cannot be <code>null</code>)
+     * @param caseSensitive <code>true</code> if tokens should be matched case-sensitively
+     */
+    DdlTokenBuffer( final String content,
+                    final boolean caseSensitive ) {
+        this.content = content;
+        this.caseSensitive = caseSensitive;
+    }
+
+    private void grow() {
+        // DDL averages over ten characters per token (including whitespace) so start there and grow by half
+        final int capacity = Math.max(16, (this.starts.length == 0) ? (this.content.length() / 16) : (this.starts.length * 3 / 2));
+        resize(capacity);
+    }
+
+    private void resize( final int capacity ) {
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.ends = Arrays.copyOf(this.ends, capacity);
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.positionIndexes = Arrays.copyOf(this.positionIndexes, capacity);
+        this.lines = Arrays.copyOf(this.lines, capacity);
+        this.columns = Arrays.copyOf(this.columns, capacity);
+    }
+
+    /**
+     * Releases unused capacity once tokenizing is complete.
+     */
+    void trimToSize() {
+        if (this.starts.length != this.size) {
+            resize(this.size);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.common.text.TokenStream.Tokens#addToken(org.modeshape.common.text.Position, int)
+     */
+    @Override
+    public void addToken( final Position position,
+                          final int index ) {
+        addToken(position, index, index + 1, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.common.text.TokenStream.Tokens#addToken(org.modeshape.common.text.Position, int, int)
+     */
+    @Override
+    public void addToken( final Position position,
+                          final int startIndex,
+                          final int endIndex ) {
+        addToken(position, startIndex, endIndex, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.common.text.TokenStream.Tokens#addToken(org.modeshape.common.text.Position, int, int, int)
+     */
+    @Override
+    public void addToken( final Position position,
+                          final int startIndex,
+                          final int endIndex,
+                          final int type ) {
+        if (this.size == this.starts.length) {
+            grow();
+        }
+
+        this.starts[this.size] = startIndex;
+        this.ends[this.size] = endIndex;
+        this.types[this.size] = type;
+        this.positionIndexes[this.size] = position.getIndexInContent();
+        this.lines[this.size] = position.getLine();
+        this.columns[this.size] = position.getColumn();
+        ++this.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.AbstractList#get(int)
+     */
+    @Override
+    public Token get( final int index ) {
+        if ((index < 0) || (index >= this.size)) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+
+        return new BufferedToken(index, this.types[index] & ~KEY_WORD_FLAG);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param startIndex the index in the content of the first character of a token
+     * @return the index of the token starting at that character or a negative number if no token starts there
+     */
+    int indexOf( final int startIndex ) {
+        return Arrays.binarySearch(this.starts, 0, this.size, startIndex);
+    }
+
+    /**
+     * Adds to the type of a token the same way {@link Token#withType(int)} does.
+     * 
+     * @param index the token index
+     * @param typeMask the type bits added to the type of the token
+     */
+    void addType( final int index,
+                  final int typeMask ) {
+        this.types[index] |= typeMask;
+    }
+
+    /**
+     * Flags a token as a registered key word.
+     * 
+     * @param index the token index
+     */
+    void markKeyWord( final int index ) {
+        this.types[index] |= KEY_WORD_FLAG;
+    }
+
+    /**
+     * @param registeredKeyWords the upper-cased key words the tokens were {@link #markKeyWord(int) flagged} with (cannot be
+     *        <code>null</code>)
+     */
+    void setKeyWords( final Set<String> registeredKeyWords ) {
+        this.keyWords = registeredKeyWords;
+    }
+
+    /**
+     * @param tokenStream the stream whose current token is used when matching types (cannot be <code>null</code>)
+     */
+    void setStream( final DdlTokenStream tokenStream ) {
+        this.stream = tokenStream;
+    }
+
+    /**
+     * @param index the token index
+     * @return the token value (never <code>null</code>)
+     */
+    String value( final int index ) {
+        return this.content.substring(this.starts[index], this.ends[index]);
+    }
+
+    /**
+     * @param index the token index
+     * @param expected the expected value (cannot be <code>null</code>)
+     * @return <code>true</code> if the token value equals the expected value ignoring case
+     */
+    boolean equalsIgnoreCase( final int index,
+                              final String expected ) {
+        final int length = this.ends[index] - this.starts[index];
+        return (length == expected.length()) && this.content.regionMatches(true, this.starts[index], expected, 0, length);
+    }
+
+    /**
+     * Same semantics as the tokens of a {@link TokenStream}: a case-insensitive token matches when its value upper-cased in the
+     * default locale equals the expected value. ASCII values are compared in place rather than creating an upper-cased copy,
+     * unless the default locale upper-cases ASCII letters differently.
+     * 
+     * @param index the token index
+     * @param expected the expected value (cannot be <code>null</code>)
+     * @return <code>true</code> if the token matches the expected value
+     */
+    boolean matches( final int index,
+                     final String expected ) {
+        final int start = this.starts[index];
+        final int length = this.ends[index] - start;
+
+        if (this.caseSensitive) {
+            return (length == expected.length()) && this.content.regionMatches(start, expected, 0, length);
+        }
+
+        // parsers mostly expect key words, which only tokens flagged as key words can match
+        if (((this.types[index] & KEY_WORD_FLAG) == 0) && this.keyWords.contains(expected)) {
+            return false;
+        }
+
+        for (int i = 0; i < length; ++i) {
+            char c = this.content.charAt(start + i);
+
+            if ((c >= 128) || !this.asciiUpperCasePlain) {
+                return value(index).toUpperCase().equals(expected);
+            }
+
+            if ((c >= 'a') && (c <= 'z')) {
+                c -= ('a' - 'A');
+            }
+
+            if ((i >= expected.length()) || (c != expected.charAt(i))) {
+                return false;
+            }
+        }
+
+        return (length == expected.length());
+    }
+
+    /**
+     * A view of one token in the buffer.
+     */
+    private final class BufferedToken implements Token {
+
+        private final int index;
+        private final int type;
+
+        BufferedToken( final int index,
+                       final int type ) {
+            this.index = index;
+            this.type = type;
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#value()
+         */
+        @Override
+        public String value() {
+            return DdlTokenBuffer.this.value(this.index);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#matches(java.lang.String)
+         */
+        @Override
+        public boolean matches( final String expected ) {
+            return DdlTokenBuffer.this.matches(this.index, expected);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#matches(char)
+         */
+        @Override
+        public boolean matches( final char expected ) {
+            // the raw character is compared even when the stream is case-insensitive
+            return (length() == 1) && (DdlTokenBuffer.this.content.charAt(startIndex()) == expected);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#matches(int)
+         */
+        @Override
+        public boolean matches( final int expectedType ) {
+            if (expectedType == TokenStream.ANY_TYPE) {
+                return true;
+            }
+
+            // like the TokenStream tokens, test the type of the current token of the stream
+            final DdlTokenStream tokenStream = DdlTokenBuffer.this.stream;
+            int actualType = this.type;
+
+            if (tokenStream != null) {
+                final int current = indexOf(tokenStream.nextPosition().getIndexInContent());
+                actualType = DdlTokenBuffer.this.types[current] & ~KEY_WORD_FLAG;
+            }
+
+            return ((actualType & expectedType) == expectedType);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#type()
+         */
+        @Override
+        public int type() {
+            return this.type;
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#startIndex()
+         */
+        @Override
+        public int startIndex() {
+            return DdlTokenBuffer.this.starts[this.index];
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#endIndex()
+         */
+        @Override
+        public int endIndex() {
+            return DdlTokenBuffer.this.ends[this.index];
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#length()
+         */
+        @Override
+        public int length() {
+            return endIndex() - startIndex();
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#position()
+         */
+        @Override
+        public Position position() {
+            return new Position(DdlTokenBuffer.this.positionIndexes[this.index], DdlTokenBuffer.this.lines[this.index],
+                                DdlTokenBuffer.this.columns[this.index]);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Token#withType(int)
+         */
+        @Override
+        public Token withType( final int typeMask ) {
+            return new BufferedToken(this.index, this.type | typeMask);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return value();
+        }
+
+    }
+
+}
@@ -53,6 +53,9 @@ public class DdlTokenStream extends TokenStream {
 
     private Position currentMarkedPosition = Position.EMPTY_CONTENT_POSITION;
 
+    private final BufferingTokenizer bufferingTokenizer;
+    private DdlTokenBuffer buffer;
+
     /**
      * {@inheritDoc}
      * 
@@ -60,57 +63,56 @@ public class DdlTokenStream extends TokenStream {
      */
     @Override
     protected List<Token> initializeTokens( List<Token> tokens ) {
-        // THIS IS WHERE WE DO THE WORK OF PRE-PARSING TOKENS AND REPLACING KEYWORDS AND STATEMENT STARTS WITH
-        // APPLICABLE TOKEN TYPE BITMASK VALUES
-        // MyClass[] array = (MyClass[])list.toArray(new MyClass[list.size()]);
-
-        Token[] tokensArray = tokens.toArray(new Token[tokens.size()]);
-        List<Token> reTypedTokens = new ArrayList<Token>(tokens.size());
-
-        for (int i = 0; i < tokensArray.length; i++) {
-            boolean isStatementStart = false;
-            if (isKeyWord(tokensArray[i].value())) {
-                Token retypedToken = tokensArray[i].withType(DdlTokenizer.KEYWORD);
-                // Now we check to see if this keyword begins a registered statement start
-
-                // Keep track of token increment (# of tokens for a phrase)
-                // Need to increment iterator (i) in case phrases like "ALTER ROLLBACK" appear. ROLLBACK is also a statement
-                // start phrase and we need to walk ignore ROLLBACK in this case.
-                int tokenIncrement = 0;
-                for (String[] nextStmtStart : registeredStatementStartPhrases) {
-                    boolean matches = true;
-
-                    for (int j = 0; j < nextStmtStart.length; j++) {
-                        if (matches) {
-                            matches = nextStmtStart[j].equalsIgnoreCase(tokensArray[i + j].value())
-                                      || nextStmtStart[j].equals(ANY_VALUE);
-                        }
-                    }
-                    if (matches) {
-                        isStatementStart = true;
-                        tokenIncrement = nextStmtStart.length - 1;
-                        break;
-                    }
-                }
-                if (isStatementStart) {
-                    retypedToken = retypedToken.withType(DdlTokenizer.STATEMENT_KEY);
-                }
-                reTypedTokens.add(retypedToken);
+        // THIS IS WHERE WE DO THE WORK OF PRE-PARSING TOKENS AND RE-TYPING KEYWORDS AND STATEMENT STARTS WITH
+        // APPLICABLE TOKEN TYPE BITMASK VALUES. The tokenizer wrote the tokens into a compact buffer (the factory tokens are
+        // empty) so the re-typing is done in place.
+        final DdlTokenBuffer tokenBuffer = this.bufferingTokenizer.takeBuffer();
+        tokenBuffer.trimToSize();
+        final int numTokens = tokenBuffer.size();
+
+        // copied so that the key word flags of the tokens stay consistent with the key words the buffer matches against
+        final Set<String> keyWords = new HashSet<String>(registeredKeyWords);
+        tokenBuffer.setKeyWords(keyWords);
+        int phraseEnd = 0;
+
+        for (int i = 0; i < numTokens; i++) {
+            // same test as isKeyWord but each token is only upper-cased once
+            if (!keyWords.contains(tokenBuffer.value(i).toUpperCase())) {
+                continue;
+            }
 
-                if (isStatementStart) {
-                    // Copy any additional tokens used in the phrase
-                    for (int k = 0; k < tokenIncrement; k++) {
-                        i++;
-                        reTypedTokens.add(tokensArray[i]);
-                    }
-                }
-            } else {
-                reTypedTokens.add(tokensArray[i]);
+            tokenBuffer.markKeyWord(i);
+
+            // tokens of a statement start phrase after its first token are flagged as key words but not re-typed
+            if (i < phraseEnd) {
+                continue;
             }
 
+            int type = DdlTokenizer.KEYWORD;
+            // Now we check to see if this keyword begins a registered statement start
+
+            // Keep track of the end of the phrase (# of tokens for a phrase)
+            // Need to skip tokens in case phrases like "ALTER ROLLBACK" appear. ROLLBACK is also a statement
+            // start phrase and we need to walk ignore ROLLBACK in this case.
+            for (String[] nextStmtStart : registeredStatementStartPhrases) {
+                boolean matches = ((i + nextStmtStart.length) <= numTokens);
+
+                for (int j = 0; matches && (j < nextStmtStart.length); j++) {
+                    matches = nextStmtStart[j].equals(ANY_VALUE) || tokenBuffer.equalsIgnoreCase(i + j, nextStmtStart[j]);
+                }
+                if (matches) {
+                    type |= DdlTokenizer.STATEMENT_KEY;
+                    phraseEnd = i + nextStmtStart.length;
+                    break;
+                }
+            }
+            // added to the tokenizer type like Token.withType does
+            tokenBuffer.addType(i, type);
         }
 
-        return reTypedTokens;
+        tokenBuffer.setStream(this);
+        this.buffer = tokenBuffer;
+        return tokenBuffer;
     }
 
     /**
@@ -121,7 +123,14 @@ public class DdlTokenStream extends TokenStream {
     public DdlTokenStream( String content,
                            Tokenizer tokenizer,
                            boolean caseSensitive ) {
+        this(content, new BufferingTokenizer(content, tokenizer, caseSensitive), caseSensitive);
+    }
+
+    private DdlTokenStream( String content,
+                            BufferingTokenizer tokenizer,
+                            boolean caseSensitive ) {
         super(content, tokenizer, caseSensitive);
+        this.bufferingTokenizer = tokenizer;
     }
 
     /**
@@ -206,6 +215,26 @@ public class DdlTokenStream extends TokenStream {
         return result;
     }
 
+    /**
+     * Looks ahead in the stream without consuming any tokens.
+     * 
+     * @param lookAhead the number of tokens to look past the next token (zero is the next token)
+     * @return the upper-cased value of the token or <code>null</code> if the stream does not have that many more tokens
+     */
+    public String peek( int lookAhead ) {
+        if (!hasNext()) {
+            return null;
+        }
+
+        final int next = this.buffer.indexOf(nextPosition().getIndexInContent());
+
+        if ((next < 0) || ((next + lookAhead) >= this.buffer.size())) {
+            return null;
+        }
+
+        return this.buffer.value(next + lookAhead).toUpperCase();
+    }
+
     /**
      * Marks the current position (line & column number) of the currentToken
      */
@@ -234,6 +263,46 @@ public class DdlTokenStream extends TokenStream {
         return getContentBetween(startPosition, currentMarkedPosition);
     }
 
+    /**
+     * Hands a compact {@link DdlTokenBuffer} to the actual tokenizer in place of the token factory of the {@link TokenStream}, so
+     * that no token objects are created while tokenizing.
+     */
+    private static final class BufferingTokenizer implements Tokenizer {
+
+        private final String content;
+        private final Tokenizer delegate;
+        private final boolean caseSensitive;
+        private DdlTokenBuffer buffer;
+
+        BufferingTokenizer( final String content,
+                            final Tokenizer delegate,
+                            final boolean caseSensitive ) {
+            this.content = content;
+            this.delegate = delegate;
+            this.caseSensitive = caseSensitive;
+        }
+
+        DdlTokenBuffer takeBuffer() {
+            final DdlTokenBuffer result = this.buffer;
+            this.buffer = null;
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.common.text.TokenStream.Tokenizer#tokenize(org.modeshape.common.text.TokenStream.CharacterStream,
+         *      org.modeshape.common.text.TokenStream.Tokens)
+         */
+        @Override
+        public void tokenize( final CharacterStream input,
+                              final Tokens tokens ) throws ParsingException {
+            this.buffer = new DdlTokenBuffer(this.content, this.caseSensitive);
+            this.delegate.tokenize(input, this.buffer);
+        }
+
+    }
+
     /**
      * Obtain a ddl {@link DdlTokenizer} implementation that ignores whitespace but includes tokens for individual symbols, the
      * period ('.'), single-quoted strings, double-quoted strings, whitespace-delimited words, and optionally comments.
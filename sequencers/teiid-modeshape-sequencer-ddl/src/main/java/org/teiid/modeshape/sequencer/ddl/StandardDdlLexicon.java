@@ -140,6 +140,7 @@ public class StandardDdlLexicon {
     public static final String DDL_START_CHAR_INDEX = PREFIX + ":startCharIndex";
     public static final String DDL_PROBLEM = PREFIX + ":problem";
     public static final String DDL_LENGTH = PREFIX + ":length";
+    public static final String DDL_SOURCE = PREFIX + ":source";
 
     public static final String OPTION = PREFIX + ":option";
     public static final String TYPE = PREFIX + ":type";
@@ -122,6 +122,8 @@ import org.modeshape.common.text.ParsingException;
 import org.modeshape.common.text.Position;
 import org.modeshape.common.text.TokenStream;
 import org.modeshape.common.util.CheckArg;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.ddl.DdlTokenStream.DdlTokenizer;
 import org.teiid.modeshape.sequencer.ddl.datatype.DataType;
 import org.teiid.modeshape.sequencer.ddl.datatype.DataTypeParser;
@@ -154,6 +156,7 @@ public class StandardDdlParser implements DdlParser, DdlConstants, DdlConstants.
     private Position currentMarkedPosition;
     private boolean includeComments = true;
     private int ignoredStatementSuffix = 1;
+    private final MetricsRecorder metrics = new MetricsRecorder(getClass());
 
     public StandardDdlParser() {
         super();
@@ -224,7 +227,7 @@ public class StandardDdlParser implements DdlParser, DdlConstants, DdlConstants.
         problems.clear();
         DdlTokenStream tokens = new DdlTokenStream(ddl, DdlTokenStream.ddlTokenizer(this.includeComments), false);
         initializeTokenStream(tokens);
-        tokens.start();
+        startTokens(tokens);
 
         testPrint("\n== >> StandardDdlParser.parse() PARSING STARTED: ");
 
@@ -242,6 +245,12 @@ public class StandardDdlParser implements DdlParser, DdlConstants, DdlConstants.
         return tokens;
     }
 
+    private void startTokens( final DdlTokenStream tokens ) {
+        try (final MetricsRecorder.Timer timer = this.metrics.start(SequencingMetrics.DDL_TOKENIZATION)) {
+            tokens.start();
+        }
+    }
+
     protected void computeScore( DdlTokenStream tokens,
                                  DdlParserScorer scorer ) {
         while (tokens.hasNext()) {
@@ -287,7 +296,7 @@ public class StandardDdlParser implements DdlParser, DdlConstants, DdlConstants.
             // Need to create the token stream ...
             tokens = new DdlTokenStream(ddl, DdlTokenStream.ddlTokenizer(this.includeComments), false);
             initializeTokenStream(tokens);
-            tokens.start();
+            startTokens(tokens);
         }
 
         testPrint("\n== >> StandardDdlParser.parse() PARSING STARTED: ");
@@ -21,6 +21,9 @@
  */
 package org.teiid.modeshape.sequencer.ddl;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import org.modeshape.common.text.ParsingException;
 import org.teiid.modeshape.sequencer.ddl.TeiidDdlConstants.TeiidDataType;
 import org.teiid.modeshape.sequencer.ddl.datatype.DataType;
@@ -30,6 +33,18 @@ class TeiidDataTypeParser extends DataTypeParser {
 
     static final int[] DEFAULT_PRECISION_SCALE = new int[] {DataType.DEFAULT_PRECISION, DataType.DEFAULT_SCALE};
 
+    private static final Map<String, TeiidDataType> TYPES_BY_DDL;
+
+    static {
+        final Map<String, TeiidDataType> types = new HashMap<String, TeiidDataType>();
+
+        for (final TeiidDataType teiidDataType : TeiidDataType.values()) {
+            types.put(teiidDataType.toDdl(), teiidDataType);
+        }
+
+        TYPES_BY_DDL = Collections.unmodifiableMap(types);
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -56,43 +71,44 @@ class TeiidDataTypeParser extends DataTypeParser {
         boolean autoIncrement = false;
         boolean notNull = false;
 
-        for (final TeiidDataType teiidDataType : TeiidDataType.values()) {
-            if (tokens.canConsume(teiidDataType.toDdl())) {
-                teiidType = teiidDataType;
-
-                if (teiidDataType == TeiidDataType.BIGDECIMAL) {
-                    // ( BIGDECIMAL ( <lparen> <unsigned integer> ( <comma> <unsigned integer> )? <rparen> )? )
-                    precisionScale = parseDecimal(tokens);
-                } else if (teiidDataType == TeiidDataType.BIGINTEGER) {
-                    // ( BIGINTEGER ( <lparen> <unsigned integer> <rparen> )? )
-                    length = parseLength(tokens);
-                } else if (teiidDataType == TeiidDataType.BLOB) {
-                    // ( BLOB ( <lparen> <unsigned integer> <rparen> )? )
-                    length = parseLength(tokens);
-                } else if (teiidDataType == TeiidDataType.CHAR) {
-                    // ( CHAR ( <lparen> <unsigned integer> <rparen> )? )
-                    length = parseLength(tokens);
-                } else if (teiidDataType == TeiidDataType.CLOB) {
-                    // ( CLOB ( <lparen> <unsigned integer> <rparen> )? )
-                    length = parseLength(tokens);
-                } else if (teiidDataType == TeiidDataType.DECIMAL) {
-                    // ( DECIMAL ( <lparen> <unsigned integer> ( <comma> <unsigned integer> )? <rparen> )? )
-                    precisionScale = parseDecimal(tokens);
-                } else if (teiidDataType == TeiidDataType.STRING) {
-                    // ( STRING ( <lparen> <unsigned integer> <rparen> )? )
-                    length = parseLength(tokens);
-                } else if (teiidDataType == TeiidDataType.VARBINARY) {
-                    // ( VARBINARY ( <lparen> <unsigned integer> <rparen> )? )
-                    length = parseLength(tokens);
-                } else if (teiidDataType == TeiidDataType.VARCHAR) {
-                    // ( VARCHAR ( <lparen> <unsigned integer> <rparen> )? )
-                    length = parseLength(tokens);
-                } else if (teiidDataType == TeiidDataType.OBJECT) {
-                    // ( OBJECT ( <lparen> <unsigned integer> <rparen> )? )
-                    length = parseLength(tokens);
-                }
-
-                break;
+        // all Teiid data types are a single word so one lookup of the next token finds the type
+        final String nextWord = tokens.peek(0);
+        final TeiidDataType teiidDataType = ((nextWord == null) ? null : TYPES_BY_DDL.get(nextWord));
+
+        if (teiidDataType != null) {
+            tokens.consume();
+            teiidType = teiidDataType;
+
+            if (teiidDataType == TeiidDataType.BIGDECIMAL) {
+                // ( BIGDECIMAL ( <lparen> <unsigned integer> ( <comma> <unsigned integer> )? <rparen> )? )
+                precisionScale = parseDecimal(tokens);
+            } else if (teiidDataType == TeiidDataType.BIGINTEGER) {
+                // ( BIGINTEGER ( <lparen> <unsigned integer> <rparen> )? )
+                length = parseLength(tokens);
+            } else if (teiidDataType == TeiidDataType.BLOB) {
+                // ( BLOB ( <lparen> <unsigned integer> <rparen> )? )
+                length = parseLength(tokens);
+            } else if (teiidDataType == TeiidDataType.CHAR) {
+                // ( CHAR ( <lparen> <unsigned integer> <rparen> )? )
+                length = parseLength(tokens);
+            } else if (teiidDataType == TeiidDataType.CLOB) {
+                // ( CLOB ( <lparen> <unsigned integer> <rparen> )? )
+                length = parseLength(tokens);
+            } else if (teiidDataType == TeiidDataType.DECIMAL) {
+                // ( DECIMAL ( <lparen> <unsigned integer> ( <comma> <unsigned integer> )? <rparen> )? )
+                precisionScale = parseDecimal(tokens);
+            } else if (teiidDataType == TeiidDataType.STRING) {
+                // ( STRING ( <lparen> <unsigned integer> <rparen> )? )
+                length = parseLength(tokens);
+            } else if (teiidDataType == TeiidDataType.VARBINARY) {
+                // ( VARBINARY ( <lparen> <unsigned integer> <rparen> )? )
+                length = parseLength(tokens);
+            } else if (teiidDataType == TeiidDataType.VARCHAR) {
+                // ( VARCHAR ( <lparen> <unsigned integer> <rparen> )? )
+                length = parseLength(tokens);
+            } else if (teiidDataType == TeiidDataType.OBJECT) {
+                // ( OBJECT ( <lparen> <unsigned integer> <rparen> )? )
+                length = parseLength(tokens);
             }
         }
 
@@ -21,9 +21,18 @@
  */
 package org.teiid.modeshape.sequencer.ddl;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.Collections;
 import java.util.List;
 import javax.jcr.Binary;
@@ -112,16 +121,36 @@ public class TeiidDdlSequencer extends DdlSequencer {
      */
     public void sequenceDdl( final String ddl,
                              final Node outputNode ) throws Exception {
-        final ByteArrayInputStream ddlStream = new ByteArrayInputStream( ddl.getBytes() );
-        final Binary binary = outputNode.getSession().getValueFactory().createBinary( ddlStream );
+        sequenceDdl( new StringReader( ddl ), outputNode );
+    }
+
+    /**
+     * Sequences DDL read from a reader, like the reader of a VDB model definition too large to be held in memory. The DDL is
+     * encoded into the repository binary handed to the parser as it is read, so the caller never needs to hold it as a
+     * <code>String</code>. The reader is closed when this method returns.
+     *
+     * @param ddl the reader of the Teiid DDL being processed (cannot be <code>null</code>)
+     * @param outputNode the repository output node (cannot be <code>null</code>)
+     * @throws Exception if an error occurs
+     */
+    public void sequenceDdl( final Reader ddl,
+                             final Node outputNode ) throws Exception {
+        final Binary binary;
+
+        // the parser decodes the binary using the platform charset
+        try ( final InputStream ddlStream = new EncodingInputStream( ddl, Charset.defaultCharset() ) ) {
+            binary = outputNode.getSession().getValueFactory().createBinary( ddlStream );
+        }
+
         final Property temp = outputNode.setProperty( "ddlStream", binary );
 
         try {
             if ( !execute( temp, outputNode, null ) ) {
-                throw new Exception( "Error sequencing DDL: " + ddl ); // TODO i18n this
+                throw new Exception( DdlSequencerI18n.ddlNotSequenced.text( outputNode.getPath() ) );
             }
         } finally {
             temp.remove();
+            binary.dispose();
         }
     }
 
@@ -135,4 +164,108 @@ public class TeiidDdlSequencer extends DdlSequencer {
         // nothing to do
     }
 
+    /**
+     * An input stream that encodes the characters of a reader as they are read.
+     */
+    private static final class EncodingInputStream extends InputStream {
+
+        private final ByteBuffer bytes;
+        private final CharBuffer chars = CharBuffer.allocate( 8 * 1024 );
+        private final CharsetEncoder encoder;
+        private boolean endOfInput;
+        private boolean flushed;
+        private final Reader reader;
+
+        EncodingInputStream( final Reader reader,
+                             final Charset charset ) {
+            this.reader = reader;
+            this.encoder = charset.newEncoder()
+                                  .onMalformedInput( CodingErrorAction.REPLACE )
+                                  .onUnmappableCharacter( CodingErrorAction.REPLACE );
+            this.bytes = ByteBuffer.allocate( ( int )Math.ceil( this.chars.capacity() * this.encoder.maxBytesPerChar() ) );
+            this.chars.flip();
+            this.bytes.flip();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#close()
+         */
+        @Override
+        public void close() throws IOException {
+            this.reader.close();
+        }
+
+        /**
+         * @return <code>false</code> if all characters have been read and all bytes have been returned
+         */
+        private boolean fill() throws IOException {
+            while ( !this.bytes.hasRemaining() ) {
+                if ( this.flushed ) {
+                    return false;
+                }
+
+                if ( !this.endOfInput ) {
+                    this.chars.compact();
+                    this.endOfInput = ( this.reader.read( this.chars ) == -1 );
+                    this.chars.flip();
+                }
+
+                this.bytes.clear();
+                final CoderResult result = this.encoder.encode( this.chars, this.bytes, this.endOfInput );
+
+                if ( result.isError() ) {
+                    try {
+                        result.throwException();
+                    } catch ( final CharacterCodingException e ) {
+                        throw new IOException( e );
+                    }
+                }
+
+                if ( this.endOfInput && result.isUnderflow() ) {
+                    this.encoder.flush( this.bytes );
+                    this.flushed = true;
+                }
+
+                this.bytes.flip();
+            }
+
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#read()
+         */
+        @Override
+        public int read() throws IOException {
+            return ( fill() ? ( this.bytes.get() & 0xFF ) : -1 );
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read( final byte[] buffer,
+                         final int offset,
+                         final int length ) throws IOException {
+            if ( length == 0 ) {
+                return 0;
+            }
+
+            if ( !fill() ) {
+                return -1;
+            }
+
+            final int count = Math.min( length, this.bytes.remaining() );
+            this.bytes.get( buffer, offset, count );
+            return count;
+        }
+
+    }
+
 }
@@ -27,8 +27,6 @@ import static org.teiid.modeshape.sequencer.ddl.StandardDdlLexicon.DATATYPE_NAME
 import static org.teiid.modeshape.sequencer.ddl.StandardDdlLexicon.DATATYPE_PRECISION;
 import static org.teiid.modeshape.sequencer.ddl.StandardDdlLexicon.DATATYPE_SCALE;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.List;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.text.ParsingException;
 import org.modeshape.common.text.TokenStream;
@@ -43,59 +41,49 @@ public class DataTypeParser implements DdlConstants {
 
     private static Logger LOGGER = Logger.getLogger(DataTypeParser.class);
 
-    private static List<String[]> basicCharStringTypes = new ArrayList<String[]>();
-    private static List<String[]> basicNationalCharStringTypes = new ArrayList<String[]>();
-    private static List<String[]> basicBitStringTypes = new ArrayList<String[]>();
-    private static List<String[]> basicExactNumericTypes = new ArrayList<String[]>();
-    private static List<String[]> basicApproxNumericStringTypes = new ArrayList<String[]>();
-    private static List<String[]> basicDateTimeTypes = new ArrayList<String[]>();
-    private static List<String[]> basicMiscTypes = new ArrayList<String[]>();
+    private static final DataTypeTrie DATA_TYPES = new DataTypeTrie();
 
-    private int defaultLength = 255;
-    private int defaultPrecision = 0;
-    private int defaultScale = 0;
-
-    public DataTypeParser() {
-        super();
-
-        initialize();
-    }
-
-    private void initialize() {
+    static {
+        DATA_TYPES.add(DataTypes.DTYPE_CHARACTER, DataTypes.DTYPE_CODE_CHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_CHAR, DataTypes.DTYPE_CODE_CHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_CHARACTER_VARYING, DataTypes.DTYPE_CODE_CHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_CHAR_VARYING, DataTypes.DTYPE_CODE_CHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_VARCHAR, DataTypes.DTYPE_CODE_CHAR_STRING);
 
-        basicCharStringTypes.add(DataTypes.DTYPE_CHARACTER);
-        basicCharStringTypes.add(DataTypes.DTYPE_CHAR);
-        basicCharStringTypes.add(DataTypes.DTYPE_CHARACTER_VARYING);
-        basicCharStringTypes.add(DataTypes.DTYPE_CHAR_VARYING);
-        basicCharStringTypes.add(DataTypes.DTYPE_VARCHAR);
+        DATA_TYPES.add(DataTypes.DTYPE_NCHAR, DataTypes.DTYPE_CODE_NCHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_NATIONAL_CHARACTER, DataTypes.DTYPE_CODE_NCHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_NATIONAL_CHARACTER_VARYING, DataTypes.DTYPE_CODE_NCHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_NATIONAL_CHAR, DataTypes.DTYPE_CODE_NCHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_NATIONAL_CHAR_VARYING, DataTypes.DTYPE_CODE_NCHAR_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_NCHAR_VARYING, DataTypes.DTYPE_CODE_NCHAR_STRING);
 
-        basicNationalCharStringTypes.add(DataTypes.DTYPE_NCHAR);
-        basicNationalCharStringTypes.add(DataTypes.DTYPE_NATIONAL_CHARACTER);
-        basicNationalCharStringTypes.add(DataTypes.DTYPE_NATIONAL_CHARACTER_VARYING);
-        basicNationalCharStringTypes.add(DataTypes.DTYPE_NATIONAL_CHAR);
-        basicNationalCharStringTypes.add(DataTypes.DTYPE_NATIONAL_CHAR_VARYING);
-        basicNationalCharStringTypes.add(DataTypes.DTYPE_NCHAR_VARYING);
+        DATA_TYPES.add(DataTypes.DTYPE_BIT, DataTypes.DTYPE_CODE_BIT_STRING);
+        DATA_TYPES.add(DataTypes.DTYPE_BIT_VARYING, DataTypes.DTYPE_CODE_BIT_STRING);
 
-        basicBitStringTypes.add(DataTypes.DTYPE_BIT);
-        basicBitStringTypes.add(DataTypes.DTYPE_BIT_VARYING);
+        DATA_TYPES.add(DataTypes.DTYPE_NUMERIC, DataTypes.DTYPE_CODE_EXACT_NUMERIC);
+        DATA_TYPES.add(DataTypes.DTYPE_DEC, DataTypes.DTYPE_CODE_EXACT_NUMERIC);
+        DATA_TYPES.add(DataTypes.DTYPE_DECIMAL, DataTypes.DTYPE_CODE_EXACT_NUMERIC);
+        DATA_TYPES.add(DataTypes.DTYPE_INTEGER, DataTypes.DTYPE_CODE_EXACT_NUMERIC);
+        DATA_TYPES.add(DataTypes.DTYPE_INT, DataTypes.DTYPE_CODE_EXACT_NUMERIC);
+        DATA_TYPES.add(DataTypes.DTYPE_SMALLINT, DataTypes.DTYPE_CODE_EXACT_NUMERIC);
 
-        basicExactNumericTypes.add(DataTypes.DTYPE_NUMERIC);
-        basicExactNumericTypes.add(DataTypes.DTYPE_DEC);
-        basicExactNumericTypes.add(DataTypes.DTYPE_DECIMAL);
-        basicExactNumericTypes.add(DataTypes.DTYPE_INTEGER);
-        basicExactNumericTypes.add(DataTypes.DTYPE_INT);
-        basicExactNumericTypes.add(DataTypes.DTYPE_SMALLINT);
+        DATA_TYPES.add(DataTypes.DTYPE_FLOAT, DataTypes.DTYPE_CODE_APROX_NUMERIC);
+        DATA_TYPES.add(DataTypes.DTYPE_REAL, DataTypes.DTYPE_CODE_APROX_NUMERIC);
+        DATA_TYPES.add(DataTypes.DTYPE_DOUBLE_PRECISION, DataTypes.DTYPE_CODE_APROX_NUMERIC);
 
-        basicApproxNumericStringTypes.add(DataTypes.DTYPE_FLOAT);
-        basicApproxNumericStringTypes.add(DataTypes.DTYPE_REAL);
-        basicApproxNumericStringTypes.add(DataTypes.DTYPE_DOUBLE_PRECISION);
+        DATA_TYPES.add(DataTypes.DTYPE_DATE, DataTypes.DTYPE_CODE_DATE_TIME);
+        DATA_TYPES.add(DataTypes.DTYPE_TIME, DataTypes.DTYPE_CODE_DATE_TIME);
+        DATA_TYPES.add(DataTypes.DTYPE_TIMESTAMP, DataTypes.DTYPE_CODE_DATE_TIME);
 
-        basicDateTimeTypes.add(DataTypes.DTYPE_DATE);
-        basicDateTimeTypes.add(DataTypes.DTYPE_TIME);
-        basicDateTimeTypes.add(DataTypes.DTYPE_TIMESTAMP);
+        DATA_TYPES.add(DataTypes.DTYPE_INTERVAL, DataTypes.DTYPE_CODE_MISC);
+    }
 
-        basicMiscTypes.add(DataTypes.DTYPE_INTERVAL);
+    private int defaultLength = 255;
+    private int defaultPrecision = 0;
+    private int defaultScale = 0;
 
+    public DataTypeParser() {
+        super();
     }
 
     /**
@@ -106,100 +94,15 @@ public class DataTypeParser implements DdlConstants {
      * @throws ParsingException
      */
     public final boolean isDatatype( DdlTokenStream tokens ) throws ParsingException {
-        // Loop through the registered statement start string arrays and look for exact matches.
-
-        for (String[] stmts : basicCharStringTypes) {
-            if (tokens.matches(stmts)) return true;
-        }
-
-        for (String[] stmts : basicNationalCharStringTypes) {
-            if (tokens.matches(stmts)) return true;
-        }
-
-        for (String[] stmts : basicBitStringTypes) {
-            if (tokens.matches(stmts)) return true;
-        }
-
-        for (String[] stmts : basicExactNumericTypes) {
-            if (tokens.matches(stmts)) return true;
-        }
-
-        for (String[] stmts : basicApproxNumericStringTypes) {
-            if (tokens.matches(stmts)) return true;
-        }
-
-        for (String[] stmts : basicDateTimeTypes) {
-            if (tokens.matches(stmts)) return true;
-        }
-
-        for (String[] stmts : basicMiscTypes) {
-            if (tokens.matches(stmts)) return true;
+        // Walk the registered data type phrases looking for a match of the next tokens
+        if (DATA_TYPES.match(tokens) != null) {
+            return true;
         }
 
         // If no type is found, assume it's a custom type
         return isCustomDataType(tokens);
     }
 
-    /**
-     * Method determines if the next set of tokens matches one of the registered data type token sets.
-     * 
-     * @param tokens
-     * @param type
-     * @return is registered data type
-     * @throws ParsingException
-     */
-    private boolean isDatatype( DdlTokenStream tokens,
-                                int type ) throws ParsingException {
-        // Loop through the registered statement start string arrays and look for exact matches.
-
-        switch (type) {
-            case DataTypes.DTYPE_CODE_CHAR_STRING: {
-                for (String[] stmts : basicCharStringTypes) {
-                    if (tokens.matches(stmts)) return true;
-                }
-            }
-                break;
-            case DataTypes.DTYPE_CODE_NCHAR_STRING: {
-                for (String[] stmts : basicNationalCharStringTypes) {
-                    if (tokens.matches(stmts)) return true;
-                }
-            }
-                break;
-            case DataTypes.DTYPE_CODE_BIT_STRING: {
-                for (String[] stmts : basicBitStringTypes) {
-                    if (tokens.matches(stmts)) return true;
-                }
-            }
-                break;
-            case DataTypes.DTYPE_CODE_EXACT_NUMERIC: {
-                for (String[] stmts : basicExactNumericTypes) {
-                    if (tokens.matches(stmts)) return true;
-                }
-            }
-                break;
-            case DataTypes.DTYPE_CODE_APROX_NUMERIC: {
-                for (String[] stmts : basicApproxNumericStringTypes) {
-                    if (tokens.matches(stmts)) return true;
-                }
-            }
-                break;
-            case DataTypes.DTYPE_CODE_DATE_TIME: {
-                for (String[] stmts : basicDateTimeTypes) {
-                    if (tokens.matches(stmts)) return true;
-                }
-            }
-                break;
-            case DataTypes.DTYPE_CODE_MISC: {
-                for (String[] stmts : basicMiscTypes) {
-                    if (tokens.matches(stmts)) return true;
-                }
-            }
-                break;
-        }
-
-        return false;
-    }
-
     /**
      * Method to determine of next tokens represent a custom data type. Subclasses should override this method and perform token
      * checks for any non-SQL92 spec'd data types.
@@ -222,23 +125,33 @@ public class DataTypeParser implements DdlConstants {
      */
     public DataType parse( DdlTokenStream tokens ) throws ParsingException {
         DataType result = null;
+        final DataTypeTrie.Match match = DATA_TYPES.match(tokens);
 
-        if (isDatatype(tokens, DataTypes.DTYPE_CODE_CHAR_STRING)) {
-            result = parseCharStringType(tokens);
-        } else if (isDatatype(tokens, DataTypes.DTYPE_CODE_NCHAR_STRING)) {
-            result = parseNationalCharStringType(tokens);
-        } else if (isDatatype(tokens, DataTypes.DTYPE_CODE_BIT_STRING)) {
-            result = parseBitStringType(tokens);
-        } else if (isDatatype(tokens, DataTypes.DTYPE_CODE_EXACT_NUMERIC)) {
-            result = parseExactNumericType(tokens);
-        } else if (isDatatype(tokens, DataTypes.DTYPE_CODE_APROX_NUMERIC)) {
-            result = parseApproxNumericType(tokens);
-        } else if (isDatatype(tokens, DataTypes.DTYPE_CODE_DATE_TIME)) {
-            result = parseDateTimeType(tokens);
-        } else if (isDatatype(tokens, DataTypes.DTYPE_CODE_MISC)) {
-            result = parseMiscellaneousType(tokens);
-        } else {
-            result = parseCustomType(tokens);
+        switch ((match == null) ? DataTypes.DTYPE_CODE_CUSTOM : match.getCode()) {
+            case DataTypes.DTYPE_CODE_CHAR_STRING:
+                result = parseCharStringType(tokens);
+                break;
+            case DataTypes.DTYPE_CODE_NCHAR_STRING:
+                result = parseNationalCharStringType(tokens);
+                break;
+            case DataTypes.DTYPE_CODE_BIT_STRING:
+                result = parseBitStringType(tokens);
+                break;
+            case DataTypes.DTYPE_CODE_EXACT_NUMERIC:
+                result = parseExactNumericType(tokens);
+                break;
+            case DataTypes.DTYPE_CODE_APROX_NUMERIC:
+                result = parseApproxNumericType(tokens);
+                break;
+            case DataTypes.DTYPE_CODE_DATE_TIME:
+                result = parseDateTimeType(tokens);
+                break;
+            case DataTypes.DTYPE_CODE_MISC:
+                result = parseMiscellaneousType(tokens);
+                break;
+            default:
+                result = parseCustomType(tokens);
+                break;
         }
 
         /*
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.ddl.datatype;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.teiid.modeshape.sequencer.ddl.DdlTokenStream;
+
+/**
+ * A case-insensitive trie of data type phrases (like <code>CHARACTER VARYING</code>) keyed by token. Walking the next tokens of
+ * a {@link DdlTokenStream} finds the longest matching phrase in one pass, without consuming any tokens.
+ */
+final class DataTypeTrie {
+
+    /**
+     * A matched data type phrase.
+     */
+    static final class Match {
+
+        private final int code;
+        private final int length;
+
+        Match( final int code,
+               final int length ) {
+            this.code = code;
+            this.length = length;
+        }
+
+        /**
+         * @return the data type category code (see the <code>DTYPE_CODE</code> constants of
+         *         {@link org.teiid.modeshape.sequencer.ddl.DdlConstants.DataTypes})
+         */
+        int getCode() {
+            return this.code;
+        }
+
+        /**
+         * @return the number of tokens in the matched phrase
+         */
+        int getLength() {
+            return this.length;
+        }
+
+    }
+
+    private final Map<String, DataTypeTrie> children = new HashMap<String, DataTypeTrie>();
+    private Match match;
+
+    /**
+     * @param phrase the data type phrase (cannot be <code>null</code> or empty)
+     * @param code the data type category code of the phrase
+     */
+    void add( final String[] phrase,
+              final int code ) {
+        DataTypeTrie node = this;
+
+        for (final String word : phrase) {
+            DataTypeTrie child = node.children.get(word.toUpperCase());
+
+            if (child == null) {
+                child = new DataTypeTrie();
+                node.children.put(word.toUpperCase(), child);
+            }
+
+            node = child;
+        }
+
+        node.match = new Match(code, phrase.length);
+    }
+
+    /**
+     * @param tokens the tokens whose next tokens are being matched (cannot be <code>null</code>)
+     * @return the longest phrase matching the next tokens or <code>null</code> if none match
+     */
+    Match match( final DdlTokenStream tokens ) {
+        Match result = null;
+        DataTypeTrie node = this;
+
+        for (int i = 0; !node.children.isEmpty(); ++i) {
+            final String word = tokens.peek(i);
+
+            if ((word == null) || ((node = node.children.get(word)) == null)) {
+                break;
+            }
+
+            if (node.match != null) {
+                result = node.match;
+            }
+        }
+
+        return result;
+    }
+
+}
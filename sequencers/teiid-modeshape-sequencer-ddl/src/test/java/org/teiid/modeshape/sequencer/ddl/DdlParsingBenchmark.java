@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.ddl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.teiid.modeshape.sequencer.ddl.node.AstNode;
+
+/**
+ * Compares parsing the DDL files bundled with the tests by handing each parser the token stream it built while scoring (what
+ * {@link DdlParsers#parse(String, String)} does) against scoring and then tokenizing again for the parse. Not run as part of the
+ * build. To run after <code>mvn test-compile</code>:
+ *
+ * <pre>
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.teiid.modeshape.sequencer.ddl.DdlParsingBenchmark [iterations]
+ * </pre>
+ */
+public final class DdlParsingBenchmark {
+
+    private static final int DEFAULT_ITERATIONS = 50;
+
+    private final List<String> files = new ArrayList<>();
+    private long size;
+
+    private void load( final Path resources ) throws IOException {
+        final List<Path> paths;
+
+        try (final Stream<Path> stream = Files.walk(resources)) {
+            paths = stream.filter(Files::isRegularFile)
+                          .filter(path -> path.getFileName().toString().endsWith(".ddl"))
+                          .sorted()
+                          .collect(Collectors.toList());
+        }
+
+        for (final Path path : paths) {
+            final String ddl = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+
+            // only keep the files the built-in parsers can handle
+            try {
+                new DdlParsers().parse(ddl, path.getFileName().toString());
+                this.files.add(ddl);
+                this.size += ddl.length();
+            } catch (final RuntimeException e) {
+                System.out.printf("skipping %s: %s%n", path.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    private void parseAll( final boolean reuseTokens ) {
+        final DdlParserScorer scorer = new DdlParserScorer();
+
+        for (final String ddl : this.files) {
+            if (reuseTokens) {
+                new DdlParsers().parse(ddl, null);
+            } else {
+                for (final DdlParser parser : DdlParsers.BUILTIN_PARSERS) {
+                    parser.score(ddl, null, scorer);
+                    scorer.reset();
+                    parser.parse(ddl, new AstNode(null, StandardDdlLexicon.STATEMENTS_CONTAINER), null);
+                }
+            }
+        }
+    }
+
+    private void run( final boolean reuseTokens,
+                      final int iterations ) {
+        // warm up
+        for (int i = 0; i < Math.max(1, iterations / 5); ++i) {
+            parseAll(reuseTokens);
+        }
+
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; ++i) {
+            parseAll(reuseTokens);
+        }
+
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        final int documents = this.files.size() * iterations;
+        final double megachars = (this.size * iterations) / (1024.0 * 1024.0);
+        System.out.printf("%-14s %10.1f files/s %10.2f Mchars/s%n",
+                          (reuseTokens ? "reuse tokens" : "re-tokenize"),
+                          documents / seconds,
+                          megachars / seconds);
+    }
+
+    public static void main( final String[] args ) throws Exception {
+        final int iterations = (args.length == 0) ? DEFAULT_ITERATIONS : Integer.parseInt(args[0]);
+        final DdlParsingBenchmark benchmark = new DdlParsingBenchmark();
+        benchmark.load(Paths.get("src/test/resources"));
+        System.out.printf("%d DDL files, %d iterations%n", benchmark.files.size(), iterations);
+
+        benchmark.run(false, iterations);
+        benchmark.run(true, iterations);
+    }
+
+}
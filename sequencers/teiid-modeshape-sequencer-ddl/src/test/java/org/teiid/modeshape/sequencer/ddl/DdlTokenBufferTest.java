@@ -0,0 +1,233 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.ddl;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.junit.Test;
+import org.modeshape.common.text.Position;
+import org.modeshape.common.text.TokenStream;
+import org.teiid.modeshape.sequencer.ddl.DdlTokenStream.DdlTokenizer;
+
+/**
+ * A test class for {@link DdlTokenBuffer} that compares a {@link DdlTokenStream} with a {@link TokenStream} that re-types its
+ * tokens the way the {@link DdlTokenStream} did before it used the buffer.
+ */
+public class DdlTokenBufferTest {
+
+    private static final String[] KEY_WORDS = {"AS", "CREATE", "FOREIGN", "FROM", "INTEGER", "OPTIONS", "OR", "PROCEDURE",
+        "REPLACE", "SELECT", "STRING", "TABLE", "VIEW"};
+
+    private static final String[][] STATEMENT_STARTS = { {"CREATE", "FOREIGN", "TABLE"}, {"CREATE", "VIEW"},
+        {"CREATE", "OR", "REPLACE", TokenStream.ANY_VALUE}};
+
+    private static final int[] TYPES = {DdlTokenizer.WORD, DdlTokenizer.SYMBOL, DdlTokenizer.DECIMAL,
+        DdlTokenizer.SINGLE_QUOTED_STRING, DdlTokenizer.DOUBLE_QUOTED_STRING, DdlTokenizer.COMMENT, DdlTokenizer.KEYWORD,
+        DdlTokenizer.STATEMENT_KEY, DdlTokenizer.WORD | DdlTokenizer.KEYWORD, DdlTokenizer.KEYWORD | DdlTokenizer.STATEMENT_KEY,
+        TokenStream.ANY_TYPE};
+
+    private static final String DDL = "Create Foreign TABLE \"MixedCase\".\"tbl\" (id integer, Name string(10) "
+                                      + "OPTIONS (ANNOTATION 'It''s a ''quoted'' value')); -- trailing Comment\n"
+                                      + "/* block COMMENT */ create view v as select * from \"T\"; // line comment\r\n"
+                                      + "CREATE OR Replace procedure p() AS select 1.5 FROM tbl;\n"
+                                      + "create table straße (ıd String, Id integer);";
+
+    private void assertSameTokens( final String ddl,
+                                   final boolean caseSensitive ) {
+        final DdlTokenStream actual = new DdlTokenStream(ddl, DdlTokenStream.ddlTokenizer(true), caseSensitive);
+        actual.registerKeyWords(KEY_WORDS);
+        actual.registerStatementStartPhrase(STATEMENT_STARTS);
+        actual.start();
+
+        final TokenStream expected = new ReferenceTokenStream(ddl, caseSensitive);
+        expected.start();
+
+        // the token values are needed before each token is consumed to probe the matches
+        final List<String> values = new ArrayList<String>();
+        final TokenStream valueStream = new ReferenceTokenStream(ddl, caseSensitive);
+        valueStream.start();
+
+        while (valueStream.hasNext()) {
+            values.add(valueStream.consume());
+        }
+
+        for (final String nextValue : values) {
+            assertThat(actual.hasNext(), is(true));
+            assertSamePosition(actual.nextPosition(), expected.nextPosition());
+            assertSameMatches(actual, expected, nextValue);
+
+            final String value = expected.consume();
+            assertThat(actual.consume(), is(value));
+            assertSamePosition(actual.previousPosition(), expected.previousPosition());
+        }
+
+        assertThat(actual.hasNext(), is(false));
+    }
+
+    private void assertSameMatches( final TokenStream actual,
+                                    final TokenStream expected,
+                                    final String value ) {
+        final Position position = expected.nextPosition();
+
+        // probe with the value of the current token in several cases
+        for (final String probe : probes(value)) {
+            assertThat(probe, actual.matches(probe), is(expected.matches(probe)));
+            assertThat(probe,
+                       actual.matches(probe, TokenStream.ANY_VALUE),
+                       is(expected.matches(probe, TokenStream.ANY_VALUE)));
+            assertThat(probe, actual.matchesAnyOf("CREATE", probe), is(expected.matchesAnyOf("CREATE", probe)));
+
+            if (probe.length() == 1) {
+                assertThat(probe, actual.matches(probe.charAt(0)), is(expected.matches(probe.charAt(0))));
+            }
+        }
+
+        for (final int type : TYPES) {
+            final String message = position + " type " + type;
+            assertThat(message, actual.matches(type), is(expected.matches(type)));
+            assertThat(message, actual.matches(type, DdlTokenizer.WORD), is(expected.matches(type, DdlTokenizer.WORD)));
+            assertThat(message,
+                       actual.matchesAnyOf(type, DdlTokenizer.SYMBOL),
+                       is(expected.matchesAnyOf(type, DdlTokenizer.SYMBOL)));
+        }
+    }
+
+    private void assertSamePosition( final Position actual,
+                                     final Position expected ) {
+        assertThat(actual.getIndexInContent(), is(expected.getIndexInContent()));
+        assertThat(actual.getLine(), is(expected.getLine()));
+        assertThat(actual.getColumn(), is(expected.getColumn()));
+    }
+
+    private List<String> probes( final String value ) {
+        final List<String> probes = new ArrayList<String>();
+        probes.add(value);
+        probes.add(value.toUpperCase());
+        probes.add(value.toLowerCase());
+        probes.add(value.toUpperCase(Locale.ROOT));
+
+        if (!value.isEmpty()) {
+            probes.add(Character.toLowerCase(value.charAt(0)) + value.substring(1).toUpperCase());
+            probes.add(value.substring(0, 1));
+            probes.add(value.substring(0, 1).toUpperCase());
+            probes.add(value.substring(0, 1).toLowerCase());
+        }
+
+        return probes;
+    }
+
+    @Test
+    public void shouldMatchLikeTokenStreamWhenCaseInsensitive() {
+        assertSameTokens(DDL, false);
+    }
+
+    @Test
+    public void shouldMatchLikeTokenStreamWhenCaseSensitive() {
+        assertSameTokens(DDL, true);
+    }
+
+    @Test
+    public void shouldMatchLikeTokenStreamInTurkishLocale() {
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+
+        try {
+            assertSameTokens(DDL + " create view idx as select id, ID, İd from \"i\";", false);
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void shouldTypeKeyWordsAndStatementStartsLikeTokenStream() {
+        final String ddl = "create foreign table t (c string); CREATE VIEW v AS SELECT c FROM t; Create Or Replace view w;";
+        final DdlTokenStream actual = new DdlTokenStream(ddl, DdlTokenStream.ddlTokenizer(false), false);
+        actual.registerKeyWords(KEY_WORDS);
+        actual.registerStatementStartPhrase(STATEMENT_STARTS);
+        actual.start();
+
+        assertThat(actual.isNextKeyWord(), is(true));
+        assertThat(actual.matches(DdlTokenizer.WORD | DdlTokenizer.KEYWORD | DdlTokenizer.STATEMENT_KEY), is(true));
+        assertThat(actual.computeNextStatementStartKeywordCount(), is(3));
+        assertSameTokens(ddl, false);
+    }
+
+    /**
+     * Re-types key words and statement starts the way {@link DdlTokenStream} did before its tokens were kept in a
+     * {@link DdlTokenBuffer}.
+     */
+    private static class ReferenceTokenStream extends TokenStream {
+
+        private final Set<String> keyWords = new HashSet<String>(Arrays.asList(KEY_WORDS));
+
+        ReferenceTokenStream( final String content,
+                              final boolean caseSensitive ) {
+            super(content, DdlTokenStream.ddlTokenizer(true), caseSensitive);
+        }
+
+        @Override
+        protected List<Token> initializeTokens( final List<Token> tokens ) {
+            final Token[] tokensArray = tokens.toArray(new Token[tokens.size()]);
+            final List<Token> reTypedTokens = new ArrayList<Token>(tokens.size());
+
+            for (int i = 0; i < tokensArray.length; i++) {
+                if (this.keyWords.contains(tokensArray[i].value().toUpperCase())) {
+                    Token retypedToken = tokensArray[i].withType(DdlTokenizer.KEYWORD);
+                    int tokenIncrement = 0;
+
+                    for (final String[] nextStmtStart : STATEMENT_STARTS) {
+                        boolean matches = true;
+
+                        for (int j = 0; matches && (j < nextStmtStart.length); j++) {
+                            matches = nextStmtStart[j].equalsIgnoreCase(tokensArray[i + j].value())
+                                      || nextStmtStart[j].equals(ANY_VALUE);
+                        }
+
+                        if (matches) {
+                            retypedToken = retypedToken.withType(DdlTokenizer.STATEMENT_KEY);
+                            tokenIncrement = nextStmtStart.length - 1;
+                            break;
+                        }
+                    }
+
+                    reTypedTokens.add(retypedToken);
+
+                    for (int k = 0; k < tokenIncrement; k++) {
+                        reTypedTokens.add(tokensArray[++i]);
+                    }
+                } else {
+                    reTypedTokens.add(tokensArray[i]);
+                }
+            }
+
+            return reTypedTokens;
+        }
+
+    }
+
+}
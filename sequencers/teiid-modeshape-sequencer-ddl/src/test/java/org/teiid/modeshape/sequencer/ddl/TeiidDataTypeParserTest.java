@@ -156,6 +156,16 @@ public class TeiidDataTypeParserTest {
         assertNameAndDefaults(TeiidDataType.LONG);
     }
 
+    @Test
+    public void shouldParseLowerCaseDataType() {
+        final DdlTokenStream tokens = getTokens("varchar(10) NOT NULL");
+        final DataType actual = this.parser.parse(tokens);
+
+        assertThat(actual.getName(), is(TeiidDataType.VARCHAR.toDdl()));
+        assertThat(actual.getLength(), is(10L));
+        assertThat(tokens.matches("NOT", "NULL"), is(true));
+    }
+
     @Test
     public void shouldParseObject() {
         assertNameAndDefaults(TeiidDataType.OBJECT);
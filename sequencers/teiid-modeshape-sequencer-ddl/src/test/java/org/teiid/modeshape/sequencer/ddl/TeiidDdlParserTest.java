@@ -511,4 +511,22 @@ public class TeiidDdlParserTest extends DdlParserTestHelper implements TeiidDdlC
         }
     }
 
+    @Test
+    public void shouldParseSameStatementsWhenReusingScoringTokens() {
+        final String content = getFileContent(DDL_FILE_PATH + "sap-flight.ddl");
+
+        this.parser.parse(content, getRootNode(), null);
+        final AstNode reused = new DdlParsers().parse(content, null);
+
+        final List<AstNode> expected = getRootNode().getChildren();
+        final List<AstNode> actual = reused.getChildren();
+        assertThat(actual.size(), is(expected.size()));
+
+        for (int i = 0; i < expected.size(); ++i) {
+            assertThat(actual.get(i).getName(), is(expected.get(i).getName()));
+            assertThat(actual.get(i).getMixins(), is(expected.get(i).getMixins()));
+            assertThat(actual.get(i).getChildren().size(), is(expected.get(i).getChildren().size()));
+        }
+    }
+
 }
@@ -22,18 +22,34 @@
 package org.teiid.modeshape.sequencer.ddl;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.modeshape.jcr.api.JcrConstants.NT_UNSTRUCTURED;
 import static org.teiid.modeshape.sequencer.ddl.StandardDdlLexicon.PARSER_ID;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
 import javax.jcr.Value;
 import org.junit.After;
 import org.junit.Test;
+import org.modeshape.common.util.IoUtil;
+import org.teiid.modeshape.metrics.DefaultMetricsRegistry;
+import org.teiid.modeshape.metrics.Metrics;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.ddl.TeiidDdlConstants.SchemaElementType;
 import org.teiid.modeshape.sequencer.ddl.TeiidDdlConstants.TeiidDataType;
+import org.teiid.modeshape.sequencer.output.OutputCache;
+import org.teiid.modeshape.sequencer.output.OutputNode;
+import org.teiid.modeshape.sequencer.output.OutputProperty;
+import org.teiid.modeshape.sequencer.output.OutputReference;
 
 /**
  * Unit test for the {@link TeiidDdlSequencer}.
@@ -777,4 +793,170 @@ public class TeiidDdlSequencerTest extends AbstractDdlSequencerTest {
         }
     }
 
+    private Node sequenceDdl( final String ddlFile,
+                              final DdlExpressionStorage storage,
+                              final int maxExpressionLength ) throws Exception {
+        final String ddl;
+
+        try (final InputStream stream = resourceStream(ddlFile)) {
+            ddl = IoUtil.read(stream);
+        }
+
+        final TeiidDdlSequencer sequencer = new TeiidDdlSequencer();
+        sequencer.setExpressionStorage(storage.name().toLowerCase());
+        sequencer.setMaxExpressionLength(maxExpressionLength);
+
+        final Node outputNode = this.rootNode.addNode(storage.name());
+        sequencer.sequenceDdl(ddl, outputNode);
+        this.session.save();
+
+        return outputNode.getNode(StandardDdlLexicon.STATEMENTS_CONTAINER);
+    }
+
+    @Test
+    public void shouldStoreExpressionOffsets() throws Exception {
+        this.statementsNode = sequenceDdl("ddl/sap-flight.ddl");
+        final Node offsetsNode = sequenceDdl("ddl/sap-flight.ddl", DdlExpressionStorage.OFFSETS, 0);
+        assertThat(offsetsNode.hasProperty(StandardDdlLexicon.DDL_SOURCE), is(true));
+        assertThat(offsetsNode.getNodes().getSize(), is(this.statementsNode.getNodes().getSize()));
+
+        final NodeIterator itr = this.statementsNode.getNodes();
+
+        while (itr.hasNext()) {
+            final Node expected = itr.nextNode();
+
+            if (expected.hasProperty(StandardDdlLexicon.DDL_EXPRESSION)) {
+                final Node actual = offsetsNode.getNode(expected.getName());
+                assertThat(actual.hasProperty(StandardDdlLexicon.DDL_EXPRESSION), is(false));
+                assertThat(DdlExpressionStorage.getExpression(actual),
+                           is(expected.getProperty(StandardDdlLexicon.DDL_EXPRESSION).getString()));
+            }
+        }
+    }
+
+    @Test
+    public void shouldTruncateOrOmitExpressions() throws Exception {
+        final int maxLength = 20;
+        this.statementsNode = sequenceDdl("ddl/sap-flight.ddl", DdlExpressionStorage.TRUNCATE, maxLength);
+        final Node omittedNode = sequenceDdl("ddl/sap-flight.ddl", DdlExpressionStorage.OMIT, maxLength);
+        assertThat(omittedNode.hasProperty(StandardDdlLexicon.DDL_SOURCE), is(false));
+
+        final NodeIterator itr = this.statementsNode.getNodes();
+
+        while (itr.hasNext()) {
+            final Node truncated = itr.nextNode();
+
+            if (truncated.hasProperty(StandardDdlLexicon.DDL_LENGTH)) {
+                final String expression = truncated.getProperty(StandardDdlLexicon.DDL_EXPRESSION).getString();
+                assertTrue(expression.length() <= maxLength);
+                assertThat(DdlExpressionStorage.getExpression(truncated), is(expression));
+
+                final Node omitted = omittedNode.getNode(truncated.getName());
+                assertThat(omitted.hasProperty(StandardDdlLexicon.DDL_EXPRESSION), is(false));
+                assertThat(omitted.getProperty(StandardDdlLexicon.DDL_LENGTH).getLong(),
+                           is(truncated.getProperty(StandardDdlLexicon.DDL_LENGTH).getLong()));
+            }
+        }
+    }
+
+    @Test
+    public void shouldSequenceDdlFromReader() throws Exception {
+        this.statementsNode = sequenceDdl("ddl/sap-flight.ddl");
+
+        final Node outputNode = this.rootNode.addNode("reader");
+
+        try (final InputStream stream = resourceStream("ddl/sap-flight.ddl")) {
+            new TeiidDdlSequencer().sequenceDdl(new InputStreamReader(stream), outputNode);
+        }
+
+        this.session.save();
+
+        final Node statements = outputNode.getNode(StandardDdlLexicon.STATEMENTS_CONTAINER);
+        assertThat(countNodes(statements), is(countNodes(this.statementsNode)));
+
+        final NodeIterator itr = this.statementsNode.getNodes();
+
+        while (itr.hasNext()) {
+            final Node expected = itr.nextNode();
+
+            if (expected.hasProperty(StandardDdlLexicon.DDL_EXPRESSION)) {
+                assertThat(statements.getNode(expected.getName()).getProperty(StandardDdlLexicon.DDL_EXPRESSION).getString(),
+                           is(expected.getProperty(StandardDdlLexicon.DDL_EXPRESSION).getString()));
+            }
+        }
+    }
+
+    @Test
+    public void shouldCreateSerializableOutputWithoutRepository() throws Exception {
+        this.statementsNode = sequenceDdl("ddl/sap_short_test.ddl");
+
+        final String ddl = IoUtil.read(resourceStream("ddl/sap_short_test.ddl"));
+        final TeiidDdlSequencer sequencer = new TeiidDdlSequencer();
+        final OutputNode output = sequencer.createOutput(sequencer.createParsers(sequencer.getParserList()).parse(ddl, "sap"));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (final ObjectOutputStream stream = new ObjectOutputStream(bytes)) {
+            stream.writeObject(output);
+        }
+
+        final OutputNode copy;
+
+        try (final ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (OutputNode)stream.readObject();
+        }
+
+        assertThat(copy.getChildren().size(), is(1));
+        final OutputNode statements = copy.getChildren().get(0);
+        assertThat(statements.getName(), is(StandardDdlLexicon.STATEMENTS_CONTAINER));
+        assertThat((long)statements.getChildren().size(), is(this.statementsNode.getNodes().getSize()));
+        assertThat(countReferences(statements, copy), is(greaterThan(0)));
+    }
+
+    @Test
+    public void shouldReplayCachedOutputWhenSequencingSameDdlAgain() throws Exception {
+        final OutputCache cache = useOutputCache();
+        final DefaultMetricsRegistry registry = Metrics.getDefaultRegistry();
+        final String hitCounter = "OutputCache." + SequencingMetrics.OUTPUT_CACHE_HIT;
+        final long numHits = registry.getCounter(hitCounter);
+        createNodeWithContentFromFile("first.ddl", "ddl/sap_short_test.ddl");
+        final Node firstNode = getOutputNode(rootNode, "ddl/first.ddl").getNode(StandardDdlLexicon.STATEMENTS_CONTAINER);
+        assertThat(cache.size(), is(greaterThan(0L)));
+
+        createNodeWithContentFromFile("second.ddl", "ddl/sap_short_test.ddl");
+        this.statementsNode = getOutputNode(rootNode, "ddl/second.ddl").getNode(StandardDdlLexicon.STATEMENTS_CONTAINER);
+
+        assertThat(registry.getCounter(hitCounter), is(numHits + 1));
+        assertThat(countNodes(this.statementsNode), is(countNodes(firstNode)));
+    }
+
+    /**
+     * @return the number of references in the subtree, after checking each refers to a node of the same tree
+     */
+    private static int countReferences( final OutputNode node,
+                                        final OutputNode root ) {
+        int count = 0;
+
+        for (final OutputProperty property : node.getProperties()) {
+            if (property.isReference()) {
+                for (final Object value : property.getValues()) {
+                    OutputNode target = ((OutputReference)value).getTarget();
+
+                    while (target.getParent() != null) {
+                        target = target.getParent();
+                    }
+
+                    assertThat(target == root, is(true));
+                    ++count;
+                }
+            }
+        }
+
+        for (final OutputNode child : node.getChildren()) {
+            count += countReferences(child, root);
+        }
+
+        return count;
+    }
+
 }
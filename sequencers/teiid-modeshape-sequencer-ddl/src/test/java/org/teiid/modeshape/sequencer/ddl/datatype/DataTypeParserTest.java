@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.ddl.datatype;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+import org.teiid.modeshape.sequencer.ddl.DdlTokenStream;
+
+/**
+ * A test class for {@link DataTypeParser}.
+ */
+public class DataTypeParserTest {
+
+    private DataTypeParser parser;
+
+    @Before
+    public void beforeEach() {
+        this.parser = new DataTypeParser();
+    }
+
+    @Test
+    public void shouldParseLongestMatchingPhrase() {
+        final DdlTokenStream tokens = getTokens("character varying(20) NOT NULL");
+        assertThat(this.parser.isDatatype(tokens), is(true));
+
+        final DataType actual = this.parser.parse(tokens);
+        assertThat(actual.getName(), is("CHARACTER VARYING"));
+        assertThat(actual.getLength(), is(20L));
+        assertThat(tokens.matches("NOT", "NULL"), is(true));
+    }
+
+    @Test
+    public void shouldParseMultiWordApproximateNumericType() {
+        final DdlTokenStream tokens = getTokens("DOUBLE PRECISION");
+        assertThat(this.parser.parse(tokens).getName(), is("DOUBLE PRECISION"));
+        assertThat(tokens.hasNext(), is(false));
+    }
+
+    @Test
+    public void shouldNotMatchPartialPhrase() {
+        assertThat(this.parser.isDatatype(getTokens("DOUBLE")), is(false));
+        assertThat(this.parser.isDatatype(getTokens("NATIONAL")), is(false));
+    }
+
+    private DdlTokenStream getTokens( final String content ) {
+        final DdlTokenStream tokens = new DdlTokenStream(content, DdlTokenStream.ddlTokenizer(false), false);
+        tokens.start();
+        return tokens;
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.vdb;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Converts the collections of a VDB manifest object model, once completely built, into immutable collections backed by
+ * trimmed arrays. Property names are interned as the same small set of names is used by most models, translators, and
+ * entries.
+ */
+final class FrozenCollections {
+
+    /**
+     * @param frozen <code>true</code> if the object being modified has been frozen
+     * @param name the name of the object being modified (cannot be <code>null</code>)
+     * @throws IllegalStateException if the object has been frozen
+     */
+    static void checkNotFrozen( final boolean frozen,
+                                final String name ) {
+        if ( frozen ) {
+            throw new IllegalStateException( TeiidI18n.manifestObjectFrozen.text( name ) );
+        }
+    }
+
+    /**
+     * @param value the string being interned (can be <code>null</code>)
+     * @return the interned string (<code>null</code> if the value is <code>null</code>)
+     */
+    static String intern( final String value ) {
+        return ( ( value == null ) ? null : value.intern() );
+    }
+
+    /**
+     * @param list the list being frozen (cannot be <code>null</code>)
+     * @return an immutable copy of the list (never <code>null</code>)
+     */
+    @SuppressWarnings( "unchecked" )
+    static < T > List< T > list( final List< T > list ) {
+        switch ( list.size() ) {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList( list.get( 0 ) );
+            default:
+                return Collections.unmodifiableList( Arrays.asList( ( T[] )list.toArray() ) );
+        }
+    }
+
+    /**
+     * @param properties the properties being frozen (cannot be <code>null</code>)
+     * @return an immutable copy of the properties with interned names (never <code>null</code>)
+     */
+    static Map< String, String > properties( final Map< String, String > properties ) {
+        switch ( properties.size() ) {
+            case 0:
+                return Collections.emptyMap();
+            case 1:
+                final Map.Entry< String, String > entry = properties.entrySet().iterator().next();
+                return Collections.singletonMap( intern( entry.getKey() ), entry.getValue() );
+            default:
+                return new PropertyMap( properties );
+        }
+    }
+
+    /**
+     * @param set the set being frozen (cannot be <code>null</code>)
+     * @return an immutable copy of the set (never <code>null</code>)
+     */
+    @SuppressWarnings( "unchecked" )
+    static < T > Set< T > set( final Set< T > set ) {
+        switch ( set.size() ) {
+            case 0:
+                return Collections.emptySet();
+            case 1:
+                return Collections.singleton( set.iterator().next() );
+            default:
+                final List< T > elements = list( Arrays.asList( ( T[] )set.toArray() ) );
+
+                return new AbstractSet< T >() {
+
+                    @Override
+                    public Iterator< T > iterator() {
+                        return elements.iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return elements.size();
+                    }
+
+                };
+        }
+    }
+
+    /**
+     * An immutable map whose names and values are stored in one array. Lookups are linear which is faster than hashing for the
+     * handful of properties a manifest object normally has.
+     */
+    private static final class PropertyMap extends AbstractMap< String, String > {
+
+        private final String[] namesAndValues;
+
+        PropertyMap( final Map< String, String > properties ) {
+            this.namesAndValues = new String[ properties.size() * 2 ];
+            int i = 0;
+
+            for ( final Map.Entry< String, String > entry : properties.entrySet() ) {
+                this.namesAndValues[ i++ ] = intern( entry.getKey() );
+                this.namesAndValues[ i++ ] = entry.getValue();
+            }
+        }
+
+        @Override
+        public boolean containsKey( final Object name ) {
+            return ( indexOf( name ) != -1 );
+        }
+
+        @Override
+        public Set< Map.Entry< String, String > > entrySet() {
+            return new AbstractSet< Map.Entry< String, String > >() {
+
+                @Override
+                public Iterator< Map.Entry< String, String > > iterator() {
+                    return new Iterator< Map.Entry< String, String > >() {
+
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return ( this.index < PropertyMap.this.namesAndValues.length );
+                        }
+
+                        @Override
+                        public Map.Entry< String, String > next() {
+                            if ( !hasNext() ) {
+                                throw new NoSuchElementException();
+                            }
+
+                            final String name = PropertyMap.this.namesAndValues[ this.index++ ];
+                            final String value = PropertyMap.this.namesAndValues[ this.index++ ];
+                            return new AbstractMap.SimpleImmutableEntry<>( name, value );
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return PropertyMap.this.size();
+                }
+
+            };
+        }
+
+        @Override
+        public String get( final Object name ) {
+            final int index = indexOf( name );
+            return ( ( index == -1 ) ? null : this.namesAndValues[ index + 1 ] );
+        }
+
+        private int indexOf( final Object name ) {
+            for ( int i = 0; i < this.namesAndValues.length; i += 2 ) {
+                if ( this.namesAndValues[ i ].equals( name ) ) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        @Override
+        public int size() {
+            return ( this.namesAndValues.length / 2 );
+        }
+
+    }
+
+    /**
+     * Don't allow construction outside of this class.
+     */
+    private FrozenCollections() {
+        // nothing to do
+    }
+
+}
@@ -24,10 +24,12 @@ package org.teiid.modeshape.sequencer.vdb;
 import org.modeshape.common.util.CheckArg;
 
 /**
- * A simple POJO that represents a VDB that is imported by another VDB. It is read in from a VDB manifest ("vdb.xml").
+ * A simple POJO that represents a VDB that is imported by another VDB. It is read in from a VDB manifest ("vdb.xml"). Once read
+ * the import VDB is frozen and can no longer be modified.
  */
 public class ImportVdb implements Comparable<ImportVdb> {
 
+    private boolean frozen;
     private boolean importDataPolicies = true;
     private final String name;
     private final int version;
@@ -67,6 +69,13 @@ public class ImportVdb implements Comparable<ImportVdb> {
         return result;
     }
 
+    /**
+     * Makes this import VDB immutable.
+     */
+    void freeze() {
+        this.frozen = true;
+    }
+
     /**
      * @return name
      */
@@ -92,6 +101,7 @@ public class ImportVdb implements Comparable<ImportVdb> {
      * @param newImportDataPolicies the new setting for if the data policies should be used
      */
     public void setImportDataPolicies( final boolean newImportDataPolicies ) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.importDataPolicies = newImportDataPolicies;
     }
 
@@ -44,6 +44,7 @@ public final class TeiidI18n {
     public static I18n invalidModelNodeType;
     public static I18n invalidNumberOfPropertyAttributes;
     public static I18n invalidVdbModelNodeType;
+    public static I18n manifestObjectFrozen;
     public static I18n missingDataRoleName;
     public static I18n missingEntryPath;
     public static I18n missingImportVdbNameOrVersion;
@@ -62,6 +63,7 @@ public final class TeiidI18n {
     public static I18n errorReadingMedMetaclassMappings;
     
     public static I18n ddlFileMissing;
+    public static I18n unexpectedModelDefinitionElement;
 
     private TeiidI18n() {
     }
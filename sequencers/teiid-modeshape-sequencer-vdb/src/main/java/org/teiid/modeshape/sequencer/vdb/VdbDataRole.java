@@ -28,7 +28,8 @@ import org.modeshape.common.util.CheckArg;
 import org.modeshape.common.util.StringUtil;
 
 /**
- * A simple POJO that is used to represent the information for a data role read in from a VDB manifest ("vdb.xml").
+ * A simple POJO that is used to represent the information for a data role read in from a VDB manifest ("vdb.xml"). Once read the
+ * data role, and its permissions, are frozen and can no longer be modified.
  */
 public class VdbDataRole implements Comparable<VdbDataRole> {
 
@@ -37,8 +38,9 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
     private boolean allowCreateTempTables;
     private boolean grantAll;
     private String description;
-    private final List<Permission> permissions = new ArrayList<VdbDataRole.Permission>();
-    private final List<String> roleNames = new ArrayList<String>();
+    private boolean frozen;
+    private List<Permission> permissions = new ArrayList<VdbDataRole.Permission>();
+    private List<String> roleNames = new ArrayList<String>();
 
     /**
      * @param name the data role name (cannot be <code>null</code> or empty)
@@ -63,6 +65,21 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
         return this.name.compareTo(that.name);
     }
 
+    /**
+     * Makes this data role and its permissions immutable.
+     */
+    void freeze() {
+        if (!this.frozen) {
+            for (final Permission permission : this.permissions) {
+                permission.freeze();
+            }
+
+            this.permissions = FrozenCollections.list(this.permissions);
+            this.roleNames = FrozenCollections.list(this.roleNames);
+            this.frozen = true;
+        }
+    }
+
     /**
      * @return the description (never <code>null</code> but can be empty)
      */
@@ -116,6 +133,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
      * @param newValue the new value for allowCreateTempTables
      */
     public void setAllowCreateTempTables( final boolean newValue ) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.allowCreateTempTables = newValue;
     }
 
@@ -123,6 +141,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
      * @param newValue the new value for anyAuthenticated
      */
     public void setAnyAuthenticated( final boolean newValue ) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.anyAuthenticated = newValue;
     }
 
@@ -130,6 +149,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
      * @param newValue the new description value (can be <code>null</code> or empty)
      */
     public void setDescription( final String newValue ) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.description = StringUtil.isBlank(newValue) ? "" : newValue;
     }
 
@@ -137,6 +157,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
      * @param grantAll
      */
     public void setGrantAll(boolean grantAll) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.grantAll = grantAll;
     }
 
@@ -164,10 +185,16 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
             this.resourceName = resourceName;
         }
 
+        void freeze() {
+            this.conditions = FrozenCollections.list(this.conditions);
+            this.masks = FrozenCollections.list(this.masks);
+        }
+
         /**
          * @param newValue the new allow-alter value
          */
         public void allowAlter( final boolean newValue ) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.alter = newValue;
         }
 
@@ -175,6 +202,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param newValue the new allow-create value
          */
         public void allowCreate( final boolean newValue ) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.create = newValue;
         }
 
@@ -182,6 +210,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param newValue the new allow-delete value
          */
         public void allowDelete( final boolean newValue ) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.delete = newValue;
         }
 
@@ -189,6 +218,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param newValue the new allow-execute value
          */
         public void allowExecute( final boolean newValue ) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.execute = newValue;
         }
 
@@ -196,6 +226,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param newValue the new allow-read value
          */
         public void allowRead( final boolean newValue ) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.read = newValue;
         }
 
@@ -203,6 +234,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param newValue the new allow-update value
          */
         public void allowUpdate( final boolean newValue ) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.update = newValue;
         }
 
@@ -210,6 +242,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param language
          */
         public void allowLanguage(boolean language) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.language = language;
         }
 
@@ -280,6 +313,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param conditions associated with the permission
          */
         public void setConditions(List<Condition> conditions) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.conditions = conditions;
         }
 
@@ -294,6 +328,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param masks associated with the permission
          */
         public void setMasks(List<Mask> masks) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, this.resourceName);
             this.masks = masks;
         }
     }
@@ -319,6 +354,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param constraint the constraint flag
          */
         public void setConstraint(boolean constraint) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, VdbDataRole.this.name);
             this.constraint = constraint;
         }
 
@@ -333,6 +369,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param rule
          */
         public void setRule(String rule) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, VdbDataRole.this.name);
             this.rule = rule;
         }
     }
@@ -358,6 +395,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param order the order value
          */
         public void setOrder(int order) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, VdbDataRole.this.name);
             this.order = order;
         }
 
@@ -372,6 +410,7 @@ public class VdbDataRole implements Comparable<VdbDataRole> {
          * @param rule
          */
         public void setRule(String rule) {
+            FrozenCollections.checkNotFrozen(VdbDataRole.this.frozen, VdbDataRole.this.name);
             this.rule = rule;
         }
     }
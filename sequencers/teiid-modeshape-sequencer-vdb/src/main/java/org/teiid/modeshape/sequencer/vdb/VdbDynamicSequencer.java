@@ -26,7 +26,10 @@ import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.Property;
 import org.modeshape.common.util.CheckArg;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.SequencingBudget;
 
 /**
  * The Dynamic Vdb Sequencer that reads dynamics VDB files defined wholly by DDL
@@ -41,16 +44,41 @@ public class VdbDynamicSequencer extends VdbSequencer {
         final Binary binaryValue = inputProperty.getBinary();
         CheckArg.isNotNull(binaryValue, "binary");
 
-        try (final InputStream stream = binaryValue.getStream()) {
+        final MetricsRecorder.Timer sequenceTimer = this.metrics.startExclusive(SequencingMetrics.SEQUENCE);
 
-            VdbManifest manifest = readManifest(binaryValue, stream, outputNode, context);
-            if (manifest == null) {
-                throw new Exception("VdbDynamicSequencer.execute failed. The xml cannot be read.");
+        try {
+            this.metrics.increment(SequencingMetrics.BYTES_READ, binaryValue.getSize());
+            final SequencingBudget.Ticket ticket;
+
+            try (final MetricsRecorder.Timer timer = this.metrics.start(SequencingMetrics.BUDGET_WAIT)) {
+                ticket = SequencingBudget.shared().admit(SequencingBudget.estimateTextCost(binaryValue.getSize()));
+            }
+
+            try {
+                final VdbManifest manifest;
+
+                // the cache digests the binary and only parses it if the same manifest has not been seen before
+                try (final MetricsRecorder.Timer timer = this.metrics.start(SequencingMetrics.MANIFEST_READ)) {
+                    manifest = VdbManifestCache.shared().read(binaryValue, context);
+                }
+
+                if (manifest == null) {
+                    throw new Exception("VdbDynamicSequencer.execute failed. The xml cannot be read.");
+                }
+
+                sequenceManifest(manifest, binaryValue, outputNode);
+            } catch (final Exception e) {
+                throw new RuntimeException(TeiidI18n.errorReadingVdbFile.text(inputProperty.getPath(), e.getMessage()), e);
+            } finally {
+                ticket.close();
             }
-        } catch (final Exception e) {
-            throw new RuntimeException(TeiidI18n.errorReadingVdbFile.text(inputProperty.getPath(), e.getMessage()), e);
+
+            sequenceTimer.stop();
+        } finally {
+            sequenceTimer.discard();
         }
 
+        SequencingMetrics.recordOutput(this.metrics, outputNode);
         return true;
     }
     
@@ -68,17 +96,56 @@ public class VdbDynamicSequencer extends VdbSequencer {
             throw new RuntimeException( TeiidI18n.invalidVdbModelNodeType.text( vdbOutputNode.getPath() ) );
         }
 
+        final MetricsRecorder.Timer sequenceTimer = this.metrics.startExclusive( SequencingMetrics.SEQUENCE );
+
         try {
             final VdbManifest manifest = readManifest( null, vdbStream, vdbOutputNode, null );
 
             if ( manifest == null ) {
                 throw new Exception( "VdbDynamicSequencer.execute failed. The xml cannot be read." );
             }
+
+            sequenceTimer.stop();
         } catch ( final Exception e ) {
             throw new RuntimeException( TeiidI18n.errorReadingVdbFile.text( vdbOutputNode.getPath(), e.getMessage() ), e );
+        } finally {
+            sequenceTimer.discard();
         }
 
+        SequencingMetrics.recordOutput( this.metrics, vdbOutputNode );
         return true;
     }
-    
+
+    /**
+     * Sequences a VDB whose manifest has already been parsed, for instance by a caller that parses several manifests
+     * concurrently.
+     *
+     * @param manifest the VDB manifest (cannot be <code>null</code>)
+     * @param vdbOutputNode the root node of the VDB being sequenced (cannot be <code>null</code>)
+     * @return <code>true</code> if the VDB was successfully sequenced
+     * @throws Exception if there is a problem during sequencing or node does not have a VDB primary type
+     */
+    public boolean sequenceVdb( final VdbManifest manifest,
+                                final Node vdbOutputNode ) throws Exception {
+        CheckArg.isNotNull( manifest, "manifest" );
+
+        if ( !vdbOutputNode.isNodeType( VdbLexicon.Vdb.VIRTUAL_DATABASE ) ) {
+            throw new RuntimeException( TeiidI18n.invalidVdbModelNodeType.text( vdbOutputNode.getPath() ) );
+        }
+
+        final MetricsRecorder.Timer sequenceTimer = this.metrics.startExclusive( SequencingMetrics.SEQUENCE );
+
+        try {
+            sequenceManifest( manifest, null, vdbOutputNode );
+            sequenceTimer.stop();
+        } catch ( final Exception e ) {
+            throw new RuntimeException( TeiidI18n.errorReadingVdbFile.text( vdbOutputNode.getPath(), e.getMessage() ), e );
+        } finally {
+            sequenceTimer.discard();
+        }
+
+        SequencingMetrics.recordOutput( this.metrics, vdbOutputNode );
+        return true;
+    }
+
 }
@@ -26,13 +26,15 @@ import java.util.Map;
 import org.modeshape.common.util.CheckArg;
 
 /**
- * A simple POJO that is used to represent the information for a VDB entry read in from a VDB manifest ("vdb.xml").
+ * A simple POJO that is used to represent the information for a VDB entry read in from a VDB manifest ("vdb.xml"). Once read the
+ * entry is frozen and can no longer be modified.
  */
 public class VdbEntry implements Comparable<VdbEntry> {
 
     private String description;
+    private boolean frozen;
     private final String path;
-    private final Map<String, String> properties = new HashMap<String, String>();
+    private Map<String, String> properties = new HashMap<String, String>();
 
     /**
      * @param path the path associated with the entry (cannot be <code>null</code> or empty)
@@ -57,6 +59,16 @@ public class VdbEntry implements Comparable<VdbEntry> {
         return this.path.compareTo(that.path);
     }
 
+    /**
+     * Makes this entry immutable.
+     */
+    void freeze() {
+        if (!this.frozen) {
+            this.properties = FrozenCollections.properties(this.properties);
+            this.frozen = true;
+        }
+    }
+
     /**
      * @return the description (never <code>null</code> but can be empty)
      */
@@ -82,6 +94,7 @@ public class VdbEntry implements Comparable<VdbEntry> {
      * @param newValue the new description value (can be <code>null</code> or empty)
      */
     public void setDescription( final String newValue ) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.path);
         this.description = newValue;
     }
 }
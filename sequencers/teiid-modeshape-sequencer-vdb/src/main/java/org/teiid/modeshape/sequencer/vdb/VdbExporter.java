@@ -35,11 +35,12 @@ import javax.jcr.Value;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
 import javax.jcr.query.QueryResult;
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.StringUtil;
+import org.teiid.modeshape.metrics.ExportMetrics;
+import org.teiid.modeshape.metrics.MetricsRecorder;
 import org.teiid.modeshape.sequencer.Options;
 import org.teiid.modeshape.sequencer.internal.AbstractExporter;
 import org.teiid.modeshape.sequencer.vdb.VdbDataRole.Condition;
@@ -50,6 +51,7 @@ import org.teiid.modeshape.sequencer.vdb.VdbModel.ValidationMarker;
 import org.teiid.modeshape.sequencer.vdb.lexicon.CoreLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon.DataRole;
+import org.teiid.modeshape.util.XmlUtil;
 
 /**
  * An exporter for VDBs.
@@ -69,7 +71,9 @@ public class VdbExporter extends AbstractExporter {
     private static final Logger LOGGER = Logger.getLogger( VdbExporter.class );
 
     private VdbManifest constructManifest( final Node vdb,
-                                           final Options options ) throws Exception {
+                                           final Options options,
+                                           final ResultImpl result ) throws Exception {
+        result.addNodesExported( 1 );
 
         VdbManifest manifest = null;
 
@@ -128,7 +132,7 @@ public class VdbExporter extends AbstractExporter {
         }
 
         { // models
-            final Node[] modelNodes = findChildrenWithType( vdb, VdbLexicon.Vdb.DECLARATIVE_MODEL );
+            final Node[] modelNodes = findChildrenWithType( vdb, VdbLexicon.Vdb.DECLARATIVE_MODEL, result );
 
             if ( modelNodes.length != 0 ) {
                 final List< VdbModel > models = manifest.getModels();
@@ -185,10 +189,11 @@ public class VdbExporter extends AbstractExporter {
                     { // sources
                         final Node groupingNode = findNodeByNameAndType( modelNode,
                                                                          VdbLexicon.Vdb.SOURCES,
-                                                                         VdbLexicon.Vdb.SOURCES );
+                                                                         VdbLexicon.Vdb.SOURCES,
+                                                                         result );
 
                         if ( groupingNode != null ) {
-                            final Node[] sourceNodes = findChildrenWithType( groupingNode, VdbLexicon.Source.SOURCE );
+                            final Node[] sourceNodes = findChildrenWithType( groupingNode, VdbLexicon.Source.SOURCE, result );
 
                             if ( sourceNodes.length != 0 ) {
                                 final List< Source > sources = model.getSources();
@@ -216,10 +221,13 @@ public class VdbExporter extends AbstractExporter {
         }
 
         { // translators
-            final Node groupingNode = findNodeByNameAndType( vdb, VdbLexicon.Vdb.TRANSLATORS, VdbLexicon.Vdb.TRANSLATORS );
+            final Node groupingNode = findNodeByNameAndType( vdb,
+                                                             VdbLexicon.Vdb.TRANSLATORS,
+                                                             VdbLexicon.Vdb.TRANSLATORS,
+                                                             result );
 
             if ( groupingNode != null ) {
-                final Node[] translatorNodes = findChildrenWithType( groupingNode, VdbLexicon.Translator.TRANSLATOR );
+                final Node[] translatorNodes = findChildrenWithType( groupingNode, VdbLexicon.Translator.TRANSLATOR, result );
 
                 if ( translatorNodes.length != 0 ) {
                     final List< VdbTranslator > translators = manifest.getTranslators();
@@ -255,10 +263,10 @@ public class VdbExporter extends AbstractExporter {
         }
 
         { // data roles
-            final Node groupingNode = findNodeByNameAndType( vdb, VdbLexicon.Vdb.DATA_ROLES, VdbLexicon.Vdb.DATA_ROLES );
+            final Node groupingNode = findNodeByNameAndType( vdb, VdbLexicon.Vdb.DATA_ROLES, VdbLexicon.Vdb.DATA_ROLES, result );
 
             if ( groupingNode != null ) {
-                final Node[] dataRoleNodes = findChildrenWithType( groupingNode, DataRole.DATA_ROLE );
+                final Node[] dataRoleNodes = findChildrenWithType( groupingNode, DataRole.DATA_ROLE, result );
 
                 if ( dataRoleNodes.length != 0 ) {
                     final List< VdbDataRole > dataRoles = manifest.getDataRoles();
@@ -288,11 +296,13 @@ public class VdbExporter extends AbstractExporter {
                         { // permissions
                             final Node permissionsGroupingNode = findNodeByNameAndType( dataRoleNode,
                                                                                         VdbLexicon.DataRole.PERMISSIONS,
-                                                                                        VdbLexicon.DataRole.PERMISSIONS );
+                                                                                        VdbLexicon.DataRole.PERMISSIONS,
+                                                                                        result );
 
                             if ( permissionsGroupingNode != null ) {
                                 final Node[] permissionNodes = findChildrenWithType( permissionsGroupingNode,
-                                                                                     org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon.DataRole.Permission.PERMISSION );
+                                                                                     org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon.DataRole.Permission.PERMISSION,
+                                                                                     result );
 
                                 if ( permissionNodes.length != 0 ) {
                                     final List< Permission > permissions = dataRole.getPermissions();
@@ -309,7 +319,8 @@ public class VdbExporter extends AbstractExporter {
 
                                         { // conditions
                                             final Node[] conditionNodes = findChildrenWithType( permissionNode,
-                                                                                                VdbLexicon.DataRole.Permission.Condition.CONDITION );
+                                                                                                VdbLexicon.DataRole.Permission.Condition.CONDITION,
+                                                                                                result );
 
                                             if ( conditionNodes.length != 0 ) {
                                                 final List< Condition > conditions = permission.getConditions();
@@ -328,7 +339,8 @@ public class VdbExporter extends AbstractExporter {
 
                                         { // masks
                                             final Node[] maskNodes = findChildrenWithType( permissionNode,
-                                                                                           VdbLexicon.DataRole.Permission.Mask.MASK );
+                                                                                           VdbLexicon.DataRole.Permission.Mask.MASK,
+                                                                                           result );
 
                                             if ( maskNodes.length != 0 ) {
                                                 final List< Mask > masks = permission.getMasks();
@@ -362,10 +374,10 @@ public class VdbExporter extends AbstractExporter {
         }
 
         { // entries
-            final Node groupingNode = findNodeByNameAndType( vdb, VdbLexicon.Vdb.ENTRIES, VdbLexicon.Vdb.ENTRIES );
+            final Node groupingNode = findNodeByNameAndType( vdb, VdbLexicon.Vdb.ENTRIES, VdbLexicon.Vdb.ENTRIES, result );
 
             if ( groupingNode != null ) {
-                final Node[] entryNodes = findChildrenWithType( groupingNode, VdbLexicon.Entry.ENTRY );
+                final Node[] entryNodes = findChildrenWithType( groupingNode, VdbLexicon.Entry.ENTRY, result );
 
                 if ( entryNodes.length != 0 ) {
                     final List< VdbEntry > entries = manifest.getEntries();
@@ -401,10 +413,13 @@ public class VdbExporter extends AbstractExporter {
         }
 
         { // import VDBs
-            final Node groupingNode = findNodeByNameAndType( vdb, VdbLexicon.Vdb.IMPORT_VDBS, VdbLexicon.Vdb.IMPORT_VDBS );
+            final Node groupingNode = findNodeByNameAndType( vdb,
+                                                             VdbLexicon.Vdb.IMPORT_VDBS,
+                                                             VdbLexicon.Vdb.IMPORT_VDBS,
+                                                             result );
 
             if ( groupingNode != null ) {
-                final Node[] children = findChildrenWithType( groupingNode, VdbLexicon.ImportVdb.IMPORT_VDB );
+                final Node[] children = findChildrenWithType( groupingNode, VdbLexicon.ImportVdb.IMPORT_VDB, result );
 
                 if ( children.length != 0 ) {
                     final List< ImportVdb > importVdbs = manifest.getImportVdbs();
@@ -438,13 +453,55 @@ public class VdbExporter extends AbstractExporter {
     protected void doExport( final Node vdbNode,
                              final Options options,
                              final ResultImpl result ) {
+        try {
+            final VdbManifest manifest = readManifest( vdbNode, options, result );
+            writeManifest( vdbNode.getPath(), manifest, options, result );
+        } catch ( final Exception e ) {
+            result.setError( null, e );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The VDB manifest is constructed from the VDB node and its descendants, and the manifest is then rendered as XML without
+     * accessing the repository.
+     *
+     * @see org.teiid.modeshape.sequencer.internal.AbstractExporter#read(javax.jcr.Node, org.teiid.modeshape.sequencer.Options,
+     *      org.teiid.modeshape.sequencer.internal.AbstractExporter.ResultImpl)
+     */
+    @Override
+    protected Renderer read( final Node vdbNode,
+                             final Options options,
+                             final ResultImpl result ) {
+        try {
+            final VdbManifest manifest = readManifest( vdbNode, options, result );
+            final String vdbPath = vdbNode.getPath();
+            return () -> writeManifest( vdbPath, manifest, options, result );
+        } catch ( final Exception e ) {
+            result.setError( null, e );
+            return null;
+        }
+    }
+
+    private VdbManifest readManifest( final Node vdbNode,
+                                      final Options options,
+                                      final ResultImpl result ) throws Exception {
+        try ( final MetricsRecorder.Timer timer = result.startPhase( ExportMetrics.NODE_TRAVERSAL ) ) {
+            return constructManifest( vdbNode, options, result );
+        }
+    }
+
+    private void writeManifest( final String vdbPath,
+                                final VdbManifest manifest,
+                                final Options options,
+                                final ResultImpl result ) {
         XMLStreamWriter xmlWriter = null;
 
         try {
-            final VdbManifest manifest = constructManifest( vdbNode, options );
+            final MetricsRecorder.Timer xmlWrite = result.startPhase( ExportMetrics.XML_WRITE );
             final StringWriter stringWriter = new StringWriter();
-            final XMLOutputFactory xof = XMLOutputFactory.newInstance();
-            xmlWriter = xof.createXMLStreamWriter( stringWriter );
+            xmlWriter = XmlUtil.outputFactory().createXMLStreamWriter( stringWriter );
             xmlWriter.writeStartDocument( "UTF-8", "1.0" );
 
             // root element
@@ -771,10 +828,19 @@ public class VdbExporter extends AbstractExporter {
             xmlWriter.writeEndDocument();
 
             final String xml = stringWriter.toString().trim();
-            LOGGER.debug( "VDB {0} manifest: \n{1}", vdbNode.getPath(), prettyPrint( xml, options ) );
+            xmlWrite.stop();
+
+            if ( LOGGER.isDebugEnabled() ) {
+                LOGGER.debug( "VDB {0} manifest: \n{1}", vdbPath, prettyPrint( xml, options ) );
+            }
 
-            final String pretty = ( isPrettyPrint( options ) ? prettyPrint( xml, options ) : xml );
-            result.setOutcome( pretty, String.class );
+            if ( isPrettyPrint( options ) ) {
+                try ( final MetricsRecorder.Timer timer = result.startPhase( ExportMetrics.PRETTY_PRINT ) ) {
+                    result.setOutcome( prettyPrint( xml, options ), String.class );
+                }
+            } else {
+                result.setOutcome( xml, String.class );
+            }
         } catch ( final Exception e ) {
             result.setError( null, e );
         } finally {
@@ -789,7 +855,8 @@ public class VdbExporter extends AbstractExporter {
     }
 
     private Node[] findChildrenWithType( final Node parentNode,
-                                         final String childType ) throws Exception {
+                                         final String childType,
+                                         final ResultImpl exportResult ) throws Exception {
         final String queryText = String.format( FIND_CHILD_WITH_TYPE, childType, parentNode.getPath() );
         final Session session = parentNode.getSession();
         final QueryManager queryMgr = session.getWorkspace().getQueryManager();
@@ -808,12 +875,14 @@ public class VdbExporter extends AbstractExporter {
             children[ i++ ] = itr.nextNode();
         }
 
+        exportResult.addNodesExported( children.length );
         return children;
     }
 
     private Node findNodeByNameAndType( final Node parentNode,
                                         final String groupingNodeName,
-                                        final String groupingNodeType ) throws Exception {
+                                        final String groupingNodeType,
+                                        final ResultImpl exportResult ) throws Exception {
         final String queryText = String.format( FIND_CHILD_BY_NAME_AND_TYPE,
                                                 groupingNodeType,
                                                 parentNode.getPath(),
@@ -828,6 +897,7 @@ public class VdbExporter extends AbstractExporter {
             return null;
         }
 
+        exportResult.addNodesExported( 1 );
         return itr.nextNode();
     }
 
@@ -21,16 +21,25 @@
  */
 package org.teiid.modeshape.sequencer.vdb;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import javax.jcr.ValueFactory;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
@@ -41,9 +50,12 @@ import org.teiid.modeshape.sequencer.vdb.VdbDataRole.Mask;
 import org.teiid.modeshape.sequencer.vdb.VdbDataRole.Permission;
 import org.teiid.modeshape.sequencer.vdb.VdbModel.Source;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.XmlUtil;
 
 /**
- * The POJO for the vdb.xml file.
+ * The POJO for the vdb.xml file. A manifest that has been {@link #read(InputStream, Context) read} is frozen, along with all its
+ * models, translators, data roles, entries, and import VDBs. A frozen manifest cannot be modified and can be safely shared
+ * between threads.
  */
 public class VdbManifest implements Comparable<VdbManifest> {
 
@@ -130,23 +142,102 @@ public class VdbManifest implements Comparable<VdbManifest> {
      */
     public static final String DEFAULT_VERSION = "1";
 
+    /**
+     * A system property indicating the number of characters of inline model definition DDL above which the DDL is spooled to a
+     * repository binary instead of being kept in memory. DDL is only spooled when the manifest is read with a sequencer context.
+     * A value of zero or less disables spooling. Default is {@value #DEFAULT_SPOOL_THRESHOLD}.
+     *
+     * @see VdbModel#isModelDefinitionSpooled()
+     */
+    public static final String SPOOL_THRESHOLD_PROPERTY = "teiid.modeshape.vdb.model-definition.spool-threshold";
+
+    /**
+     * The default number of characters of inline model definition DDL above which the DDL is spooled. Value is {@value}.
+     */
+    public static final int DEFAULT_SPOOL_THRESHOLD = 4 * 1024 * 1024;
+
     public static VdbManifest read( final InputStream stream,
                                     final Context context ) throws Exception {
 
         return new Reader().read(stream, context);
     }
 
+    /**
+     * Reads a manifest only materializing the requested optional sections. The VDB name, version, description, connection type,
+     * and properties, and the models (including their properties, sources, imports, and DDL file paths), are always read. The
+     * elements of any section not requested are skipped without being parsed. This is meant for callers that look at a VDB
+     * without sequencing it, like the data service sequencer ordering its VDBs by their imports. The VDB sequencers write every
+     * section, so they always read the whole manifest.
+     *
+     * @param stream the manifest content (cannot be <code>null</code>)
+     * @param context the sequencer context (can be <code>null</code>)
+     * @param sections the optional sections to read (cannot be <code>null</code> but can be empty)
+     * @return the manifest or <code>null</code> if the stream does not contain a VDB manifest
+     * @throws Exception if an error occurs reading the manifest
+     */
+    public static VdbManifest read( final InputStream stream,
+                                    final Context context,
+                                    final Set<Section> sections ) throws Exception {
+        CheckArg.isNotNull(sections, "sections");
+        return new Reader(sections).read(stream, context);
+    }
+
+    /**
+     * The optional sections of a VDB manifest.
+     *
+     * @see VdbManifest#read(InputStream, Context, Set)
+     */
+    public enum Section {
+
+        /**
+         * The data roles, including their permissions, conditions, and masks.
+         */
+        DATA_ROLES,
+
+        /**
+         * The entries.
+         */
+        ENTRIES,
+
+        /**
+         * The import VDBs.
+         */
+        IMPORT_VDBS,
+
+        /**
+         * The inline DDL model definitions of declarative models. When not read, the metadata type is still set.
+         */
+        MODEL_DEFINITIONS,
+
+        /**
+         * The translator overrides.
+         */
+        TRANSLATORS,
+
+        /**
+         * The model validation errors.
+         */
+        VALIDATION_ERRORS;
+
+        /**
+         * All the sections. This is what {@link VdbManifest#read(InputStream, Context)} reads.
+         */
+        public static final Set<Section> ALL = Collections.unmodifiableSet(EnumSet.allOf(Section.class));
+
+    }
+
     private final String name;
     private String description;
     private String connectionType;
-    private final Map<String, String> properties = new HashMap<String, String>();
+    private boolean frozen;
+    private Map<String, String> properties = new HashMap<String, String>();
     private int version = Integer.parseInt( DEFAULT_VERSION );
 
-    private final List<VdbDataRole> dataRoles = new ArrayList<VdbDataRole>();
-    private final List<VdbEntry> entries = new ArrayList<VdbEntry>();
-    private final List<VdbModel> models = new ArrayList<VdbModel>();
-    private final List<VdbTranslator> translators = new ArrayList<VdbTranslator>();
-    private final List<ImportVdb> importVdbs = new ArrayList<ImportVdb>();
+    private List<VdbDataRole> dataRoles = new ArrayList<VdbDataRole>();
+    private List<VdbEntry> entries = new ArrayList<VdbEntry>();
+    private List<VdbModel> models = new ArrayList<VdbModel>();
+    private List<VdbTranslator> translators = new ArrayList<VdbTranslator>();
+    private List<ImportVdb> importVdbs = new ArrayList<ImportVdb>();
 
     /**
      * @param name the VDB name (cannot be <code>null</code> or empty)
@@ -171,6 +262,44 @@ public class VdbManifest implements Comparable<VdbManifest> {
         return this.name.compareTo(that.name);
     }
 
+    /**
+     * Makes this manifest, and all the objects it contains, immutable. The collections of the manifest are replaced by trimmed
+     * immutable copies.
+     */
+    void freeze() {
+        if (this.frozen) {
+            return;
+        }
+
+        for (final VdbDataRole dataRole : this.dataRoles) {
+            dataRole.freeze();
+        }
+
+        for (final VdbEntry entry : this.entries) {
+            entry.freeze();
+        }
+
+        for (final ImportVdb importVdb : this.importVdbs) {
+            importVdb.freeze();
+        }
+
+        for (final VdbModel model : this.models) {
+            model.freeze();
+        }
+
+        for (final VdbTranslator translator : this.translators) {
+            translator.freeze();
+        }
+
+        this.dataRoles = FrozenCollections.list(this.dataRoles);
+        this.entries = FrozenCollections.list(this.entries);
+        this.importVdbs = FrozenCollections.list(this.importVdbs);
+        this.models = FrozenCollections.list(this.models);
+        this.properties = FrozenCollections.properties(this.properties);
+        this.translators = FrozenCollections.list(this.translators);
+        this.frozen = true;
+    }
+
     /**
      * @return the data roles found in the VDB (never <code>null</code> but can be empty)
      */
@@ -257,17 +386,25 @@ public class VdbManifest implements Comparable<VdbManifest> {
         return this.connectionType;
     }
 
+    /**
+     * @return the models sorted so that models appear after the models they import (never <code>null</code>)
+     */
     public Iterable<VdbModel> modelsInDependencyOrder() {
-        if (!this.models.isEmpty()) {
-            Collections.sort(this.models);
+        if (this.models.size() < 2) {
+            return this.models;
         }
-        return this.models;
+
+        // sort a copy as the models may be frozen
+        final List<VdbModel> sorted = new ArrayList<VdbModel>(this.models);
+        Collections.sort(sorted);
+        return sorted;
     }
 
     /**
      * @param description Sets description to the specified value.
      */
     public void setDescription( final String description ) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.description = description != null ? description : "";
     }
 
@@ -275,6 +412,7 @@ public class VdbManifest implements Comparable<VdbManifest> {
      * @param version Sets version to the specified value.
      */
     public void setVersion( final int version ) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.version = version;
     }
 
@@ -282,6 +420,7 @@ public class VdbManifest implements Comparable<VdbManifest> {
      * @param connectionType Sets connection type to the specified value
      */
     public void setConnectionType(String connectionType) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.connectionType = connectionType;
     }
 
@@ -294,6 +433,21 @@ public class VdbManifest implements Comparable<VdbManifest> {
     }
 
     protected static class Reader {
+
+        private final Set<Section> sections;
+        private final int spoolThreshold = Integer.getInteger(SPOOL_THRESHOLD_PROPERTY, DEFAULT_SPOOL_THRESHOLD);
+
+        public Reader() {
+            this(Section.ALL);
+        }
+
+        /**
+         * @param sections the optional sections to read (cannot be <code>null</code>)
+         */
+        public Reader( final Set<Section> sections ) {
+            this.sections = sections;
+        }
+
         private VdbDataRole parseDataRole( final XMLStreamReader streamReader ) throws Exception {
             assert VdbLexicon.ManifestIds.DATA_ROLE.equals(streamReader.getLocalName());
 
@@ -325,7 +479,7 @@ public class VdbManifest implements Comparable<VdbManifest> {
                     break;
                 } else {
                     if (streamReader.isCharacters()) {
-                        if (!StringUtil.isBlank(streamReader.getText())) {
+                        if (!streamReader.isWhiteSpace()) {
                             LOGGER.debug("**** unhandled data role event type CHARACTERS={0}", streamReader.getText());
                         }
                     } else if (streamReader.isEndElement()) {
@@ -367,7 +521,7 @@ public class VdbManifest implements Comparable<VdbManifest> {
                     break;
                 } else {
                     if (streamReader.isCharacters()) {
-                        if (!StringUtil.isBlank(streamReader.getText())) {
+                        if (!streamReader.isWhiteSpace()) {
                             LOGGER.debug("**** unhandled entry event type CHARACTERS={0}", streamReader.getText());
                         }
                     } else if (streamReader.isEndElement()) {
@@ -380,7 +534,8 @@ public class VdbManifest implements Comparable<VdbManifest> {
             return entry;
         }
 
-        private VdbModel parseModel( final XMLStreamReader streamReader ) throws Exception {
+        private VdbModel parseModel( final XMLStreamReader streamReader,
+                                     final ValueFactory valueFactory ) throws Exception {
             assert VdbLexicon.ManifestIds.MODEL.equals(streamReader.getLocalName());
 
             // collect model attributes
@@ -394,7 +549,11 @@ public class VdbManifest implements Comparable<VdbManifest> {
                     final String elementName = streamReader.getLocalName();
 
                     if (VdbLexicon.ManifestIds.VALIDATION_ERROR.equals(elementName)) {
-                        processValidationErrorAttributes(streamReader, model);
+                        if (this.sections.contains(Section.VALIDATION_ERRORS)) {
+                            processValidationErrorAttributes(streamReader, model);
+                        } else {
+                            skipElement(streamReader);
+                        }
                     } else if (VdbLexicon.ManifestIds.SOURCE.equals(elementName)) {
                         processModelSourceAttributes(streamReader, model);
                     } else if (VdbLexicon.ManifestIds.PROPERTY.equals(elementName)) {
@@ -425,9 +584,10 @@ public class VdbManifest implements Comparable<VdbManifest> {
                         if ( VdbModel.DDL_FILE_METADATA_TYPE.equals( metadataType ) ) {
                             final String entryPath = streamReader.getElementText().trim();
                             model.setDdlFileEntryPath( entryPath );
+                        } else if ( !this.sections.contains( Section.MODEL_DEFINITIONS ) ) {
+                            skipElement( streamReader );
                         } else {
-                            final String metadata = streamReader.getElementText().trim();
-                            model.setModelDefinition( metadata.replaceAll( "\\s{2,}", " " ) ); // collapse whitespace
+                            parseModelDefinition( streamReader, model, valueFactory );
                         }
                     } else {
                         LOGGER.debug("**** unexpected model element={0}", elementName);
@@ -442,7 +602,7 @@ public class VdbManifest implements Comparable<VdbManifest> {
                     }
                 } else {
                     if (streamReader.isCharacters()) {
-                        if (!StringUtil.isBlank(streamReader.getText())) {
+                        if (!streamReader.isWhiteSpace()) {
                             LOGGER.debug("**** unhandled model event type CHARACTERS={0}", streamReader.getText());
                         }
                     } else {
@@ -454,6 +614,70 @@ public class VdbManifest implements Comparable<VdbManifest> {
             return model;
         }
 
+        /**
+         * Reads the DDL text of a model's metadata element. The text is kept in memory unless it exceeds the spool threshold and
+         * a value factory is available, in which case the text read so far and the rest of the element are streamed, with their
+         * whitespace collapsed, into a repository binary.
+         *
+         * @param streamReader the reader positioned at the metadata start element (cannot be <code>null</code>)
+         * @param model the model whose definition is being read (cannot be <code>null</code>)
+         * @param valueFactory the factory used to create the binary (can be <code>null</code> if the DDL is never spooled)
+         * @throws Exception if an error occurs reading the stream or spooling the DDL
+         */
+        private void parseModelDefinition( final XMLStreamReader streamReader,
+                                           final VdbModel model,
+                                           final ValueFactory valueFactory ) throws Exception {
+            assert streamReader.isStartElement();
+            final StringWriter text = new StringWriter();
+
+            while (!readModelDefinitionText(streamReader, model, text)) {
+                if ((valueFactory != null) && (this.spoolThreshold > 0) && (text.getBuffer().length() > this.spoolThreshold)) {
+                    try (final InputStream definition = new ModelDefinitionStream(text.getBuffer(), streamReader, model)) {
+                        model.setModelDefinition(valueFactory.createBinary(definition));
+                    }
+
+                    LOGGER.debug("spooled model definition of model {0}", model.getName());
+                    return;
+                }
+            }
+
+            model.setModelDefinition(text.toString().trim().replaceAll("\\s{2,}", " ")); // collapse whitespace
+        }
+
+        /**
+         * Reads the next event of a metadata element and writes its text. Comments and processing instructions are not part of
+         * the DDL.
+         *
+         * @param streamReader the reader positioned within the metadata element (cannot be <code>null</code>)
+         * @param model the model whose definition is being read (cannot be <code>null</code>)
+         * @param text the writer of the DDL text (cannot be <code>null</code>)
+         * @return <code>true</code> if the end of the metadata element has been reached
+         * @throws XMLStreamException if an error occurs reading the stream or the element contains another element
+         * @throws IOException if an error occurs writing the text
+         */
+        private static boolean readModelDefinitionText( final XMLStreamReader streamReader,
+                                                        final VdbModel model,
+                                                        final Writer text ) throws XMLStreamException, IOException {
+            switch (streamReader.next()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    text.write(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength());
+                    return false;
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    text.write(streamReader.getText());
+                    return false;
+                case XMLStreamConstants.START_ELEMENT:
+                    throw new XMLStreamException(TeiidI18n.unexpectedModelDefinitionElement.text(model.getName(),
+                                                                                                 streamReader.getLocalName()),
+                                                 streamReader.getLocation());
+                case XMLStreamConstants.END_ELEMENT:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
         private Mask parseMask( final XMLStreamReader streamReader,
                                           final VdbDataRole dataRole) throws Exception {
             assert VdbLexicon.ManifestIds.MASK.equals(streamReader.getLocalName());
@@ -603,7 +827,7 @@ public class VdbManifest implements Comparable<VdbManifest> {
                     break;
                 } else {
                     if (streamReader.isCharacters()) {
-                        if (!StringUtil.isBlank(streamReader.getText())) {
+                        if (!streamReader.isWhiteSpace()) {
                             LOGGER.debug("**** unhandled data role permission event type CHARACTERS={0}", streamReader.getText());
                         }
                     } else if (streamReader.isEndElement()) {
@@ -642,7 +866,7 @@ public class VdbManifest implements Comparable<VdbManifest> {
                     break;
                 } else {
                     if (streamReader.isCharacters()) {
-                        if (!StringUtil.isBlank(streamReader.getText())) {
+                        if (!streamReader.isWhiteSpace()) {
                             LOGGER.debug("**** unhandled translator event type CHARACTERS={0}", streamReader.getText());
                         }
                     } else if (streamReader.isEndElement()) {
@@ -655,7 +879,8 @@ public class VdbManifest implements Comparable<VdbManifest> {
             return translator;
         }
 
-        private VdbManifest parseVdb( final XMLStreamReader streamReader ) throws Exception {
+        private VdbManifest parseVdb( final XMLStreamReader streamReader,
+                                      final ValueFactory valueFactory ) throws Exception {
             assert VdbLexicon.ManifestIds.VDB.equals(streamReader.getLocalName());
 
             // collect VDB attributes
@@ -676,13 +901,15 @@ public class VdbManifest implements Comparable<VdbManifest> {
                         final String connectionType = streamReader.getElementText();
                         manifest.setConnectionType(connectionType);
                     } else if (VdbLexicon.ManifestIds.MODEL.equals(elementName)) {
-                        final VdbModel model = parseModel(streamReader);
+                        final VdbModel model = parseModel(streamReader, valueFactory);
                         assert (model != null) : "model is null";
                         manifest.getModels().add(model);
                     } else if (VdbLexicon.ManifestIds.PROPERTY.equals(elementName)) {
                         final Map.Entry<String, String> property = processPropertyAttributes(streamReader);
                         assert (property != null) : "VDB property is null";
                         manifest.getProperties().put(property.getKey(), property.getValue());
+                    } else if (isSkipped(elementName)) {
+                        skipElement(streamReader);
                     } else if (VdbLexicon.ManifestIds.TRANSLATOR.equals(elementName)) {
                         final VdbTranslator translator = parseTranslator(streamReader);
                         assert (translator != null) : "translator is null";
@@ -710,6 +937,24 @@ public class VdbManifest implements Comparable<VdbManifest> {
             return manifest;
         }
 
+        private boolean isSkipped( final String vdbChildElementName ) {
+            final Section section;
+
+            if (VdbLexicon.ManifestIds.DATA_ROLE.equals(vdbChildElementName)) {
+                section = Section.DATA_ROLES;
+            } else if (VdbLexicon.ManifestIds.ENTRY.equals(vdbChildElementName)) {
+                section = Section.ENTRIES;
+            } else if (VdbLexicon.ManifestIds.IMPORT_VDB.equals(vdbChildElementName)) {
+                section = Section.IMPORT_VDBS;
+            } else if (VdbLexicon.ManifestIds.TRANSLATOR.equals(vdbChildElementName)) {
+                section = Section.TRANSLATORS;
+            } else {
+                return false;
+            }
+
+            return !this.sections.contains(section);
+        }
+
         private VdbDataRole processDataRoleAttributes( final XMLStreamReader streamReader ) throws Exception {
             assert VdbLexicon.ManifestIds.DATA_ROLE.equals(streamReader.getLocalName());
 
@@ -1110,21 +1355,41 @@ public class VdbManifest implements Comparable<VdbManifest> {
             return manifest;
         }
 
+        /**
+         * Skips the current element and all its descendants. The reader is left at the end tag of the skipped element.
+         *
+         * @param streamReader the reader positioned at the start tag of the element being skipped (cannot be <code>null</code>)
+         * @throws XMLStreamException if an error occurs reading the stream
+         */
+        private void skipElement( final XMLStreamReader streamReader ) throws XMLStreamException {
+            assert streamReader.isStartElement();
+            int depth = 1;
+
+            while ((depth != 0) && streamReader.hasNext()) {
+                final int eventType = streamReader.next();
+
+                if (eventType == XMLStreamConstants.START_ELEMENT) {
+                    ++depth;
+                } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                    --depth;
+                }
+            }
+        }
+
         public VdbManifest read( final InputStream stream,
                                  final Context context ) throws Exception {
             VdbManifest manifest = null;
-            final XMLInputFactory factory = XMLInputFactory.newInstance();
             XMLStreamReader streamReader = null;
 
             try {
-                streamReader = factory.createXMLStreamReader(stream);
+                streamReader = XmlUtil.createStreamReader(stream);
 
                 if (streamReader.hasNext()) {
                     if (streamReader.next() == XMLStreamConstants.START_ELEMENT) {
                         final String elementName = streamReader.getLocalName();
 
                         if (VdbLexicon.ManifestIds.VDB.equals(elementName)) {
-                            manifest = parseVdb(streamReader);
+                            manifest = parseVdb(streamReader, ((context == null) ? null : context.valueFactory()));
                             assert (manifest != null) : "manifest is null";
                         } else {
                             LOGGER.debug("**** unhandled vdb read element ****");
@@ -1136,7 +1401,229 @@ public class VdbManifest implements Comparable<VdbManifest> {
                     streamReader.close();
             }
 
+            if (manifest != null) {
+                manifest.freeze();
+            }
+
             return manifest;
         }
     }
+
+    /**
+     * A writer that drops leading and trailing whitespace and replaces runs of two or more whitespace characters with a single
+     * space. The result is the same as <code>text.trim().replaceAll("\\s{2,}", " ")</code> without holding the text in memory.
+     */
+    private static final class CollapsingWriter extends Writer {
+
+        private final Writer delegate;
+        private final StringBuilder pending = new StringBuilder(); // written only if followed by text
+        private int run; // number of whitespace characters in the current run
+        private char runCharacter;
+        private boolean started; // true once text has been written
+
+        CollapsingWriter( final Writer delegate ) {
+            this.delegate = delegate;
+        }
+
+        private static boolean isWhitespace( final char c ) {
+            return ((c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B') || (c == '\f') || (c == '\r'));
+        }
+
+        /**
+         * Drops trailing whitespace.
+         *
+         * @see java.io.Writer#close()
+         */
+        @Override
+        public void close() throws IOException {
+            this.delegate.close();
+        }
+
+        private void endRun() {
+            if (this.run == 1) {
+                this.pending.append(this.runCharacter);
+            } else if (this.run > 1) {
+                this.pending.append(' ');
+            }
+
+            this.run = 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.Writer#flush()
+         */
+        @Override
+        public void flush() throws IOException {
+            this.delegate.flush();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.Writer#write(char[], int, int)
+         */
+        @Override
+        public void write( final char[] text,
+                           final int offset,
+                           final int length ) throws IOException {
+            for (int i = offset, end = offset + length; i < end; ++i) {
+                final char c = text[i];
+
+                if (!this.started) {
+                    // trim() drops all leading control characters
+                    if (c > ' ') {
+                        this.started = true;
+                        this.delegate.write(c);
+                    }
+                } else if (isWhitespace(c)) {
+                    ++this.run;
+                    this.runCharacter = c;
+                } else if (c <= ' ') {
+                    endRun();
+                    this.pending.append(c);
+                } else {
+                    endRun();
+
+                    if (this.pending.length() != 0) {
+                        this.delegate.append(this.pending);
+                        this.pending.setLength(0);
+                    }
+
+                    this.delegate.write(c);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Streams the UTF-8 encoded DDL of a metadata element, with its whitespace collapsed, as the element is read. Closing the
+     * stream reads the rest of the element, so the XML reader is always left at the metadata end element.
+     */
+    private static final class ModelDefinitionStream extends InputStream {
+
+        private static final int CHUNK_SIZE = 8 * 1024;
+
+        private final Bytes bytes = new Bytes();
+        private boolean done;
+        private final VdbModel model;
+        private int position;
+        private final XMLStreamReader streamReader;
+        private CharSequence text; // the text read before spooling started
+        private int textOffset;
+        private final Writer writer = new CollapsingWriter(new OutputStreamWriter(this.bytes, StandardCharsets.UTF_8));
+
+        ModelDefinitionStream( final CharSequence text,
+                               final XMLStreamReader streamReader,
+                               final VdbModel model ) {
+            this.text = text;
+            this.streamReader = streamReader;
+            this.model = model;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#close()
+         */
+        @Override
+        public void close() throws IOException {
+            while (fill()) {
+                this.position = this.bytes.size();
+            }
+        }
+
+        /**
+         * @return <code>false</code> if the end of the metadata element has been reached and all bytes have been read
+         */
+        private boolean fill() throws IOException {
+            while (this.position == this.bytes.size()) {
+                if (this.done) {
+                    return false;
+                }
+
+                this.bytes.reset();
+                this.position = 0;
+
+                if (this.text != null) {
+                    final int end = Math.min(this.textOffset + CHUNK_SIZE, this.text.length());
+                    this.writer.append(this.text, this.textOffset, end);
+                    this.textOffset = end;
+
+                    if (end == this.text.length()) {
+                        this.text = null;
+                    }
+                } else {
+                    try {
+                        this.done = Reader.readModelDefinitionText(this.streamReader, this.model, this.writer);
+                    } catch (final XMLStreamException e) {
+                        throw new IOException(e);
+                    }
+                }
+
+                if (this.done) {
+                    this.writer.close(); // flushes the encoder
+                } else {
+                    this.writer.flush();
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#read()
+         */
+        @Override
+        public int read() throws IOException {
+            return (fill() ? (this.bytes.get(this.position++) & 0xFF) : -1);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read( final byte[] buffer,
+                         final int offset,
+                         final int length ) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!fill()) {
+                return -1;
+            }
+
+            final int count = Math.min(length, this.bytes.size() - this.position);
+            this.bytes.copy(this.position, buffer, offset, count);
+            this.position += count;
+            return count;
+        }
+
+        /**
+         * The encoded bytes not yet read.
+         */
+        private static final class Bytes extends ByteArrayOutputStream {
+
+            void copy( final int index,
+                       final byte[] buffer,
+                       final int offset,
+                       final int length ) {
+                System.arraycopy(this.buf, index, buffer, offset, length);
+            }
+
+            byte get( final int index ) {
+                return this.buf[index];
+            }
+
+        }
+
+    }
+
 }
@@ -0,0 +1,347 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.vdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.jcr.Binary;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.jcr.api.sequencer.Sequencer.Context;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
+import org.teiid.modeshape.util.BinaryUtil;
+
+/**
+ * A bounded, least-recently-used cache of parsed {@link VdbManifest VDB manifests} keyed by the SHA-256 digest of the manifest
+ * content. The {@link #shared() shared cache} is used by the VDB sequencers and, through them, by the data service sequencer
+ * so that a VDB manifest imported more than once, like a source VDB used by several data services, is only parsed once.
+ * Cached manifests are frozen so they can be safely shared between callers.
+ */
+@ThreadSafe
+public final class VdbManifestCache {
+
+    /**
+     * A system property for the maximum number of manifests held by the {@link #shared() shared cache}. A value less than one
+     * disables caching. Default is {@value #DEFAULT_MAX_SIZE}.
+     */
+    public static final String MAX_SIZE_PROPERTY = "teiid.modeshape.vdb.manifest-cache.size";
+
+    /**
+     * The default maximum number of manifests held by the {@link #shared() shared cache}. Caching is disabled by default. Value
+     * is {@value}.
+     */
+    public static final int DEFAULT_MAX_SIZE = 0;
+
+    /**
+     * A system property for the largest manifest, in bytes, that the {@link #shared() shared cache} buffers in memory to look
+     * up a manifest read from a stream. Larger manifests are parsed without using the cache. Default is
+     * {@value #DEFAULT_MAX_CONTENT_SIZE}.
+     */
+    public static final String MAX_CONTENT_SIZE_PROPERTY = "teiid.modeshape.vdb.manifest-cache.max-content-size";
+
+    /**
+     * The default size, in bytes, of the largest manifest read from a stream that is looked up in the cache. Value is {@value}.
+     */
+    public static final int DEFAULT_MAX_CONTENT_SIZE = 4 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final MetricsRecorder METRICS = new MetricsRecorder( VdbManifestCache.class );
+    private static final VdbManifestCache SHARED = new VdbManifestCache( Integer.getInteger( MAX_SIZE_PROPERTY,
+                                                                                           DEFAULT_MAX_SIZE ),
+                                                                         Integer.getInteger( MAX_CONTENT_SIZE_PROPERTY,
+                                                                                             DEFAULT_MAX_CONTENT_SIZE ) );
+
+    /**
+     * @return the cache shared by the VDB and data service sequencers (never <code>null</code>)
+     */
+    public static VdbManifestCache shared() {
+        return SHARED;
+    }
+
+    private final Map< String, VdbManifest > manifests = new LinkedHashMap< String, VdbManifest >( 16, 0.75f, true ) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry< String, VdbManifest > eldest ) {
+            return ( size() > VdbManifestCache.this.maxSize );
+        }
+
+    };
+
+    private volatile int maxContentSize;
+    private volatile int maxSize;
+
+    /**
+     * @param maxSize the maximum number of manifests held by the cache (a value less than one disables caching)
+     */
+    public VdbManifestCache( final int maxSize ) {
+        this( maxSize, DEFAULT_MAX_CONTENT_SIZE );
+    }
+
+    /**
+     * @param maxSize the maximum number of manifests held by the cache (a value less than one disables caching)
+     * @param maxContentSize the size, in bytes, of the largest manifest read from a stream that is looked up in the cache
+     */
+    public VdbManifestCache( final int maxSize,
+                             final int maxContentSize ) {
+        this.maxSize = maxSize;
+        this.maxContentSize = maxContentSize;
+    }
+
+    /**
+     * Removes all cached manifests.
+     */
+    public void clear() {
+        synchronized ( this.manifests ) {
+            this.manifests.clear();
+        }
+    }
+
+    /**
+     * @return the size, in bytes, of the largest manifest read from a stream that is looked up in the cache
+     */
+    public int getMaxContentSize() {
+        return this.maxContentSize;
+    }
+
+    /**
+     * @return the maximum number of manifests held by the cache (a value less than one means caching is disabled)
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Obtains the manifest whose content is provided by the specified binary. If caching is disabled the binary is parsed
+     * directly. Otherwise, the binary content is streamed through a digest and the manifest is only parsed, from a second
+     * stream, if a manifest with the same content has not already been cached. The content is never held in memory.
+     *
+     * @param binary the manifest content (cannot be <code>null</code>)
+     * @param context the sequencer context (can be <code>null</code>)
+     * @return the manifest (can be <code>null</code> if the binary does not contain a VDB manifest)
+     * @throws Exception if an error occurs reading or parsing the manifest
+     */
+    public VdbManifest read( final Binary binary,
+                             final Context context ) throws Exception {
+        CheckArg.isNotNull( binary, "binary" );
+
+        if ( this.maxSize < 1 ) {
+            try ( final InputStream stream = binary.getStream() ) {
+                return VdbManifest.read( stream, context );
+            }
+        }
+
+        final MessageDigest digest = createDigest();
+
+        try ( final InputStream stream = new DigestInputStream( binary.getStream(), digest ) ) {
+            drain( stream );
+        }
+
+        final String key = SecureHash.asHexString( digest.digest() );
+        VdbManifest manifest = lookup( key );
+
+        if ( manifest == null ) {
+            try ( final InputStream stream = binary.getStream() ) {
+                manifest = cache( key, VdbManifest.read( stream, context ) );
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Obtains the manifest whose content is provided by the specified bytes. If caching is enabled the manifest is only parsed
+     * if a manifest with the same content has not already been cached.
+     *
+     * @param content the manifest content (cannot be <code>null</code>)
+     * @param context the sequencer context (can be <code>null</code>)
+     * @return the manifest (can be <code>null</code> if the content is not a VDB manifest)
+     * @throws Exception if an error occurs parsing the manifest
+     */
+    public VdbManifest read( final byte[] content,
+                             final Context context ) throws Exception {
+        CheckArg.isNotNull( content, "content" );
+
+        if ( this.maxSize < 1 ) {
+            return VdbManifest.read( new ByteArrayInputStream( content ), context );
+        }
+
+        final String key = SecureHash.asHexString( createDigest().digest( content ) );
+        VdbManifest manifest = lookup( key );
+
+        if ( manifest == null ) {
+            manifest = cache( key, VdbManifest.read( new ByteArrayInputStream( content ), context ) );
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Obtains the manifest whose content is provided by the specified stream, whose size is not known.
+     *
+     * @param stream the manifest content (cannot be <code>null</code>)
+     * @param context the sequencer context (can be <code>null</code>)
+     * @return the manifest (can be <code>null</code> if the stream does not contain a VDB manifest)
+     * @throws Exception if an error occurs reading or parsing the manifest
+     * @see #read(InputStream, long, Context)
+     */
+    public VdbManifest read( final InputStream stream,
+                             final Context context ) throws Exception {
+        return read( stream, -1, context );
+    }
+
+    /**
+     * Obtains the manifest whose content is provided by the specified stream. If caching is disabled, or the size is larger than
+     * the {@link #getMaxContentSize() maximum content size}, the stream is parsed directly without using the cache. Otherwise,
+     * the content is read into memory and is only parsed if a manifest with the same content has not already been cached. When
+     * the size is not known, at most the maximum content size is buffered before the content is known to be too large, in which
+     * case the buffered content and the rest of the stream are parsed without using the cache. The stream is not closed.
+     *
+     * @param stream the manifest content (cannot be <code>null</code>)
+     * @param size the size of the content in bytes (a negative value if not known)
+     * @param context the sequencer context (can be <code>null</code>)
+     * @return the manifest (can be <code>null</code> if the stream does not contain a VDB manifest)
+     * @throws Exception if an error occurs reading or parsing the manifest
+     */
+    public VdbManifest read( final InputStream stream,
+                             final long size,
+                             final Context context ) throws Exception {
+        CheckArg.isNotNull( stream, "stream" );
+        final int limit = this.maxContentSize;
+
+        if ( ( this.maxSize < 1 ) || ( size > limit ) ) {
+            return VdbManifest.read( stream, context );
+        }
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream( ( size < 0 ) ? BUFFER_SIZE : ( int )size );
+        final byte[] buf = new byte[ BUFFER_SIZE ];
+        int numRead = 0;
+
+        while ( ( numRead = stream.read( buf ) ) != -1 ) {
+            content.write( buf, 0, numRead );
+
+            if ( content.size() > limit ) {
+                // too large to hold so parse what has been read followed by the rest of the stream
+                return VdbManifest.read( new SequenceInputStream( new ByteArrayInputStream( content.toByteArray() ),
+                                                                  BinaryUtil.nonClosing( stream ) ),
+                                         context );
+            }
+        }
+
+        return read( content.toByteArray(), context );
+    }
+
+    private VdbManifest cache( final String key,
+                               final VdbManifest manifest ) {
+        if ( ( manifest != null ) && !hasSpooledModelDefinition( manifest ) ) {
+            synchronized ( this.manifests ) {
+                this.manifests.put( key, manifest );
+            }
+        }
+
+        return manifest;
+    }
+
+    private MessageDigest createDigest() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance( SecureHash.Algorithm.SHA_256.digestName() );
+    }
+
+    private void drain( final InputStream stream ) throws IOException {
+        final byte[] buf = new byte[ BUFFER_SIZE ];
+
+        while ( stream.read( buf ) != -1 ) {
+            // only digesting
+        }
+    }
+
+    /**
+     * A spooled model definition is a binary of the repository the manifest was read for, so the manifest cannot be shared.
+     */
+    private boolean hasSpooledModelDefinition( final VdbManifest manifest ) {
+        for ( final VdbModel model : manifest.getModels() ) {
+            if ( model.isModelDefinitionSpooled() ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private VdbManifest lookup( final String key ) {
+        VdbManifest manifest = null;
+
+        synchronized ( this.manifests ) {
+            manifest = this.manifests.get( key );
+        }
+
+        METRICS.increment( ( manifest == null ) ? SequencingMetrics.MANIFEST_CACHE_MISS : SequencingMetrics.MANIFEST_CACHE_HIT,
+                           1 );
+        return manifest;
+    }
+
+    /**
+     * @param maxContentSize the new size, in bytes, of the largest manifest read from a stream that is looked up in the cache
+     */
+    public void setMaxContentSize( final int maxContentSize ) {
+        this.maxContentSize = maxContentSize;
+    }
+
+    /**
+     * @param maxSize the new maximum number of manifests held by the cache (a value less than one disables caching and removes
+     *        all cached manifests)
+     */
+    public void setMaxSize( final int maxSize ) {
+        this.maxSize = maxSize;
+
+        synchronized ( this.manifests ) {
+            if ( maxSize < 1 ) {
+                this.manifests.clear();
+            } else {
+                // remove least recently used manifests that no longer fit
+                while ( this.manifests.size() > maxSize ) {
+                    this.manifests.remove( this.manifests.keySet().iterator().next() );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached manifests
+     */
+    public int size() {
+        synchronized ( this.manifests ) {
+            return this.manifests.size();
+        }
+    }
+
+}
@@ -21,19 +21,29 @@
  */
 package org.teiid.modeshape.sequencer.vdb;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.jcr.Binary;
+import javax.jcr.RepositoryException;
 import org.modeshape.common.util.CheckArg;
+import org.modeshape.common.util.IoUtil;
 import org.modeshape.common.util.StringUtil;
 import org.teiid.modeshape.sequencer.vdb.lexicon.CoreLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
 
 /**
- * A simple POJO that is used to represent the information for a model read in from a VDB manifest ("vdb.xml").
+ * A simple POJO that is used to represent the information for a model read in from a VDB manifest ("vdb.xml"). Once read the
+ * model is frozen and can no longer be modified.
  */
 public class VdbModel implements Comparable< VdbModel > {
 
@@ -71,10 +81,12 @@ public class VdbModel implements Comparable< VdbModel > {
     private boolean visible = DEFAULT_VISIBLE;
     private boolean builtIn = false;
     private long checksum;
-    private final Set< String > imports = new HashSet< String >();
+    private boolean frozen;
+    private Set< String > imports = new HashSet< String >();
     private List< ValidationMarker > problems = new ArrayList< ValidationMarker >();
-    private final Map< String, String > properties = new HashMap< String, String >();
+    private Map< String, String > properties = new HashMap< String, String >();
     private String metadata; // model definition written in DDL
+    private Binary spooledMetadata; // UTF-8 model definition too large to keep in memory
     private String metadataType;
 
     /**
@@ -92,6 +104,19 @@ public class VdbModel implements Comparable< VdbModel > {
         this.type = ( StringUtil.isBlank( type ) ? DEFAULT_MODEL_TYPE : type );
     }
 
+    /**
+     * Makes this model immutable.
+     */
+    void freeze() {
+        if ( !this.frozen ) {
+            this.imports = FrozenCollections.set( this.imports );
+            this.problems = FrozenCollections.list( this.problems );
+            this.properties = FrozenCollections.properties( this.properties );
+            this.sources = FrozenCollections.list( this.sources );
+            this.frozen = true;
+        }
+    }
+
     /**
      * @return the DDL file entry path used when metadata type is {@link #DDL_FILE_METADATA_TYPE} (never <code>null</code> but 
      *         can be empty)
@@ -104,6 +129,7 @@ public class VdbModel implements Comparable< VdbModel > {
      * @param newValue the new DDL file entry path value (can be <code>null</code> or empty)
      */
     public void setDdlFileEntryPath( final String newValue ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         this.ddlFileEntryPath = newValue;
     }
 
@@ -118,6 +144,7 @@ public class VdbModel implements Comparable< VdbModel > {
      * @param newValue the new description value (can be <code>null</code> or empty)
      */
     public void setDescription( final String newValue ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         this.description = newValue;
     }
 
@@ -129,17 +156,67 @@ public class VdbModel implements Comparable< VdbModel > {
     }
 
     /**
+     * A {@link #isModelDefinitionSpooled() spooled} model definition is read into a new <code>String</code> each time this
+     * method is called. Use {@link #openModelDefinition()} to avoid that.
+     *
      * @return the model DDL definition (can be <code>null</code> or empty)
+     * @throws IllegalStateException if the spooled model definition cannot be read
      */
     public String getModelDefinition() {
-        return this.metadata;
+        if ( this.spooledMetadata == null ) {
+            return this.metadata;
+        }
+
+        try ( final InputStream stream = this.spooledMetadata.getStream() ) {
+            return IoUtil.read( stream, StandardCharsets.UTF_8.name() );
+        } catch ( final IOException | RepositoryException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * @return the UTF-8 encoded binary the model definition was spooled to (<code>null</code> if not spooled)
+     */
+    Binary getSpooledModelDefinition() {
+        return this.spooledMetadata;
+    }
+
+    /**
+     * @return <code>true</code> if the model definition was too large to keep in memory and was spooled to a repository binary
+     * @see VdbManifest#SPOOL_THRESHOLD_PROPERTY
+     */
+    public boolean isModelDefinitionSpooled() {
+        return ( this.spooledMetadata != null );
+    }
+
+    /**
+     * @return a reader of the model DDL definition (<code>null</code> if there is no model definition)
+     * @throws RepositoryException if the spooled model definition cannot be opened
+     */
+    public Reader openModelDefinition() throws RepositoryException {
+        if ( this.spooledMetadata != null ) {
+            return new InputStreamReader( this.spooledMetadata.getStream(), StandardCharsets.UTF_8 );
+        }
+
+        return ( ( this.metadata == null ) ? null : new StringReader( this.metadata ) );
     }
 
     /**
      * @param modelDefinition the new model definition (can be <code>null</code> or empty)
      */
     public void setModelDefinition( final String modelDefinition ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         this.metadata = modelDefinition;
+        this.spooledMetadata = null;
+    }
+
+    /**
+     * @param modelDefinition the UTF-8 encoded binary the model definition was spooled to (cannot be <code>null</code>)
+     */
+    void setModelDefinition( final Binary modelDefinition ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
+        this.metadata = null;
+        this.spooledMetadata = modelDefinition;
     }
 
     /**
@@ -153,6 +230,7 @@ public class VdbModel implements Comparable< VdbModel > {
      * @param metadataType the new metadata type (can be <code>null</code> or empty if default type should be used)
      */
     public void setMetadataType( final String metadataType ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         this.metadataType = metadataType;
     }
 
@@ -181,6 +259,7 @@ public class VdbModel implements Comparable< VdbModel > {
      * @param visible Sets visible to the specified value.
      */
     public void setVisible( boolean visible ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         this.visible = visible;
     }
 
@@ -202,6 +281,7 @@ public class VdbModel implements Comparable< VdbModel > {
      * @param builtIn Sets builtIn to the specified value.
      */
     public void setBuiltIn( boolean builtIn ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         this.builtIn = builtIn;
     }
 
@@ -216,6 +296,7 @@ public class VdbModel implements Comparable< VdbModel > {
      * @param checksum Sets checksum to the specified value.
      */
     public void setChecksum( long checksum ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         this.checksum = checksum;
     }
 
@@ -237,6 +318,7 @@ public class VdbModel implements Comparable< VdbModel > {
      * @param newImport the model import path being added as an import (cannot be <code>null</code> or empty)
      */
     public void addImport( final String newImport ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         CheckArg.isNotEmpty( newImport, "newImport" );
         this.imports.add( newImport );
     }
@@ -252,6 +334,7 @@ public class VdbModel implements Comparable< VdbModel > {
      * @param source a source of this model
      */
     public void addSource( Source source ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         CheckArg.isNotNull( source, "source" );
         this.sources.add( source );
     }
@@ -266,6 +349,7 @@ public class VdbModel implements Comparable< VdbModel > {
     public void addProblem( Severity severity,
                             String path,
                             String message ) {
+        FrozenCollections.checkNotFrozen( this.frozen, this.name );
         problems.add( new ValidationMarker( severity, path, message ) );
     }
 
@@ -323,7 +407,7 @@ public class VdbModel implements Comparable< VdbModel > {
             CheckArg.isNotNull( translator, "translator" );
 
             this.name = name;
-            this.translator = translator;
+            this.translator = FrozenCollections.intern( translator );
         }
 
         /**
@@ -351,6 +435,7 @@ public class VdbModel implements Comparable< VdbModel > {
          * @param jndiName the jndiName to set
          */
         public void setJndiName( String jndiName ) {
+            FrozenCollections.checkNotFrozen( VdbModel.this.frozen, this.name );
             this.jndiName = jndiName;
         }
     }
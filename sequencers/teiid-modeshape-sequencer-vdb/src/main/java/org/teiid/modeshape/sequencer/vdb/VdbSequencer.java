@@ -21,16 +21,11 @@
  */
 package org.teiid.modeshape.sequencer.vdb;
 
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -53,6 +48,11 @@ import org.modeshape.common.util.StringUtil;
 import org.modeshape.jcr.api.JcrConstants;
 import org.modeshape.jcr.api.nodetype.NodeTypeManager;
 import org.modeshape.jcr.api.sequencer.Sequencer;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
+import org.teiid.modeshape.sequencer.output.JcrOutputWriter;
+import org.teiid.modeshape.sequencer.output.OutputCache;
+import org.teiid.modeshape.sequencer.output.OutputNode;
 import org.teiid.modeshape.sequencer.vdb.VdbDataRole.Condition;
 import org.teiid.modeshape.sequencer.vdb.VdbDataRole.Mask;
 import org.teiid.modeshape.sequencer.vdb.VdbDataRole.Permission;
@@ -61,6 +61,9 @@ import org.teiid.modeshape.sequencer.vdb.lexicon.CoreLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
 import org.teiid.modeshape.sequencer.vdb.model.ModelSequencer;
 import org.teiid.modeshape.sequencer.vdb.model.ReferenceResolver;
+import org.teiid.modeshape.util.BinaryUtil;
+import org.teiid.modeshape.util.PipelinedInputStream;
+import org.teiid.modeshape.util.SequencingBudget;
 
 /**
  * A sequencer of Teiid Virtual Database (VDB) files.
@@ -68,6 +71,12 @@ import org.teiid.modeshape.sequencer.vdb.model.ReferenceResolver;
 @ThreadSafe
 public class VdbSequencer extends Sequencer {
 
+    /**
+     * A system property indicating if XMI model entries should be inflated on a separate thread while they are parsed. Only helps
+     * with large compressed models. Default is <code>false</code>.
+     */
+    public static final String PIPELINED_MODEL_READ_PROPERTY = "teiid.modeshape.vdb.model.pipelined-read";
+
     private static final String DDL_FILE_EXT = ".ddl";
     private static final String LIB_FOLDER = "lib/";
     protected static final Logger LOGGER = Logger.getLogger( VdbSequencer.class );
@@ -95,6 +104,11 @@ public class VdbSequencer extends Sequencer {
         return fileNameWithoutExtension.replaceAll( "[.]*$", "" );
     }
 
+    /**
+     * The recorder of this sequencer's timers and counters.
+     */
+    protected final MetricsRecorder metrics = new MetricsRecorder( getClass() );
+
     private ModelSequencer modelSequencer; // constructed during initialize method
 
     /**
@@ -112,20 +126,76 @@ public class VdbSequencer extends Sequencer {
         final Binary binaryValue = inputProperty.getBinary();
         CheckArg.isNotNull( binaryValue, "binary" );
 
+        final MetricsRecorder.Timer sequenceTimer = this.metrics.startExclusive( SequencingMetrics.SEQUENCE );
+
+        try {
+            this.metrics.increment( SequencingMetrics.BYTES_READ, binaryValue.getSize() );
+            final OutputCache cache = OutputCache.shared();
+            final String cacheKey = ( cache.isEnabled() ? cache.key( binaryValue, getClass(), null ) : null );
+            final OutputNode cached = ( ( cacheKey == null ) ? null : cache.get( cacheKey, outputNode.getSession() ) );
+
+            if ( cached != null ) {
+                // same archive already sequenced so write its output without reading the archive
+                try ( final MetricsRecorder.Timer timer = this.metrics.start( SequencingMetrics.NODE_WRITE ) ) {
+                    new JcrOutputWriter().write( cached, outputNode );
+                    outputNode.setProperty( VdbLexicon.Vdb.ORIGINAL_FILE, outputNode.getPath() );
+                }
+            } else {
+                final SequencingBudget.Ticket ticket;
+
+                try ( final MetricsRecorder.Timer timer = this.metrics.start( SequencingMetrics.BUDGET_WAIT ) ) {
+                    ticket = SequencingBudget.shared().admit( SequencingBudget.estimateArchiveCost( binaryValue.getSize() ) );
+                }
+
+                try {
+                    sequenceArchive( inputProperty, binaryValue, outputNode, context, ticket );
+
+                    // capturing the output holds it in memory so it is still covered by the admission
+                    if ( cacheKey != null ) {
+                        cache.put( cacheKey, outputNode );
+                    }
+                } finally {
+                    ticket.close();
+                }
+            }
+
+            sequenceTimer.stop();
+        } finally {
+            sequenceTimer.discard();
+        }
+
+        SequencingMetrics.recordOutput( this.metrics, outputNode );
+        return true;
+    }
+
+    /**
+     * @param inputProperty the property being sequenced (cannot be <code>null</code>)
+     * @param binaryValue the VDB archive (cannot be <code>null</code>)
+     * @param outputNode the VDB output node (cannot be <code>null</code>)
+     * @param context the sequencer context (cannot be <code>null</code>)
+     * @param ticket the admission of the job, which indicates if the low-memory code paths should be used (cannot be
+     *        <code>null</code>)
+     * @throws Exception if an error occurs
+     */
+    private void sequenceArchive( final Property inputProperty,
+                                  final Binary binaryValue,
+                                  final Node outputNode,
+                                  final Context context,
+                                  final SequencingBudget.Ticket ticket ) throws Exception {
         VdbManifest manifest = null;
         boolean processDdlFiles = false;
         boolean processLibFiles = false;
         final Collection< String > ddlFileModelsFound = new ArrayList<>();
 
-        try ( final ZipInputStream vdbStream = new ZipInputStream( binaryValue.getStream() ) ) {
+        try ( final ZipInputStream vdbStream = SequencingBudget.openArchive( binaryValue.getStream() ) ) {
             ZipEntry entry = null;
             ReferenceResolver resolver = new ReferenceResolver();
 
-            while ( ( entry = vdbStream.getNextEntry() ) != null ) {
+            while ( ( entry = nextEntry( vdbStream ) ) != null ) {
                 String entryName = entry.getName();
 
                 if ( entryName.endsWith( MANIFEST_FILE ) ) {
-                    manifest = readManifest( binaryValue, vdbStream, outputNode, context );
+                    manifest = readManifest( binaryValue, vdbStream, entry.getSize(), outputNode, context );
                 } else if ( !entry.isDirectory() && this.modelSequencer.hasModelFileExtension( entryName ) ) {
                     LOGGER.debug( "before reading model '{0}'", entryName );
 
@@ -148,11 +218,23 @@ public class VdbSequencer extends Sequencer {
                     }
 
                     final Node modelNode = outputNode.addNode( entryName, VdbLexicon.Vdb.MODEL );
-                    final boolean sequenced = this.modelSequencer.sequenceVdbModel( vdbStream,
-                                                                                    modelNode,
-                                                                                    vdbModel,
-                                                                                    resolver,
-                                                                                    context );
+                    final boolean lowMemory = ( ticket.isLowMemory()
+                                                || SequencingBudget.isLowMemory( SequencingBudget.estimateEntryCost( entry ) ) );
+                    final boolean sequenced;
+
+                    if ( Boolean.getBoolean( PIPELINED_MODEL_READ_PROPERTY ) ) {
+                        // inflate the entry on another thread while it is being parsed
+                        try ( final InputStream modelStream = new PipelinedInputStream( vdbStream ) ) {
+                            sequenced = this.modelSequencer.sequenceVdbModel( modelStream,
+                                                                               modelNode,
+                                                                               vdbModel,
+                                                                               resolver,
+                                                                               context,
+                                                                               lowMemory );
+                        }
+                    } else {
+                        sequenced = this.modelSequencer.sequenceVdbModel( vdbStream, modelNode, vdbModel, resolver, context, lowMemory );
+                    }
 
                     if ( !sequenced ) {
                         modelNode.remove();
@@ -174,7 +256,7 @@ public class VdbSequencer extends Sequencer {
                     if ( manifest == null ) {
                         processLibFiles = true;
                     } else if ( !processLibFiles ) {
-                        sequenceLibResource( vdbStream, entryName, outputNode );
+                        sequenceLibResource( vdbStream, entry, outputNode );
                     }
                 } else {
                     LOGGER.debug( "ignoring resource '{0}'", entryName );
@@ -193,15 +275,15 @@ public class VdbSequencer extends Sequencer {
         if ( processLibFiles || processDdlFiles ) {
             LOGGER.debug( "second pass: /lib resources = {0}, DDL files = {1}", processLibFiles, processDdlFiles );
 
-            try ( final ZipInputStream zis = new ZipInputStream( binaryValue.getStream() ) ) {
+            try ( final ZipInputStream zis = SequencingBudget.openArchive( binaryValue.getStream() ) ) {
                 ZipEntry entry = null;
 
-                while ( ( entry = zis.getNextEntry() ) != null ) {
+                while ( ( entry = nextEntry( zis ) ) != null ) {
                     final String entryName = entry.getName();
 
                     if ( !entry.isDirectory() ) {
                         if ( processLibFiles && entryName.startsWith( LIB_FOLDER ) ) {
-                            sequenceLibResource( zis, entryName, outputNode );
+                            sequenceLibResource( zis, entry, outputNode );
                         } else if ( processDdlFiles && isDdlFile( entryName ) ) {
                             final String modelName = sequenceDdlFile( zis, entryName, manifest, outputNode );
 
@@ -221,23 +303,66 @@ public class VdbSequencer extends Sequencer {
                 throw new Exception( TeiidI18n.ddlFileMissing.text( model.getDdlFileEntryPath(), model.getName() ) );
             }
         }
-
-        return true;
     }
 
     private boolean isDdlFile( final String fileName ) {
         return fileName.endsWith( DDL_FILE_EXT );
     }
 
+    private ZipEntry nextEntry( final ZipInputStream zis ) throws IOException {
+        try ( final MetricsRecorder.Timer timer = this.metrics.start( SequencingMetrics.ZIP_INFLATION ) ) {
+            return zis.getNextEntry();
+        }
+    }
+
     protected VdbManifest readManifest( Binary binaryValue,
                                         InputStream inputStream,
                                         Node outputNode,
                                         Context context ) throws Exception {
+        return readManifest( binaryValue, inputStream, -1, outputNode, context );
+    }
+
+    /**
+     * Reads the manifest, using the {@link VdbManifestCache#shared() shared cache}, and writes its nodes.
+     *
+     * @param binaryValue the VDB content (can be <code>null</code> if the content hash should not be recorded)
+     * @param inputStream the manifest content (cannot be <code>null</code>)
+     * @param size the size of the manifest content in bytes (a negative value if not known), used by the cache to decide if
+     *        the content can be held in memory while it is looked up
+     * @param outputNode the VDB output node (cannot be <code>null</code>)
+     * @param context the sequencer context (can be <code>null</code>)
+     * @return the manifest (never <code>null</code>)
+     * @throws Exception if an error occurs reading the manifest or writing its nodes
+     */
+    protected VdbManifest readManifest( final Binary binaryValue,
+                                        final InputStream inputStream,
+                                        final long size,
+                                        final Node outputNode,
+                                        final Context context ) throws Exception {
         VdbManifest manifest;
         LOGGER.debug( "----before reading vdb.xml" );
 
-        manifest = VdbManifest.read( inputStream, context );
+        try ( final MetricsRecorder.Timer timer = this.metrics.start( SequencingMetrics.MANIFEST_READ ) ) {
+            manifest = VdbManifestCache.shared().read( inputStream, size, context );
+        }
+
         assert ( manifest != null ) : "manifest is null";
+        sequenceManifest( manifest, binaryValue, outputNode );
+        return manifest;
+    }
+
+    /**
+     * Writes the nodes of an already parsed manifest.
+     *
+     * @param manifest the VDB manifest (cannot be <code>null</code>)
+     * @param binaryValue the VDB content (can be <code>null</code> if the content hash should not be recorded)
+     * @param outputNode the VDB output node (cannot be <code>null</code>)
+     * @throws Exception if an error occurs writing the nodes
+     */
+    protected void sequenceManifest( final VdbManifest manifest,
+                                     final Binary binaryValue,
+                                     final Node outputNode ) throws Exception {
+        final MetricsRecorder.Timer writeTimer = this.metrics.start( SequencingMetrics.NODE_WRITE );
 
         // Create the output node for the VDB ...
         outputNode.setPrimaryType( VdbLexicon.Vdb.VIRTUAL_DATABASE );
@@ -271,8 +396,8 @@ public class VdbSequencer extends Sequencer {
         // create child nodes for declarative models
         sequenceDeclarativeModels( manifest, outputNode );
 
+        writeTimer.stop();
         LOGGER.debug( ">>>>done reading vdb.xml\n\n" );
-        return manifest;
     }
 
     /**
@@ -453,7 +578,12 @@ public class VdbSequencer extends Sequencer {
                 // set vdb:declarativeModel properties
                 setProperty( modelNode, CoreLexicon.JcrId.MODEL_TYPE, model.getType() );
                 setProperty( modelNode, VdbLexicon.Model.METADATA_TYPE, model.getMetadataType() );
-                setProperty( modelNode, VdbLexicon.Model.MODEL_DEFINITION, model.getModelDefinition() );
+                // a spooled definition is converted to a string by the repository, so the sequencer never holds all of it
+                if ( model.isModelDefinitionSpooled() ) {
+                    modelNode.setProperty( VdbLexicon.Model.MODEL_DEFINITION, model.getSpooledModelDefinition() );
+                } else {
+                    setProperty( modelNode, VdbLexicon.Model.MODEL_DEFINITION, model.getModelDefinition() );
+                }
 
                 if ( VdbModel.DDL_FILE_METADATA_TYPE.equals( model.getMetadataType() ) ) {
                     setProperty( modelNode, VdbLexicon.Model.DDL_FILE_ENTRY_PATH, model.getDdlFileEntryPath() );
@@ -534,25 +664,14 @@ public class VdbSequencer extends Sequencer {
     }
 
     private void sequenceLibResource( final ZipInputStream zis,
-                                      final String entryPath,
+                                      final ZipEntry entry,
                                       final Node outputNode ) throws Exception {
+        final String entryPath = entry.getName();
         LOGGER.debug( "processing /lib resource '{0}'", entryPath );
 
         // assumes entry path starts with lib/
         final String resourceName = entryPath.substring( entryPath.lastIndexOf( '/' ) );
 
-        // extract file
-        final byte[] buf = new byte[ 1024 ];
-        final File file = File.createTempFile( resourceName, null );
-
-        try ( final FileOutputStream fos = new FileOutputStream( file ) ) {
-            int numRead = 0;
-
-            while ( ( numRead = zis.read( buf ) ) > 0 ) {
-                fos.write( buf, 0, numRead );
-            }
-        }
-
         // add under the resources node
         Node resourcesNode = null;
 
@@ -565,15 +684,12 @@ public class VdbSequencer extends Sequencer {
         final Node resourceNode = resourcesNode.addNode( resourceName, JcrConstants.NT_FILE );
         final Node contentNode = resourceNode.addNode( JcrConstants.JCR_CONTENT, JcrConstants.NT_RESOURCE );
 
-        // set data property
-        final InputStream is = new BufferedInputStream( new FileInputStream( file ) );
-        final Binary binary = outputNode.getSession().getValueFactory().createBinary( is );
+        // set data property by streaming the entry straight from the archive
+        final Binary binary = BinaryUtil.createBinary( outputNode.getSession().getValueFactory(), zis, entryPath );
         contentNode.setProperty( JcrConstants.JCR_DATA, binary );
 
         // set last modified property
-        final Calendar lastModified = Calendar.getInstance();
-        lastModified.setTimeInMillis( file.lastModified() );
-        contentNode.setProperty( "jcr:lastModified", lastModified );
+        contentNode.setProperty( "jcr:lastModified", BinaryUtil.lastModified( entry ) );
     }
 
     /**
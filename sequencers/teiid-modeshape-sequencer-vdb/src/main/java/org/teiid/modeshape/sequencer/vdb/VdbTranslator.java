@@ -27,13 +27,15 @@ import org.modeshape.common.util.CheckArg;
 
 /**
  * A simple POJO that is used to represent the information for an overridden translator read in from a VDB manifest ("vdb.xml").
+ * Once read the translator is frozen and can no longer be modified.
  */
 public class VdbTranslator implements Comparable<VdbTranslator> {
 
     private String description;
+    private boolean frozen;
     private final String name;
     private final String type;
-    private final Map<String, String> properties = new HashMap<String, String>();
+    private Map<String, String> properties = new HashMap<String, String>();
 
     /**
      * @param name the translator override name (cannot be <code>null</code> or empty)
@@ -44,8 +46,8 @@ public class VdbTranslator implements Comparable<VdbTranslator> {
         CheckArg.isNotEmpty(name, "name");
         CheckArg.isNotEmpty(type, "type");
 
-        this.name = name;
-        this.type = type;
+        this.name = FrozenCollections.intern(name);
+        this.type = FrozenCollections.intern(type);
     }
 
     /**
@@ -63,6 +65,16 @@ public class VdbTranslator implements Comparable<VdbTranslator> {
         return this.name.compareTo(that.name);
     }
 
+    /**
+     * Makes this translator immutable.
+     */
+    void freeze() {
+        if (!this.frozen) {
+            this.properties = FrozenCollections.properties(this.properties);
+            this.frozen = true;
+        }
+    }
+
     /**
      * @return the description (never <code>null</code> but can be empty)
      */
@@ -95,6 +107,7 @@ public class VdbTranslator implements Comparable<VdbTranslator> {
      * @param newValue the new description value (can be <code>null</code> or empty)
      */
     public void setDescription( final String newValue ) {
+        FrozenCollections.checkNotFrozen(this.frozen, this.name);
         this.description = newValue;
     }
 }
@@ -106,6 +106,7 @@ public interface VdbLexicon {
     public interface ImportVdb {
         String IMPORT_DATA_POLICIES = PREFIX + ":importDataPolicies";
         String IMPORT_VDB = PREFIX + ":importVdb";
+        String IMPORTED_VDB = PREFIX + ":importedVdb";
         String VERSION = PREFIX + ":version";
     }
 
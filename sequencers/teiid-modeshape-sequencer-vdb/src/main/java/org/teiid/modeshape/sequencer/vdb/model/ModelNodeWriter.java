@@ -36,6 +36,8 @@ import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.api.JcrConstants;
 import org.modeshape.jcr.api.sequencer.Sequencer.Context;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.vdb.TeiidI18n;
 import org.teiid.modeshape.sequencer.vdb.VdbModel;
 import org.teiid.modeshape.sequencer.vdb.lexicon.CoreLexicon;
@@ -142,49 +144,84 @@ public final class ModelNodeWriter {
 
     public boolean write() throws Exception {
         long startTime = System.currentTimeMillis();
-        boolean result = true;
+        boolean result = begin();
 
+        if (result) {
+            final MetricsRecorder.Timer handlerTimer = ModelSequencer.METRICS.start(SequencingMetrics.HANDLER_PROCESSING);
+            writeModelObjects();
+            handlerTimer.stop();
+            result = finish();
+        }
+
+        LOGGER.debug("model write time={0}\n\n", (System.currentTimeMillis() - startTime));
+
+        return result;
+    }
+
+    /**
+     * Must be called before any model objects are written.
+     *
+     * @return <code>false</code> if the model should not be sequenced
+     */
+    boolean begin() {
         // use primary metamodel URI to determine if we should continue sequencing
         final String primaryMetamodelUri = this.reader.getPrimaryMetamodelUri();
 
         if ((primaryMetamodelUri == null) || !isAcceptedPrimaryMetamodel(primaryMetamodelUri)) {
-            result = false;
-        } else {
-            // load model object handler registry
-            loadRegistry();
-
-            if (!writeModelObjects()) {
-                result = false;
-            } else {
-                result = writeUnresolvedReferences();
-
-                // add MED mixins to node
-                this.medHelper.assignModelNodeChildrenMedMixins(this.outputNode);
-            }
+            return false;
         }
 
-        LOGGER.debug("model write time={0}\n\n", (System.currentTimeMillis() - startTime));
+        // load model object handler registry
+        loadRegistry();
+        return true;
+    }
+
+    /**
+     * Writes the references that could not be resolved while writing the model objects and assigns the MED mixins. Must be
+     * called after all model objects are written.
+     *
+     * @return <code>true</code> if successful
+     * @throws Exception if an error occurs
+     */
+    boolean finish() throws Exception {
+        final boolean result;
+
+        try (final MetricsRecorder.Timer timer = ModelSequencer.METRICS.start(SequencingMetrics.NODE_WRITE)) {
+            result = writeUnresolvedReferences();
+        }
+
+        // add MED mixins to node
+        try (final MetricsRecorder.Timer timer = ModelSequencer.METRICS.start(SequencingMetrics.MED_REGISTRATION)) {
+            this.medHelper.assignModelNodeChildrenMedMixins(this.outputNode);
+        }
 
         return result;
     }
 
-    private boolean writeModelObjects() throws Exception {
-        LOGGER.debug("[begin writeModelObjects()]");
+    /**
+     * @param element the root-level XMI element being written (cannot be <code>null</code>)
+     * @throws Exception if an error occurs
+     */
+    void writeModelObject( final XmiElement element ) throws Exception {
+        final String nsUri = element.getNamespaceUri();
+        final ModelObjectHandler handler = getHandler(nsUri);
 
-        for (final XmiElement element : this.reader.getElements()) {
-            final String nsUri = element.getNamespaceUri();
-            final ModelObjectHandler handler = getHandler(nsUri);
+        if (handler == null) {
+            LOGGER.debug("ModelObjectHandler for namespace {0} cannot be found", nsUri);
+            return;
+        }
 
-            if (handler == null) {
-                LOGGER.debug("ModelObjectHandler for namespace {0} cannot be found", nsUri);
-                continue;
-            }
+        handler.process(element, this.outputNode);
+    }
 
-            handler.process(element, this.outputNode);
+    private void writeModelObjects() throws Exception {
+        LOGGER.debug("[begin writeModelObjects()]");
+
+        for (final XmiElement element : this.reader.getElements()) {
+            writeModelObject(element);
         }
 
         LOGGER.debug("[end writeModelObjects()]\n\n");
-        return true;
     }
 
     public boolean writeUnresolvedReferences() throws Exception {
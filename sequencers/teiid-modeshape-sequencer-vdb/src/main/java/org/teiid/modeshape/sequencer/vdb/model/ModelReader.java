@@ -55,6 +55,9 @@ class ModelReader extends XmiReader implements Comparable<ModelReader> {
 
     private final NamespaceRegistry registry; // never null
     private final ReferenceResolver resolver;
+    private ModelNodeWriter writer; // only set when streaming
+    private boolean writing; // true once streamed elements are being written
+    private final List<XmiElement> pending = new ArrayList<XmiElement>(); // streamed elements read before the model annotation
 
     /**
      * @param path the resource path including the name (cannot be <code>null</code> or empty)
@@ -100,7 +103,10 @@ class ModelReader extends XmiReader implements Comparable<ModelReader> {
                     }
                 }
 
-                this.resolver.record(newAttribute.getValue(), element);
+                // when streaming only the tags followed by MED processing are kept so that other elements can be released
+                if ((this.writer == null) || CoreLexicon.ModelId.TAGS.equals(element.getName())) {
+                    this.resolver.record(newAttribute.getValue(), element);
+                }
             }
         }
     }
@@ -309,7 +315,7 @@ class ModelReader extends XmiReader implements Comparable<ModelReader> {
      * @see org.teiid.modeshape.sequencer.vdb.xmi.XmiReader#handleEndElement(javax.xml.stream.XMLStreamReader)
      */
     @Override
-    protected XmiElement handleEndElement( final XMLStreamReader streamReader ) {
+    protected XmiElement handleEndElement( final XMLStreamReader streamReader ) throws Exception {
         final XmiElement endElement = super.handleEndElement(streamReader);
 
         // stop if XMI tag or if ModelAnnotation tag short circuit reading if model won't be sequenced
@@ -317,11 +323,54 @@ class ModelReader extends XmiReader implements Comparable<ModelReader> {
                 || (CoreLexicon.ModelId.MODEL_ANNOTATION.equals(endElement.getName()) && !ModelSequencer.shouldSequence(
                 this))) {
             stop();
+        } else if ((this.writer != null) && (getStackSize() == 0)) {
+            writeRootElement(endElement);
         }
 
         return endElement;
     }
 
+    private boolean isModelAnnotation( final XmiElement element ) {
+        return CoreLexicon.ModelId.MODEL_ANNOTATION.equals(element.getName())
+               && CoreLexicon.Namespace.URI.equals(element.getNamespaceUri());
+    }
+
+    /**
+     * Writes a completely read root-level element and releases it unless it is the model annotation, which is needed by the
+     * handlers. Elements read before the model annotation are held until it has been read.
+     *
+     * @param element the root-level element whose end tag was just read (cannot be <code>null</code>)
+     * @throws Exception if an error occurs writing the element
+     */
+    private void writeRootElement( final XmiElement element ) throws Exception {
+        if (!this.writing) {
+            if (!isModelAnnotation(element)) {
+                this.pending.add(element);
+                return;
+            }
+
+            if (!this.writer.begin()) {
+                stop();
+                return;
+            }
+
+            this.writing = true;
+
+            for (final XmiElement pendingElement : this.pending) {
+                this.writer.writeModelObject(pendingElement);
+                removeElement(pendingElement);
+            }
+
+            this.pending.clear();
+        }
+
+        this.writer.writeModelObject(element);
+
+        if (!isModelAnnotation(element)) {
+            removeElement(element);
+        }
+    }
+
     /**
      * @return <code>true</code> if model is visible (defaults to {@value ModelReader#DEFAULT_VISIBLE} )
      */
@@ -370,7 +419,23 @@ class ModelReader extends XmiReader implements Comparable<ModelReader> {
      * @throws Exception if there is a problem reading the input stream
      */
     public void readModel( final InputStream stream ) throws Exception {
+        readModel(stream, null);
+    }
+
+    /**
+     * Reads the model passing each root-level model object to the writer as soon as its end tag has been read and then
+     * releasing it. Only the model annotation and the UUIDs of the model objects are kept. The caller must
+     * {@link ModelNodeWriter#finish() finish} the writer if the model {@link ModelSequencer#shouldSequence(ModelReader) should
+     * be sequenced}.
+     *
+     * @param stream the input stream of the XMI model being read (cannot be <code>null</code>)
+     * @param writer the writer of the model objects (can be <code>null</code> if all model objects should be read first)
+     * @throws Exception if there is a problem reading the input stream or writing the model objects
+     */
+    void readModel( final InputStream stream,
+                    final ModelNodeWriter writer ) throws Exception {
         CheckArg.isNotNull(stream, "stream");
+        this.writer = writer;
 
         final long startTime = System.currentTimeMillis();
         final List<XmiElement> elements = super.read(stream);
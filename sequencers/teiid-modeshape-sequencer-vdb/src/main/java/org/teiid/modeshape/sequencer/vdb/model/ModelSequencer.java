@@ -34,6 +34,8 @@ import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.api.nodetype.NodeTypeManager;
 import org.modeshape.jcr.api.sequencer.Sequencer;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.vdb.TeiidI18n;
 import org.teiid.modeshape.sequencer.vdb.VdbModel;
 import org.teiid.modeshape.sequencer.vdb.VdbSequencer;
@@ -41,6 +43,7 @@ import org.teiid.modeshape.sequencer.vdb.lexicon.CoreLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.DiagramLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.RelationalLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.SequencingBudget;
 
 /**
  * A sequencer of Teiid XMI model files.
@@ -48,8 +51,16 @@ import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
 @ThreadSafe
 public class ModelSequencer extends Sequencer {
 
+    /**
+     * A system property indicating if each root-level model object should be written as soon as it has been read and then
+     * released, so that the memory needed depends on the largest model object instead of the whole model. Default is
+     * <code>false</code>.
+     */
+    public static final String STREAMING_PROPERTY = "teiid.modeshape.vdb.model.streaming";
+
     private static final String[] MODEL_FILE_EXTENSIONS = { ".xmi" };
     private static final Logger LOGGER = Logger.getLogger(ModelSequencer.class);
+    static final MetricsRecorder METRICS = new MetricsRecorder(ModelSequencer.class);
 
     /**
      * @param modelReader the reader who processed the model file (cannot be <code>null</code>)
@@ -76,9 +87,54 @@ public class ModelSequencer extends Sequencer {
         CheckArg.isNotNull(binaryValue, "binary");
         outputNode.addMixin(CoreLexicon.JcrId.MODEL);
 
-        try (InputStream modelStream = binaryValue.getStream()) {
-            return sequenceModel(modelStream, outputNode, outputNode.getPath(), null, new ReferenceResolver(), context);
+        final MetricsRecorder.Timer sequenceTimer = METRICS.startExclusive(SequencingMetrics.SEQUENCE);
+        final boolean sequenced;
+
+        try {
+            METRICS.increment(SequencingMetrics.BYTES_READ, binaryValue.getSize());
+            final SequencingBudget.Ticket ticket;
+
+            try (final MetricsRecorder.Timer timer = METRICS.start(SequencingMetrics.BUDGET_WAIT)) {
+                ticket = SequencingBudget.shared().admit(SequencingBudget.estimateTextCost(binaryValue.getSize()));
+            }
+
+            try (InputStream modelStream = binaryValue.getStream()) {
+                sequenced = sequenceModel(modelStream,
+                                          outputNode,
+                                          outputNode.getPath(),
+                                          null,
+                                          new ReferenceResolver(),
+                                          context,
+                                          isStreaming(ticket.isLowMemory()));
+            } finally {
+                ticket.close();
+            }
+
+            if (sequenced) {
+                sequenceTimer.stop();
+            }
+        } finally {
+            sequenceTimer.discard();
+        }
+
+        if (sequenced) {
+            SequencingMetrics.recordOutput(METRICS, outputNode);
         }
+
+        return sequenced;
+    }
+
+    /**
+     * @param lowMemory <code>true</code> if the model is too large to be read into memory before it is written
+     * @return <code>true</code> if model objects should be written as soon as they are read
+     */
+    private boolean isStreaming( final boolean lowMemory ) {
+        if (lowMemory) {
+            METRICS.increment(SequencingMetrics.LOW_MEMORY, 1);
+            return true;
+        }
+
+        return Boolean.getBoolean(STREAMING_PROPERTY);
     }
 
     /**
@@ -135,7 +191,8 @@ public class ModelSequencer extends Sequencer {
      * @param modelPath the model path including the model name (cannot be <code>null</code> or empty)
      * @param vdbModel the VDB model associated with the input stream (cannot be <code>null</code>)
      * @param resolver a {@link ReferenceResolver} instance; may not be {@code null}
-     * @param context the sequencer context (cannot be <code>null</code>)  @return <code>true</code> if the model file input stream was successfully sequenced
+     * @param context the sequencer context (cannot be <code>null</code>)
+     * @param streaming <code>true</code> if each root-level model object should be written as soon as it has been read
      * @return <code>true</code> if the model was sequenced successfully
      * @throws Exception if there is a problem during sequencing
      */
@@ -144,7 +201,8 @@ public class ModelSequencer extends Sequencer {
                                    final String modelPath,
                                    final VdbModel vdbModel,
                                    final ReferenceResolver resolver, 
-                                   final Context context ) throws Exception {
+                                   final Context context,
+                                   final boolean streaming ) throws Exception {
         assert (modelStream != null);
         assert (modelOutputNode != null);
         assert (context != null);
@@ -157,12 +215,28 @@ public class ModelSequencer extends Sequencer {
 
         final NamespaceRegistry registry = modelOutputNode.getSession().getWorkspace().getNamespaceRegistry();
         final ModelReader modelReader = new ModelReader(modelPath, resolver, registry);
-        modelReader.readModel(modelStream);
 
-        if (shouldSequence(modelReader)) {
-            final ModelNodeWriter nodeWriter = new ModelNodeWriter(modelOutputNode, modelReader, resolver, vdbModel,
-                                                                   context);
-            return nodeWriter.write();
+        if (streaming) {
+            final ModelNodeWriter nodeWriter = new ModelNodeWriter(modelOutputNode, modelReader, resolver, vdbModel, context);
+
+            // model objects are written while they are read so the read time includes the handler time
+            try (final MetricsRecorder.Timer timer = METRICS.start(SequencingMetrics.MODEL_READ)) {
+                modelReader.readModel(modelStream, nodeWriter);
+            }
+
+            if (shouldSequence(modelReader)) {
+                return nodeWriter.finish();
+            }
+        } else {
+            try (final MetricsRecorder.Timer timer = METRICS.start(SequencingMetrics.MODEL_READ)) {
+                modelReader.readModel(modelStream);
+            }
+
+            if (shouldSequence(modelReader)) {
+                final ModelNodeWriter nodeWriter = new ModelNodeWriter(modelOutputNode, modelReader, resolver, vdbModel,
+                                                                       context);
+                return nodeWriter.write();
+            }
         }
 
         // stream was not sequenced
@@ -186,6 +260,28 @@ public class ModelSequencer extends Sequencer {
                                      final VdbModel vdbModel,
                                      final ReferenceResolver resolver,
                                      final Context context ) throws Exception {
+        return sequenceVdbModel(modelStream, modelOutputNode, vdbModel, resolver, context, false);
+    }
+
+    /**
+     * Used only by the VDB sequencer to sequence a model file contained in a VDB.
+     *
+     * @param modelStream the input stream of the model file (cannot be <code>null</code>)
+     * @param modelOutputNode the root node of the model being sequenced (cannot be <code>null</code>)
+     * @param vdbModel the VDB model associated with the input stream (cannot be <code>null</code>)
+     * @param resolver a {@link ReferenceResolver} instance; may not be {@code null}
+     * @param context the sequencer context (cannot be <code>null</code>)
+     * @param lowMemory <code>true</code> if the model should be written while it is read regardless of the
+     *        {@link #STREAMING_PROPERTY streaming property}
+     * @return <code>true</code> if the model file input stream was successfully sequenced
+     * @throws Exception if there is a problem during sequencing or node does not have a VDB model primary type
+     */
+    public boolean sequenceVdbModel( final InputStream modelStream,
+                                     final Node modelOutputNode,
+                                     final VdbModel vdbModel,
+                                     final ReferenceResolver resolver,
+                                     final Context context,
+                                     final boolean lowMemory ) throws Exception {
         CheckArg.isNotNull(modelStream, "modelStream");
         CheckArg.isNotNull(modelOutputNode, "modelOutputNode");
         CheckArg.isNotNull(vdbModel, "vdbModel");
@@ -194,6 +290,12 @@ public class ModelSequencer extends Sequencer {
             throw new RuntimeException(TeiidI18n.invalidVdbModelNodeType.text(modelOutputNode.getPath()));
         }
 
-        return sequenceModel(modelStream, modelOutputNode, vdbModel.getPathInVdb(), vdbModel, resolver, context);
+        return sequenceModel(modelStream,
+                             modelOutputNode,
+                             vdbModel.getPathInVdb(),
+                             vdbModel,
+                             resolver,
+                             context,
+                             isStreaming(lowMemory));
     }
 }
@@ -28,12 +28,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.common.util.StringUtil;
 import org.teiid.modeshape.sequencer.vdb.lexicon.XmiLexicon;
+import org.teiid.modeshape.util.XmlUtil;
 
 /**
  * A XMI file reader.
@@ -61,6 +61,7 @@ public class XmiReader {
     private final Map<String, String> namespaces = new HashMap<String, String>(); // namespaces declared in file
     private final String path; // never empty
     private final Stack<XmiElement> stack = new Stack<XmiElement>();
+    private final StringBuilder text = new StringBuilder(); // text of the current element, reused for all elements
 
     /**
      * @param path the path to the XMI file being read (cannot be <code>null</code> or empty)
@@ -100,6 +101,16 @@ public class XmiReader {
         this.elements.add(newElement);
     }
 
+    /**
+     * Removes a root-level element that is no longer needed so that it can be garbage collected.
+     *
+     * @param element the root level element being removed (cannot be <code>null</code>)
+     */
+    protected void removeElement( final XmiElement element ) {
+        CheckArg.isNotNull(element, "element");
+        this.elements.remove(element);
+    }
+
     /**
      * @param streamReader the stream reader (cannot be <code>null</code>)
      * @param element the element whose attributes are being created from the stream (cannot be <code>null</code>)
@@ -181,19 +192,33 @@ public class XmiReader {
     }
 
     /**
-     * Handles a stream {@link javax.xml.stream.XMLStreamConstants#CHARACTERS} event.
+     * Handles a stream {@link javax.xml.stream.XMLStreamConstants#CHARACTERS} event. The text is collected until the next start
+     * or end element event when it is set as the value of the current element.
      *
      * @param streamReader the stream reader (cannot be <code>null</code>)
      */
     protected void handleCharacters( final XMLStreamReader streamReader ) {
         CheckArg.isNotNull(streamReader, "streamReader");
-        final String value = streamReader.getText();
+        XmlUtil.appendText(streamReader, this.text);
+    }
 
-        if (!StringUtil.isBlank(value) && !this.stack.isEmpty()) {
-            this.stack.peek().setValue(value);
-        } else if (!StringUtil.isBlank(value)) {
-            LOGGER.debug("**** unhandled XmiReader CHARACTERS event type. Character={0}", streamReader.getText());
+    /**
+     * Sets any non-blank text collected since the last start or end element event as the value of the current element.
+     */
+    private void flushCharacters() {
+        if (this.text.length() == 0) {
+            return;
         }
+
+        if (!XmlUtil.isBlank(this.text)) {
+            if (this.stack.isEmpty()) {
+                LOGGER.debug("**** unhandled XmiReader CHARACTERS event type. Character={0}", this.text);
+            } else {
+                this.stack.peek().setValue(this.text.toString());
+            }
+        }
+
+        this.text.setLength(0);
     }
 
     /**
@@ -201,8 +226,9 @@ public class XmiReader {
      *
      * @param streamReader the stream reader (cannot be <code>null</code>)
      * @return the XMI element popped off the stack (never <code>null</code>)
+     * @throws Exception if there is a problem processing the element
      */
-    protected XmiElement handleEndElement( final XMLStreamReader streamReader ) {
+    protected XmiElement handleEndElement( final XMLStreamReader streamReader ) throws Exception {
         CheckArg.isNotNull(streamReader, "streamReader");
         final XmiElement popped = pop(streamReader);
 
@@ -291,15 +317,16 @@ public class XmiReader {
     protected final List<XmiElement> read( final InputStream stream ) throws Exception {
         CheckArg.isNotNull(stream, "stream");
 
-        final XMLInputFactory factory = XMLInputFactory.newInstance();
-        final XMLStreamReader streamReader = factory.createXMLStreamReader(stream);
+        final XMLStreamReader streamReader = XmlUtil.createStreamReader(stream);
 
         while (this.keepReading && streamReader.hasNext()) {
             streamReader.next();
 
             if (streamReader.isStartElement()) {
+                flushCharacters();
                 handleStartElement(streamReader);
             } else if (streamReader.isEndElement()) {
+                flushCharacters();
                 handleEndElement(streamReader);
             } else if (streamReader.isCharacters()) {
                 handleCharacters(streamReader);
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.vdb;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import org.junit.Test;
+import org.teiid.modeshape.sequencer.AbstractSequencerTest;
+import org.teiid.modeshape.sequencer.BulkImporter;
+import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+
+public final class BulkImporterTest extends AbstractSequencerTest {
+
+    @Override
+    protected InputStream getRepositoryConfigStream() {
+        return resourceStream("config/repo-config.json");
+    }
+
+    private static void delete( final Path dir ) throws Exception {
+        try (final Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void shouldImportDirectoryOfVdbs() throws Exception {
+        final Path dir = Files.createTempDirectory("bulk-");
+
+        try {
+            final String[] files = { "BooksVdb.vdb", "Financials_Linux.vdb", "patients-vdb.xml", "missing-ddl-file.vdb" };
+
+            for (final String file : files) {
+                final Path target = dir.resolve(file.endsWith(".xml") ? "dynamic/" + file : file);
+                Files.createDirectories(target.getParent());
+                Files.copy(resourceStream("vdb/" + file), target);
+            }
+
+            Files.write(dir.resolve("readme.txt"), "not imported".getBytes());
+
+            final BulkImporter importer = new BulkImporter(this.repository).register(".vdb", VdbSequencer::new)
+                                                                           .register("-vdb.xml", VdbDynamicSequencer::new);
+            importer.setBatchSize(2);
+            importer.setWorkerCount(2);
+
+            final BulkImporter.Outcome outcome = importer.importDirectory(dir, "/imports/vdbs");
+            assertThat(outcome.getImported().size(), is(3));
+            assertThat(outcome.getFailures().size(), is(1));
+            assertThat(outcome.getFailures().containsKey(dir.resolve("missing-ddl-file.vdb")), is(true));
+
+            this.session.refresh(false);
+            final Node vdbs = this.session.getNode("/imports/vdbs");
+            assertThat(vdbs.getNodes().getSize(), is(3L));
+            assertThat(vdbs.getNode("BooksVdb.vdb").getPrimaryNodeType().getName(), is(VdbLexicon.Vdb.VIRTUAL_DATABASE));
+            assertThat(vdbs.getNode("Financials_Linux.vdb").getNodes().getSize(), is(5L));
+            assertThat(vdbs.getNode("dynamic/patients-vdb.xml").getProperty(VdbLexicon.Vdb.NAME).getString(), is("patients"));
+            assertThat(vdbs.hasNode("missing-ddl-file.vdb"), is(false));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void shouldDiscardWritesOfFailedFileAndKeepRestOfBatch() throws Exception {
+        final Path dir = Files.createTempDirectory("bulk-");
+
+        try {
+            for (final String subdir : new String[] { "one", "two" }) {
+                Files.createDirectories(dir.resolve(subdir));
+                Files.copy(resourceStream("vdb/BooksVdb.vdb"), dir.resolve(subdir + "/BooksVdb.vdb"));
+            }
+
+            Files.write(dir.resolve("writes-outside.bad"), "fails".getBytes());
+
+            final BulkImporter importer = new BulkImporter(this.repository).register(".vdb", VdbSequencer::new)
+                                                                           .register(".bad", StraySequencer::new);
+            importer.setBatchSize(10);
+            importer.setWorkerCount(1);
+
+            final BulkImporter.Outcome outcome = importer.importDirectory(dir, "/imports/batch");
+            assertThat(outcome.getImported().size(), is(2));
+            assertThat(outcome.getFailures().size(), is(1));
+            assertThat(outcome.getFailures().containsKey(dir.resolve("writes-outside.bad")), is(true));
+
+            this.session.refresh(false);
+            final Node batch = this.session.getNode("/imports/batch");
+            assertThat(batch.getNode("one/BooksVdb.vdb").getPrimaryNodeType().getName(), is(VdbLexicon.Vdb.VIRTUAL_DATABASE));
+            assertThat(batch.getNode("two/BooksVdb.vdb").getPrimaryNodeType().getName(), is(VdbLexicon.Vdb.VIRTUAL_DATABASE));
+            assertThat(batch.hasNode("writes-outside.bad"), is(false));
+            assertThat(this.session.nodeExists("/stray"), is(false));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Writes a node outside of its output node and then fails.
+     */
+    public static final class StraySequencer extends VdbSequencer {
+
+        @Override
+        public boolean execute(final Property inputProperty, final Node outputNode, final Context context) throws Exception {
+            outputNode.getSession().getRootNode().addNode("stray");
+            throw new Exception("wrote outside of the output node");
+        }
+
+    }
+
+}
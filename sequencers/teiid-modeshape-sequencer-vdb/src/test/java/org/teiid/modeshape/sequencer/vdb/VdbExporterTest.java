@@ -32,8 +32,10 @@ import static org.junit.Assert.fail;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import javax.jcr.Node;
 import org.junit.Test;
+import org.teiid.modeshape.metrics.ExportMetrics;
 import org.teiid.modeshape.sequencer.AbstractSequencerTest;
 import org.teiid.modeshape.sequencer.Result;
 import org.teiid.modeshape.sequencer.vdb.VdbModel.Source;
@@ -107,6 +109,27 @@ public final class VdbExporterTest extends AbstractSequencerTest {
         assertThat( azureService.getModelDefinition(), is( metadata ) );
     }
 
+    @Test
+    public void shouldExportTimingAndSizeData() throws Exception {
+        createNodeWithContentFromFile( "vdb/product-view-vdb.xml", "vdb/product-view-vdb.xml" );
+        final Node vdbNode = getOutputNode( this.rootNode, "vdbs/product-view-vdb.xml" );
+        assertNotNull( vdbNode );
+
+        final VdbExporter exporter = new VdbExporter();
+        final Result result = exporter.execute( vdbNode, null );
+        assertThat( result.wasSuccessful(), is( true ) );
+        assertThat( result.getData( Result.ELAPSED_TIME ), is( instanceOf( Long.class ) ) );
+        assertThat( result.getData( Result.OUTPUT_SIZE ),
+                    is( ( Object )( long )( ( String )result.getOutcome() ).getBytes( "UTF-8" ).length ) );
+        assertThat( ( Long )result.getData( Result.NODES_EXPORTED ) > 1, is( true ) );
+
+        @SuppressWarnings( "unchecked" )
+        final Map< String, Long > phases = ( Map< String, Long > )result.getData( Result.PHASE_TIMES );
+        assertThat( phases.containsKey( ExportMetrics.NODE_TRAVERSAL ), is( true ) );
+        assertThat( phases.containsKey( ExportMetrics.XML_WRITE ), is( true ) );
+        assertThat( phases.containsKey( ExportMetrics.PRETTY_PRINT ), is( true ) );
+    }
+
     @Test
     public void shouldExportDynamicProductVdb() throws Exception {
         createNodeWithContentFromFile( "vdb/product-view-vdb.xml", "vdb/product-view-vdb.xml" );
@@ -29,18 +29,28 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import javax.jcr.Binary;
 import org.junit.Test;
+import org.modeshape.common.util.IoUtil;
+import org.modeshape.jcr.api.ValueFactory;
+import org.modeshape.jcr.api.sequencer.Sequencer.Context;
 import org.teiid.modeshape.sequencer.vdb.VdbDataRole.Permission;
 import org.teiid.modeshape.sequencer.vdb.VdbModel.Severity;
 import org.teiid.modeshape.sequencer.vdb.VdbModel.Source;
 import org.teiid.modeshape.sequencer.vdb.VdbModel.ValidationMarker;
 import org.teiid.modeshape.sequencer.vdb.lexicon.CoreLexicon;
+import org.teiid.modeshape.util.XmlUtil;
 
 /**
  * 
@@ -338,6 +348,198 @@ public class VdbManifestTest {
         }
     }
     
+    @Test
+    public void shouldOnlyReadRequestedSections() throws Exception {
+        VdbManifest manifest = VdbManifest.read(streamFor("/model/books/BooksVDB_vdb.xml"),
+                                                null,
+                                                EnumSet.noneOf(VdbManifest.Section.class));
+        assertThat(manifest.getName(), is("BooksVDB"));
+        assertThat(manifest.getVersion(), is(2));
+        assertThat(manifest.getProperties().get("query-timeout"), is("10000"));
+        assertThat(manifest.getModels().size(), is(3));
+        assertThat(manifest.getModels().get(1).getSources().size(), is(1));
+        assertThat(manifest.getModels().get(2).getImports().size(), is(1));
+        assertThat(manifest.getModels().get(2).getProblems().isEmpty(), is(true));
+        assertThat(manifest.getTranslators().isEmpty(), is(true));
+        assertThat(manifest.getDataRoles().isEmpty(), is(true));
+        assertThat(manifest.getEntries().isEmpty(), is(true));
+
+        manifest = VdbManifest.read(streamFor("/model/books/BooksVDB_vdb.xml"),
+                                    null,
+                                    EnumSet.of(VdbManifest.Section.DATA_ROLES, VdbManifest.Section.ENTRIES));
+        assertThat(manifest.getEntries().size(), is(2));
+        assertThat(manifest.getModels().size(), is(3));
+        assertThat(manifest.getDataRoles().size(), is(1));
+        assertThat(manifest.getDataRoles().get(0).getPermissions().size(), is(3));
+        assertThat(manifest.getTranslators().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldSkipModelDefinitionsWhenNotRequested() throws Exception {
+        VdbManifest manifest = VdbManifest.read(streamFor("/vdb/declarativeModels-vdb.xml"),
+                                                null,
+                                                EnumSet.noneOf(VdbManifest.Section.class));
+        assertThat(manifest.getModels().size(), is(2));
+        VdbModel model = manifest.getModels().get(1);
+        assertThat(model.getName(), is("twitterview"));
+        assertThat(model.getMetadataType(), is(VdbModel.DDL_METADATA_TYPE));
+        assertThat(model.getModelDefinition(), is((String)null));
+
+        manifest = VdbManifest.read(streamFor("/vdb/declarativeModels-vdb.xml"),
+                                    null,
+                                    EnumSet.of(VdbManifest.Section.MODEL_DEFINITIONS));
+        assertThat(manifest.getModels().get(1).getModelDefinition().startsWith("CREATE VIRTUAL PROCEDURE"), is(true));
+    }
+
+    @Test
+    public void shouldReadManifestWithEachAvailableXmlBackend() throws Exception {
+        final XmlUtil.Backend original = XmlUtil.getBackend();
+
+        try {
+            for (final XmlUtil.Backend backend : XmlUtil.Backend.values()) {
+                if (backend.isAvailable()) {
+                    XmlUtil.setBackend(backend);
+                    final VdbManifest manifest = VdbManifest.read(streamFor("/model/books/BooksVDB_vdb.xml"), null);
+                    assertThat(manifest.getModels().size(), is(3));
+                    assertThat(manifest.getDataRoles().get(0).getPermissions().size(), is(3));
+                }
+            }
+        } finally {
+            XmlUtil.setBackend(original);
+        }
+    }
+
+    @Test
+    public void shouldSpoolLargeModelDefinitions() throws Exception {
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                           + "<vdb name=\"spooled\" version=\"1\">\n"
+                           + "    <model name=\"first\" type=\"VIRTUAL\">\n"
+                           + "        <metadata type=\"DDL\"><![CDATA[\n"
+                           + "            CREATE VIEW  \"caf\u00e9 \ud83d\ude00\"   (\n"
+                           + "                id  integer,\tname string\n"
+                           + "            ) AS SELECT 1, 'x';\n"
+                           + "        ]]>  <!-- not DDL -->  &amp; more\r\n\ttext   \n"
+                           + "        </metadata>\n"
+                           + "    </model>\n"
+                           + "    <model name=\"second\" type=\"VIRTUAL\">\n"
+                           + "        <metadata type=\"DDL\">CREATE VIEW v2 AS SELECT 2;</metadata>\n"
+                           + "    </model>\n"
+                           + "</vdb>\n";
+        final byte[] content = xml.getBytes(StandardCharsets.UTF_8);
+        final VdbManifest expected = VdbManifest.read(new ByteArrayInputStream(content), null);
+        assertThat(expected.getModels().get(0).isModelDefinitionSpooled(), is(false));
+        System.setProperty(VdbManifest.SPOOL_THRESHOLD_PROPERTY, "16");
+
+        try {
+            // not spooled without a context
+            assertThat(VdbManifest.read(new ByteArrayInputStream(content), null).getModels().get(0).isModelDefinitionSpooled(),
+                       is(false));
+
+            final VdbManifest manifest = VdbManifest.read(new ByteArrayInputStream(content), binaryContext());
+            assertThat(manifest.getModels().size(), is(2));
+
+            for (int i = 0; i < 2; ++i) {
+                final VdbModel model = manifest.getModels().get(i);
+                final String definition = expected.getModels().get(i).getModelDefinition();
+                assertThat(model.getName(), is(expected.getModels().get(i).getName()));
+                assertThat(model.isModelDefinitionSpooled(), is(true));
+                assertThat(model.getModelDefinition(), is(definition));
+
+                try (final Reader reader = model.openModelDefinition()) {
+                    assertThat(IoUtil.read(reader), is(definition));
+                }
+            }
+        } finally {
+            System.clearProperty(VdbManifest.SPOOL_THRESHOLD_PROPERTY);
+        }
+    }
+
+    @Test
+    public void shouldFreezeManifestAfterReading() throws Exception {
+        VdbManifest manifest = VdbManifest.read(streamFor("/model/books/BooksVDB_vdb.xml"), null);
+        VdbModel model = manifest.getModels().get(0);
+        VdbTranslator translator = manifest.getTranslators().get(0);
+        VdbDataRole dataRole = manifest.getDataRoles().get(0);
+
+        // frozen property maps behave like maps
+        assertThat(model.getProperties().containsKey("indexName"), is(true));
+        assertThat(model.getProperties().get("bogus"), is((String)null));
+        assertThat(model.getProperties().entrySet().size(), is(2));
+        assertThat(translator.getProperties().keySet().contains("nameInSource"), is(true));
+
+        // property names and translator names are interned
+        assertTrue(translator.getType() == "mysql5");
+        assertTrue(model.getProperties().keySet().contains("modelClass"));
+        for (String name : model.getProperties().keySet()) {
+            assertTrue(name == name.intern());
+        }
+
+        assertUnsupported(() -> manifest.getModels().add(model));
+        assertUnsupported(() -> manifest.getProperties().put("a", "b"));
+        assertUnsupported(() -> model.getProperties().remove("indexName"));
+        assertUnsupported(() -> model.getImports().clear());
+        assertUnsupported(() -> translator.getProperties().clear());
+        assertUnsupported(() -> dataRole.getPermissions().remove(0));
+        assertUnsupported(() -> dataRole.getMappedRoleNames().add("Anvil"));
+
+        assertFrozen(() -> manifest.setDescription("changed"));
+        assertFrozen(() -> model.setVisible(true));
+        assertFrozen(() -> model.addImport("changed"));
+        assertFrozen(() -> translator.setDescription("changed"));
+        assertFrozen(() -> dataRole.setGrantAll(true));
+        assertFrozen(() -> dataRole.getPermissions().get(0).allowCreate(true));
+    }
+
+    @Test
+    public void shouldNotFreezeManifestBeingBuilt() throws Exception {
+        VdbManifest manifest = new VdbManifest("built");
+        VdbModel model = new VdbModel("model", null, "model.xmi");
+        model.getProperties().put("modelClass", "Relational");
+        manifest.getModels().add(model);
+        manifest.setDescription("description");
+        assertThat(manifest.getModels().size(), is(1));
+        assertThat(manifest.modelsInDependencyOrder().iterator().next(), is(model));
+    }
+
+    private void assertFrozen( Runnable modification ) {
+        try {
+            modification.run();
+            fail("Expected manifest object to be frozen");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private void assertUnsupported( Runnable modification ) {
+        try {
+            modification.run();
+            fail("Expected manifest collection to be immutable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    /**
+     * @return a context whose value factory creates binaries held in memory
+     */
+    private static Context binaryContext() {
+        final ValueFactory valueFactory = (ValueFactory)Proxy.newProxyInstance(VdbManifestTest.class.getClassLoader(),
+                                                                               new Class<?>[] {ValueFactory.class},
+                                                                               (proxy, method, args) -> {
+            final byte[] bytes = IoUtil.readBytes((InputStream)args[0]);
+            return Proxy.newProxyInstance(VdbManifestTest.class.getClassLoader(),
+                                          new Class<?>[] {Binary.class},
+                                          (binary, binaryMethod, binaryArgs) -> {
+                return ("getStream".equals(binaryMethod.getName()) ? new ByteArrayInputStream(bytes) : null);
+            });
+        });
+
+        return (Context)Proxy.newProxyInstance(VdbManifestTest.class.getClassLoader(),
+                                               new Class<?>[] {Context.class},
+                                               (proxy, method, args) -> ("valueFactory".equals(method.getName()) ? valueFactory
+                                                                                                                 : null));
+    }
+
     private InputStream streamFor( String resourcePath ) throws Exception {
         InputStream istream = getClass().getResourceAsStream(resourcePath);
         assertThat(istream, is(notNullValue()));
@@ -22,6 +22,7 @@
 package org.teiid.modeshape.sequencer.vdb;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
@@ -35,11 +36,16 @@ import org.apache.log4j.Logger;
 import org.junit.Test;
 import org.modeshape.jcr.api.JcrConstants;
 import org.modeshape.jcr.api.observation.Event;
+import org.teiid.modeshape.metrics.DefaultMetricsRegistry;
+import org.teiid.modeshape.metrics.Metrics;
+import org.teiid.modeshape.metrics.SequencingMetrics;
 import org.teiid.modeshape.sequencer.AbstractSequencerTest;
+import org.teiid.modeshape.sequencer.output.OutputCache;
 import org.teiid.modeshape.sequencer.vdb.lexicon.CoreLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.RelationalLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.TransformLexicon;
 import org.teiid.modeshape.sequencer.vdb.lexicon.VdbLexicon;
+import org.teiid.modeshape.util.SequencingBudget;
 
 public final class VdbSequencerTest extends AbstractSequencerTest {
 
@@ -817,6 +823,215 @@ public final class VdbSequencerTest extends AbstractSequencerTest {
         assertNotNull(getOutputNode(this.rootNode, "vdbs/third.vdb"));
     }
 
+    @Test
+    public void shouldRecordSequencingMetrics() throws Exception {
+        final DefaultMetricsRegistry registry = Metrics.getDefaultRegistry();
+        final String sequenceTimer = "VdbSequencer." + SequencingMetrics.SEQUENCE;
+        final String modelReadTimer = "ModelSequencer." + SequencingMetrics.MODEL_READ;
+        final String nodesCounter = "VdbSequencer." + SequencingMetrics.NODES_WRITTEN;
+        final long numSequenced = registry.getTimerCount(sequenceTimer);
+        final long numModelsRead = registry.getTimerCount(modelReadTimer);
+        final long numNodes = registry.getCounter(nodesCounter);
+        Metrics.setOutputCounting(true);
+
+        try {
+            createNodeWithContentFromFile("metrics.vdb", "vdb/BooksVdb.vdb");
+            assertNotNull(getOutputNode(this.rootNode, "vdbs/metrics.vdb"));
+        } finally {
+            Metrics.setOutputCounting(false);
+        }
+
+        assertThat(registry.getTimerCount(sequenceTimer), is(greaterThan(numSequenced)));
+        assertThat(registry.getTimerCount(modelReadTimer), is(greaterThan(numModelsRead)));
+        assertThat(registry.getCounter(nodesCounter), is(greaterThan(numNodes)));
+        assertThat(registry.getCounter("VdbSequencer." + SequencingMetrics.BYTES_READ), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void shouldNotCountOutputByDefault() throws Exception {
+        final DefaultMetricsRegistry registry = Metrics.getDefaultRegistry();
+        final String sequenceTimer = "VdbSequencer." + SequencingMetrics.SEQUENCE;
+        final String nodesCounter = "VdbSequencer." + SequencingMetrics.NODES_WRITTEN;
+        final long numSequenced = registry.getTimerCount(sequenceTimer);
+        final long numNodes = registry.getCounter(nodesCounter);
+
+        createNodeWithContentFromFile("uncounted.vdb", "vdb/BooksVdb.vdb");
+        assertNotNull(getOutputNode(this.rootNode, "vdbs/uncounted.vdb"));
+
+        assertThat(registry.getTimerCount(sequenceTimer), is(greaterThan(numSequenced)));
+        assertThat(registry.getCounter(nodesCounter), is(numNodes));
+    }
+
+    @Test
+    public void shouldSequenceVdbWithPipelinedModelReads() throws Exception {
+        System.setProperty(VdbSequencer.PIPELINED_MODEL_READ_PROPERTY, "true");
+
+        try {
+            createNodeWithContentFromFile("pipelined.vdb", "vdb/Financials_Linux.vdb");
+            final Node outputNode = getOutputNode(this.rootNode, "vdbs/pipelined.vdb");
+            assertNotNull(outputNode);
+            assertThat(outputNode.getNodes().getSize(), is(5L));
+
+            final Node modelNode = outputNode.getNode("US_CustomerAccounts_VBL.xmi");
+            assertThat(modelNode.getPrimaryNodeType().getName(), is(VdbLexicon.Vdb.MODEL));
+            assertThat(modelNode.getProperty(VdbLexicon.Model.PATH_IN_VDB).getString(),
+                       is("Financials/VirtualBaseLayer/US_CustomerAccounts_VBL.xmi"));
+        } finally {
+            System.clearProperty(VdbSequencer.PIPELINED_MODEL_READ_PROPERTY);
+        }
+    }
+
+    @Test
+    public void shouldStreamModelsWhenVdbIsAboveLowMemoryThreshold() throws Exception {
+        final DefaultMetricsRegistry registry = Metrics.getDefaultRegistry();
+        final String lowMemoryCounter = "ModelSequencer." + SequencingMetrics.LOW_MEMORY;
+        final long numLowMemory = registry.getCounter(lowMemoryCounter);
+        System.setProperty(SequencingBudget.LOW_MEMORY_THRESHOLD_PROPERTY, "1");
+
+        try {
+            createNodeWithContentFromFile("low-memory.vdb", "vdb/Financials_Linux.vdb");
+            final Node outputNode = getOutputNode(this.rootNode, "vdbs/low-memory.vdb");
+            assertNotNull(outputNode);
+            assertThat(outputNode.getNodes().getSize(), is(5L));
+
+            final Node modelNode = outputNode.getNode("US_CustomerAccounts_VBL.xmi");
+            assertThat(modelNode.getPrimaryNodeType().getName(), is(VdbLexicon.Vdb.MODEL));
+            assertThat(registry.getCounter(lowMemoryCounter), is(greaterThan(numLowMemory)));
+        } finally {
+            System.clearProperty(SequencingBudget.LOW_MEMORY_THRESHOLD_PROPERTY);
+        }
+
+        assertThat(SequencingBudget.shared().getAvailable(), is(SequencingBudget.shared().getCapacity()));
+    }
+
+    @Test
+    public void shouldFailToSequenceVdbWhenEntryIsLargerThanMaximum() throws Exception {
+        System.setProperty(SequencingBudget.MAX_ENTRY_SIZE_PROPERTY, "16");
+
+        try {
+            Logger.getLogger(VdbSequencerTest.class).info("\n*** Below exception is expected ***\n");
+            createNodeWithContentFromFile("too-large.vdb", "vdb/BooksVdb.vdb");
+            assertNull(getOutputNode(this.rootNode, "vdbs/too-large.vdb", 5));
+        } finally {
+            System.clearProperty(SequencingBudget.MAX_ENTRY_SIZE_PROPERTY);
+        }
+
+        assertThat(this.sequencingEvents.size(), is(1));
+        final Event event = this.sequencingEvents.values().iterator().next();
+        assertThat(event.getType(), is(Event.Sequencing.NODE_SEQUENCING_FAILURE));
+    }
+
+    @Test
+    public void shouldSequenceSpooledModelDefinition() throws Exception {
+        final String expected = VdbManifest.read(resourceStream("vdb/patients-vdb.xml"), null).getModels().get(0)
+                                           .getModelDefinition();
+        final VdbManifestCache cache = VdbManifestCache.shared();
+        cache.clear();
+        System.setProperty(VdbManifest.SPOOL_THRESHOLD_PROPERTY, "16");
+
+        try {
+            createNodeWithContentFromFile("spooled-patients-vdb.xml", "vdb/patients-vdb.xml");
+            final Node outputNode = getOutputNode(this.rootNode, "vdbs/spooled-patients-vdb.xml");
+            assertNotNull(outputNode);
+            assertThat(outputNode.getNode("Patients").getProperty(VdbLexicon.Model.MODEL_DEFINITION).getString(), is(expected));
+
+            // the spooled definition belongs to the session that sequenced it
+            assertThat(cache.size(), is(0));
+        } finally {
+            System.clearProperty(VdbManifest.SPOOL_THRESHOLD_PROPERTY);
+        }
+    }
+
+    @Test
+    public void shouldReuseCachedManifestWhenSequencingSameVdbAgain() throws Exception {
+        final VdbManifestCache cache = VdbManifestCache.shared();
+        final DefaultMetricsRegistry registry = Metrics.getDefaultRegistry();
+        final String hitCounter = "VdbManifestCache." + SequencingMetrics.MANIFEST_CACHE_HIT;
+        final String missCounter = "VdbManifestCache." + SequencingMetrics.MANIFEST_CACHE_MISS;
+        final long numHits = registry.getCounter(hitCounter);
+        final long numMisses = registry.getCounter(missCounter);
+        cache.setMaxSize(4);
+        cache.clear();
+
+        try {
+            createNodeWithContentFromFile("first.vdb", "vdb/BooksVdb.vdb");
+            final Node firstNode = getOutputNode(this.rootNode, "vdbs/first.vdb");
+            assertNotNull(firstNode);
+
+            createNodeWithContentFromFile("first-patients-vdb.xml", "vdb/patients-vdb.xml");
+            assertNotNull(getOutputNode(this.rootNode, "vdbs/first-patients-vdb.xml"));
+            assertThat(cache.size(), is(2));
+
+            createNodeWithContentFromFile("second.vdb", "vdb/BooksVdb.vdb");
+            final Node secondNode = getOutputNode(this.rootNode, "vdbs/second.vdb");
+            assertNotNull(secondNode);
+
+            createNodeWithContentFromFile("second-patients-vdb.xml", "vdb/patients-vdb.xml");
+            final Node patientsNode = getOutputNode(this.rootNode, "vdbs/second-patients-vdb.xml");
+            assertNotNull(patientsNode);
+
+            assertThat(cache.size(), is(2));
+            assertThat(registry.getCounter(hitCounter), is(numHits + 2));
+            assertThat(registry.getCounter(missCounter), is(numMisses + 2));
+            assertThat(secondNode.getProperty(VdbLexicon.Vdb.NAME).getString(),
+                       is(firstNode.getProperty(VdbLexicon.Vdb.NAME).getString()));
+            assertThat(secondNode.getNodes().getSize(), is(firstNode.getNodes().getSize()));
+            assertThat(patientsNode.getNodes().getSize(), is(2L));
+        } finally {
+            cache.setMaxSize(VdbManifestCache.DEFAULT_MAX_SIZE);
+        }
+    }
+
+    @Test
+    public void shouldReplayCachedOutputWhenSequencingSameVdbAgain() throws Exception {
+        final OutputCache cache = useOutputCache();
+        final DefaultMetricsRegistry registry = Metrics.getDefaultRegistry();
+        final String hitCounter = "OutputCache." + SequencingMetrics.OUTPUT_CACHE_HIT;
+        final long numHits = registry.getCounter(hitCounter);
+        createNodeWithContentFromFile("first.vdb", "vdb/BooksVdb.vdb");
+        final Node firstNode = getOutputNode(this.rootNode, "vdbs/first.vdb");
+        assertNotNull(firstNode);
+        assertThat(cache.size(), is(greaterThan(0L)));
+
+        createNodeWithContentFromFile("second.vdb", "vdb/BooksVdb.vdb");
+        final Node secondNode = getOutputNode(this.rootNode, "vdbs/second.vdb");
+        assertNotNull(secondNode);
+
+        assertThat(registry.getCounter(hitCounter), is(numHits + 1));
+        assertThat(secondNode.getPrimaryNodeType().getName(), is(VdbLexicon.Vdb.VIRTUAL_DATABASE));
+        assertThat(secondNode.getProperty(VdbLexicon.Vdb.ORIGINAL_FILE).getString(), is(secondNode.getPath()));
+        assertThat(secondNode.getProperty(VdbLexicon.Vdb.NAME).getString(),
+                   is(firstNode.getProperty(VdbLexicon.Vdb.NAME).getString()));
+        assertThat(countNodes(secondNode), is(countNodes(firstNode)));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedManifest() throws Exception {
+        final VdbManifestCache cache = new VdbManifestCache(1);
+        final VdbManifest declarative = cache.read(resourceStream("vdb/declarativeModels-vdb.xml"), null);
+        assertThat(cache.read(resourceStream("vdb/declarativeModels-vdb.xml"), null) == declarative, is(true));
+
+        cache.read(resourceStream("vdb/patients-vdb.xml"), null);
+        assertThat(cache.size(), is(1));
+        assertThat(cache.read(resourceStream("vdb/declarativeModels-vdb.xml"), null) == declarative, is(false));
+    }
+
+    @Test
+    public void shouldParseManifestLargerThanMaxContentSizeWithoutCaching() throws Exception {
+        final VdbManifestCache cache = new VdbManifestCache(4, 64);
+
+        // size not known so found to be too large while buffering
+        final VdbManifest first = cache.read(resourceStream("vdb/patients-vdb.xml"), null);
+        assertThat(first.getName(), is("patients"));
+        assertThat(cache.size(), is(0));
+
+        // declared size too large so not buffered
+        final VdbManifest second = cache.read(resourceStream("vdb/patients-vdb.xml"), 65, null);
+        assertThat(second.getName(), is("patients"));
+        assertThat(cache.size(), is(0));
+        assertThat(second == first, is(false));
+    }
+
     @Test
     public void shouldSequenceModelValidationErrorsWithNoPath() throws Exception {
         createNodeWithContentFromFile("QT_Vanilla_Hive_Push.vdb", "vdb/QT_Vanilla_Hive_Push.vdb");
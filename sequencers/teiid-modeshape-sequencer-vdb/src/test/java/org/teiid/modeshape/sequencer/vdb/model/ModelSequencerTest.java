@@ -29,9 +29,14 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
 import javax.jcr.Value;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
@@ -1039,4 +1044,77 @@ public class ModelSequencerTest extends AbstractSequencerTest {
         createNodeWithContentFromFile("third.xmi", "model/BQT1.xmi");
         assertNotNull(getOutputNode(this.rootNode, "models/third.xmi"));
     }
+
+    @Test
+    public void shouldWriteSameNodesWhenStreamingModelObjects() throws Exception {
+        final String[] models = { "model/modelExtensionDefinition/ModelWithTwoMeds.xmi", "model/parts/PartsVirtual.xmi",
+            "model/BQT1.xmi" };
+
+        for (final String model : models) {
+            final String name = model.substring(model.lastIndexOf('/') + 1);
+            createNodeWithContentFromFile("batch-" + name, model);
+            final Node batchNode = getOutputNode(this.rootNode, "models/batch-" + name);
+            assertNotNull(batchNode);
+
+            System.setProperty(ModelSequencer.STREAMING_PROPERTY, "true");
+
+            try {
+                createNodeWithContentFromFile("streamed-" + name, model);
+            } finally {
+                System.clearProperty(ModelSequencer.STREAMING_PROPERTY);
+            }
+
+            final Node streamedNode = getOutputNode(this.rootNode, "models/streamed-" + name);
+            assertNotNull(streamedNode);
+            assertThat(dump(streamedNode, streamedNode), is(dump(batchNode, batchNode)));
+        }
+    }
+
+    /**
+     * @return a description of the node and its descendants that does not depend on where the model was sequenced
+     */
+    private static Map<String, String> dump( final Node node,
+                                             final Node modelNode ) throws Exception {
+        final Map<String, String> result = new TreeMap<String, String>();
+        final String path = node.getPath().substring(modelNode.getPath().length());
+        result.put(path + "/[type]", node.getPrimaryNodeType().getName());
+
+        final String[] mixins = new String[node.getMixinNodeTypes().length];
+
+        for (int i = 0; i < mixins.length; ++i) {
+            mixins[i] = node.getMixinNodeTypes()[i].getName();
+        }
+
+        Arrays.sort(mixins);
+        result.put(path + "/[mixins]", Arrays.toString(mixins));
+
+        for (final PropertyIterator itr = node.getProperties(); itr.hasNext();) {
+            final Property property = itr.nextProperty();
+
+            if (property.getName().startsWith("jcr:") || property.getName().startsWith("mode:")
+                || CoreLexicon.JcrId.ORIGINAL_FILE.equals(property.getName())) {
+                continue;
+            }
+
+            final Value[] values = property.isMultiple() ? property.getValues() : new Value[] { property.getValue() };
+            final String[] text = new String[values.length];
+
+            for (int i = 0; i < values.length; ++i) {
+                if ((values[i].getType() == PropertyType.WEAKREFERENCE) || (values[i].getType() == PropertyType.REFERENCE)) {
+                    text[i] = node.getSession().getNodeByIdentifier(values[i].getString()).getPath()
+                                  .substring(modelNode.getPath().length());
+                } else {
+                    text[i] = values[i].getString();
+                }
+            }
+
+            result.put(path + "/@" + property.getName(), Arrays.toString(text));
+        }
+
+        for (final NodeIterator itr = node.getNodes(); itr.hasNext();) {
+            result.putAll(dump(itr.nextNode(), modelNode));
+        }
+
+        return result;
+    }
 }
@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.vdb.xmi;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class XmiReaderTest {
+
+    private static List<XmiElement> read( final String xml ) throws Exception {
+        return new XmiReader("test.xmi").read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void shouldKeepAllTextOfElementReadInFragments() throws Exception {
+        final String sql = "SELECT a, b FROM t WHERE a &lt; b AND b &gt; 5 &amp;&amp; c = 'x'";
+        final List<XmiElement> elements = read("<root><sql>" + sql + "</sql></root>");
+        assertThat(elements.size(), is(1));
+        assertThat(elements.get(0).getChildren().get(0).getValue(),
+                   is("SELECT a, b FROM t WHERE a < b AND b > 5 && c = 'x'"));
+    }
+
+    @Test
+    public void shouldIgnoreWhitespaceBetweenElements() throws Exception {
+        final List<XmiElement> elements = read("<root>\n  <child>value</child>\n</root>");
+        assertThat(elements.get(0).getValue(), is((String)null));
+        assertThat(elements.get(0).getChildren().get(0).getValue(), is("value"));
+    }
+
+}
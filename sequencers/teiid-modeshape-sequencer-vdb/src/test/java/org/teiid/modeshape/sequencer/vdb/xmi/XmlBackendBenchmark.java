@@ -0,0 +1,163 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.vdb.xmi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.teiid.modeshape.sequencer.vdb.VdbManifest;
+import org.teiid.modeshape.util.XmlUtil;
+import org.teiid.modeshape.util.XmlUtil.Backend;
+
+/**
+ * Measures the throughput of each available {@link Backend StAX backend} reading the VDB manifests and XMI models bundled with
+ * the tests, both loose and inside the test VDB archives. Not run as part of the build. To run after <code>mvn test-compile</code>:
+ *
+ * <pre>
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.teiid.modeshape.sequencer.vdb.xmi.XmlBackendBenchmark [iterations]
+ * </pre>
+ *
+ * Woodstox and Aalto are only measured when their jars are added to the classpath.
+ */
+public final class XmlBackendBenchmark {
+
+    private static final int DEFAULT_ITERATIONS = 50;
+
+    private final List<byte[]> manifests = new ArrayList<>();
+    private final List<byte[]> models = new ArrayList<>();
+
+    private static byte[] read( final InputStream stream ) throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+
+        for (int count = stream.read(buffer); count != -1; count = stream.read(buffer)) {
+            content.write(buffer, 0, count);
+        }
+
+        return content.toByteArray();
+    }
+
+    private static long size( final List<byte[]> documents ) {
+        long size = 0;
+
+        for (final byte[] document : documents) {
+            size += document.length;
+        }
+
+        return size;
+    }
+
+    private void load( final Path resources ) throws IOException {
+        final List<Path> files;
+
+        try (final Stream<Path> stream = Files.walk(resources)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        for (final Path file : files) {
+            final String name = file.getFileName().toString();
+
+            if (name.endsWith("vdb.xml")) {
+                this.manifests.add(Files.readAllBytes(file));
+            } else if (name.endsWith(".xmi")) {
+                this.models.add(Files.readAllBytes(file));
+            } else if (name.endsWith(".vdb")) {
+                try (final ZipInputStream archive = new ZipInputStream(Files.newInputStream(file))) {
+                    for (ZipEntry entry = archive.getNextEntry(); entry != null; entry = archive.getNextEntry()) {
+                        if (entry.getName().endsWith("vdb.xml")) {
+                            this.manifests.add(read(archive));
+                        } else if (entry.getName().endsWith(".xmi")) {
+                            this.models.add(read(archive));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void readAll() throws Exception {
+        for (final byte[] manifest : this.manifests) {
+            VdbManifest.read(new ByteArrayInputStream(manifest), null);
+        }
+
+        for (final byte[] model : this.models) {
+            new XmiReader("benchmark.xmi").read(new ByteArrayInputStream(model));
+        }
+    }
+
+    private void run( final Backend backend,
+                      final int iterations ) throws Exception {
+        XmlUtil.setBackend(backend);
+
+        // warm up
+        for (int i = 0; i < Math.max(1, iterations / 5); ++i) {
+            readAll();
+        }
+
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; ++i) {
+            readAll();
+        }
+
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        final int documents = (this.manifests.size() + this.models.size()) * iterations;
+        final double megabytes = ((size(this.manifests) + size(this.models)) * iterations) / (1024.0 * 1024.0);
+        System.out.printf("%-10s %10.1f docs/s %10.2f MB/s%n", backend, documents / seconds, megabytes / seconds);
+    }
+
+    public static void main( final String[] args ) throws Exception {
+        final int iterations = (args.length == 0) ? DEFAULT_ITERATIONS : Integer.parseInt(args[0]);
+        final XmlBackendBenchmark benchmark = new XmlBackendBenchmark();
+        benchmark.load(Paths.get("src/test/resources"));
+        System.out.printf("%d manifests, %d XMI models, %d iterations%n",
+                          benchmark.manifests.size(),
+                          benchmark.models.size(),
+                          iterations);
+
+        final Backend original = XmlUtil.getBackend();
+
+        try {
+            for (final Backend backend : Backend.values()) {
+                if (backend.isAvailable()) {
+                    benchmark.run(backend, iterations);
+                } else {
+                    System.out.printf("%-10s not available%n", backend);
+                }
+            }
+        } finally {
+            XmlUtil.setBackend(original);
+        }
+    }
+
+}
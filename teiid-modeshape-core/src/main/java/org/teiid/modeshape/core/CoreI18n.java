@@ -29,9 +29,22 @@ import org.modeshape.common.i18n.I18n;
  */
 public final class CoreI18n {
 
+    public static I18n archiveEntryCompressionRatio;
+    public static I18n archiveEntryTooLarge;
+    public static I18n bulkImportFailed;
+    public static I18n bulkImportNoSequencer;
+    public static I18n bulkImportNotSequenced;
+    public static I18n bulkImportSaveFailed;
     public static I18n errorConstructingExportResult;
     public static I18n errorDuringExport;
+    public static I18n outputBinaryTooLarge;
+    public static I18n outputCacheUnavailable;
+    public static I18n outputCacheWriteFailed;
+    public static I18n outputNotCapturable;
+    public static I18n outputReferenceNotWritten;
+    public static I18n unknownXmlBackend;
     public static I18n unmodifiableResultData;
+    public static I18n xmlBackendNotAvailable;
 
     /**
      * Don't allow construction from outside this class.
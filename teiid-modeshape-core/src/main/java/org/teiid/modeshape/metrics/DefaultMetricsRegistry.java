@@ -0,0 +1,175 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.modeshape.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.teiid.modeshape.util.StringUtil;
+
+/**
+ * An in-memory, thread-safe {@link MetricsRegistry registry} that aggregates counters and timers. This is the registry used
+ * when no other registry has been {@link Metrics#setRegistry(MetricsRegistry) installed}.
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry, DefaultMetricsRegistryMXBean {
+
+    private final ConcurrentMap< String, LongAdder > counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap< String, TimerStats > timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param name
+     *        the name of the counter (cannot be <code>null</code> or empty)
+     * @return the current counter value (zero if the counter has never been incremented)
+     */
+    public long getCounter( final String name ) {
+        final LongAdder counter = this.counters.get( StringUtil.requireNonEmpty( name, "name" ) );
+        return ( ( counter == null ) ? 0 : counter.sum() );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.teiid.modeshape.metrics.DefaultMetricsRegistryMXBean#getCounters()
+     */
+    @Override
+    public Map< String, Long > getCounters() {
+        final Map< String, Long > result = new TreeMap<>();
+        this.counters.forEach( ( name, counter ) -> result.put( name, counter.sum() ) );
+        return result;
+    }
+
+    /**
+     * @param name
+     *        the name of the timer (cannot be <code>null</code> or empty)
+     * @return the number of timed operations (zero if the timer has never been used)
+     */
+    public long getTimerCount( final String name ) {
+        final TimerStats stats = this.timers.get( StringUtil.requireNonEmpty( name, "name" ) );
+        return ( ( stats == null ) ? 0 : stats.count.sum() );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.teiid.modeshape.metrics.DefaultMetricsRegistryMXBean#getTimerCounts()
+     */
+    @Override
+    public Map< String, Long > getTimerCounts() {
+        final Map< String, Long > result = new TreeMap<>();
+        this.timers.forEach( ( name, stats ) -> result.put( name, stats.count.sum() ) );
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.teiid.modeshape.metrics.DefaultMetricsRegistryMXBean#getTimerMaxMillis()
+     */
+    @Override
+    public Map< String, Long > getTimerMaxMillis() {
+        final Map< String, Long > result = new TreeMap<>();
+        this.timers.forEach( ( name, stats ) -> result.put( name, TimeUnit.NANOSECONDS.toMillis( stats.maxNanos.get() ) ) );
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.teiid.modeshape.metrics.DefaultMetricsRegistryMXBean#getTimerTotalMillis()
+     */
+    @Override
+    public Map< String, Long > getTimerTotalMillis() {
+        final Map< String, Long > result = new TreeMap<>();
+        this.timers.forEach( ( name, stats ) -> result.put( name, TimeUnit.NANOSECONDS.toMillis( stats.totalNanos.sum() ) ) );
+        return result;
+    }
+
+    /**
+     * @param name
+     *        the name of the timer (cannot be <code>null</code> or empty)
+     * @return the total time in nanoseconds of all timed operations (zero if the timer has never been used)
+     */
+    public long getTimerTotalNanos( final String name ) {
+        final TimerStats stats = this.timers.get( StringUtil.requireNonEmpty( name, "name" ) );
+        return ( ( stats == null ) ? 0 : stats.totalNanos.sum() );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.teiid.modeshape.metrics.MetricsRegistry#incrementCounter(java.lang.String, long)
+     */
+    @Override
+    public void incrementCounter( final String name,
+                                  final long amount ) {
+        this.counters.computeIfAbsent( name, key -> new LongAdder() ).add( amount );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.teiid.modeshape.metrics.MetricsRegistry#recordTime(java.lang.String, long)
+     */
+    @Override
+    public void recordTime( final String name,
+                            final long elapsedNanos ) {
+        final TimerStats stats = this.timers.computeIfAbsent( name, key -> new TimerStats() );
+        stats.count.increment();
+        stats.totalNanos.add( elapsedNanos );
+        stats.maxNanos.accumulate( elapsedNanos );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.teiid.modeshape.metrics.DefaultMetricsRegistryMXBean#reset()
+     */
+    @Override
+    public void reset() {
+        this.counters.clear();
+        this.timers.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "counters=" + getCounters() + ", timer totals (ms)=" + getTimerTotalMillis();
+    }
+
+    private static final class TimerStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator( Math::max, 0 );
+        private final LongAdder totalNanos = new LongAdder();
+
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.modeshape.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of the {@link DefaultMetricsRegistry}.
+ */
+public interface DefaultMetricsRegistryMXBean {
+
+    /**
+     * @return the current value of each counter keyed by counter name (never <code>null</code>)
+     */
+    Map< String, Long > getCounters();
+
+    /**
+     * @return the number of timed operations keyed by timer name (never <code>null</code>)
+     */
+    Map< String, Long > getTimerCounts();
+
+    /**
+     * @return the longest timed operation in milliseconds keyed by timer name (never <code>null</code>)
+     */
+    Map< String, Long > getTimerMaxMillis();
+
+    /**
+     * @return the total time in milliseconds of all timed operations keyed by timer name (never <code>null</code>)
+     */
+    Map< String, Long > getTimerTotalMillis();
+
+    /**
+     * Clears all counters and timers.
+     */
+    void reset();
+
+}
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.metrics;
+
+/**
+ * The names of the timers and counters reported by the exporters. The same phases are also reported per export as
+ * {@link org.teiid.modeshape.sequencer.Result result} data.
+ *
+ * @see MetricsRecorder
+ */
+public final class ExportMetrics {
+
+    /**
+     * The counter of bytes of export output. Value is {@value}.
+     */
+    public static final String BYTES_WRITTEN = "bytes-written";
+
+    /**
+     * The timer of one successful exporter execution. Value is {@value}.
+     */
+    public static final String EXPORT = "export";
+
+    /**
+     * The counter of JCR nodes read to construct the export output. Value is {@value}.
+     */
+    public static final String NODES_EXPORTED = "nodes-exported";
+
+    /**
+     * The timer of reading the nodes being exported, including any queries, into an in-memory model. Value is {@value}.
+     */
+    public static final String NODE_TRAVERSAL = "node-traversal";
+
+    /**
+     * The timer of re-formatting XML output when pretty printing is requested. Value is {@value}.
+     */
+    public static final String PRETTY_PRINT = "pretty-print";
+
+    /**
+     * The timer of writing XML output. Value is {@value}.
+     */
+    public static final String XML_WRITE = "xml-write";
+
+    /**
+     * The timer of writing entries into an archive or a collection of files, excluding the time spent in nested exporters. Value
+     * is {@value}.
+     */
+    public static final String ZIP_ASSEMBLY = "zip-assembly";
+
+    /**
+     * Don't allow construction outside of this class.
+     */
+    private ExportMetrics() {
+        // nothing to do
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.modeshape.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Global access to the {@link MetricsRegistry metrics registry} that sequencers and exporters report to. By default an in-memory
+ * {@link DefaultMetricsRegistry} is used. It can be exposed through JMX by calling {@link #registerMBean()}, or it can be
+ * replaced by a custom registry that forwards measurements to another metrics library.
+ */
+public final class Metrics {
+
+    /**
+     * The JMX object name used when the default registry is {@link #registerMBean() registered}. Value is {@value}.
+     */
+    public static final String MBEAN_NAME = "org.teiid.modeshape:type=Metrics";
+
+    /**
+     * A system property that, when <code>true</code>, has the sequencers count the nodes and properties of their output. Counting
+     * walks the whole output of each sequencer execution, so it is disabled by default.
+     *
+     * @see #setOutputCounting(boolean)
+     */
+    public static final String OUTPUT_COUNTING_PROPERTY = "teiid.modeshape.metrics.count-output";
+
+    private static final DefaultMetricsRegistry DEFAULT_REGISTRY = new DefaultMetricsRegistry();
+
+    private static volatile boolean outputCounting = Boolean.getBoolean( OUTPUT_COUNTING_PROPERTY );
+    private static volatile MetricsRegistry registry = DEFAULT_REGISTRY;
+
+    /**
+     * @return the default in-memory registry (never <code>null</code>)
+     */
+    public static DefaultMetricsRegistry getDefaultRegistry() {
+        return DEFAULT_REGISTRY;
+    }
+
+    /**
+     * @return the registry measurements are currently reported to (never <code>null</code>)
+     */
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return <code>true</code> if the sequencers count the nodes and properties of their output
+     * @see #OUTPUT_COUNTING_PROPERTY
+     */
+    public static boolean isOutputCounting() {
+        return outputCounting;
+    }
+
+    /**
+     * Registers the {@link #getDefaultRegistry() default registry} with the platform MBean server using the {@link #MBEAN_NAME}
+     * object name. Does nothing if it is already registered.
+     *
+     * @throws JMException
+     *         if an error occurs registering the MBean
+     */
+    public static void registerMBean() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName( MBEAN_NAME );
+
+        if ( !server.isRegistered( name ) ) {
+            server.registerMBean( DEFAULT_REGISTRY, name );
+        }
+    }
+
+    /**
+     * @param newOutputCounting
+     *        <code>true</code> if the sequencers should count the nodes and properties of their output
+     * @see #OUTPUT_COUNTING_PROPERTY
+     */
+    public static void setOutputCounting( final boolean newOutputCounting ) {
+        outputCounting = newOutputCounting;
+    }
+
+    /**
+     * @param newRegistry
+     *        the registry that measurements should be reported to (can be <code>null</code> if the default registry should be
+     *        used)
+     * @see MetricsRegistry#NO_OP
+     */
+    public static void setRegistry( final MetricsRegistry newRegistry ) {
+        registry = ( ( newRegistry == null ) ? DEFAULT_REGISTRY : newRegistry );
+    }
+
+    /**
+     * Unregisters the default registry from the platform MBean server. Does nothing if it is not registered.
+     *
+     * @throws JMException
+     *         if an error occurs unregistering the MBean
+     */
+    public static void unregisterMBean() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName( MBEAN_NAME );
+
+        if ( server.isRegistered( name ) ) {
+            server.unregisterMBean( name );
+        }
+    }
+
+    /**
+     * Don't allow construction outside of this class.
+     */
+    private Metrics() {
+        // nothing to do
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.modeshape.metrics;
+
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import org.teiid.modeshape.util.StringUtil;
+
+/**
+ * Reports timers and counters of one source (a sequencer, an exporter, a parser) to the {@link Metrics#getRegistry() current
+ * registry}. Metric names are prefixed with the source name, for example <code>VdbSequencer.manifest-read</code>. Instances
+ * are immutable and can be shared.
+ */
+public final class MetricsRecorder {
+
+    /**
+     * The innermost exclusive timer running on each thread.
+     */
+    private static final ThreadLocal< Timer > EXCLUSIVE = new ThreadLocal<>();
+
+    /**
+     * @return <code>true</code> if an {@link #startExclusive(String) exclusive timer} is running on the current thread
+     */
+    public static boolean isExclusiveTimerRunning() {
+        return ( EXCLUSIVE.get() != null );
+    }
+
+    private final String prefix;
+
+    /**
+     * @param source
+     *        the class whose simple name is used as the source name (cannot be <code>null</code>)
+     */
+    public MetricsRecorder( final Class< ? > source ) {
+        this( Objects.requireNonNull( source, "source" ).getSimpleName() );
+    }
+
+    /**
+     * @param sourceName
+     *        the name prefixed to all metric names (cannot be <code>null</code> or empty)
+     */
+    public MetricsRecorder( final String sourceName ) {
+        this.prefix = StringUtil.requireNonEmpty( sourceName, "sourceName" ) + '.';
+    }
+
+    /**
+     * @param metric
+     *        the metric name without the source prefix (cannot be <code>null</code> or empty)
+     * @return the full metric name as reported to the registry (never <code>null</code> or empty)
+     */
+    public String getName( final String metric ) {
+        return this.prefix + metric;
+    }
+
+    /**
+     * Adds to a counter. Nothing is reported if the amount is zero.
+     *
+     * @param counter
+     *        the counter name without the source prefix (cannot be <code>null</code> or empty)
+     * @param amount
+     *        the amount to add
+     */
+    public void increment( final String counter,
+                           final long amount ) {
+        if ( amount != 0 ) {
+            Metrics.getRegistry().incrementCounter( getName( counter ), amount );
+        }
+    }
+
+    /**
+     * @param phase
+     *        the timer name without the source prefix (cannot be <code>null</code> or empty)
+     * @return the started timer (never <code>null</code>)
+     */
+    public Timer start( final String phase ) {
+        return new Timer( getName( phase ), null, false );
+    }
+
+    /**
+     * @param phase
+     *        the timer name without the source prefix (cannot be <code>null</code> or empty)
+     * @param listener
+     *        receives the elapsed time in nanoseconds when the timer is first stopped (can be <code>null</code>)
+     * @return the started timer (never <code>null</code>)
+     */
+    public Timer start( final String phase,
+                        final LongConsumer listener ) {
+        return new Timer( getName( phase ), listener, false );
+    }
+
+    /**
+     * Starts a timer that excludes the time of the exclusive timers started within it on the same thread. When a sequencer
+     * calls another sequencer, the time of the nested sequencer is then only reported by the nested sequencer. An exclusive
+     * timer must be stopped or {@link Timer#discard() discarded} on the thread that started it, even when the timed operation
+     * fails.
+     *
+     * @param phase
+     *        the timer name without the source prefix (cannot be <code>null</code> or empty)
+     * @return the started timer (never <code>null</code>)
+     */
+    public Timer startExclusive( final String phase ) {
+        return new Timer( getName( phase ), null, true );
+    }
+
+    /**
+     * Times one operation. The elapsed time is reported when the timer is stopped or closed, which allows a timer to be used in
+     * a <code>try</code>-with-resources block. Only the first stop is reported.
+     */
+    public static final class Timer implements AutoCloseable {
+
+        private final boolean exclusive;
+        private final LongConsumer listener;
+        private final String name;
+        private long nested;
+        private final Timer outer;
+        private final long start = System.nanoTime();
+        private long elapsed = -1;
+
+        Timer( final String name,
+               final LongConsumer listener,
+               final boolean exclusive ) {
+            this.name = name;
+            this.listener = listener;
+            this.exclusive = exclusive;
+
+            if ( exclusive ) {
+                this.outer = EXCLUSIVE.get();
+                EXCLUSIVE.set( this );
+            } else {
+                this.outer = null;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.lang.AutoCloseable#close()
+         */
+        @Override
+        public void close() {
+            stop();
+        }
+
+        /**
+         * Stops the timer without reporting it, for instance because the timed operation failed. The time of a discarded
+         * exclusive timer stays part of the time of the timer it was started within. Does nothing if the timer has already been
+         * stopped.
+         */
+        public void discard() {
+            if ( this.elapsed == -1 ) {
+                this.elapsed = 0;
+                restoreOuter();
+            }
+        }
+
+        private void restoreOuter() {
+            if ( this.exclusive ) {
+                if ( this.outer == null ) {
+                    EXCLUSIVE.remove();
+                } else {
+                    EXCLUSIVE.set( this.outer );
+                }
+            }
+        }
+
+        /**
+         * @return the elapsed time in nanoseconds, which for an exclusive timer does not include the time of the exclusive
+         *         timers stopped within it
+         */
+        public long stop() {
+            if ( this.elapsed == -1 ) {
+                final long total = ( System.nanoTime() - this.start );
+                this.elapsed = ( total - this.nested );
+                restoreOuter();
+
+                if ( this.outer != null ) {
+                    this.outer.nested += total;
+                }
+
+                Metrics.getRegistry().recordTime( this.name, this.elapsed );
+
+                if ( this.listener != null ) {
+                    this.listener.accept( this.elapsed );
+                }
+            }
+
+            return this.elapsed;
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.modeshape.metrics;
+
+/**
+ * A sink for timer and counter measurements reported by sequencers and exporters. Implementations must be thread-safe as
+ * measurements are reported concurrently.
+ *
+ * @see Metrics#setRegistry(MetricsRegistry)
+ */
+public interface MetricsRegistry {
+
+    /**
+     * A registry that discards all measurements.
+     */
+    MetricsRegistry NO_OP = new MetricsRegistry() {
+
+        @Override
+        public void incrementCounter( final String name,
+                                      final long amount ) {
+            // nothing to do
+        }
+
+        @Override
+        public void recordTime( final String name,
+                                final long elapsedNanos ) {
+            // nothing to do
+        }
+
+    };
+
+    /**
+     * @param name
+     *        the name of the counter (cannot be <code>null</code> or empty)
+     * @param amount
+     *        the amount to add to the counter
+     */
+    void incrementCounter( final String name,
+                           final long amount );
+
+    /**
+     * @param name
+     *        the name of the timer (cannot be <code>null</code> or empty)
+     * @param elapsedNanos
+     *        the elapsed time in nanoseconds of one timed operation
+     */
+    void recordTime( final String name,
+                     final long elapsedNanos );
+
+}
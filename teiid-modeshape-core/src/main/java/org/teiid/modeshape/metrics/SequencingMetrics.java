@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.modeshape.metrics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PropertyIterator;
+import javax.jcr.RepositoryException;
+
+/**
+ * The names of the timers and counters reported by the sequencers.
+ *
+ * @see MetricsRecorder
+ */
+public final class SequencingMetrics {
+
+    /**
+     * The timer of waiting to be admitted by the {@link org.teiid.modeshape.util.SequencingBudget sequencing budget}. Value is
+     * {@value}.
+     */
+    public static final String BUDGET_WAIT = "budget-wait";
+
+    /**
+     * The counter of bytes read from the sequenced binary. Value is {@value}.
+     */
+    public static final String BYTES_READ = "bytes-read";
+
+    /**
+     * The timer of DDL parsing, which includes DDL tokenization. Value is {@value}.
+     */
+    public static final String DDL_PARSING = "ddl-parsing";
+
+    /**
+     * The timer of DDL tokenization. Value is {@value}.
+     */
+    public static final String DDL_TOKENIZATION = "ddl-tokenization";
+
+    /**
+     * The timer of the model object handlers converting XMI elements into nodes. Value is {@value}.
+     */
+    public static final String HANDLER_PROCESSING = "handler-processing";
+
+    /**
+     * The counter of jobs, or parts of jobs, that used the low-memory code paths because of their estimated cost. Value is
+     * {@value}.
+     */
+    public static final String LOW_MEMORY = "low-memory";
+
+    /**
+     * The counter of manifests found in the parsed manifest cache. Value is {@value}.
+     */
+    public static final String MANIFEST_CACHE_HIT = "manifest-cache-hit";
+
+    /**
+     * The counter of manifests that had to be parsed because they were not found in the parsed manifest cache. Value is
+     * {@value}.
+     */
+    public static final String MANIFEST_CACHE_MISS = "manifest-cache-miss";
+
+    /**
+     * The timer of reading and parsing a manifest (<code>vdb.xml</code>, data service manifest, connection file). Value is
+     * {@value}.
+     */
+    public static final String MANIFEST_READ = "manifest-read";
+
+    /**
+     * The timer of adding model extension definition mixins to model nodes. Value is {@value}.
+     */
+    public static final String MED_REGISTRATION = "med-registration";
+
+    /**
+     * The timer of reading an XMI model into its element tree. Value is {@value}.
+     */
+    public static final String MODEL_READ = "model-read";
+
+    /**
+     * The timer of writing JCR nodes and properties that is not part of another phase. Value is {@value}.
+     */
+    public static final String NODE_WRITE = "node-write";
+
+    /**
+     * The counter of JCR nodes created. Value is {@value}.
+     */
+    public static final String NODES_WRITTEN = "nodes-written";
+
+    /**
+     * The counter of sequencer outputs found in the {@link org.teiid.modeshape.sequencer.output.OutputCache output cache}.
+     * Value is {@value}.
+     */
+    public static final String OUTPUT_CACHE_HIT = "output-cache-hit";
+
+    /**
+     * The counter of sequencer outputs that were not found in, or could not be used from, the
+     * {@link org.teiid.modeshape.sequencer.output.OutputCache output cache}. Value is {@value}.
+     */
+    public static final String OUTPUT_CACHE_MISS = "output-cache-miss";
+
+    /**
+     * The counter of JCR properties set. Value is {@value}.
+     */
+    public static final String PROPERTIES_WRITTEN = "properties-written";
+
+    /**
+     * The timer of one successful sequencer execution. The time of sequencers called by the sequencer is reported by those
+     * sequencers and is not included. Value is {@value}.
+     *
+     * @see MetricsRecorder#startExclusive(String)
+     */
+    public static final String SEQUENCE = "sequence";
+
+    /**
+     * The timer of advancing to the next archive entry, which inflates any unread content of the current entry. Value is
+     * {@value}.
+     */
+    public static final String ZIP_INFLATION = "zip-inflation";
+
+    /**
+     * Counts the nodes and properties of a sequencer output subtree and adds them to the {@link #NODES_WRITTEN} and
+     * {@link #PROPERTIES_WRITTEN} counters. The subtree is only walked when {@link Metrics#isOutputCounting() output counting}
+     * is enabled and measurements are not being discarded by the {@link MetricsRegistry#NO_OP no-op registry}. Output of a
+     * sequencer called by another sequencer is not counted, since it is counted as part of the output of the calling sequencer.
+     *
+     * @param recorder
+     *        the recorder of the sequencer that wrote the output (cannot be <code>null</code>)
+     * @param outputNode
+     *        the root of the output written by the sequencer (cannot be <code>null</code>)
+     * @throws RepositoryException
+     *         if an error occurs walking the output
+     */
+    public static void recordOutput( final MetricsRecorder recorder,
+                                     final Node outputNode ) throws RepositoryException {
+        if ( !Metrics.isOutputCounting() || ( Metrics.getRegistry() == MetricsRegistry.NO_OP )
+             || MetricsRecorder.isExclusiveTimerRunning() ) {
+            return;
+        }
+
+        long numNodes = 0;
+        long numProps = 0;
+        final Deque< Node > stack = new ArrayDeque<>();
+        stack.push( outputNode );
+
+        while ( !stack.isEmpty() ) {
+            final Node node = stack.pop();
+            ++numNodes;
+
+            final PropertyIterator props = node.getProperties();
+            final long size = props.getSize();
+
+            if ( size < 0 ) {
+                while ( props.hasNext() ) {
+                    props.nextProperty();
+                    ++numProps;
+                }
+            } else {
+                numProps += size;
+            }
+
+            final NodeIterator kids = node.getNodes();
+
+            while ( kids.hasNext() ) {
+                stack.push( kids.nextNode() );
+            }
+        }
+
+        recorder.increment( NODES_WRITTEN, numNodes );
+        recorder.increment( PROPERTIES_WRITTEN, numProps );
+    }
+
+    /**
+     * Don't allow construction outside of this class.
+     */
+    private SequencingMetrics() {
+        // nothing to do
+    }
+
+}
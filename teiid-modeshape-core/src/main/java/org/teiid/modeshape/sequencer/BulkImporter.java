@@ -0,0 +1,564 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.jcr.Binary;
+import javax.jcr.Credentials;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.api.ValueFactory;
+import org.modeshape.jcr.api.nodetype.NodeTypeManager;
+import org.modeshape.jcr.api.sequencer.Sequencer;
+import org.teiid.modeshape.core.CoreI18n;
+import org.teiid.modeshape.util.StringUtil;
+
+/**
+ * Sequences many files (VDBs, DDL, data service archives) straight into a repository without creating a sequencing event,
+ * session, and save for each file. Intended for initial repository loads and restores.
+ * <p>
+ * Files are sequenced concurrently by a pool of workers, each with its own session, and the output of each worker is saved
+ * every {@link #getBatchSize() batch size} files. The sequencers are initialized once per import, so namespaces and node types
+ * are registered once for the whole batch, and a sequencer annotated as {@link ThreadSafe thread-safe} is shared by all
+ * workers. Each file is a separate sequencing job, so its sequencer is admitted against the
+ * {@link org.teiid.modeshape.util.SequencingBudget sequencing budget} on the worker thread sequencing it. The output of a file
+ * is written to a node, named after the file, below the output path. Subdirectories are mirrored by nodes, so files with the
+ * same name in different directories do not collide. Because output is only saved once a batch is full, sequencers that look
+ * for nodes written by other files of the same import (for instance, data service VDBs with the <code>IF_MISSING</code>
+ * publish policy) only find those that have already been saved.
+ * <p>
+ * A sequencer can write outside of its output node, so when a file fails every unsaved change of its worker is discarded and
+ * the files of the batch that had already been sequenced are sequenced again.
+ */
+public class BulkImporter {
+
+    /**
+     * The default number of files whose output is saved together. Value is {@value}.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 25;
+
+    /**
+     * The default number of workers. Value is the number of available processors.
+     */
+    public static final int DEFAULT_WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The name of the temporary property holding the file content while it is sequenced. Value is {@value}.
+     */
+    static final String INPUT_PROPERTY = "bulkImportInput";
+
+    private static final Logger LOGGER = Logger.getLogger( BulkImporter.class );
+
+    private final Repository repository;
+    private final Credentials credentials;
+    private final String workspaceName;
+    private final Map< String, Supplier< ? extends Sequencer > > factories = new LinkedHashMap<>();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int workerCount = DEFAULT_WORKER_COUNT;
+
+    /**
+     * Constructs an importer that logs in to the default workspace without credentials.
+     *
+     * @param repository
+     *        the repository being imported into (cannot be <code>null</code>)
+     */
+    public BulkImporter( final Repository repository ) {
+        this( repository, null, null );
+    }
+
+    /**
+     * @param repository
+     *        the repository being imported into (cannot be <code>null</code>)
+     * @param credentials
+     *        the credentials used to log in (can be <code>null</code>)
+     * @param workspaceName
+     *        the name of the workspace being imported into (can be <code>null</code> if the default workspace)
+     */
+    public BulkImporter( final Repository repository,
+                         final Credentials credentials,
+                         final String workspaceName ) {
+        this.repository = Objects.requireNonNull( repository, "repository" );
+        this.credentials = credentials;
+        this.workspaceName = workspaceName;
+    }
+
+    /**
+     * @return the number of files whose output is saved together
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * @return the number of workers sequencing files at the same time
+     */
+    public int getWorkerCount() {
+        return this.workerCount;
+    }
+
+    /**
+     * Imports the files, found in the directory or any of its subdirectories, that have the suffix of a registered sequencer. The
+     * output nodes mirror the path of each file relative to the directory.
+     *
+     * @param directory
+     *        the directory whose files are being imported (cannot be <code>null</code>)
+     * @param outputPath
+     *        the absolute path of the node the output nodes are added to, which is created if necessary (cannot be
+     *        <code>null</code> or empty)
+     * @return the outcome of the import (never <code>null</code>)
+     * @throws IOException
+     *         if the directory cannot be read
+     * @throws RepositoryException
+     *         if a session cannot be created or the output cannot be saved
+     * @throws InterruptedException
+     *         if interrupted while waiting for the workers
+     */
+    public Outcome importDirectory( final Path directory,
+                                    final String outputPath ) throws IOException, RepositoryException, InterruptedException {
+        final List< Path > files;
+
+        try ( final Stream< Path > paths = Files.walk( Objects.requireNonNull( directory, "directory" ) ) ) {
+            files = paths.filter( path -> Files.isRegularFile( path ) && ( findSuffix( path ) != null ) )
+                         .sorted()
+                         .collect( Collectors.toList() );
+        }
+
+        return importFiles( files, directory, outputPath );
+    }
+
+    /**
+     * Imports the files. A file that does not have the suffix of a registered sequencer is reported as a failure. The output nodes
+     * mirror the path of each file relative to the deepest directory containing all the files.
+     *
+     * @param files
+     *        the files being imported (cannot be <code>null</code>)
+     * @param outputPath
+     *        the absolute path of the node the output nodes are added to, which is created if necessary (cannot be
+     *        <code>null</code> or empty)
+     * @return the outcome of the import (never <code>null</code>)
+     * @throws RepositoryException
+     *         if a session cannot be created or the output cannot be saved
+     * @throws InterruptedException
+     *         if interrupted while waiting for the workers
+     */
+    public Outcome importFiles( final Collection< Path > files,
+                                final String outputPath ) throws RepositoryException, InterruptedException {
+        Objects.requireNonNull( files, "files" );
+        Path common = null;
+
+        for ( final Path file : files ) {
+            final Path absolute = file.toAbsolutePath();
+            common = ( ( common == null ) ? absolute.getParent() : common );
+
+            while ( ( common != null ) && !absolute.startsWith( common ) ) {
+                common = common.getParent();
+            }
+        }
+
+        return importFiles( files, common, outputPath );
+    }
+
+    private Outcome importFiles( final Collection< Path > files,
+                                 final Path baseDirectory,
+                                 final String outputPath ) throws RepositoryException, InterruptedException {
+        StringUtil.requireNonEmpty( outputPath, "outputPath" );
+
+        // output node paths are decided up front so that workers never add the same node
+        final Map< Path, String > outputPaths = new HashMap<>();
+
+        for ( final Path file : files ) {
+            final Path absolute = file.toAbsolutePath();
+            final Path relative = ( ( ( baseDirectory == null ) || !absolute.startsWith( baseDirectory.toAbsolutePath() ) )
+                ? file.getFileName()
+                : baseDirectory.toAbsolutePath().relativize( absolute ) );
+            final StringBuilder path = new StringBuilder( outputPath );
+
+            for ( final Path segment : relative ) {
+                if ( path.charAt( path.length() - 1 ) != '/' ) {
+                    path.append( '/' );
+                }
+
+                path.append( segment );
+            }
+
+            outputPaths.put( file, path.toString() );
+        }
+
+        final Outcome outcome = new Outcome();
+        final Map< String, Sequencer > shared = new HashMap<>();
+        final Session setupSession = login();
+
+        // register namespaces and node types once for the whole import
+        try {
+            for ( final Map.Entry< String, Supplier< ? extends Sequencer > > entry : this.factories.entrySet() ) {
+                final Sequencer sequencer = entry.getValue().get();
+                initialize( sequencer, setupSession );
+
+                if ( sequencer.getClass().isAnnotationPresent( ThreadSafe.class ) ) {
+                    shared.put( entry.getKey(), sequencer );
+                }
+            }
+
+            createPath( setupSession, outputPath );
+
+            // nodes mirroring directories are shared by workers, so they are created before the workers start
+            for ( final String path : outputPaths.values() ) {
+                createPath( setupSession, path.substring( 0, path.lastIndexOf( '/' ) ) );
+            }
+
+            setupSession.save();
+        } finally {
+            setupSession.logout();
+        }
+
+        final Queue< Path > queue = new ConcurrentLinkedQueue<>( files );
+        final Calendar timestamp = Calendar.getInstance();
+        final int numWorkers = Math.max( 1, Math.min( this.workerCount, files.size() ) );
+        final List< Callable< Void > > workers = new ArrayList<>( numWorkers );
+
+        for ( int i = 0; i < numWorkers; ++i ) {
+            workers.add( new Worker( queue, outputPaths, shared, timestamp, outcome ) );
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool( numWorkers );
+
+        try {
+            for ( final Future< Void > future : executor.invokeAll( workers ) ) {
+                try {
+                    future.get();
+                } catch ( final ExecutionException e ) {
+                    final Throwable cause = e.getCause();
+
+                    if ( cause instanceof RepositoryException ) {
+                        throw ( RepositoryException )cause;
+                    }
+
+                    if ( cause instanceof RuntimeException ) {
+                        throw ( RuntimeException )cause;
+                    }
+
+                    throw new RepositoryException( cause );
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return outcome;
+    }
+
+    /**
+     * Registers the sequencer of files with the specified suffix. When more than one registered suffix matches a file name, the
+     * longest one is used.
+     *
+     * @param fileSuffix
+     *        the suffix of the names of the files the sequencer handles (cannot be <code>null</code> or empty)
+     * @param sequencerFactory
+     *        the factory of the sequencer, called once per import and, when the sequencer is not thread-safe, once per worker
+     *        (cannot be <code>null</code>)
+     * @return this importer (never <code>null</code>)
+     */
+    public BulkImporter register( final String fileSuffix,
+                                  final Supplier< ? extends Sequencer > sequencerFactory ) {
+        this.factories.put( StringUtil.requireNonEmpty( fileSuffix, "fileSuffix" ),
+                            Objects.requireNonNull( sequencerFactory, "sequencerFactory" ) );
+        return this;
+    }
+
+    /**
+     * @param newBatchSize
+     *        the number of files whose output is saved together (must be positive)
+     */
+    public void setBatchSize( final int newBatchSize ) {
+        if ( newBatchSize < 1 ) {
+            throw new IllegalArgumentException( "newBatchSize" );
+        }
+
+        this.batchSize = newBatchSize;
+    }
+
+    /**
+     * @param newWorkerCount
+     *        the number of workers sequencing files at the same time (must be positive)
+     */
+    public void setWorkerCount( final int newWorkerCount ) {
+        if ( newWorkerCount < 1 ) {
+            throw new IllegalArgumentException( "newWorkerCount" );
+        }
+
+        this.workerCount = newWorkerCount;
+    }
+
+    private void createPath( final Session session,
+                             final String path ) throws RepositoryException {
+        Node node = session.getRootNode();
+
+        for ( final String segment : path.split( "/" ) ) {
+            if ( !segment.isEmpty() ) {
+                node = ( node.hasNode( segment ) ? node.getNode( segment ) : node.addNode( segment ) );
+            }
+        }
+    }
+
+    private String findSuffix( final Path file ) {
+        final String name = file.getFileName().toString();
+        String match = null;
+
+        for ( final String suffix : this.factories.keySet() ) {
+            if ( name.endsWith( suffix ) && ( ( match == null ) || ( suffix.length() > match.length() ) ) ) {
+                match = suffix;
+            }
+        }
+
+        return match;
+    }
+
+    private void initialize( final Sequencer sequencer,
+                             final Session session ) throws RepositoryException {
+        // serialized so workers never update node types at the same time
+        synchronized ( this ) {
+            try {
+                sequencer.initialize( session.getWorkspace().getNamespaceRegistry(),
+                                      ( NodeTypeManager )session.getWorkspace().getNodeTypeManager() );
+            } catch ( final IOException e ) {
+                throw new RepositoryException( e );
+            }
+        }
+    }
+
+    private Session login() throws RepositoryException {
+        return this.repository.login( this.credentials, this.workspaceName );
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public static final class Outcome {
+
+        private final Map< Path, Throwable > failures = new ConcurrentHashMap<>();
+        private final Map< Path, String > imported = new ConcurrentHashMap<>();
+
+        Outcome() {
+            // only constructed by the importer
+        }
+
+        /**
+         * @return the files that could not be imported and the reason why (never <code>null</code>)
+         */
+        public Map< Path, Throwable > getFailures() {
+            return Collections.unmodifiableMap( this.failures );
+        }
+
+        /**
+         * @return the files that were imported and the paths of their output nodes (never <code>null</code>)
+         */
+        public Map< Path, String > getImported() {
+            return Collections.unmodifiableMap( this.imported );
+        }
+
+    }
+
+    /**
+     * Sequences files from the shared queue until it is empty.
+     */
+    private final class Worker implements Callable< Void > {
+
+        private final Queue< Path > queue;
+        private final Map< Path, String > outputPaths;
+        private final Map< String, Sequencer > sequencers;
+        private final Calendar timestamp;
+        private final Outcome outcome;
+        private final Map< Path, String > batch = new LinkedHashMap<>();
+
+        Worker( final Queue< Path > queue,
+                final Map< Path, String > outputPaths,
+                final Map< String, Sequencer > shared,
+                final Calendar timestamp,
+                final Outcome outcome ) {
+            this.queue = queue;
+            this.outputPaths = outputPaths;
+            this.sequencers = new HashMap<>( shared );
+            this.timestamp = timestamp;
+            this.outcome = outcome;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.concurrent.Callable#call()
+         */
+        @Override
+        public Void call() throws Exception {
+            final Session session = login();
+
+            try {
+                final ValueFactory valueFactory = ( ValueFactory )session.getValueFactory();
+                final Sequencer.Context context = new Sequencer.Context() {
+
+                    @Override
+                    public Calendar getTimestamp() {
+                        return Worker.this.timestamp;
+                    }
+
+                    @Override
+                    public ValueFactory valueFactory() {
+                        return valueFactory;
+                    }
+
+                };
+
+                final Deque< Path > retries = new ArrayDeque<>();
+                Path file = null;
+
+                while ( ( file = ( retries.isEmpty() ? this.queue.poll() : retries.poll() ) ) != null ) {
+                    if ( Thread.currentThread().isInterrupted() ) {
+                        throw new InterruptedException();
+                    }
+
+                    final String suffix = findSuffix( file );
+
+                    if ( suffix == null ) {
+                        this.outcome.failures.put( file, new RepositoryException( CoreI18n.bulkImportNoSequencer.text( file ) ) );
+                        continue;
+                    }
+
+                    final String path = this.outputPaths.get( file );
+                    final int index = path.lastIndexOf( '/' );
+                    final Node parent = ( ( index == 0 ) ? session.getRootNode() : session.getNode( path.substring( 0, index ) ) );
+                    final Node outputNode = parent.addNode( path.substring( index + 1 ) );
+
+                    try {
+                        sequence( file, getSequencer( suffix, session ), outputNode, context );
+                        this.batch.put( file, outputNode.getPath() );
+                    } catch ( final Exception e ) {
+                        LOGGER.error( e, CoreI18n.bulkImportFailed, file, e.getLocalizedMessage() );
+                        this.outcome.failures.put( file, e );
+
+                        // the sequencer may have written outside of the output node so discard all unsaved changes
+                        session.refresh( false );
+                        retries.addAll( this.batch.keySet() );
+                        this.batch.clear();
+                        continue;
+                    }
+
+                    if ( this.batch.size() >= BulkImporter.this.batchSize ) {
+                        save( session );
+                    }
+                }
+
+                save( session );
+            } finally {
+                session.logout();
+            }
+
+            return null;
+        }
+
+        private Sequencer getSequencer( final String suffix,
+                                        final Session session ) throws RepositoryException {
+            Sequencer sequencer = this.sequencers.get( suffix );
+
+            if ( sequencer == null ) {
+                sequencer = BulkImporter.this.factories.get( suffix ).get();
+                initialize( sequencer, session );
+                this.sequencers.put( suffix, sequencer );
+            }
+
+            return sequencer;
+        }
+
+        private void save( final Session session ) throws RepositoryException {
+            if ( this.batch.isEmpty() ) {
+                return;
+            }
+
+            try {
+                session.save();
+                this.outcome.imported.putAll( this.batch );
+            } catch ( final RepositoryException e ) {
+                LOGGER.error( e, CoreI18n.bulkImportSaveFailed, this.batch.size(), e.getLocalizedMessage() );
+                session.refresh( false );
+
+                for ( final Path file : this.batch.keySet() ) {
+                    this.outcome.failures.put( file, e );
+                }
+            } finally {
+                this.batch.clear();
+            }
+        }
+
+        private void sequence( final Path file,
+                               final Sequencer sequencer,
+                               final Node outputNode,
+                               final Sequencer.Context context ) throws Exception {
+            final Binary binary;
+
+            try ( final InputStream stream = Files.newInputStream( file ) ) {
+                binary = outputNode.getSession().getValueFactory().createBinary( stream );
+            }
+
+            final Property input = outputNode.setProperty( INPUT_PROPERTY, binary );
+
+            try {
+                if ( !sequencer.execute( input, outputNode, context ) ) {
+                    throw new RepositoryException( CoreI18n.bulkImportNotSequenced.text( file,
+                                                                                         sequencer.getClass().getSimpleName() ) );
+                }
+            } finally {
+                input.remove();
+                binary.dispose();
+            }
+        }
+
+    }
+
+}
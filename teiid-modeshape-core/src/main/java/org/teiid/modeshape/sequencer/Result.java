@@ -29,6 +29,32 @@ import javax.jcr.Node;
  */
 public interface Result extends Iterable< String > {
 
+    /**
+     * The data key whose value is a <code>Long</code> of the nanoseconds the export took. Used only by the framework.
+     */
+    String ELAPSED_TIME = "exporter.elapsed-time";
+
+    /**
+     * The data key whose value is a <code>Long</code> of the number of nodes read to construct the outcome. Set by the
+     * framework when the export is successful.
+     *
+     * @see org.teiid.modeshape.metrics.ExportMetrics#NODES_EXPORTED
+     */
+    String NODES_EXPORTED = "exporter.nodes-exported";
+
+    /**
+     * The data key whose value is a <code>Long</code> of the number of bytes of the outcome, with text outcomes measured as
+     * UTF-8. Set by the framework when the export is successful and the outcome is a <code>String</code>,
+     * <code>byte[]</code>, or <code>byte[][]</code>.
+     */
+    String OUTPUT_SIZE = "exporter.output-size";
+
+    /**
+     * The data key whose value is an unmodifiable <code>Map&lt;String, Long&gt;</code> of the nanoseconds spent in each
+     * {@link org.teiid.modeshape.metrics.ExportMetrics export phase}. Set by the framework when the export is successful.
+     */
+    String PHASE_TIMES = "exporter.phase-times";
+
     /**
      * @param key
      *        the type of data being requested (cannot be <code>null</code>)
@@ -24,8 +24,10 @@ package org.teiid.modeshape.sequencer.internal;
 
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import javax.jcr.Node;
@@ -39,6 +41,8 @@ import javax.xml.transform.stream.StreamResult;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.StringUtil;
 import org.teiid.modeshape.core.CoreI18n;
+import org.teiid.modeshape.metrics.ExportMetrics;
+import org.teiid.modeshape.metrics.MetricsRecorder;
 import org.teiid.modeshape.sequencer.Exporter;
 import org.teiid.modeshape.sequencer.Options;
 import org.teiid.modeshape.sequencer.Result;
@@ -57,6 +61,61 @@ public abstract class AbstractExporter implements Exporter {
      */
     protected static final Node[] NO_NODES = new Node[ 0 ];
 
+    /**
+     * Reports the export phases of this exporter to the global metrics registry.
+     *
+     * @see ExportMetrics
+     */
+    protected final MetricsRecorder metrics = new MetricsRecorder( getClass() );
+
+    /**
+     * @param outcome
+     *        the export outcome (can be <code>null</code>)
+     * @return the number of bytes of the outcome when encoded as UTF-8 or <code>-1</code> if the outcome type is not known
+     */
+    private static long sizeOf( final Object outcome ) {
+        if ( outcome instanceof byte[] ) {
+            return ( ( byte[] )outcome ).length;
+        }
+
+        if ( outcome instanceof byte[][] ) {
+            long size = 0;
+
+            for ( final byte[] bytes : ( byte[][] )outcome ) {
+                size += bytes.length;
+            }
+
+            return size;
+        }
+
+        if ( outcome instanceof CharSequence ) {
+            final CharSequence chars = ( CharSequence )outcome;
+            final int length = chars.length();
+            long size = 0;
+
+            for ( int i = 0; i < length; ++i ) {
+                final char c = chars.charAt( i );
+
+                if ( c < 0x80 ) {
+                    ++size;
+                } else if ( c < 0x800 ) {
+                    size += 2;
+                } else if ( Character.isHighSurrogate( c )
+                            && ( ( i + 1 ) < length )
+                            && Character.isLowSurrogate( chars.charAt( i + 1 ) ) ) {
+                    size += 4;
+                    ++i;
+                } else {
+                    size += 3;
+                }
+            }
+
+            return size;
+        }
+
+        return -1;
+    }
+
     /**
      * @param nodeBeingExported
      *        the node being exported (never <code>null</code>)
@@ -77,7 +136,39 @@ public abstract class AbstractExporter implements Exporter {
     @Override
     public final Result execute( final Node nodeBeingExported,
                                  final Options exportOptions ) {
-        final long start = System.currentTimeMillis();
+        return prepare( nodeBeingExported, exportOptions ).render();
+    }
+
+    private void finish( final ResultImpl result,
+                         final MetricsRecorder.Timer timer,
+                         final long start ) {
+        final long elapsed = ( result.wasSuccessful() ? timer.stop() : ( System.nanoTime() - start ) );
+        result.complete( elapsed );
+
+        LOGGER.debug( "Finished export of node {0} by exporter {1} in {2}ms and success = {3}",
+                      result.getData( ResultImpl.PATH_EXPORTED_NODE ),
+                      getClass().getSimpleName(),
+                      ( elapsed / 1000000 ),
+                      result.wasSuccessful() );
+    }
+
+    /**
+     * Exports a node in two steps. The node is read on the calling thread, and the returned export renders the outcome without
+     * accessing the repository, so it can be {@link PreparedExport#render() rendered} on any thread. This lets several nodes of
+     * the same session be exported concurrently, since a session must only be used by one thread at a time. If this exporter
+     * does not separate reading from rendering, the whole export is done on the calling thread.
+     *
+     * @param nodeBeingExported
+     *        the node being exported (cannot be <code>null</code>)
+     * @param exportOptions
+     *        the export options (can be <code>null</code>)
+     * @return the export waiting to be rendered (never <code>null</code>)
+     * @see #read(Node, Options, ResultImpl)
+     */
+    public final PreparedExport prepare( final Node nodeBeingExported,
+                                         final Options exportOptions ) {
+        final long start = System.nanoTime();
+        final MetricsRecorder.Timer timer = this.metrics.start( ExportMetrics.EXPORT );
         final Options options = ( ( exportOptions == null ) ? new Options() : exportOptions );
         ResultImpl result = null;
         String nodePath = null;
@@ -91,24 +182,60 @@ public abstract class AbstractExporter implements Exporter {
             }
 
             result.setError( CoreI18n.errorConstructingExportResult.text( getClass().getName() ), e );
-            return result;
+            final ResultImpl failed = result;
+            return () -> failed;
         }
 
+        final ResultImpl exportResult = result;
+        Renderer renderer = null;
+
         try {
             LOGGER.debug( "Starting export of node {0} by exporter {1}", nodePath, getClass().getSimpleName() );
-            doExport( nodeBeingExported, options, result );
+            renderer = read( nodeBeingExported, options, exportResult );
         } catch ( final Exception e ) {
-            result.setError( CoreI18n.errorDuringExport.text( getClass().getName() ), e );
-        } finally {
-            LOGGER.debug( "Finished export of node {0} by exporter {1} in {2}ms and success = {3}",
-                          ( nodePath == null ) ? "null node path" : nodePath,
-                          getClass().getSimpleName(),
-                          ( System.currentTimeMillis()
-                            - start ),
-                          result.wasSuccessful() );
+            exportResult.setError( CoreI18n.errorDuringExport.text( getClass().getName() ), e );
+        }
+
+        if ( renderer == null ) {
+            finish( exportResult, timer, start );
+            return () -> exportResult;
         }
 
-        return result;
+        final Renderer readRenderer = renderer;
+
+        return () -> {
+            try {
+                readRenderer.render();
+            } catch ( final Exception e ) {
+                exportResult.setError( CoreI18n.errorDuringExport.text( getClass().getName() ), e );
+            } finally {
+                finish( exportResult, timer, start );
+            }
+
+            return exportResult;
+        };
+    }
+
+    /**
+     * Reads the node being exported. The default implementation does the whole {@link #doExport(Node, Options, ResultImpl)
+     * export} and returns <code>null</code>. Exporters that can render their outcome from what they read, without accessing
+     * the repository, should override this so that the rendering can be done on another thread.
+     *
+     * @param nodeBeingExported
+     *        the node being exported (never <code>null</code>)
+     * @param options
+     *        the export options (never <code>null</code>)
+     * @param result
+     *        the object to set results on (never <code>null</code>)
+     * @return the rendering of the outcome, which must not access the repository, or <code>null</code> if the export is done
+     * @throws Exception
+     *         if an error occurs reading the node
+     */
+    protected Renderer read( final Node nodeBeingExported,
+                             final Options options,
+                             final ResultImpl result ) throws Exception {
+        doExport( nodeBeingExported, options, result );
+        return null;
     }
 
     protected String getIndentAmount( final Options options ) {
@@ -201,6 +328,8 @@ public abstract class AbstractExporter implements Exporter {
         public static final String TYPE = "exporter.outcome-type";
 
         private final Map< String, Object > data;
+        private final Map< String, Long > phaseTimes = new LinkedHashMap<>();
+        private long nodesExported = 0;
         private Exception error = null;
         private String errorMsg = null;
         private Class< ? > type = null;
@@ -217,6 +346,33 @@ public abstract class AbstractExporter implements Exporter {
             this.data.put( OPTIONS, options );
         }
 
+        /**
+         * @param count
+         *        the number of nodes read to construct the outcome
+         */
+        public void addNodesExported( final long count ) {
+            this.nodesExported += count;
+        }
+
+        void complete( final long elapsed ) {
+            this.data.put( ELAPSED_TIME, elapsed );
+
+            if ( !wasSuccessful() ) {
+                return;
+            }
+
+            this.data.put( NODES_EXPORTED, this.nodesExported );
+            this.data.put( PHASE_TIMES, Collections.unmodifiableMap( this.phaseTimes ) );
+            metrics.increment( ExportMetrics.NODES_EXPORTED, this.nodesExported );
+
+            final long size = sizeOf( getOutcome() );
+
+            if ( size != -1 ) {
+                this.data.put( OUTPUT_SIZE, size );
+                metrics.increment( ExportMetrics.BYTES_WRITTEN, size );
+            }
+        }
+
         /**
          * {@inheritDoc}
          *
@@ -303,7 +459,11 @@ public abstract class AbstractExporter implements Exporter {
             if ( EXPORTER.equals( key )
                  || OPTIONS.equals( org.teiid.modeshape.util.StringUtil.requireNonEmpty( key, "key" ) )
                  || PATH_EXPORTED_NODE.equals( key )
-                 || TYPE.equals( key ) ) {
+                 || TYPE.equals( key )
+                 || ELAPSED_TIME.equals( key )
+                 || NODES_EXPORTED.equals( key )
+                 || OUTPUT_SIZE.equals( key )
+                 || PHASE_TIMES.equals( key ) ) {
                 throw new RuntimeException( CoreI18n.unmodifiableResultData.text( key ) );
             }
 
@@ -338,6 +498,18 @@ public abstract class AbstractExporter implements Exporter {
             this.type = Objects.requireNonNull( outcomeType, "outcomeType" );
         }
 
+        /**
+         * Times an export phase. The elapsed time is added to the phase total of this result and reported to the global metrics
+         * registry when the timer is stopped or closed.
+         *
+         * @param phase
+         *        the phase name, usually one of the {@link ExportMetrics} timers (cannot be <code>null</code> or empty)
+         * @return the started timer (never <code>null</code>)
+         */
+        public MetricsRecorder.Timer startPhase( final String phase ) {
+            return metrics.start( phase, elapsed -> this.phaseTimes.merge( phase, elapsed, Long::sum ) );
+        }
+
         /**
          * {@inheritDoc}
          *
@@ -351,4 +523,37 @@ public abstract class AbstractExporter implements Exporter {
 
     }
 
+    /**
+     * An export whose node has been read and whose outcome has not yet been rendered.
+     *
+     * @see AbstractExporter#prepare(Node, Options)
+     */
+    @FunctionalInterface
+    public interface PreparedExport {
+
+        /**
+         * Renders the outcome. Errors are reported in the result rather than thrown.
+         *
+         * @return the export result (never <code>null</code>)
+         */
+        Result render();
+
+    }
+
+    /**
+     * Renders the outcome of an export from what was read, without accessing the repository.
+     *
+     * @see AbstractExporter#read(Node, Options, ResultImpl)
+     */
+    @FunctionalInterface
+    protected interface Renderer {
+
+        /**
+         * @throws Exception
+         *         if an error occurs rendering the outcome
+         */
+        void render() throws Exception;
+
+    }
+
 }
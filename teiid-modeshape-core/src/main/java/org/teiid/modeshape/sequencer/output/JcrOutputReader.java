@@ -0,0 +1,197 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.nodetype.NodeType;
+import org.teiid.modeshape.core.CoreI18n;
+
+/**
+ * Captures nodes already written to the repository as an {@link OutputNode output tree}, so that output written directly to
+ * the repository can still be {@link OutputCache cached}. Protected properties (identifiers, node types, creation dates) are
+ * not captured because the repository sets them when the tree is written again. References to nodes outside of the captured
+ * subtree cannot be captured, since they may not exist where the tree is written. Binary values are held in memory, so a
+ * subtree whose binary values are larger than a given size is not captured.
+ */
+public final class JcrOutputReader {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * @param node
+     *        the root of the subtree being captured (cannot be <code>null</code>)
+     * @param maxBinarySize
+     *        the maximum total size in bytes of the binary values captured, since they are held in memory
+     * @return the output tree (never <code>null</code>)
+     * @throws RepositoryException
+     *         if an error occurs reading, the subtree has a property that cannot be captured, or its binary values are larger
+     *         than the maximum size
+     */
+    public static OutputNode read( final Node node,
+                                   final long maxBinarySize ) throws RepositoryException {
+        return new JcrOutputReader( maxBinarySize ).capture( Objects.requireNonNull( node, "node" ) );
+    }
+
+    private long binarySize;
+    private final Map< String, OutputNode > byIdentifier = new HashMap<>();
+    private final long maxBinarySize;
+    private final List< Property > references = new ArrayList<>();
+    private final Map< Property, OutputNode > owners = new HashMap<>();
+
+    private JcrOutputReader( final long maxBinarySize ) {
+        this.maxBinarySize = maxBinarySize;
+    }
+
+    private OutputNode capture( final Node root ) throws RepositoryException {
+        final String rootName = root.getName();
+        final OutputNode output = new OutputNode( rootName.isEmpty() ? "output" : rootName,
+                                                  root.getPrimaryNodeType().getName() );
+        captureNode( root, output );
+
+        // references are resolved once every node of the subtree is known
+        for ( final Property property : this.references ) {
+            final Value[] values = ( property.isMultiple() ? property.getValues() : new Value[] { property.getValue() } );
+            final Object[] targets = new Object[ values.length ];
+
+            for ( int i = 0; i < values.length; ++i ) {
+                final OutputNode target = this.byIdentifier.get( values[ i ].getString() );
+
+                if ( target == null ) {
+                    throw new RepositoryException( CoreI18n.outputNotCapturable.text( property.getPath() ) );
+                }
+
+                targets[ i ] = OutputReference.toNode( target );
+            }
+
+            this.owners.get( property ).setProperty( property.getName(), property.getType(), property.isMultiple(), targets );
+        }
+
+        return output;
+    }
+
+    private void captureNode( final Node node,
+                              final OutputNode output ) throws RepositoryException {
+        this.byIdentifier.put( node.getIdentifier(), output );
+
+        for ( final NodeType mixin : node.getMixinNodeTypes() ) {
+            output.addMixin( mixin.getName() );
+        }
+
+        for ( final PropertyIterator itr = node.getProperties(); itr.hasNext(); ) {
+            final Property property = itr.nextProperty();
+
+            if ( property.getDefinition().isProtected() ) {
+                continue;
+            }
+
+            final int type = property.getType();
+
+            if ( ( type == PropertyType.REFERENCE ) || ( type == PropertyType.WEAKREFERENCE ) ) {
+                this.references.add( property );
+                this.owners.put( property, output );
+                continue;
+            }
+
+            final Value[] values = ( property.isMultiple() ? property.getValues() : new Value[] { property.getValue() } );
+            final Object[] converted = new Object[ values.length ];
+
+            for ( int i = 0; i < values.length; ++i ) {
+                converted[ i ] = convert( property, values[ i ] );
+            }
+
+            output.setProperty( property.getName(), type, property.isMultiple(), converted );
+        }
+
+        for ( final NodeIterator itr = node.getNodes(); itr.hasNext(); ) {
+            final Node child = itr.nextNode();
+            captureNode( child, output.addChild( child.getName(), child.getPrimaryNodeType().getName() ) );
+        }
+    }
+
+    private Object convert( final Property property,
+                            final Value value ) throws RepositoryException {
+        switch ( value.getType() ) {
+            case PropertyType.STRING:
+            case PropertyType.NAME:
+            case PropertyType.PATH:
+            case PropertyType.URI:
+                return value.getString();
+            case PropertyType.LONG:
+                return value.getLong();
+            case PropertyType.DOUBLE:
+                return value.getDouble();
+            case PropertyType.BOOLEAN:
+                return value.getBoolean();
+            case PropertyType.DECIMAL:
+                return value.getDecimal();
+            case PropertyType.DATE:
+                return value.getDate();
+            case PropertyType.BINARY:
+                final Binary binary = value.getBinary();
+
+                try {
+                    // checked before reading so a large binary is never copied into memory
+                    this.binarySize += binary.getSize();
+
+                    if ( this.binarySize > this.maxBinarySize ) {
+                        throw new RepositoryException( CoreI18n.outputBinaryTooLarge.text( property.getPath(),
+                                                                                           this.maxBinarySize ) );
+                    }
+
+                    try ( final InputStream stream = binary.getStream() ) {
+                        final ByteArrayOutputStream bytes = new ByteArrayOutputStream( ( int )Math.min( binary.getSize(),
+                                                                                                        Integer.MAX_VALUE ) );
+                        final byte[] buf = new byte[ BUFFER_SIZE ];
+                        int numRead = 0;
+
+                        while ( ( numRead = stream.read( buf ) ) != -1 ) {
+                            bytes.write( buf, 0, numRead );
+                        }
+
+                        return bytes.toByteArray();
+                    }
+                } catch ( final IOException e ) {
+                    throw new RepositoryException( e );
+                } finally {
+                    binary.dispose();
+                }
+            default:
+                throw new RepositoryException( CoreI18n.outputNotCapturable.text( property.getPath() ) );
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.output;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import org.teiid.modeshape.core.CoreI18n;
+
+/**
+ * Applies {@link OutputNode output trees} to the repository. Nodes, mixins, and non-reference properties are written in one
+ * depth-first pass. Reference properties are written in a second pass, once every node they can refer to exists, so trees may
+ * contain forward references. A writer remembers the repository node written for each output node until it is discarded.
+ */
+public final class JcrOutputWriter {
+
+    private final Map< OutputNode, Node > written = new IdentityHashMap<>();
+    private final List< OutputNode > deferred = new ArrayList<>();
+    private ValueFactory valueFactory;
+
+    /**
+     * @param outputNode
+     *        the output node whose repository node is being requested (cannot be <code>null</code>)
+     * @return the repository node or <code>null</code> if the output node has not been written by this writer
+     */
+    public Node getNode( final OutputNode outputNode ) {
+        return this.written.get( Objects.requireNonNull( outputNode, "outputNode" ) );
+    }
+
+    /**
+     * Applies an output tree to an existing node. The name of the root of the tree is ignored, its primary type (if not
+     * <code>null</code>), mixins, and properties are set on the target node, and its children are added to the target node.
+     *
+     * @param tree
+     *        the output tree being written (cannot be <code>null</code>)
+     * @param target
+     *        the repository node the root of the tree is written to (cannot be <code>null</code>)
+     * @return the number of nodes added
+     * @throws RepositoryException
+     *         if an error occurs writing or a reference refers to an output node that was not written
+     */
+    public long write( final OutputNode tree,
+                       final Node target ) throws RepositoryException {
+        Objects.requireNonNull( tree, "tree" );
+        Objects.requireNonNull( target, "target" );
+        this.valueFactory = target.getSession().getValueFactory();
+
+        if ( ( tree.getPrimaryType() != null ) && !tree.getPrimaryType().equals( target.getPrimaryNodeType().getName() ) ) {
+            target.setPrimaryType( tree.getPrimaryType() );
+        }
+
+        long count = 0;
+
+        try {
+            count = writeNode( tree, target );
+
+            for ( final OutputNode node : this.deferred ) {
+                final Node repositoryNode = this.written.get( node );
+
+                for ( final OutputProperty property : node.getProperties() ) {
+                    if ( property.isReference() ) {
+                        setProperty( repositoryNode, property );
+                    }
+                }
+            }
+        } finally {
+            this.deferred.clear();
+        }
+
+        return count;
+    }
+
+    private Value createValue( final int type,
+                               final Object value ) throws RepositoryException {
+        switch ( type ) {
+            case PropertyType.STRING:
+                return this.valueFactory.createValue( ( String )value );
+            case PropertyType.LONG:
+                return this.valueFactory.createValue( ( Long )value );
+            case PropertyType.DOUBLE:
+                return this.valueFactory.createValue( ( Double )value );
+            case PropertyType.BOOLEAN:
+                return this.valueFactory.createValue( ( Boolean )value );
+            case PropertyType.DECIMAL:
+                return this.valueFactory.createValue( ( BigDecimal )value );
+            case PropertyType.DATE:
+                return this.valueFactory.createValue( ( Calendar )value );
+            case PropertyType.BINARY:
+                final Binary binary = this.valueFactory.createBinary( new ByteArrayInputStream( ( byte[] )value ) );
+                return this.valueFactory.createValue( binary );
+            case PropertyType.REFERENCE:
+            case PropertyType.WEAKREFERENCE:
+                final OutputReference reference = ( OutputReference )value;
+
+                if ( reference.getIdentifier() != null ) {
+                    return this.valueFactory.createValue( reference.getIdentifier(), type );
+                }
+
+                final Node referenced = this.written.get( reference.getTarget() );
+
+                if ( referenced == null ) {
+                    throw new RepositoryException( CoreI18n.outputReferenceNotWritten.text( reference.getTarget() ) );
+                }
+
+                return this.valueFactory.createValue( referenced, ( type == PropertyType.WEAKREFERENCE ) );
+            default:
+                return this.valueFactory.createValue( ( String )value, type );
+        }
+    }
+
+    private void setProperty( final Node node,
+                              final OutputProperty property ) throws RepositoryException {
+        final List< Object > values = property.getValues();
+
+        if ( property.isMultiple() ) {
+            final Value[] jcrValues = new Value[ values.size() ];
+
+            for ( int i = 0; i < jcrValues.length; ++i ) {
+                jcrValues[ i ] = createValue( property.getType(), values.get( i ) );
+            }
+
+            node.setProperty( property.getName(), jcrValues );
+        } else {
+            node.setProperty( property.getName(), createValue( property.getType(), values.get( 0 ) ) );
+        }
+    }
+
+    private long writeNode( final OutputNode outputNode,
+                            final Node node ) throws RepositoryException {
+        this.written.put( outputNode, node );
+
+        for ( final String mixin : outputNode.getMixins() ) {
+            node.addMixin( mixin );
+        }
+
+        boolean hasReferences = false;
+
+        for ( final OutputProperty property : outputNode.getProperties() ) {
+            if ( property.isReference() ) {
+                hasReferences = true;
+            } else {
+                setProperty( node, property );
+            }
+        }
+
+        if ( hasReferences ) {
+            this.deferred.add( outputNode );
+        }
+
+        long count = 0;
+
+        for ( final OutputNode child : outputNode.getChildren() ) {
+            final String childType = child.getPrimaryType();
+            final Node childNode = ( ( childType == null ) ? node.addNode( child.getName() )
+                                                           : node.addNode( child.getName(), childType ) );
+            count += ( 1 + writeNode( child, childNode ) );
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,741 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.jcr.Binary;
+import javax.jcr.NamespaceException;
+import javax.jcr.NamespaceRegistry;
+import javax.jcr.Node;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.nodetype.NodeTypeManager;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.common.util.SecureHash;
+import org.teiid.modeshape.core.CoreI18n;
+import org.teiid.modeshape.metrics.MetricsRecorder;
+import org.teiid.modeshape.metrics.SequencingMetrics;
+
+/**
+ * A bounded, least-recently-used, on-disk cache of sequencer {@link OutputNode output trees} keyed by the SHA-256 digest of the
+ * sequenced content, the sequencer version, and the sequencer configuration. When the same content is sequenced again, the
+ * cached tree is written to the repository without parsing. Each entry also records the namespaces its names use so they can
+ * be registered before the tree is written. An entry is only used if every node type and mixin of its tree is registered in
+ * the repository it is written to, because some sequencers register node types while sequencing.
+ * <p>
+ * The {@link #shared() shared cache} is disabled unless the {@link #DIRECTORY_PROPERTY directory} system property is set.
+ * Entries that cannot be read are deleted and treated as misses, and failures writing entries are logged, so the cache never
+ * causes sequencing to fail.
+ */
+@ThreadSafe
+public final class OutputCache {
+
+    /**
+     * A system property for the directory of the {@link #shared() shared cache}. Caching is disabled if not set.
+     */
+    public static final String DIRECTORY_PROPERTY = "teiid.modeshape.output-cache.directory";
+
+    /**
+     * A system property for the maximum total size in bytes of the entries of the {@link #shared() shared cache}. A value less
+     * than one disables caching. Default is {@value #DEFAULT_MAX_SIZE}.
+     */
+    public static final String MAX_SIZE_PROPERTY = "teiid.modeshape.output-cache.max-size";
+
+    /**
+     * The default maximum total size in bytes of the cache entries. Value is {@value}.
+     */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * A system property for the maximum total size in bytes of the binary values of an output tree cached by the
+     * {@link #shared() shared cache}. Binary values are held in memory while an entry is written, so output with larger binary
+     * values is not cached. Default is {@value #DEFAULT_MAX_BINARY_SIZE}.
+     */
+    public static final String MAX_BINARY_SIZE_PROPERTY = "teiid.modeshape.output-cache.max-binary-size";
+
+    /**
+     * The default maximum total size in bytes of the binary values of a cached output tree. Value is {@value}.
+     */
+    public static final long DEFAULT_MAX_BINARY_SIZE = 4L * 1024 * 1024;
+
+    /**
+     * The version of the entry format. Changing it makes all existing entries unreachable. Value is {@value}.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * The suffix of the entry file names, which are the entry keys followed by the suffix. Value is {@value}.
+     */
+    static final String ENTRY_SUFFIX = ".out";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final Logger LOGGER = Logger.getLogger( OutputCache.class );
+    private static final MetricsRecorder METRICS = new MetricsRecorder( OutputCache.class );
+    private static final OutputCache SHARED = new OutputCache( directory( System.getProperty( DIRECTORY_PROPERTY ) ),
+                                                               Long.getLong( MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE ),
+                                                               Long.getLong( MAX_BINARY_SIZE_PROPERTY,
+                                                                             DEFAULT_MAX_BINARY_SIZE ) );
+
+    /**
+     * The package of the output tree classes, which are allowed when reading entries.
+     */
+    private static final String ALLOWED_PACKAGE = OutputCache.class.getPackage().getName() + '.';
+
+    /**
+     * The other classes allowed when reading entries. Entries only contain output trees, so only the collections they use and
+     * the classes of property values are deserialized.
+     */
+    private static final Set< String > ALLOWED_CLASSES = new HashSet<>( Arrays.asList( "java.lang.Boolean",
+                                                                                       "java.lang.Double",
+                                                                                       "java.lang.Long",
+                                                                                       "java.lang.Number",
+                                                                                       "java.lang.Object",
+                                                                                       "java.lang.String",
+                                                                                       "java.math.BigDecimal",
+                                                                                       "java.math.BigInteger",
+                                                                                       "java.util.ArrayList",
+                                                                                       "java.util.Calendar",
+                                                                                       "java.util.GregorianCalendar",
+                                                                                       "java.util.HashMap",
+                                                                                       "java.util.LinkedHashMap",
+                                                                                       "java.util.SimpleTimeZone",
+                                                                                       "java.util.TimeZone",
+                                                                                       "sun.util.calendar.ZoneInfo" ) );
+
+    private static Path directory( final String path ) {
+        return ( ( ( path == null ) || path.trim().isEmpty() ) ? null : Paths.get( path.trim() ) );
+    }
+
+    /**
+     * @return the cache shared by the sequencers (never <code>null</code>)
+     */
+    public static OutputCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Entry key to entry file size in least-recently-used order. Loaded from the directory on first use.
+     */
+    private final LinkedHashMap< String, Long > index = new LinkedHashMap<>( 16, 0.75f, true );
+
+    private volatile Path directory;
+    private boolean loaded;
+    private volatile long maxBinarySize;
+    private volatile long maxSize;
+    private long size;
+
+    /**
+     * @param directory
+     *        the directory holding the cache entries (can be <code>null</code> if caching is disabled)
+     * @param maxSize
+     *        the maximum total size in bytes of the cache entries (a value less than one disables caching)
+     */
+    public OutputCache( final Path directory,
+                        final long maxSize ) {
+        this( directory, maxSize, DEFAULT_MAX_BINARY_SIZE );
+    }
+
+    /**
+     * @param directory
+     *        the directory holding the cache entries (can be <code>null</code> if caching is disabled)
+     * @param maxSize
+     *        the maximum total size in bytes of the cache entries (a value less than one disables caching)
+     * @param maxBinarySize
+     *        the maximum total size in bytes of the binary values of an output tree captured from the repository
+     */
+    public OutputCache( final Path directory,
+                        final long maxSize,
+                        final long maxBinarySize ) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.maxBinarySize = maxBinarySize;
+    }
+
+    /**
+     * Deletes all cache entries.
+     */
+    public synchronized void clear() {
+        load();
+
+        for ( final String key : this.index.keySet() ) {
+            delete( key );
+        }
+
+        this.index.clear();
+        this.size = 0;
+    }
+
+    private void collectNamespaces( final OutputNode tree,
+                                    final Session session,
+                                    final Map< String, String > namespaces ) throws RepositoryException {
+        final Set< String > prefixes = new HashSet<>();
+        final Deque< OutputNode > stack = new ArrayDeque<>();
+        stack.push( tree );
+
+        while ( !stack.isEmpty() ) {
+            final OutputNode node = stack.pop();
+            prefix( node.getName(), prefixes );
+            prefix( node.getPrimaryType(), prefixes );
+
+            for ( final String mixin : node.getMixins() ) {
+                prefix( mixin, prefixes );
+            }
+
+            for ( final OutputProperty property : node.getProperties() ) {
+                prefix( property.getName(), prefixes );
+
+                if ( property.getType() == PropertyType.NAME ) {
+                    for ( final Object value : property.getValues() ) {
+                        prefix( ( String )value, prefixes );
+                    }
+                }
+            }
+
+            for ( final OutputNode kid : node.getChildren() ) {
+                stack.push( kid );
+            }
+        }
+
+        for ( final String prefix : prefixes ) {
+            namespaces.put( prefix, session.getNamespaceURI( prefix ) );
+        }
+    }
+
+    private void delete( final String key ) {
+        try {
+            Files.deleteIfExists( file( key ) );
+        } catch ( final IOException e ) {
+            LOGGER.debug( e, "Unable to delete output cache entry {0}", key );
+        }
+    }
+
+    private Path file( final String key ) {
+        return this.directory.resolve( key + ENTRY_SUFFIX );
+    }
+
+    /**
+     * Obtains the cached output tree of a key. The namespaces used by the tree are registered if they are not already.
+     *
+     * @param key
+     *        the key of the output (cannot be empty)
+     * @param session
+     *        the session the tree will be written with (cannot be <code>null</code>)
+     * @return the output tree or <code>null</code> if the key is not cached or the tree cannot be written with the session
+     * @throws RepositoryException
+     *         if an error occurs registering namespaces
+     */
+    public OutputNode get( final String key,
+                           final Session session ) throws RepositoryException {
+        CheckArg.isNotEmpty( key, "key" );
+        CheckArg.isNotNull( session, "session" );
+
+        if ( !isEnabled() ) {
+            return null;
+        }
+
+        final Entry entry = read( key );
+        final Map< String, String > unregistered = new HashMap<>();
+
+        if ( ( entry == null ) || !isWritable( entry, session, unregistered ) ) {
+            METRICS.increment( SequencingMetrics.OUTPUT_CACHE_MISS, 1 );
+            return null;
+        }
+
+        // only registered once the entry is known to be used
+        final NamespaceRegistry registry = session.getWorkspace().getNamespaceRegistry();
+
+        for ( final Map.Entry< String, String > namespace : unregistered.entrySet() ) {
+            registry.registerNamespace( namespace.getKey(), namespace.getValue() );
+        }
+
+        METRICS.increment( SequencingMetrics.OUTPUT_CACHE_HIT, 1 );
+        return entry.tree;
+    }
+
+    /**
+     * @return the directory holding the cache entries (can be <code>null</code> if caching is disabled)
+     */
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * @return the maximum total size in bytes of the binary values of an output tree captured from the repository
+     */
+    public long getMaxBinarySize() {
+        return this.maxBinarySize;
+    }
+
+    /**
+     * @return the maximum total size in bytes of the cache entries (a value less than one means caching is disabled)
+     */
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    private boolean hasNodeType( final String name,
+                                 final NodeTypeManager typeManager,
+                                 final Map< String, String > unregistered ) throws RepositoryException {
+        final Set< String > prefixes = new HashSet<>( 1 );
+        prefix( name, prefixes );
+
+        // a node type cannot be registered if its namespace is not
+        return ( Collections.disjoint( prefixes, unregistered.keySet() ) && typeManager.hasNodeType( name ) );
+    }
+
+    /**
+     * @return <code>true</code> if a directory has been set and the maximum size is positive
+     */
+    public boolean isEnabled() {
+        return ( ( this.directory != null ) && ( this.maxSize > 0 ) );
+    }
+
+    /**
+     * Checks if the tree of an entry can be written with a session without changing the repository.
+     *
+     * @param entry
+     *        the entry being checked (cannot be <code>null</code>)
+     * @param session
+     *        the session the tree will be written with (cannot be <code>null</code>)
+     * @param unregistered
+     *        the map the namespaces of the entry that are not registered are added to (cannot be <code>null</code>)
+     * @return <code>true</code> if the tree can be written once the unregistered namespaces are registered
+     * @throws RepositoryException
+     *         if an error occurs obtaining namespaces or node types
+     */
+    private boolean isWritable( final Entry entry,
+                                final Session session,
+                                final Map< String, String > unregistered ) throws RepositoryException {
+        final NamespaceRegistry registry = session.getWorkspace().getNamespaceRegistry();
+
+        for ( final Map.Entry< String, String > namespace : entry.namespaces.entrySet() ) {
+            String uri = null;
+
+            try {
+                uri = registry.getURI( namespace.getKey() );
+            } catch ( final NamespaceException e ) {
+                // a URI registered with another prefix cannot be registered again
+                try {
+                    registry.getPrefix( namespace.getValue() );
+                    return false;
+                } catch ( final NamespaceException notRegistered ) {
+                    unregistered.put( namespace.getKey(), namespace.getValue() );
+                    continue;
+                }
+            }
+
+            if ( !uri.equals( namespace.getValue() ) ) {
+                return false;
+            }
+        }
+
+        final NodeTypeManager typeManager = session.getWorkspace().getNodeTypeManager();
+        final Deque< OutputNode > stack = new ArrayDeque<>();
+        stack.push( entry.tree );
+
+        while ( !stack.isEmpty() ) {
+            final OutputNode node = stack.pop();
+
+            if ( ( node.getPrimaryType() != null ) && !hasNodeType( node.getPrimaryType(), typeManager, unregistered ) ) {
+                return false;
+            }
+
+            for ( final String mixin : node.getMixins() ) {
+                if ( !hasNodeType( mixin, typeManager, unregistered ) ) {
+                    return false;
+                }
+            }
+
+            for ( final OutputNode kid : node.getChildren() ) {
+                stack.push( kid );
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Computes the key of sequencer output. The key changes when the content, the sequencer class or its version, the
+     * configuration, or the {@link #FORMAT_VERSION entry format} change.
+     *
+     * @param content
+     *        the content being sequenced (cannot be <code>null</code>)
+     * @param sequencerClass
+     *        the class of the sequencer (cannot be <code>null</code>)
+     * @param configuration
+     *        the sequencer configuration that affects its output (can be <code>null</code> or empty)
+     * @return the key (never empty)
+     * @throws Exception
+     *         if an error occurs reading the content
+     */
+    public String key( final Binary content,
+                       final Class< ? > sequencerClass,
+                       final String configuration ) throws Exception {
+        CheckArg.isNotNull( content, "content" );
+        CheckArg.isNotNull( sequencerClass, "sequencerClass" );
+
+        final MessageDigest digest = MessageDigest.getInstance( SecureHash.Algorithm.SHA_256.digestName() );
+        final Package pkg = sequencerClass.getPackage();
+        final String version = ( ( pkg == null ) ? null : pkg.getImplementationVersion() );
+        final String header = FORMAT_VERSION + "\n" + sequencerClass.getName() + '\n' + version + '\n' + configuration + '\n';
+        digest.update( header.getBytes( StandardCharsets.UTF_8 ) );
+
+        try ( final InputStream stream = content.getStream() ) {
+            final byte[] buf = new byte[ BUFFER_SIZE ];
+            int numRead = 0;
+
+            while ( ( numRead = stream.read( buf ) ) != -1 ) {
+                digest.update( buf, 0, numRead );
+            }
+        }
+
+        return SecureHash.asHexString( digest.digest() );
+    }
+
+    /**
+     * Loads the index from the entries found in the directory, oldest first, the first time it is needed.
+     */
+    private void load() {
+        if ( this.loaded || ( this.directory == null ) ) {
+            return;
+        }
+
+        this.loaded = true;
+        final List< Path > files = new ArrayList<>();
+
+        try {
+            Files.createDirectories( this.directory );
+
+            try ( final DirectoryStream< Path > stream = Files.newDirectoryStream( this.directory, '*' + ENTRY_SUFFIX ) ) {
+                for ( final Path file : stream ) {
+                    files.add( file );
+                }
+            }
+
+            final Map< Path, FileTime > modified = new HashMap<>();
+
+            for ( final Path file : files ) {
+                modified.put( file, Files.getLastModifiedTime( file ) );
+            }
+
+            files.sort( ( thisFile, thatFile ) -> modified.get( thisFile ).compareTo( modified.get( thatFile ) ) );
+
+            for ( final Path file : files ) {
+                final String name = file.getFileName().toString();
+                final long fileSize = Files.size( file );
+                this.index.put( name.substring( 0, name.length() - ENTRY_SUFFIX.length() ), fileSize );
+                this.size += fileSize;
+            }
+        } catch ( final IOException e ) {
+            LOGGER.warn( e, CoreI18n.outputCacheUnavailable, this.directory, e.getLocalizedMessage() );
+        }
+
+        trim();
+    }
+
+    private void prefix( final String name,
+                         final Set< String > prefixes ) {
+        if ( ( name != null ) && !name.startsWith( "{" ) ) {
+            final int index = name.indexOf( ':' );
+
+            if ( index > 0 ) {
+                prefixes.add( name.substring( 0, index ) );
+            }
+        }
+    }
+
+    /**
+     * Captures sequencer output already written to the repository and caches it. Output that cannot be captured, like output
+     * with references to nodes outside of it or with binary values larger than the {@link #getMaxBinarySize() maximum binary
+     * size}, is not cached.
+     *
+     * @param key
+     *        the key of the output (cannot be empty)
+     * @param outputNode
+     *        the root of the output written by the sequencer (cannot be <code>null</code>)
+     * @throws RepositoryException
+     *         if an error occurs obtaining namespaces
+     * @see JcrOutputReader
+     */
+    public void put( final String key,
+                     final Node outputNode ) throws RepositoryException {
+        CheckArg.isNotNull( outputNode, "outputNode" );
+
+        if ( !isEnabled() ) {
+            return;
+        }
+
+        final OutputNode tree;
+
+        try {
+            tree = JcrOutputReader.read( outputNode, this.maxBinarySize );
+        } catch ( final RepositoryException e ) {
+            LOGGER.debug( "Output of node {0} not cached: {1}", outputNode.getPath(), e.getLocalizedMessage() );
+            return;
+        }
+
+        put( key, tree, outputNode.getSession() );
+    }
+
+    /**
+     * Caches an output tree. An entry larger than the maximum size of the cache is not cached.
+     *
+     * @param key
+     *        the key of the output (cannot be empty)
+     * @param tree
+     *        the output tree (cannot be <code>null</code>)
+     * @param session
+     *        the session used to obtain the namespaces of the names used by the tree (cannot be <code>null</code>)
+     * @throws RepositoryException
+     *         if an error occurs obtaining namespaces
+     */
+    public void put( final String key,
+                     final OutputNode tree,
+                     final Session session ) throws RepositoryException {
+        CheckArg.isNotEmpty( key, "key" );
+        CheckArg.isNotNull( tree, "tree" );
+        CheckArg.isNotNull( session, "session" );
+
+        final Path dir = this.directory;
+
+        if ( !isEnabled() ) {
+            return;
+        }
+
+        final Entry entry = new Entry( tree );
+        collectNamespaces( tree, session, entry.namespaces );
+        Path temp = null;
+
+        try {
+            Files.createDirectories( dir );
+            temp = Files.createTempFile( dir, key, ".tmp" );
+
+            try ( final ObjectOutputStream stream = new ObjectOutputStream( new BufferedOutputStream( new GZIPOutputStream( Files.newOutputStream( temp ) ),
+                                                                                                       BUFFER_SIZE ) ) ) {
+                stream.writeObject( entry );
+            }
+
+            final long fileSize = Files.size( temp );
+
+            synchronized ( this ) {
+                load();
+
+                if ( ( dir != this.directory ) || ( fileSize > this.maxSize ) ) {
+                    return;
+                }
+
+                Files.move( temp, file( key ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+                temp = null;
+                final Long previous = this.index.put( key, fileSize );
+                this.size += ( fileSize - ( ( previous == null ) ? 0 : previous ) );
+                trim();
+            }
+        } catch ( final IOException e ) {
+            LOGGER.warn( e, CoreI18n.outputCacheWriteFailed, key, e.getLocalizedMessage() );
+        } finally {
+            if ( temp != null ) {
+                try {
+                    Files.deleteIfExists( temp );
+                } catch ( final IOException e ) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    private Entry read( final String key ) {
+        synchronized ( this ) {
+            load();
+
+            if ( this.index.get( key ) == null ) {
+                return null;
+            }
+        }
+
+        final Path file = file( key );
+
+        try ( final ObjectInputStream stream = new EntryInputStream( new BufferedInputStream( new GZIPInputStream( Files.newInputStream( file ) ),
+                                                                                              BUFFER_SIZE ) ) ) {
+            final Entry entry = ( Entry )stream.readObject();
+
+            try {
+                Files.setLastModifiedTime( file, FileTime.fromMillis( System.currentTimeMillis() ) );
+            } catch ( final IOException e ) {
+                // only affects eviction order after a restart
+            }
+
+            return entry;
+        } catch ( final IOException | ClassNotFoundException | ClassCastException e ) {
+            LOGGER.debug( e, "Removing unreadable output cache entry {0}", key );
+
+            synchronized ( this ) {
+                final Long fileSize = this.index.remove( key );
+
+                if ( fileSize != null ) {
+                    this.size -= fileSize;
+                    delete( key );
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Changes the directory holding the cache entries. Entries in the previous directory are left in place.
+     *
+     * @param newDirectory
+     *        the new directory (can be <code>null</code> to disable caching)
+     */
+    public synchronized void setDirectory( final Path newDirectory ) {
+        this.directory = newDirectory;
+        this.index.clear();
+        this.size = 0;
+        this.loaded = false;
+    }
+
+    /**
+     * @param newMaxBinarySize
+     *        the new maximum total size in bytes of the binary values of an output tree captured from the repository
+     */
+    public void setMaxBinarySize( final long newMaxBinarySize ) {
+        this.maxBinarySize = newMaxBinarySize;
+    }
+
+    /**
+     * @param newMaxSize
+     *        the new maximum total size in bytes of the cache entries (a value less than one disables caching, least recently
+     *        used entries that no longer fit are deleted)
+     */
+    public synchronized void setMaxSize( final long newMaxSize ) {
+        this.maxSize = newMaxSize;
+
+        if ( this.loaded ) {
+            trim();
+        }
+    }
+
+    /**
+     * @return the total size in bytes of the cache entries
+     */
+    public synchronized long size() {
+        load();
+        return this.size;
+    }
+
+    /**
+     * Deletes least recently used entries until the entries fit.
+     */
+    private void trim() {
+        while ( !this.index.isEmpty() && ( this.size > Math.max( this.maxSize, 0 ) ) ) {
+            final Map.Entry< String, Long > eldest = this.index.entrySet().iterator().next();
+            this.index.remove( eldest.getKey() );
+            this.size -= eldest.getValue();
+            delete( eldest.getKey() );
+        }
+    }
+
+    /**
+     * A cached output tree and the namespaces of the names it uses.
+     */
+    private static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final HashMap< String, String > namespaces = new HashMap<>();
+        private final OutputNode tree;
+
+        Entry( final OutputNode tree ) {
+            this.tree = tree;
+        }
+
+    }
+
+    /**
+     * Only resolves the classes that can appear in an entry.
+     */
+    private static final class EntryInputStream extends ObjectInputStream {
+
+        EntryInputStream( final InputStream stream ) throws IOException {
+            super( stream );
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.ObjectInputStream#resolveClass(java.io.ObjectStreamClass)
+         */
+        @Override
+        protected Class< ? > resolveClass( final ObjectStreamClass desc ) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+
+            while ( name.startsWith( "[" ) ) {
+                name = name.substring( 1 );
+            }
+
+            if ( name.startsWith( "L" ) && name.endsWith( ";" ) ) {
+                name = name.substring( 1, name.length() - 1 );
+            }
+
+            // single letter names are primitive array components
+            if ( ( name.length() > 1 ) && !name.startsWith( ALLOWED_PACKAGE ) && !ALLOWED_CLASSES.contains( name ) ) {
+                throw new InvalidClassException( desc.getName(), "not allowed in an output cache entry" );
+            }
+
+            return super.resolveClass( desc );
+        }
+
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.output;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.teiid.modeshape.util.StringUtil;
+
+/**
+ * A node of sequencer output that does not depend on a repository. Sequencers build a tree of output nodes which is then applied
+ * to the repository by a {@link JcrOutputWriter writer}. Because the tree is serializable it can also be cached or built
+ * somewhere other than where it is written. Collections are only allocated when first used so that large trees stay small.
+ */
+public final class OutputNode implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final OutputNode parent;
+    private String primaryType;
+    private List< String > mixins;
+    private Map< String, OutputProperty > properties;
+    private List< OutputNode > children;
+
+    /**
+     * Constructs the root of an output tree.
+     *
+     * @param name
+     *        the node name (cannot be <code>null</code> or empty)
+     * @param primaryType
+     *        the primary type (can be <code>null</code> if the type of an existing node should not be changed or the default
+     *        child type should be used)
+     */
+    public OutputNode( final String name,
+                       final String primaryType ) {
+        this( null, name, primaryType );
+    }
+
+    private OutputNode( final OutputNode parent,
+                        final String name,
+                        final String primaryType ) {
+        this.parent = parent;
+        this.name = StringUtil.requireNonEmpty( name, "name" );
+        this.primaryType = primaryType;
+    }
+
+    /**
+     * @param childName
+     *        the name of the new child (cannot be <code>null</code> or empty)
+     * @param childPrimaryType
+     *        the primary type of the new child (can be <code>null</code> if the default child type should be used)
+     * @return the new child, added after any existing children (never <code>null</code>)
+     */
+    public OutputNode addChild( final String childName,
+                                final String childPrimaryType ) {
+        final OutputNode child = new OutputNode( this, childName, childPrimaryType );
+
+        if ( this.children == null ) {
+            this.children = new ArrayList<>();
+        }
+
+        this.children.add( child );
+        return child;
+    }
+
+    /**
+     * @param mixin
+     *        the name of the mixin being added (cannot be <code>null</code> or empty)
+     */
+    public void addMixin( final String mixin ) {
+        StringUtil.requireNonEmpty( mixin, "mixin" );
+
+        if ( this.mixins == null ) {
+            this.mixins = new ArrayList<>( 2 );
+        }
+
+        if ( !this.mixins.contains( mixin ) ) {
+            this.mixins.add( mixin );
+        }
+    }
+
+    /**
+     * @return the children in the order they were added (never <code>null</code>)
+     */
+    public List< OutputNode > getChildren() {
+        return ( ( this.children == null ) ? Collections.emptyList() : Collections.unmodifiableList( this.children ) );
+    }
+
+    /**
+     * @return the mixins in the order they were added (never <code>null</code>)
+     */
+    public List< String > getMixins() {
+        return ( ( this.mixins == null ) ? Collections.emptyList() : Collections.unmodifiableList( this.mixins ) );
+    }
+
+    /**
+     * @return the node name (never <code>null</code> or empty)
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return the parent (<code>null</code> if the root of the tree)
+     */
+    public OutputNode getParent() {
+        return this.parent;
+    }
+
+    /**
+     * @return the primary type (can be <code>null</code>)
+     */
+    public String getPrimaryType() {
+        return this.primaryType;
+    }
+
+    /**
+     * @return the properties in the order they were first set (never <code>null</code>)
+     */
+    public Collection< OutputProperty > getProperties() {
+        return ( ( this.properties == null ) ? Collections.emptyList()
+                                             : Collections.unmodifiableCollection( this.properties.values() ) );
+    }
+
+    /**
+     * @param propertyName
+     *        the name of the property being requested (cannot be <code>null</code> or empty)
+     * @return the property or <code>null</code> if not set
+     */
+    public OutputProperty getProperty( final String propertyName ) {
+        StringUtil.requireNonEmpty( propertyName, "propertyName" );
+        return ( ( this.properties == null ) ? null : this.properties.get( propertyName ) );
+    }
+
+    /**
+     * @param propertyName
+     *        the name of the property being removed (cannot be <code>null</code> or empty)
+     * @return the removed property or <code>null</code> if not set
+     */
+    public OutputProperty removeProperty( final String propertyName ) {
+        StringUtil.requireNonEmpty( propertyName, "propertyName" );
+        return ( ( this.properties == null ) ? null : this.properties.remove( propertyName ) );
+    }
+
+    /**
+     * @param newPrimaryType
+     *        the new primary type (can be <code>null</code>)
+     */
+    public void setPrimaryType( final String newPrimaryType ) {
+        this.primaryType = newPrimaryType;
+    }
+
+    /**
+     * Sets a property, replacing any existing property with the same name.
+     *
+     * @param propertyName
+     *        the property name (cannot be <code>null</code> or empty)
+     * @param type
+     *        the {@link javax.jcr.PropertyType property type} of the values
+     * @param multiple
+     *        <code>true</code> if the property is multi-valued
+     * @param values
+     *        the values, whose class must match the type as described by {@link OutputProperty} (cannot be <code>null</code>)
+     * @return the property (never <code>null</code>)
+     * @throws IllegalArgumentException
+     *         if a value does not match the type or a single-valued property does not have exactly one value
+     */
+    public OutputProperty setProperty( final String propertyName,
+                                       final int type,
+                                       final boolean multiple,
+                                       final Object... values ) {
+        final OutputProperty property = new OutputProperty( propertyName, type, multiple, Objects.requireNonNull( values,
+                                                                                                                 "values" ) );
+
+        if ( this.properties == null ) {
+            this.properties = new LinkedHashMap<>();
+        }
+
+        this.properties.put( propertyName, property );
+        return property;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return ( ( this.parent == null ) ? this.name : ( this.parent.toString() + '/' + this.name ) );
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.output;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import javax.jcr.PropertyType;
+import org.teiid.modeshape.util.StringUtil;
+
+/**
+ * A property of an {@link OutputNode output node}. The class of each value depends on the property type:
+ * <p>
+ * <ul>
+ * <li>{@link PropertyType#STRING}, {@link PropertyType#NAME}, {@link PropertyType#PATH}, {@link PropertyType#URI} -
+ * <code>String</code></li>
+ * <li>{@link PropertyType#LONG} - <code>Long</code></li>
+ * <li>{@link PropertyType#DOUBLE} - <code>Double</code></li>
+ * <li>{@link PropertyType#BOOLEAN} - <code>Boolean</code></li>
+ * <li>{@link PropertyType#DECIMAL} - <code>BigDecimal</code></li>
+ * <li>{@link PropertyType#DATE} - <code>Calendar</code></li>
+ * <li>{@link PropertyType#BINARY} - <code>byte[]</code></li>
+ * <li>{@link PropertyType#REFERENCE}, {@link PropertyType#WEAKREFERENCE} - {@link OutputReference}</li>
+ * <li>{@link PropertyType#UNDEFINED} - only allowed when there are no values</li>
+ * </ul>
+ */
+public final class OutputProperty implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static Class< ? > valueClass( final int type ) {
+        switch ( type ) {
+            case PropertyType.STRING:
+            case PropertyType.NAME:
+            case PropertyType.PATH:
+            case PropertyType.URI:
+                return String.class;
+            case PropertyType.LONG:
+                return Long.class;
+            case PropertyType.DOUBLE:
+                return Double.class;
+            case PropertyType.BOOLEAN:
+                return Boolean.class;
+            case PropertyType.DECIMAL:
+                return BigDecimal.class;
+            case PropertyType.DATE:
+                return Calendar.class;
+            case PropertyType.BINARY:
+                return byte[].class;
+            case PropertyType.REFERENCE:
+            case PropertyType.WEAKREFERENCE:
+                return OutputReference.class;
+            default:
+                return null;
+        }
+    }
+
+    private final String name;
+    private final int type;
+    private final boolean multiple;
+    private final Object[] values;
+
+    OutputProperty( final String name,
+                    final int type,
+                    final boolean multiple,
+                    final Object[] values ) {
+        this.name = StringUtil.requireNonEmpty( name, "name" );
+
+        if ( !multiple && ( values.length != 1 ) ) {
+            throw new IllegalArgumentException( "values" );
+        }
+
+        final Class< ? > valueClass = valueClass( type );
+
+        for ( final Object value : values ) {
+            if ( ( valueClass == null ) || !valueClass.isInstance( value ) ) {
+                throw new IllegalArgumentException( "values" );
+            }
+        }
+
+        this.type = type;
+        this.multiple = multiple;
+        this.values = values.clone();
+    }
+
+    /**
+     * @return the property name (never <code>null</code> or empty)
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return the {@link PropertyType property type}
+     */
+    public int getType() {
+        return this.type;
+    }
+
+    /**
+     * @return the first value (<code>null</code> if there are no values)
+     */
+    public Object getValue() {
+        return ( ( this.values.length == 0 ) ? null : this.values[ 0 ] );
+    }
+
+    /**
+     * @return the values (never <code>null</code>)
+     */
+    public List< Object > getValues() {
+        return Collections.unmodifiableList( Arrays.asList( this.values ) );
+    }
+
+    /**
+     * @return <code>true</code> if the property is multi-valued
+     */
+    public boolean isMultiple() {
+        return this.multiple;
+    }
+
+    /**
+     * @return <code>true</code> if the values are references, which are written after all the nodes of the tree
+     */
+    public boolean isReference() {
+        return ( ( this.type == PropertyType.REFERENCE ) || ( this.type == PropertyType.WEAKREFERENCE ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return ( this.name + '=' + ( this.multiple ? Arrays.toString( this.values ) : String.valueOf( this.values[ 0 ] ) ) );
+    }
+
+}
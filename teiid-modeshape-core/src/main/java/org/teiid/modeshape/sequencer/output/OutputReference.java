@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.output;
+
+import java.io.Serializable;
+import java.util.Objects;
+import org.teiid.modeshape.util.StringUtil;
+
+/**
+ * The value of a reference property of an {@link OutputNode output node}. The referenced node is either another node of the same
+ * output tree, resolved once the whole tree has been written, or an existing repository node identified by its identifier.
+ */
+public final class OutputReference implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param identifier
+     *        the identifier of the existing repository node being referenced (cannot be <code>null</code> or empty)
+     * @return the reference (never <code>null</code>)
+     */
+    public static OutputReference toIdentifier( final String identifier ) {
+        return new OutputReference( null, StringUtil.requireNonEmpty( identifier, "identifier" ) );
+    }
+
+    /**
+     * @param target
+     *        the output node being referenced (cannot be <code>null</code>)
+     * @return the reference (never <code>null</code>)
+     */
+    public static OutputReference toNode( final OutputNode target ) {
+        return new OutputReference( Objects.requireNonNull( target, "target" ), null );
+    }
+
+    private final OutputNode target;
+    private final String identifier;
+
+    private OutputReference( final OutputNode target,
+                             final String identifier ) {
+        this.target = target;
+        this.identifier = identifier;
+    }
+
+    /**
+     * @return the identifier of the referenced repository node (<code>null</code> if referencing an output node)
+     */
+    public String getIdentifier() {
+        return this.identifier;
+    }
+
+    /**
+     * @return the referenced output node (<code>null</code> if referencing an existing repository node)
+     */
+    public OutputNode getTarget() {
+        return this.target;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return ( ( this.target == null ) ? this.identifier : ( "->" + this.target ) );
+    }
+
+}
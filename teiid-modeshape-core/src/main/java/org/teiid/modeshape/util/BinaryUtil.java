@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import javax.jcr.Binary;
+import javax.jcr.RepositoryException;
+import javax.jcr.ValueFactory;
+
+/**
+ * Utilities for creating {@link Binary binary values} from archive entries.
+ */
+public class BinaryUtil {
+
+    /**
+     * A system property indicating if archive entries should first be copied to a temporary file before creating a binary
+     * value. Only needed by binary stores that require a stream that can be read more than once. Default is <code>false</code>.
+     */
+    public static final String SPILL_TO_DISK_PROPERTY = "teiid.modeshape.binary.spill-to-disk";
+
+    /**
+     * The size of the buffer used when copying an entry to a temporary file. Value is {@value}.
+     */
+    static final int SPILL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Creates a binary from the current entry of an archive stream without closing that stream. The entry is streamed directly
+     * to the binary store unless the {@link #SPILL_TO_DISK_PROPERTY} system property is set.
+     *
+     * @param factory the factory used to create the binary (cannot be <code>null</code>)
+     * @param entryStream the archive stream positioned at the entry (cannot be <code>null</code>)
+     * @param entryName the name of the entry (cannot be <code>null</code> or empty)
+     * @return the binary (never <code>null</code>)
+     * @throws IOException if an error occurs reading the entry
+     * @throws RepositoryException if an error occurs creating the binary
+     */
+    public static Binary createBinary( final ValueFactory factory,
+                                       final InputStream entryStream,
+                                       final String entryName ) throws IOException, RepositoryException {
+        return createBinary( factory, entryStream, entryName, Boolean.getBoolean( SPILL_TO_DISK_PROPERTY ) );
+    }
+
+    /**
+     * Creates a binary from the current entry of an archive stream without closing that stream.
+     *
+     * @param factory the factory used to create the binary (cannot be <code>null</code>)
+     * @param entryStream the archive stream positioned at the entry (cannot be <code>null</code>)
+     * @param entryName the name of the entry (cannot be <code>null</code> or empty)
+     * @param spillToDisk <code>true</code> if the entry should be copied to a temporary file, which is always deleted, before
+     *        creating the binary
+     * @return the binary (never <code>null</code>)
+     * @throws IOException if an error occurs reading the entry
+     * @throws RepositoryException if an error occurs creating the binary
+     */
+    public static Binary createBinary( final ValueFactory factory,
+                                       final InputStream entryStream,
+                                       final String entryName,
+                                       final boolean spillToDisk ) throws IOException, RepositoryException {
+        Objects.requireNonNull( factory, "factory" );
+        Objects.requireNonNull( entryStream, "entryStream" );
+
+        if ( !spillToDisk ) {
+            return factory.createBinary( nonClosing( entryStream ) );
+        }
+
+        final Path file = Files.createTempFile( tempFilePrefix( StringUtil.requireNonEmpty( entryName, "entryName" ) ), null );
+
+        try {
+            try ( final OutputStream os = new BufferedOutputStream( Files.newOutputStream( file ), SPILL_BUFFER_SIZE ) ) {
+                final byte[] buf = new byte[ SPILL_BUFFER_SIZE ];
+                int numRead = 0;
+
+                while ( ( numRead = entryStream.read( buf ) ) != -1 ) {
+                    os.write( buf, 0, numRead );
+                }
+            }
+
+            try ( final InputStream is = new BufferedInputStream( Files.newInputStream( file ), SPILL_BUFFER_SIZE ) ) {
+                return factory.createBinary( is );
+            }
+        } finally {
+            Files.deleteIfExists( file );
+        }
+    }
+
+    /**
+     * @param entry the archive entry whose modification time is being requested (cannot be <code>null</code>)
+     * @return the modification time of the entry or the current time if the entry does not have one (never <code>null</code>)
+     */
+    public static Calendar lastModified( final ZipEntry entry ) {
+        final Calendar lastModified = Calendar.getInstance();
+        final long time = Objects.requireNonNull( entry, "entry" ).getTime();
+
+        if ( time != -1 ) {
+            lastModified.setTimeInMillis( time );
+        }
+
+        return lastModified;
+    }
+
+    /**
+     * @param stream the stream being wrapped (cannot be <code>null</code>)
+     * @return a view of the stream whose {@link InputStream#close() close} does not close the wrapped stream (never
+     *         <code>null</code>)
+     */
+    public static InputStream nonClosing( final InputStream stream ) {
+        return new FilterInputStream( Objects.requireNonNull( stream, "stream" ) ) {
+
+            @Override
+            public void close() {
+                // the wrapped stream is owned by the caller
+            }
+
+        };
+    }
+
+    private static String tempFilePrefix( final String entryName ) {
+        final String name = entryName.substring( entryName.lastIndexOf( '/' ) + 1 );
+        return ( ( name.length() < 3 ) ? ( name + "___" ) : name );
+    }
+
+    /**
+     * Don't allow construction outside of this class.
+     */
+    private BinaryUtil() {
+        // nothing to do
+    }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.modeshape.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An input stream that reads its source on a separate thread into a bounded ring of reusable chunks. Used so that inflating a
+ * compressed archive entry overlaps with parsing it. The source is never closed by this stream, and once {@link #close()}
+ * returns the source is no longer being read, so the caller can continue to use it (e.g., move to the next archive entry).
+ */
+public class PipelinedInputStream extends InputStream {
+
+    /**
+     * The default size of each chunk. Value is {@value}.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The default number of chunks in the ring. Value is {@value}.
+     */
+    public static final int DEFAULT_CHUNK_COUNT = 4;
+
+    private static final ThreadFactory PIPELINE_THREAD_FACTORY = new ThreadFactory() {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread( final Runnable runnable ) {
+            final Thread thread = new Thread( runnable, "teiid-modeshape-pipeline-" + this.count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    };
+
+    private static final byte[] WAKE_UP = new byte[ 0 ];
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool( PIPELINE_THREAD_FACTORY );
+
+    /**
+     * A filled chunk. A negative length marks the end of the source.
+     */
+    private static final class Chunk {
+
+        static final Chunk END = new Chunk( null, -1 );
+
+        final byte[] buffer;
+        final int length;
+
+        Chunk( final byte[] buffer,
+               final int length ) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+
+    }
+
+    private final InputStream source;
+    private final BlockingQueue< byte[] > free;
+    private final BlockingQueue< Chunk > filled;
+    private final Future< ? > producer;
+    private volatile boolean closed;
+    private Chunk current;
+    private int position;
+    private boolean endOfStream;
+
+    /**
+     * @param source the stream being read on another thread (cannot be <code>null</code>)
+     */
+    public PipelinedInputStream( final InputStream source ) {
+        this( source, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT );
+    }
+
+    /**
+     * @param source the stream being read on another thread (cannot be <code>null</code>)
+     * @param chunkSize the size of each chunk (must be positive)
+     * @param chunkCount the number of chunks that can be read ahead (must be positive)
+     */
+    public PipelinedInputStream( final InputStream source,
+                                 final int chunkSize,
+                                 final int chunkCount ) {
+        this.source = Objects.requireNonNull( source, "source" );
+
+        if ( ( chunkSize <= 0 ) || ( chunkCount <= 0 ) ) {
+            throw new IllegalArgumentException( "chunkSize and chunkCount must be positive" );
+        }
+
+        this.free = new ArrayBlockingQueue<>( chunkCount );
+        this.filled = new ArrayBlockingQueue<>( chunkCount + 1 ); // room for the end marker
+
+        for ( int i = 0; i < chunkCount; ++i ) {
+            this.free.add( new byte[ chunkSize ] );
+        }
+
+        this.producer = EXECUTOR.submit( () -> {
+            produce();
+            return null;
+        } );
+    }
+
+    private void produce() throws IOException, InterruptedException {
+        try {
+            while ( !this.closed ) {
+                final byte[] buffer = this.free.take();
+
+                if ( this.closed ) {
+                    break;
+                }
+
+                int length = 0;
+
+                // fill the chunk so the consumer sees few, large chunks
+                while ( length < buffer.length ) {
+                    final int count = this.source.read( buffer, length, buffer.length - length );
+
+                    if ( count == -1 ) {
+                        break;
+                    }
+
+                    length += count;
+                }
+
+                if ( length != 0 ) {
+                    this.filled.put( new Chunk( buffer, length ) );
+                }
+
+                if ( length < buffer.length ) {
+                    break; // end of source
+                }
+            }
+        } finally {
+            this.filled.put( Chunk.END );
+        }
+    }
+
+    private boolean nextChunk() throws IOException {
+        if ( this.endOfStream ) {
+            return false;
+        }
+
+        if ( this.current != null ) {
+            this.free.add( this.current.buffer );
+            this.current = null;
+        }
+
+        final Chunk chunk;
+
+        try {
+            chunk = this.filled.take();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        if ( chunk == Chunk.END ) {
+            this.endOfStream = true;
+            awaitProducer(); // surfaces any error reading the source
+            return false;
+        }
+
+        this.current = chunk;
+        this.position = 0;
+        return true;
+    }
+
+    private void awaitProducer() throws IOException {
+        try {
+            this.producer.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw ( IOException )e.getCause();
+            }
+
+            throw new IOException( e.getCause() );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#available()
+     */
+    @Override
+    public int available() {
+        return ( ( this.current == null ) ? 0 : ( this.current.length - this.position ) );
+    }
+
+    /**
+     * Stops reading the source and waits for the reading thread to finish. The source is not closed. Anything read ahead is
+     * discarded, so reading after closing reports the end of the stream.
+     *
+     * @see java.io.InputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+        if ( this.closed ) {
+            return;
+        }
+
+        this.closed = true;
+        this.current = null;
+
+        // discard what has been read ahead and unblock the producer if it is waiting for a free chunk
+        while ( !this.endOfStream ) {
+            this.free.offer( WAKE_UP );
+            final Chunk chunk;
+
+            try {
+                chunk = this.filled.poll( 100, TimeUnit.MILLISECONDS );
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+
+            this.endOfStream = ( chunk == Chunk.END );
+        }
+
+        try {
+            awaitProducer();
+        } catch ( final IOException e ) {
+            // the remainder of the source was not wanted
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#read()
+     */
+    @Override
+    public int read() throws IOException {
+        if ( ( ( this.current == null ) || ( this.position == this.current.length ) ) && !nextChunk() ) {
+            return -1;
+        }
+
+        return ( this.current.buffer[ this.position++ ] & 0xFF );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#read(byte[], int, int)
+     */
+    @Override
+    public int read( final byte[] buffer,
+                     final int offset,
+                     final int length ) throws IOException {
+        if ( length == 0 ) {
+            return 0;
+        }
+
+        if ( ( ( this.current == null ) || ( this.position == this.current.length ) ) && !nextChunk() ) {
+            return -1;
+        }
+
+        final int count = Math.min( length, this.current.length - this.position );
+        System.arraycopy( this.current.buffer, this.position, buffer, offset, count );
+        this.position += count;
+        return count;
+    }
+
+}
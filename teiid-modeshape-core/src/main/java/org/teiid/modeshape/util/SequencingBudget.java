@@ -0,0 +1,418 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import org.teiid.modeshape.core.CoreI18n;
+
+/**
+ * Admission control for sequencing jobs. Before a job parses its input it estimates how much heap the parse will need and is
+ * {@link #admit(long) admitted} against a global budget, waiting while other jobs hold too much of it. Jobs estimated to need
+ * more than the {@link #LOW_MEMORY_THRESHOLD_PROPERTY low-memory threshold} are expected to use the streaming code paths.
+ * Archive entries are also checked so that oversized or suspiciously compressed entries (zip bombs) are rejected as early as
+ * possible.
+ * <p>
+ * The cost estimates are rough heuristics based on input sizes. They only need to be good enough to keep a handful of very
+ * large archives from being parsed at the same time.
+ */
+public final class SequencingBudget {
+
+    /**
+     * A system property indicating the number of bytes of estimated sequencing cost that may be admitted at the same time. Only
+     * read when the {@link #shared() shared} budget is created. A value of zero or less disables admission control. Default is
+     * half of the maximum heap.
+     */
+    public static final String MEMORY_BUDGET_PROPERTY = "teiid.modeshape.sequencing.memory-budget";
+
+    /**
+     * A system property indicating the estimated cost, in bytes, above which a job should use the low-memory code paths. A value
+     * of zero or less disables the low-memory paths. Default is {@link #DEFAULT_LOW_MEMORY_THRESHOLD}.
+     */
+    public static final String LOW_MEMORY_THRESHOLD_PROPERTY = "teiid.modeshape.sequencing.low-memory-threshold";
+
+    /**
+     * The default estimated cost, in bytes, above which a job should use the low-memory code paths. Value is {@value}.
+     */
+    public static final long DEFAULT_LOW_MEMORY_THRESHOLD = 64L * 1024 * 1024;
+
+    /**
+     * A system property indicating the maximum number of uncompressed bytes of an archive entry. A value of zero or less means
+     * there is no maximum. Default is {@link #DEFAULT_MAX_ENTRY_SIZE}.
+     */
+    public static final String MAX_ENTRY_SIZE_PROPERTY = "teiid.modeshape.sequencing.max-entry-size";
+
+    /**
+     * The default maximum number of uncompressed bytes of an archive entry. Value is {@value}.
+     */
+    public static final long DEFAULT_MAX_ENTRY_SIZE = 1024L * 1024 * 1024;
+
+    /**
+     * A system property indicating the maximum ratio of an archive entry's declared size to its compressed size. A value of zero
+     * or less means there is no maximum. Default is {@link #DEFAULT_MAX_COMPRESSION_RATIO}.
+     */
+    public static final String MAX_COMPRESSION_RATIO_PROPERTY = "teiid.modeshape.sequencing.max-compression-ratio";
+
+    /**
+     * The default maximum ratio of an archive entry's declared size to its compressed size. Value is {@value}.
+     */
+    public static final int DEFAULT_MAX_COMPRESSION_RATIO = 200;
+
+    /**
+     * The estimated heap needed per byte of a compressed archive. Value is {@value}.
+     */
+    public static final int ARCHIVE_COST_FACTOR = 8;
+
+    /**
+     * The estimated heap needed per byte of uncompressed text (DDL, XML) that is parsed into an in-memory tree. Value is
+     * {@value}.
+     */
+    public static final int TEXT_COST_FACTOR = 6;
+
+    /**
+     * Entries whose declared size is smaller than this are never rejected because of their compression ratio. Value is
+     * {@value}.
+     */
+    static final long MIN_RATIO_CHECKED_SIZE = 1024 * 1024;
+
+    private static final SequencingBudget SHARED = new SequencingBudget( Long.getLong( MEMORY_BUDGET_PROPERTY,
+                                                                                       Runtime.getRuntime().maxMemory() / 2 ) );
+
+    private static final ThreadLocal< Ticket > CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the budget shared by all sequencers (never <code>null</code>)
+     */
+    public static SequencingBudget shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param entry the archive entry being checked (cannot be <code>null</code>)
+     * @throws ZipException if the entry's declared size is larger than the {@link #MAX_ENTRY_SIZE_PROPERTY maximum} or its
+     *         compression ratio is higher than the {@link #MAX_COMPRESSION_RATIO_PROPERTY maximum}
+     */
+    public static void checkEntry( final ZipEntry entry ) throws ZipException {
+        final long size = Objects.requireNonNull( entry, "entry" ).getSize();
+        final long maxSize = maxEntrySize();
+
+        if ( ( maxSize > 0 ) && ( size > maxSize ) ) {
+            throw new ZipException( CoreI18n.archiveEntryTooLarge.text( entry.getName(), maxSize, MAX_ENTRY_SIZE_PROPERTY ) );
+        }
+
+        final long compressedSize = entry.getCompressedSize();
+        final int maxRatio = Integer.getInteger( MAX_COMPRESSION_RATIO_PROPERTY, DEFAULT_MAX_COMPRESSION_RATIO );
+
+        if ( ( maxRatio > 0 ) && ( size >= MIN_RATIO_CHECKED_SIZE ) && ( compressedSize > 0 )
+             && ( ( size / compressedSize ) > maxRatio ) ) {
+            throw new ZipException( CoreI18n.archiveEntryCompressionRatio.text( entry.getName(),
+                                                                                size / compressedSize,
+                                                                                maxRatio,
+                                                                                MAX_COMPRESSION_RATIO_PROPERTY ) );
+        }
+    }
+
+    /**
+     * @param archiveSize the number of bytes of the compressed archive
+     * @return the estimated heap needed to sequence the archive or -1 if the size is unknown
+     */
+    public static long estimateArchiveCost( final long archiveSize ) {
+        return multiply( archiveSize, ARCHIVE_COST_FACTOR );
+    }
+
+    /**
+     * @param entry the archive entry whose cost is being estimated (cannot be <code>null</code>)
+     * @return the estimated heap needed to parse the entry or -1 if neither its size or its compressed size is known
+     */
+    public static long estimateEntryCost( final ZipEntry entry ) {
+        final long size = Objects.requireNonNull( entry, "entry" ).getSize();
+        return ( ( size >= 0 ) ? estimateTextCost( size ) : estimateArchiveCost( entry.getCompressedSize() ) );
+    }
+
+    /**
+     * @param textSize the number of bytes of the text being parsed
+     * @return the estimated heap needed to parse the text or -1 if the size is unknown
+     */
+    public static long estimateTextCost( final long textSize ) {
+        return multiply( textSize, TEXT_COST_FACTOR );
+    }
+
+    /**
+     * @param estimatedCost the estimated heap, in bytes, needed by a job or a part of a job
+     * @return <code>true</code> if the cost is above the {@link #LOW_MEMORY_THRESHOLD_PROPERTY low-memory threshold}
+     */
+    public static boolean isLowMemory( final long estimatedCost ) {
+        final long threshold = Long.getLong( LOW_MEMORY_THRESHOLD_PROPERTY, DEFAULT_LOW_MEMORY_THRESHOLD );
+        return ( ( threshold > 0 ) && ( estimatedCost > threshold ) );
+    }
+
+    /**
+     * Opens an archive whose entries are {@link #checkEntry(ZipEntry) checked} when they are reached and which fails as soon as
+     * more than the {@link #MAX_ENTRY_SIZE_PROPERTY maximum} number of bytes have been inflated from one entry. Entry sizes are
+     * not always declared, so the declared size alone cannot be trusted.
+     *
+     * @param archive the compressed archive stream (cannot be <code>null</code>)
+     * @return the archive stream (never <code>null</code>)
+     */
+    public static ZipInputStream openArchive( final InputStream archive ) {
+        return new BoundedZipInputStream( Objects.requireNonNull( archive, "archive" ) );
+    }
+
+    private static long maxEntrySize() {
+        return Long.getLong( MAX_ENTRY_SIZE_PROPERTY, DEFAULT_MAX_ENTRY_SIZE );
+    }
+
+    private static long multiply( final long size,
+                                  final int factor ) {
+        if ( size < 0 ) {
+            return -1;
+        }
+
+        return ( ( size > ( Long.MAX_VALUE / factor ) ) ? Long.MAX_VALUE : ( size * factor ) );
+    }
+
+    private final long capacity;
+    private long available; // guarded by this
+    private final Queue< Object > waiters = new ArrayDeque<>(); // guarded by this
+
+    /**
+     * @param capacity the number of bytes of estimated cost that may be admitted at the same time (zero or less if unlimited)
+     */
+    public SequencingBudget( final long capacity ) {
+        this.capacity = capacity;
+        this.available = capacity;
+    }
+
+    /**
+     * Waits until the estimated cost of a job fits in the budget. Waiting jobs are admitted in the order they arrived, so a large
+     * job is not starved by a steady stream of smaller ones. A job estimated to cost more than the whole budget is admitted once
+     * no other job holds any of it. A job admitted while the current thread already holds a ticket (for instance, DDL sequenced
+     * from within a VDB) is not charged again, because the outer job's estimate already covers it, and so never waits. The
+     * current ticket is tracked per thread, so work a job hands to other threads must be {@link Ticket#wrap(Callable) wrapped}
+     * to be covered by the job's ticket. The returned ticket must be closed by the thread that was admitted.
+     *
+     * @param estimatedCost the estimated heap, in bytes, needed by the job (a negative value if unknown)
+     * @return the ticket that must be {@link Ticket#close() closed} when the job is finished (never <code>null</code>)
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Ticket admit( final long estimatedCost ) throws InterruptedException {
+        final Ticket outer = CURRENT.get();
+
+        if ( outer != null ) {
+            return new Ticket( estimatedCost, 0, outer.isLowMemory() || isLowMemory( estimatedCost ), outer );
+        }
+
+        final long reserved = ( ( this.capacity > 0 ) ? Math.max( 0, Math.min( estimatedCost, this.capacity ) ) : 0 );
+
+        if ( reserved != 0 ) {
+            final Object waiter = new Object();
+
+            synchronized ( this ) {
+                this.waiters.add( waiter );
+
+                try {
+                    // first come, first served
+                    while ( ( this.waiters.peek() != waiter ) || ( this.available < reserved ) ) {
+                        wait();
+                    }
+
+                    this.available -= reserved;
+                } finally {
+                    this.waiters.remove( waiter );
+                    notifyAll(); // the next job in line may fit now
+                }
+            }
+        }
+
+        return new Ticket( estimatedCost, reserved, isLowMemory( estimatedCost ), null );
+    }
+
+    /**
+     * @return the number of bytes of estimated cost not currently held by admitted jobs
+     */
+    public synchronized long getAvailable() {
+        return this.available;
+    }
+
+    /**
+     * @return the number of bytes of estimated cost that may be admitted at the same time (zero or less if unlimited)
+     */
+    public long getCapacity() {
+        return this.capacity;
+    }
+
+    private synchronized void release( final long reserved ) {
+        this.available += reserved;
+        notifyAll();
+    }
+
+    /**
+     * The admission of one job. Closing the ticket returns its share of the budget.
+     */
+    public final class Ticket implements AutoCloseable {
+
+        private final long estimatedCost;
+        private final boolean lowMemory;
+        private final Ticket outer;
+        private long reserved;
+
+        Ticket( final long estimatedCost,
+                final long reserved,
+                final boolean lowMemory,
+                final Ticket outer ) {
+            this.estimatedCost = estimatedCost;
+            this.reserved = reserved;
+            this.lowMemory = lowMemory;
+            this.outer = outer;
+            CURRENT.set( this );
+        }
+
+        /**
+         * Returns the reserved part of the budget. Closing a ticket more than once has no effect.
+         *
+         * @see java.lang.AutoCloseable#close()
+         */
+        @Override
+        public void close() {
+            if ( CURRENT.get() == this ) {
+                if ( this.outer == null ) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set( this.outer );
+                }
+            }
+
+            if ( this.reserved != 0 ) {
+                release( this.reserved );
+                this.reserved = 0;
+            }
+        }
+
+        /**
+         * @return the estimated heap, in bytes, needed by the job (negative if unknown)
+         */
+        public long getEstimatedCost() {
+            return this.estimatedCost;
+        }
+
+        /**
+         * @return <code>true</code> if the job, or the job it is part of, should use the low-memory code paths
+         */
+        public boolean isLowMemory() {
+            return this.lowMemory;
+        }
+
+        /**
+         * Wraps part of the job that is run on another thread, like a pool thread, so that it runs with this ticket as the
+         * current ticket of that thread. Jobs admitted while the task runs are then covered by this ticket instead of being
+         * charged again and use the low-memory code paths if this job does.
+         *
+         * @param task the part of the job being run on another thread (cannot be <code>null</code>)
+         * @return the wrapped task (never <code>null</code>)
+         */
+        public < T > Callable< T > wrap( final Callable< T > task ) {
+            Objects.requireNonNull( task, "task" );
+
+            return () -> {
+                final Ticket previous = CURRENT.get();
+                CURRENT.set( this );
+
+                try {
+                    return task.call();
+                } finally {
+                    if ( previous == null ) {
+                        CURRENT.remove();
+                    } else {
+                        CURRENT.set( previous );
+                    }
+                }
+            };
+        }
+
+    }
+
+    /**
+     * An archive stream that checks each entry and counts the bytes inflated from it.
+     */
+    private static final class BoundedZipInputStream extends ZipInputStream {
+
+        private String entryName;
+        private long entryBytesRead;
+        private long maxSize;
+
+        BoundedZipInputStream( final InputStream archive ) {
+            super( archive );
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.zip.ZipInputStream#getNextEntry()
+         */
+        @Override
+        public ZipEntry getNextEntry() throws IOException {
+            final ZipEntry entry = super.getNextEntry();
+
+            if ( entry != null ) {
+                checkEntry( entry );
+                this.entryName = entry.getName();
+                this.entryBytesRead = 0;
+                this.maxSize = maxEntrySize();
+            }
+
+            return entry;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.zip.ZipInputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read( final byte[] buffer,
+                         final int offset,
+                         final int length ) throws IOException {
+            final int count = super.read( buffer, offset, length );
+
+            if ( count > 0 ) {
+                this.entryBytesRead += count;
+
+                if ( ( this.maxSize > 0 ) && ( this.entryBytesRead > this.maxSize ) ) {
+                    throw new ZipException( CoreI18n.archiveEntryTooLarge.text( this.entryName,
+                                                                                this.maxSize,
+                                                                                MAX_ENTRY_SIZE_PROPERTY ) );
+                }
+            }
+
+            return count;
+        }
+
+    }
+
+}
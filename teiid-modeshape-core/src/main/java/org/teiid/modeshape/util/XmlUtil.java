@@ -0,0 +1,281 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.modeshape.util;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.modeshape.common.logging.Logger;
+import org.teiid.modeshape.core.CoreI18n;
+
+/**
+ * Utilities for reading and writing XML with StAX.
+ */
+public class XmlUtil {
+
+    /**
+     * The StAX implementations that can be selected.
+     */
+    public enum Backend {
+
+        /**
+         * The implementation found by the standard JAXP lookup (system property, <code>jaxp.properties</code>, service loader, then
+         * the JDK implementation).
+         */
+        DEFAULT( null, null ),
+
+        /**
+         * The implementation built into the JDK regardless of what else is on the classpath.
+         */
+        JDK( "com.sun.xml.internal.stream.XMLInputFactoryImpl", "com.sun.xml.internal.stream.XMLOutputFactoryImpl" ),
+
+        /**
+         * The Woodstox implementation (requires <code>com.fasterxml.woodstox:woodstox-core</code> on the classpath).
+         */
+        WOODSTOX( "com.ctc.wstx.stax.WstxInputFactory", "com.ctc.wstx.stax.WstxOutputFactory" ),
+
+        /**
+         * The Aalto implementation (requires <code>com.fasterxml:aalto-xml</code> on the classpath).
+         */
+        AALTO( "com.fasterxml.aalto.stax.InputFactoryImpl", "com.fasterxml.aalto.stax.OutputFactoryImpl" );
+
+        private final String inputFactoryClassName;
+        private final String outputFactoryClassName;
+
+        private Backend( final String inputFactoryClassName,
+                         final String outputFactoryClassName ) {
+            this.inputFactoryClassName = inputFactoryClassName;
+            this.outputFactoryClassName = outputFactoryClassName;
+        }
+
+        /**
+         * @return <code>true</code> if the factories of this backend can be created
+         */
+        public boolean isAvailable() {
+            try {
+                newInputFactory();
+                return true;
+            } catch ( final RuntimeException | LinkageError e ) {
+                return false;
+            }
+        }
+
+        /**
+         * @return a new input factory configured for the sequencers (never <code>null</code>)
+         * @throws IllegalStateException if the backend is not available
+         */
+        public XMLInputFactory newInputFactory() {
+            final XMLInputFactory factory = create( XMLInputFactory.class, this.inputFactoryClassName );
+            factory.setProperty( XMLInputFactory.IS_COALESCING, Boolean.FALSE );
+            factory.setProperty( XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE );
+            return factory;
+        }
+
+        /**
+         * @return a new output factory (never <code>null</code>)
+         * @throws IllegalStateException if the backend is not available
+         */
+        public XMLOutputFactory newOutputFactory() {
+            return create( XMLOutputFactory.class, this.outputFactoryClassName );
+        }
+
+        private < T > T create( final Class< T > factoryType,
+                                final String className ) {
+            try {
+                if ( this == DEFAULT ) {
+                    return factoryType.cast( factoryType.getMethod( "newInstance" ).invoke( null ) );
+                }
+
+                if ( this == JDK ) {
+                    // the JDK classes are not accessible from outside the java.xml module after Java 8
+                    try {
+                        final Method newDefaultFactory = factoryType.getMethod( "newDefaultFactory" );
+                        return factoryType.cast( newDefaultFactory.invoke( null ) );
+                    } catch ( final NoSuchMethodException e ) {
+                        // Java 8 so create from class name
+                    }
+                }
+
+                return factoryType.cast( Class.forName( className, true, XmlUtil.class.getClassLoader() ).newInstance() );
+            } catch ( final Exception e ) {
+                throw new IllegalStateException( CoreI18n.xmlBackendNotAvailable.text( name(), e.getLocalizedMessage() ), e );
+            }
+        }
+
+    }
+
+    /**
+     * The system property whose value is the name of the {@link Backend StAX backend} (case insensitive) used to read and write
+     * XML. Value is {@value}.
+     */
+    public static final String BACKEND_PROPERTY = "teiid.modeshape.xml.backend";
+
+    private static final Logger LOGGER = Logger.getLogger( XmlUtil.class );
+
+    private static volatile Backend backend = configuredBackend();
+
+    /**
+     * Factories are created once per thread instead of once per document and are recreated if the backend changes. The input
+     * factories are configured not to coalesce text so that long element text (transformation SQL, descriptions, inline DDL) is
+     * delivered in the fragments the parser already has rather than copied into one string by the parser before it is copied
+     * again by the caller.
+     */
+    private static final ThreadLocal< Factories > FACTORIES = new ThreadLocal<>();
+
+    private static final class Factories {
+
+        final Backend backend;
+        XMLInputFactory input;
+        XMLOutputFactory output;
+
+        Factories( final Backend backend ) {
+            this.backend = backend;
+        }
+
+    }
+
+    private static Backend configuredBackend() {
+        final String value = System.getProperty( BACKEND_PROPERTY );
+
+        if ( ( value == null ) || value.trim().isEmpty() ) {
+            return Backend.DEFAULT;
+        }
+
+        try {
+            final Backend configured = Backend.valueOf( value.trim().toUpperCase( Locale.ENGLISH ) );
+
+            if ( configured.isAvailable() ) {
+                return configured;
+            }
+        } catch ( final IllegalArgumentException e ) {
+            // not a backend name
+        }
+
+        LOGGER.warn( CoreI18n.unknownXmlBackend, value, BACKEND_PROPERTY );
+        return Backend.DEFAULT;
+    }
+
+    private static Factories factories() {
+        final Backend current = backend;
+        Factories factories = FACTORIES.get();
+
+        if ( ( factories == null ) || ( factories.backend != current ) ) {
+            factories = new Factories( current );
+            FACTORIES.set( factories );
+        }
+
+        return factories;
+    }
+
+    /**
+     * @return the backend used to create factories (never <code>null</code>)
+     */
+    public static Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Overrides the backend set by the {@link #BACKEND_PROPERTY system property}. Threads create new factories the next time they
+     * need one.
+     *
+     * @param newBackend the backend used to create factories (cannot be <code>null</code>)
+     * @throws IllegalStateException if the backend is not available
+     */
+    public static void setBackend( final Backend newBackend ) {
+        newBackend.newInputFactory(); // make sure it is available
+        backend = newBackend;
+    }
+
+    /**
+     * @return the calling thread's input factory (never <code>null</code>)
+     */
+    public static XMLInputFactory inputFactory() {
+        final Factories factories = factories();
+
+        if ( factories.input == null ) {
+            factories.input = factories.backend.newInputFactory();
+        }
+
+        return factories.input;
+    }
+
+    /**
+     * @return the calling thread's output factory (never <code>null</code>)
+     */
+    public static XMLOutputFactory outputFactory() {
+        final Factories factories = factories();
+
+        if ( factories.output == null ) {
+            factories.output = factories.backend.newOutputFactory();
+        }
+
+        return factories.output;
+    }
+
+    /**
+     * @param stream the XML being read (cannot be <code>null</code>)
+     * @return a stream reader created by the calling thread's input factory (never <code>null</code>)
+     * @throws XMLStreamException if the reader cannot be created
+     */
+    public static XMLStreamReader createStreamReader( final InputStream stream ) throws XMLStreamException {
+        return inputFactory().createXMLStreamReader( stream );
+    }
+
+    /**
+     * Appends the text of the current {@link javax.xml.stream.XMLStreamConstants#CHARACTERS characters} event without creating
+     * an intermediate <code>String</code>.
+     *
+     * @param streamReader the stream reader positioned at a text event (cannot be <code>null</code>)
+     * @param text the builder the text is appended to (cannot be <code>null</code>)
+     */
+    public static void appendText( final XMLStreamReader streamReader,
+                                   final StringBuilder text ) {
+        text.append( streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength() );
+    }
+
+    /**
+     * @param text the text being checked (cannot be <code>null</code>)
+     * @return <code>true</code> if the text is empty or only contains whitespace
+     */
+    public static boolean isBlank( final CharSequence text ) {
+        for ( int i = 0, length = text.length(); i < length; ++i ) {
+            if ( text.charAt( i ) > ' ' ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Don't allow construction outside of this class.
+     */
+    private XmlUtil() {
+        // nothing to do
+    }
+
+}
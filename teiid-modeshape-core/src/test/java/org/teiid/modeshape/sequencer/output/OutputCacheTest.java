@@ -0,0 +1,218 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.sequencer.output;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+import javax.jcr.PropertyType;
+import javax.jcr.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class OutputCacheTest {
+
+    /**
+     * A session whose methods return stubs of the interfaces they return, so trees without namespaced names or node types can
+     * be cached and written.
+     */
+    private static final Session SESSION = stub( Session.class );
+
+    private static < T > T stub( final Class< T > type ) {
+        return type.cast( Proxy.newProxyInstance( OutputCacheTest.class.getClassLoader(),
+                                                  new Class< ? >[] { type },
+                                                  ( proxy, method, args ) -> {
+                                                      final Class< ? > returnType = method.getReturnType();
+
+                                                      if ( returnType.isInterface() ) {
+                                                          return stub( returnType );
+                                                      }
+
+                                                      return ( ( returnType == boolean.class ) ? Boolean.FALSE : null );
+                                                  } ) );
+    }
+
+    private static OutputNode tree( final String name ) {
+        final OutputNode tree = new OutputNode( name, null );
+        tree.addChild( "child", null ).setProperty( "value", PropertyType.STRING, false, name );
+        return tree;
+    }
+
+    private Path dir;
+
+    @After
+    public void afterEach() throws Exception {
+        try ( final DirectoryStream< Path > stream = Files.newDirectoryStream( this.dir ) ) {
+            for ( final Path file : stream ) {
+                Files.delete( file );
+            }
+        }
+
+        Files.delete( this.dir );
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        this.dir = Files.createTempDirectory( "output-cache" );
+    }
+
+    private Path file( final String key ) {
+        return this.dir.resolve( key + OutputCache.ENTRY_SUFFIX );
+    }
+
+    private long sizeOf( final String... keys ) throws Exception {
+        long size = 0;
+
+        for ( final String key : keys ) {
+            size += Files.size( file( key ) );
+        }
+
+        return size;
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntry() throws Exception {
+        final OutputCache cache = new OutputCache( this.dir, Long.MAX_VALUE );
+        cache.put( "aaaa", tree( "aaaa" ), SESSION );
+        cache.put( "bbbb", tree( "bbbb" ), SESSION );
+
+        // room for two entries of about the same size but not three
+        cache.setMaxSize( sizeOf( "aaaa", "bbbb" ) + ( sizeOf( "aaaa" ) / 2 ) );
+
+        // makes bbbb the least recently used entry
+        assertThat( cache.get( "aaaa", SESSION ).getName(), is( "aaaa" ) );
+        cache.put( "cccc", tree( "cccc" ), SESSION );
+
+        assertThat( Files.exists( file( "bbbb" ) ), is( false ) );
+        assertThat( cache.size(), is( sizeOf( "aaaa", "cccc" ) ) );
+        assertThat( cache.get( "bbbb", SESSION ), is( nullValue() ) );
+        assertThat( cache.get( "aaaa", SESSION ).getName(), is( "aaaa" ) );
+        assertThat( cache.get( "cccc", SESSION ).getName(), is( "cccc" ) );
+    }
+
+    @Test
+    public void shouldNotCacheEntryLargerThanMaxSize() throws Exception {
+        final OutputCache cache = new OutputCache( this.dir, 1 );
+        cache.put( "aaaa", tree( "aaaa" ), SESSION );
+
+        assertThat( cache.size(), is( 0L ) );
+        assertThat( Files.exists( file( "aaaa" ) ), is( false ) );
+        assertThat( cache.get( "aaaa", SESSION ), is( nullValue() ) );
+    }
+
+    @Test
+    public void shouldTrimEntriesWhenMaxSizeReduced() throws Exception {
+        final OutputCache cache = new OutputCache( this.dir, Long.MAX_VALUE );
+        cache.put( "aaaa", tree( "aaaa" ), SESSION );
+        cache.put( "bbbb", tree( "bbbb" ), SESSION );
+        cache.put( "cccc", tree( "cccc" ), SESSION );
+        assertThat( cache.size(), is( sizeOf( "aaaa", "bbbb", "cccc" ) ) );
+
+        cache.setMaxSize( sizeOf( "cccc" ) );
+        assertThat( Files.exists( file( "aaaa" ) ), is( false ) );
+        assertThat( Files.exists( file( "bbbb" ) ), is( false ) );
+        assertThat( cache.size(), is( sizeOf( "cccc" ) ) );
+        assertThat( cache.get( "cccc", SESSION ).getName(), is( "cccc" ) );
+
+        // disables caching and deletes every entry
+        cache.setMaxSize( 0 );
+        assertThat( cache.isEnabled(), is( false ) );
+        assertThat( cache.size(), is( 0L ) );
+        assertThat( Files.exists( file( "cccc" ) ), is( false ) );
+    }
+
+    @Test
+    public void shouldKeepRecencyAfterReload() throws Exception {
+        final OutputCache cache = new OutputCache( this.dir, Long.MAX_VALUE );
+        cache.put( "aaaa", tree( "aaaa" ), SESSION );
+        cache.put( "bbbb", tree( "bbbb" ), SESSION );
+
+        // aaaa was written first, then bbbb, then aaaa is used again
+        final long now = System.currentTimeMillis();
+        Files.setLastModifiedTime( file( "aaaa" ), FileTime.fromMillis( now - 20000 ) );
+        Files.setLastModifiedTime( file( "bbbb" ), FileTime.fromMillis( now - 10000 ) );
+        assertThat( cache.get( "aaaa", SESSION ), is( notNullValue() ) );
+
+        // a restart loads the entries from the directory and only has room for the most recently used one
+        final OutputCache reloaded = new OutputCache( this.dir, sizeOf( "aaaa" ) );
+        assertThat( reloaded.size(), is( sizeOf( "aaaa" ) ) );
+        assertThat( Files.exists( file( "bbbb" ) ), is( false ) );
+        assertThat( reloaded.get( "aaaa", SESSION ).getName(), is( "aaaa" ) );
+    }
+
+    @Test
+    public void shouldDeleteUnreadableEntry() throws Exception {
+        Files.write( file( "aaaa" ), "not an entry".getBytes() );
+
+        final OutputCache cache = new OutputCache( this.dir, Long.MAX_VALUE );
+        assertThat( cache.size(), is( ( long )"not an entry".length() ) );
+        assertThat( cache.get( "aaaa", SESSION ), is( nullValue() ) );
+        assertThat( cache.size(), is( 0L ) );
+        assertThat( Files.exists( file( "aaaa" ) ), is( false ) );
+    }
+
+    @Test
+    public void shouldRejectEntryWithClassNotAllowed() throws Exception {
+        try ( final ObjectOutputStream stream = new ObjectOutputStream( new GZIPOutputStream( Files.newOutputStream( file( "aaaa" ) ) ) ) ) {
+            stream.writeObject( new Date() );
+        }
+
+        final OutputCache cache = new OutputCache( this.dir, Long.MAX_VALUE );
+        assertThat( cache.get( "aaaa", SESSION ), is( nullValue() ) );
+        assertThat( cache.size(), is( 0L ) );
+        assertThat( Files.exists( file( "aaaa" ) ), is( false ) );
+    }
+
+    @Test
+    public void shouldNotReadEntriesOfPreviousDirectory() throws Exception {
+        final OutputCache cache = new OutputCache( this.dir, Long.MAX_VALUE );
+        cache.put( "aaaa", tree( "aaaa" ), SESSION );
+
+        cache.setDirectory( null );
+        assertThat( cache.isEnabled(), is( false ) );
+        assertThat( cache.get( "aaaa", SESSION ), is( nullValue() ) );
+
+        cache.setDirectory( this.dir );
+        assertThat( cache.get( "aaaa", SESSION ).getName(), is( "aaaa" ) );
+    }
+
+    @Test
+    public void shouldReturnCachedTree() throws Exception {
+        final OutputCache cache = new OutputCache( this.dir, Long.MAX_VALUE );
+        cache.put( "aaaa", tree( "aaaa" ), SESSION );
+
+        final OutputNode tree = cache.get( "aaaa", SESSION );
+        assertThat( tree.getChildren().size(), is( 1 ) );
+        assertThat( tree.getChildren().get( 0 ).getProperty( "value" ).getValues().get( 0 ), is( ( Object )"aaaa" ) );
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.util;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public final class PipelinedInputStreamTest {
+
+    private static byte[] content( final int length ) {
+        final byte[] content = new byte[ length ];
+
+        for ( int i = 0; i < length; ++i ) {
+            content[ i ] = ( byte )( i * 31 );
+        }
+
+        return content;
+    }
+
+    private static byte[] readFully( final InputStream stream,
+                                     final int bufferSize ) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[ bufferSize ];
+        int numRead = 0;
+
+        while ( ( numRead = stream.read( buffer, 0, buffer.length ) ) != -1 ) {
+            bytes.write( buffer, 0, numRead );
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private void assertPipelined( final int length,
+                                  final int maxSourceRead,
+                                  final int bufferSize ) throws Exception {
+        final byte[] expected = content( length );
+
+        try ( final InputStream stream = new PipelinedInputStream( new TrickleInputStream( expected, maxSourceRead ), 8, 2 ) ) {
+            assertThat( readFully( stream, bufferSize ), is( expected ) );
+            assertThat( stream.read(), is( -1 ) );
+        }
+    }
+
+    @Test
+    public void shouldReadContentEndingOnChunkBoundary() throws Exception {
+        assertPipelined( 8 * 5, 8, 8 );
+        assertPipelined( 8 * 5, 3, 5 );
+    }
+
+    @Test
+    public void shouldReadContentEndingWithinChunk() throws Exception {
+        assertPipelined( ( 8 * 5 ) + 3, 8, 8 );
+        assertPipelined( ( 8 * 5 ) + 3, 3, 13 );
+    }
+
+    @Test
+    public void shouldReadEmptySource() throws Exception {
+        assertPipelined( 0, 8, 8 );
+    }
+
+    @Test
+    public void shouldReadSingleBytesAcrossChunkBoundaries() throws Exception {
+        final byte[] expected = content( 8 * 3 + 1 );
+
+        try ( final InputStream stream = new PipelinedInputStream( new TrickleInputStream( expected, 5 ), 8, 2 ) ) {
+            for ( int i = 0; i < expected.length; ++i ) {
+                assertThat( stream.read(), is( expected[ i ] & 0xFF ) );
+            }
+
+            assertThat( stream.read(), is( -1 ) );
+        }
+    }
+
+    @Test( timeout = 10000 )
+    public void shouldStopReadingSourceWhenClosedEarly() throws Exception {
+        final AtomicInteger reads = new AtomicInteger();
+
+        // an endless source, so the producer only stops because the stream is closed
+        final InputStream source = new InputStream() {
+
+            @Override
+            public int read() {
+                reads.incrementAndGet();
+                return 'x';
+            }
+
+        };
+
+        final InputStream stream = new PipelinedInputStream( source, 8, 2 );
+        assertThat( stream.read(), is( ( int )'x' ) );
+        stream.close();
+
+        // once closed the source is no longer read, so the caller can use it again
+        final int readsWhenClosed = reads.get();
+        Thread.sleep( 100 );
+        assertThat( reads.get(), is( readsWhenClosed ) );
+        assertThat( stream.read(), is( -1 ) );
+
+        stream.close();
+    }
+
+    @Test( timeout = 10000 )
+    public void shouldCloseBeforeReading() throws Exception {
+        final InputStream stream = new PipelinedInputStream( new ByteArrayInputStream( content( 100 ) ), 8, 2 );
+        stream.close();
+        assertThat( stream.read(), is( -1 ) );
+    }
+
+    @Test
+    public void shouldReportSourceErrorAfterContentReadBeforeIt() throws Exception {
+        final byte[] expected = content( 8 * 2 );
+        final IOException error = new IOException( "source failed" );
+
+        final InputStream content = new ByteArrayInputStream( expected );
+
+        // fails instead of reporting the end of its content
+        final InputStream source = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                final int value = content.read();
+
+                if ( value == -1 ) {
+                    throw error;
+                }
+
+                return value;
+            }
+
+        };
+
+        try ( final InputStream stream = new PipelinedInputStream( source, 8, 2 ) ) {
+            final byte[] actual = new byte[ expected.length ];
+
+            for ( int i = 0; i < actual.length; ++i ) {
+                actual[ i ] = ( byte )stream.read();
+            }
+
+            assertThat( actual, is( expected ) );
+
+            try {
+                stream.read();
+                fail( "source error was not reported" );
+            } catch ( final IOException e ) {
+                assertThat( e, is( error ) );
+            }
+        }
+    }
+
+    @Test
+    public void shouldWrapUncheckedSourceError() throws Exception {
+        final IllegalStateException error = new IllegalStateException( "source failed" );
+
+        final InputStream source = new InputStream() {
+
+            @Override
+            public int read() {
+                throw error;
+            }
+
+        };
+
+        try ( final InputStream stream = new PipelinedInputStream( source, 8, 2 ) ) {
+            stream.read();
+            fail( "source error was not reported" );
+        } catch ( final IOException e ) {
+            assertThat( e.getCause(), is( ( Throwable )error ) );
+        }
+    }
+
+    /**
+     * Returns at most a given number of bytes from each read, so chunks are filled by several reads.
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+
+        private final int maxRead;
+
+        TrickleInputStream( final byte[] content,
+                            final int maxRead ) {
+            super( content );
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public synchronized int read( final byte[] buffer,
+                                      final int offset,
+                                      final int length ) {
+            return super.read( buffer, offset, Math.min( length, this.maxRead ) );
+        }
+
+    }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.modeshape.util;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import org.junit.After;
+import org.junit.Test;
+import org.teiid.modeshape.util.SequencingBudget.Ticket;
+
+public final class SequencingBudgetTest {
+
+    private static final long CAPACITY = 100;
+
+    private final SequencingBudget budget = new SequencingBudget( CAPACITY );
+
+    /**
+     * The jobs in the order they were admitted.
+     */
+    private final BlockingQueue< Job > admitted = new LinkedBlockingQueue<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void afterEach() {
+        this.executor.shutdownNow();
+    }
+
+    private static ZipEntry entry( final long size,
+                                   final long compressedSize ) {
+        final ZipEntry entry = new ZipEntry( "entry.xml" );
+        entry.setSize( size );
+        entry.setCompressedSize( compressedSize );
+        return entry;
+    }
+
+    /**
+     * Starts a job on its own thread and returns once it is either admitted or waiting to be.
+     */
+    private Job start( final long estimatedCost ) throws Exception {
+        final Job job = new Job( estimatedCost );
+        job.start();
+
+        while ( ( job.getState() != Thread.State.WAITING ) && !this.admitted.contains( job ) ) {
+            Thread.sleep( 5 );
+        }
+
+        return job;
+    }
+
+    private void assertNotAdmitted() throws Exception {
+        assertThat( this.admitted.poll( 100, TimeUnit.MILLISECONDS ), is( nullValue() ) );
+    }
+
+    private void assertAdmitted( final Job job ) throws Exception {
+        assertThat( this.admitted.poll( 10, TimeUnit.SECONDS ), is( job ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void shouldAdmitWithoutWaitingWhileBudgetAvailable() throws Exception {
+        final Job first = start( 40 );
+        assertAdmitted( first );
+        final Job second = start( 60 );
+        assertAdmitted( second );
+        assertThat( this.budget.getAvailable(), is( 0L ) );
+
+        first.finish();
+        second.finish();
+        assertThat( this.budget.getAvailable(), is( CAPACITY ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void shouldWaitUntilBudgetReleased() throws Exception {
+        final Job first = start( 60 );
+        assertAdmitted( first );
+
+        final Job second = start( 60 );
+        assertNotAdmitted();
+        assertThat( second.getState(), is( Thread.State.WAITING ) );
+
+        first.finish();
+        assertAdmitted( second );
+        assertThat( this.budget.getAvailable(), is( 40L ) );
+
+        second.finish();
+        assertThat( this.budget.getAvailable(), is( CAPACITY ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void shouldAdmitWaitingJobsInArrivalOrder() throws Exception {
+        final Job first = start( 90 );
+        assertAdmitted( first );
+
+        final Job large = start( 50 );
+        assertNotAdmitted();
+
+        // fits in what is available but must not overtake the large job
+        final Job small = start( 10 );
+        assertNotAdmitted();
+
+        first.finish();
+        assertAdmitted( large );
+        assertAdmitted( small );
+        assertThat( this.budget.getAvailable(), is( 40L ) );
+
+        large.finish();
+        small.finish();
+        assertThat( this.budget.getAvailable(), is( CAPACITY ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void shouldAdmitJobLargerThanBudgetOnceBudgetEmpty() throws Exception {
+        final Job first = start( 10 );
+        assertAdmitted( first );
+
+        final Job huge = start( CAPACITY * 5 );
+        assertNotAdmitted();
+
+        first.finish();
+        assertAdmitted( huge );
+        assertThat( this.budget.getAvailable(), is( 0L ) );
+
+        // holds the whole budget until it finishes
+        final Job next = start( 1 );
+        assertNotAdmitted();
+
+        huge.finish();
+        assertAdmitted( next );
+        next.finish();
+        assertThat( this.budget.getAvailable(), is( CAPACITY ) );
+    }
+
+    @Test
+    public void shouldNotChargeNestedJob() throws Exception {
+        try ( final Ticket outer = this.budget.admit( 60 ) ) {
+            // would have to wait if it was charged
+            try ( final Ticket nested = this.budget.admit( 80 ) ) {
+                assertThat( nested.getEstimatedCost(), is( 80L ) );
+                assertThat( this.budget.getAvailable(), is( 40L ) );
+            }
+
+            // the outer ticket is current again
+            try ( final Ticket nested = this.budget.admit( 80 ) ) {
+                assertThat( this.budget.getAvailable(), is( 40L ) );
+            }
+        }
+
+        assertThat( this.budget.getAvailable(), is( CAPACITY ) );
+
+        try ( final Ticket next = this.budget.admit( 80 ) ) {
+            assertThat( this.budget.getAvailable(), is( 20L ) );
+        }
+    }
+
+    @Test
+    public void shouldUseLowMemoryPathsForJobNestedInLowMemoryJob() throws Exception {
+        final SequencingBudget unlimited = new SequencingBudget( 0 );
+
+        try ( final Ticket outer = unlimited.admit( SequencingBudget.DEFAULT_LOW_MEMORY_THRESHOLD + 1 ) ) {
+            assertThat( outer.isLowMemory(), is( true ) );
+
+            try ( final Ticket nested = unlimited.admit( 1 ) ) {
+                assertThat( nested.isLowMemory(), is( true ) );
+            }
+        }
+
+        try ( final Ticket next = unlimited.admit( 1 ) ) {
+            assertThat( next.isLowMemory(), is( false ) );
+        }
+    }
+
+    @Test( timeout = 10000 )
+    public void shouldNotChargeWrappedTaskRunOnAnotherThread() throws Exception {
+        try ( final Ticket outer = this.budget.admit( 60 ) ) {
+            final long available = this.executor.submit( outer.wrap( () -> {
+                try ( final Ticket nested = this.budget.admit( 80 ) ) {
+                    return this.budget.getAvailable();
+                }
+            } ) ).get();
+
+            assertThat( available, is( 40L ) );
+
+            // the pool thread no longer runs with the outer ticket
+            final long charged = this.executor.submit( () -> {
+                try ( final Ticket next = this.budget.admit( 30 ) ) {
+                    return this.budget.getAvailable();
+                }
+            } ).get();
+
+            assertThat( charged, is( 10L ) );
+        }
+
+        assertThat( this.budget.getAvailable(), is( CAPACITY ) );
+    }
+
+    @Test
+    public void shouldRejectEntryWithHighCompressionRatio() throws Exception {
+        final long size = SequencingBudget.MIN_RATIO_CHECKED_SIZE * 100;
+
+        try {
+            SequencingBudget.checkEntry( entry( size, size / ( SequencingBudget.DEFAULT_MAX_COMPRESSION_RATIO + 1 ) ) );
+            fail( "ratio bomb was not rejected" );
+        } catch ( final ZipException e ) {
+            // expected
+        }
+
+        SequencingBudget.checkEntry( entry( size, size / SequencingBudget.DEFAULT_MAX_COMPRESSION_RATIO ) );
+    }
+
+    @Test
+    public void shouldNotCheckCompressionRatioOfSmallEntry() throws Exception {
+        SequencingBudget.checkEntry( entry( SequencingBudget.MIN_RATIO_CHECKED_SIZE - 1, 1 ) );
+    }
+
+    @Test( expected = ZipException.class )
+    public void shouldRejectEntryLargerThanMaxEntrySize() throws Exception {
+        SequencingBudget.checkEntry( entry( SequencingBudget.DEFAULT_MAX_ENTRY_SIZE + 1,
+                                            SequencingBudget.DEFAULT_MAX_ENTRY_SIZE ) );
+    }
+
+    /**
+     * A job that holds its ticket, on its own thread, until it is finished.
+     */
+    private final class Job extends Thread {
+
+        private final long estimatedCost;
+        private final CountDownLatch finish = new CountDownLatch( 1 );
+
+        Job( final long estimatedCost ) {
+            this.estimatedCost = estimatedCost;
+            setDaemon( true );
+        }
+
+        void finish() throws InterruptedException {
+            this.finish.countDown();
+            join();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.lang.Thread#run()
+         */
+        @Override
+        public void run() {
+            try ( final Ticket ticket = SequencingBudgetTest.this.budget.admit( this.estimatedCost ) ) {
+                SequencingBudgetTest.this.admitted.add( this );
+                this.finish.await();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+}
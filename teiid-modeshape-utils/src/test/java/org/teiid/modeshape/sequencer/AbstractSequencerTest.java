@@ -36,12 +36,15 @@ import static org.modeshape.jcr.api.observation.Event.Sequencing.SEQUENCER_NAME;
 import static org.modeshape.jcr.api.observation.Event.Sequencing.USER_ID;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Workspace;
 import javax.jcr.observation.EventIterator;
@@ -64,6 +67,7 @@ import org.modeshape.jcr.api.JcrConstants;
 import org.modeshape.jcr.api.JcrTools;
 import org.modeshape.jcr.api.nodetype.NodeTypeManager;
 import org.modeshape.jcr.api.observation.Event;
+import org.teiid.modeshape.sequencer.output.OutputCache;
 
 /**
  * Class which serves as base for various sequencer unit tests. In addition to this, it uses the sequencing events fired by
@@ -102,6 +106,11 @@ public abstract class AbstractSequencerTest {
     /**
      * A [node path, node instance] map which is populated by the listener, once each sequencing event is received
      */
+    /**
+     * The temporary directory of the shared output cache, if enabled by the current test
+     */
+    private Path outputCacheDirectory;
+
     private final Map< String, Node > sequencedNodes = new HashMap< String, Node >();
 
     /**
@@ -133,8 +142,18 @@ public abstract class AbstractSequencerTest {
             this.observationManager.removeEventListener( it.nextEventListener() );
         }
 
-        stopRepository();
-        cleanupData();
+        try {
+            stopRepository();
+            cleanupData();
+        } finally {
+            if ( this.outputCacheDirectory != null ) {
+                final OutputCache cache = OutputCache.shared();
+                cache.clear();
+                cache.setDirectory( null );
+                Files.deleteIfExists( this.outputCacheDirectory );
+                this.outputCacheDirectory = null;
+            }
+        }
     }
 
     @Before
@@ -155,6 +174,21 @@ public abstract class AbstractSequencerTest {
         this.sequencingFailureLatches.clear();
     }
 
+    /**
+     * @param node the node whose subtree is counted (cannot be <code>null</code>)
+     * @return the number of nodes in the subtree, including the node itself
+     * @throws RepositoryException if anything fails
+     */
+    protected static long countNodes( final Node node ) throws RepositoryException {
+        long count = 1;
+
+        for ( final NodeIterator itr = node.getNodes(); itr.hasNext(); ) {
+            count += countNodes( itr.nextNode() );
+        }
+
+        return count;
+    }
+
     /**
      * Creates a nt:file node, under the root node, at the given path and with the jcr:data property pointing at the filepath.
      *
@@ -336,6 +370,21 @@ public abstract class AbstractSequencerTest {
         }
     }
 
+    /**
+     * Enables the {@link OutputCache#shared() shared output cache}, in a temporary directory, until the current test finishes.
+     *
+     * @return the shared output cache
+     * @throws IOException if the directory cannot be created
+     */
+    protected OutputCache useOutputCache() throws IOException {
+        if ( this.outputCacheDirectory == null ) {
+            this.outputCacheDirectory = Files.createTempDirectory( "output-cache" );
+            OutputCache.shared().setDirectory( this.outputCacheDirectory );
+        }
+
+        return OutputCache.shared();
+    }
+
     protected final class SequencingFailureListener implements EventListener {
         @SuppressWarnings( "synthetic-access" )
         @Override